@@ -164,6 +164,30 @@ public class ARQ
      */
     public static final Symbol queryTimeout = ARQConstants.allocSymbol("queryTimeout") ;
     
+    /**
+     * Per-query budget on the number of tuples scanned from storage.
+     * The value is a Number or a string parsed as a number; a negative value means no limit.
+     * Set it in the global context, in a dataset's context for the queries on that dataset,
+     * or in the context of a {@link QueryExecution} before it is executed.
+     * A query that goes over its budget is cancelled with a {@link QueryBudgetExceededException}. 
+     * @see com.hp.hpl.jena.sparql.engine.QueryBudget
+     */
+    public static final Symbol queryMaxTuples = ARQConstants.allocSymbol("queryMaxTuples") ;
+
+    /**
+     * Per-query budget on the number of storage blocks read.
+     * @see #queryMaxTuples
+     */
+    public static final Symbol queryMaxBlocks = ARQConstants.allocSymbol("queryMaxBlocks") ;
+
+    /**
+     * Per-query budget on the bytes held in memory by sorting and DISTINCT
+     * (estimated; data spilled to disk is no longer counted).
+     * @see #queryMaxTuples
+     * @see #spillToDiskThreshold
+     */
+    public static final Symbol queryMaxBufferedBytes = ARQConstants.allocSymbol("queryMaxBufferedBytes") ;
+    
     // This can't be a context constant because NodeValues don't look in the context.
 //    /**
 //     * Context symbol controlling Roman Numerals in Filters.
@@ -44,6 +44,9 @@ public class DatasetFactory
      */
     public static Dataset createMemFixed()  { return create(DatasetGraphFactory.createMemFixed()) ; }
 
+    /** Create an in-memory, transactional Dataset: readers see a consistent snapshot while a writer commits. */
+    public static Dataset createTxnMem()    { return create(DatasetGraphFactory.createTxnMem()) ; }
+
     /** Create an in-memory, modifyable Dataset
      * @deprecated Use createMem
      */
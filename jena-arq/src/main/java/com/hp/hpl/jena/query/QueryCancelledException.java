@@ -22,4 +22,5 @@ package com.hp.hpl.jena.query;
 public class QueryCancelledException extends QueryExecException
 {
     public QueryCancelledException() {}
+    public QueryCancelledException(String msg) { super(msg) ; }
 }
@@ -186,6 +186,11 @@ public class ARQConstants
      */
     public static final Symbol sysCurrentQuery          = Symbol.create(systemVarNS+"query") ;
 
+    /** Context key for the resource accounting of the current query execution
+     * @see com.hp.hpl.jena.sparql.engine.QueryBudget
+     */
+    public static final Symbol sysQueryBudget           = Symbol.create(systemVarNS+"queryBudget") ;
+
     /** Context key for the OpExecutor to be used */
     public static final Symbol sysOpExecutorFactory     = Symbol.create(systemVarNS+"opExecutorFactory") ;
 
@@ -257,6 +262,10 @@ public class ARQConstants
     public static final Symbol registryFunctions =
         ARQConstants.allocSymbol("registryFunctions") ;
     
+    /** The transitive closure index registry key */
+    public static final Symbol registryClosureIndexes =
+        ARQConstants.allocSymbol("registryClosureIndexes") ;
+    
     /** The function library registry key */
     public static final Symbol registryProcedures =
         ARQConstants.allocSymbol("registryProcedures") ;
@@ -94,4 +94,11 @@ public class DatasetGraphFactory
     public static DatasetGraph createMem() { return new DatasetGraphMaker(memGraphMaker) ; }
     
     public static DatasetGraph createMemFixed() { return new DatasetGraphMap(GraphFactory.createDefaultGraph()) ; }
+
+    /**
+     * Create an in-memory, transactional DatasetGraph.
+     * Readers see a consistent snapshot without blocking the single writer.
+     * @see DatasetGraphTxnMem
+     */
+    public static DatasetGraph createTxnMem() { return new DatasetGraphTxnMem() ; }
 }
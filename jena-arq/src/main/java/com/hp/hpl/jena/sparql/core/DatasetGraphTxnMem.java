@@ -0,0 +1,528 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.core;
+
+import java.util.Collections ;
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+import java.util.concurrent.locks.ReentrantLock ;
+
+import org.apache.jena.atlas.iterator.Filter ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.Transform ;
+import org.apache.jena.atlas.lib.PMap ;
+import org.apache.jena.atlas.lib.Pair ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.JenaTransactionException ;
+
+/**
+ * An in-memory DatasetGraph where readers never block and always see a consistent
+ * state, alongside a single writer.
+ * <p>
+ * The whole dataset is an immutable value, built from persistent maps ({@link PMap}),
+ * with indexes SPO, POS and OSP per graph. An update makes a new value sharing
+ * almost all of the old one, so a reader (or an iterator from {@code find}) keeps
+ * the value it started with, whatever is committed meanwhile.
+ * <ul>
+ * <li>{@code begin(READ)} fixes the snapshot seen by the thread until {@code end()}.
+ * <li>{@code begin(WRITE)} takes the single writer lock; the changes are published
+ * atomically by {@code commit()} and dropped by {@code abort()}.
+ * <li>Outside a transaction, each find sees the latest committed state and each
+ * update is committed on its own.
+ * </ul>
+ * Terms are matched by term equality (as in TDB), not by value.
+ */
+public class DatasetGraphTxnMem extends DatasetGraphTriplesQuads implements Transactional
+{
+    // Third level is a set: node -> itself.
+    private static final PMap<Node, PMap<Node, PMap<Node, Node>>> emptyIndex = PMap.empty() ;
+    private static final Node dftGraph = Quad.defaultGraphIRI ;
+
+    private static final int SPO = 0 ;
+    private static final int POS = 1 ;
+    private static final int OSP = 2 ;
+
+    private final ReentrantLock writer = new ReentrantLock() ;
+    private volatile Snapshot current = Snapshot.empty ;
+    private final ThreadLocal<Txn> txn = new ThreadLocal<>() ;
+
+    private static final class Txn {
+        final ReadWrite mode ;
+        Snapshot snapshot ;
+        Txn(ReadWrite mode, Snapshot snapshot) { this.mode = mode ; this.snapshot = snapshot ; }
+    }
+
+    public DatasetGraphTxnMem() {}
+
+    // ---- Transactions
+
+    @Override
+    public void begin(ReadWrite readWrite) {
+        if ( txn.get() != null )
+            throw new JenaTransactionException("Already in a transaction") ;
+        if ( readWrite == ReadWrite.WRITE )
+            writer.lock() ;
+        txn.set(new Txn(readWrite, current)) ;
+    }
+
+    @Override
+    public void commit() {
+        Txn t = txn.get() ;
+        if ( t == null )
+            throw new JenaTransactionException("Not in a transaction") ;
+        if ( t.mode == ReadWrite.WRITE ) {
+            current = t.snapshot ;
+            writer.unlock() ;
+        }
+        txn.remove() ;
+    }
+
+    @Override
+    public void abort() {
+        Txn t = txn.get() ;
+        if ( t == null )
+            throw new JenaTransactionException("Not in a transaction") ;
+        finish(t) ;
+    }
+
+    @Override
+    public boolean isInTransaction() {
+        return txn.get() != null ;
+    }
+
+    @Override
+    public void end() {
+        Txn t = txn.get() ;
+        if ( t != null )
+            finish(t) ;
+    }
+
+    private void finish(Txn t) {
+        if ( t.mode == ReadWrite.WRITE )
+            writer.unlock() ;
+        txn.remove() ;
+    }
+
+    /** The state this thread sees */
+    private Snapshot view() {
+        Txn t = txn.get() ;
+        return t == null ? current : t.snapshot ;
+    }
+
+    /** Apply an update: within the write transaction, or committed immediately. */
+    private void update(Update u) {
+        Txn t = txn.get() ;
+        if ( t == null ) {
+            writer.lock() ;
+            try { current = u.apply(current) ; }
+            finally { writer.unlock() ; }
+            return ;
+        }
+        if ( t.mode != ReadWrite.WRITE )
+            throw new JenaTransactionException("Attempt to update in a read transaction") ;
+        t.snapshot = u.apply(t.snapshot) ;
+    }
+
+    private interface Update { Snapshot apply(Snapshot s) ; }
+
+    // ---- DatasetGraph
+
+    @Override
+    public Graph getDefaultGraph() {
+        return GraphView.createDefaultGraph(this) ;
+    }
+
+    @Override
+    public Graph getGraph(Node graphNode) {
+        return GraphView.createNamedGraph(this, graphNode) ;
+    }
+
+    @Override
+    public void addGraph(final Node graphName, final Graph graph) {
+        update(new Update() {
+            @Override
+            public Snapshot apply(Snapshot s) {
+                Node g = Quad.isDefaultGraph(graphName) ? dftGraph : graphName ;
+                s = s.removeGraph(g) ;
+                Iterator<Triple> iter = graph.find(Node.ANY, Node.ANY, Node.ANY) ;
+                try {
+                    while ( iter.hasNext() ) {
+                        Triple t = iter.next() ;
+                        s = s.add(g, t.getSubject(), t.getPredicate(), t.getObject()) ;
+                    }
+                } finally { Iter.close(iter) ; }
+                return s ;
+            }
+        }) ;
+    }
+
+    @Override
+    public void removeGraph(final Node graphName) {
+        update(new Update() {
+            @Override
+            public Snapshot apply(Snapshot s) {
+                return s.removeGraph(Quad.isDefaultGraph(graphName) ? dftGraph : graphName) ;
+            }
+        }) ;
+    }
+
+    @Override
+    public boolean containsGraph(Node graphNode) {
+        if ( Quad.isDefaultGraph(graphNode) )
+            return true ;
+        return view().graphs.containsKey(graphNode) ;
+    }
+
+    @Override
+    public Iterator<Node> listGraphNodes() {
+        return Iter.removeNulls(Iter.map(view().graphs.keys(), new Transform<Node, Node>() {
+            @Override
+            public Node convert(Node g) { return g.equals(dftGraph) ? null : g ; }
+        })) ;
+    }
+
+    /** The number of named graphs */
+    @Override
+    public long size() {
+        PMap<Node, GraphIndex> graphs = view().graphs ;
+        return graphs.size() - (graphs.containsKey(dftGraph) ? 1 : 0) ;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return view().graphs.isEmpty() ;
+    }
+
+    @Override
+    public void clear() {
+        update(new Update() {
+            @Override
+            public Snapshot apply(Snapshot s) { return Snapshot.empty ; }
+        }) ;
+    }
+
+    @Override
+    public void deleteAny(final Node g, final Node s, final Node p, final Node o) {
+        // One update, so no reader sees a partial delete.
+        update(new Update() {
+            @Override
+            public Snapshot apply(Snapshot snapshot) {
+                Snapshot x = snapshot ;
+                Iterator<Quad> iter = find(snapshot, g, s, p, o) ;
+                while ( iter.hasNext() ) {
+                    Quad q = iter.next() ;
+                    x = x.delete(q.getGraph(), q.getSubject(), q.getPredicate(), q.getObject()) ;
+                }
+                return x ;
+            }
+        }) ;
+    }
+
+    @Override
+    protected void addToDftGraph(Node s, Node p, Node o) {
+        addQuad(dftGraph, s, p, o) ;
+    }
+
+    @Override
+    protected void addToNamedGraph(Node g, Node s, Node p, Node o) {
+        addQuad(g, s, p, o) ;
+    }
+
+    @Override
+    protected void deleteFromDftGraph(Node s, Node p, Node o) {
+        deleteQuad(dftGraph, s, p, o) ;
+    }
+
+    @Override
+    protected void deleteFromNamedGraph(Node g, Node s, Node p, Node o) {
+        deleteQuad(g, s, p, o) ;
+    }
+
+    private void addQuad(final Node g, final Node s, final Node p, final Node o) {
+        update(new Update() {
+            @Override
+            public Snapshot apply(Snapshot snapshot) { return snapshot.add(g, s, p, o) ; }
+        }) ;
+    }
+
+    private void deleteQuad(final Node g, final Node s, final Node p, final Node o) {
+        update(new Update() {
+            @Override
+            public Snapshot apply(Snapshot snapshot) { return snapshot.delete(g, s, p, o) ; }
+        }) ;
+    }
+
+    // Take one snapshot for the whole of a find.
+
+    @Override
+    public Iterator<Quad> find(Node g, Node s, Node p, Node o) {
+        return find(view(), g, s, p, o) ;
+    }
+
+    @Override
+    public Iterator<Quad> findNG(Node g, Node s, Node p, Node o) {
+        Snapshot snapshot = view() ;
+        if ( isWildcard(g) || Quad.isUnionGraph(g) )
+            return findInAnyNamedGraphs(snapshot, s, p, o) ;
+        return findInGraph(snapshot, g, s, p, o) ;
+    }
+
+    @Override
+    protected Iterator<Quad> findInDftGraph(Node s, Node p, Node o) {
+        return findInGraph(view(), dftGraph, s, p, o) ;
+    }
+
+    @Override
+    protected Iterator<Quad> findInSpecificNamedGraph(Node g, Node s, Node p, Node o) {
+        return findInGraph(view(), g, s, p, o) ;
+    }
+
+    @Override
+    protected Iterator<Quad> findInAnyNamedGraphs(Node s, Node p, Node o) {
+        return findInAnyNamedGraphs(view(), s, p, o) ;
+    }
+
+    private static Iterator<Quad> find(Snapshot snapshot, Node g, Node s, Node p, Node o) {
+        if ( Quad.isDefaultGraph(g) )
+            return findInGraph(snapshot, dftGraph, s, p, o) ;
+        if ( !isWildcard(g) && !Quad.isUnionGraph(g) )
+            return findInGraph(snapshot, g, s, p, o) ;
+        Iterator<Quad> iter = findInAnyNamedGraphs(snapshot, s, p, o) ;
+        if ( Quad.isUnionGraph(g) )
+            return iter ;
+        return Iter.append(findInGraph(snapshot, dftGraph, s, p, o), iter) ;
+    }
+
+    private static Iterator<Quad> findInGraph(Snapshot snapshot, Node g, Node s, Node p, Node o) {
+        GraphIndex gi = snapshot.graphs.get(g) ;
+        if ( gi == null )
+            return Iter.nullIterator() ;
+        return quads(g, gi.find(s, p, o)) ;
+    }
+
+    private static Iterator<Quad> findInAnyNamedGraphs(final Snapshot snapshot, final Node s, final Node p, final Node o) {
+        Iterator<Node> graphs = Iter.filter(snapshot.graphs.keys(), new Filter<Node>() {
+            @Override
+            public boolean accept(Node g) { return !g.equals(dftGraph) ; }
+        }) ;
+        return Iter.mapMany(graphs, new Transform<Node, Iterator<Quad>>() {
+            @Override
+            public Iterator<Quad> convert(Node g) { return findInGraph(snapshot, g, s, p, o) ; }
+        }) ;
+    }
+
+    private static Iterator<Quad> quads(final Node g, Iterator<Triple> triples) {
+        return Iter.map(triples, new Transform<Triple, Quad>() {
+            @Override
+            public Quad convert(Triple t) { return new Quad(g, t) ; }
+        }) ;
+    }
+
+    // ---- The immutable state
+
+    /** The whole dataset: graph name to indexes. Graphs with no triples are not kept. */
+    private static final class Snapshot {
+        static final Snapshot empty = new Snapshot(PMap.<Node, GraphIndex>empty()) ;
+
+        final PMap<Node, GraphIndex> graphs ;
+
+        Snapshot(PMap<Node, GraphIndex> graphs) { this.graphs = graphs ; }
+
+        Snapshot add(Node g, Node s, Node p, Node o) {
+            GraphIndex gi = graphs.get(g) ;
+            if ( gi == null )
+                gi = GraphIndex.empty ;
+            GraphIndex gi2 = gi.add(s, p, o) ;
+            return gi2 == gi ? this : new Snapshot(graphs.plus(g, gi2)) ;
+        }
+
+        Snapshot delete(Node g, Node s, Node p, Node o) {
+            GraphIndex gi = graphs.get(g) ;
+            if ( gi == null )
+                return this ;
+            GraphIndex gi2 = gi.delete(s, p, o) ;
+            if ( gi2 == gi )
+                return this ;
+            return new Snapshot(gi2.isEmpty() ? graphs.minus(g) : graphs.plus(g, gi2)) ;
+        }
+
+        Snapshot removeGraph(Node g) {
+            return graphs.containsKey(g) ? new Snapshot(graphs.minus(g)) : this ;
+        }
+    }
+
+    /** The triples of one graph, in three orders. */
+    private static final class GraphIndex {
+        static final GraphIndex empty = new GraphIndex(emptyIndex, emptyIndex, emptyIndex, 0) ;
+
+        final PMap<Node, PMap<Node, PMap<Node, Node>>> spo ;
+        final PMap<Node, PMap<Node, PMap<Node, Node>>> pos ;
+        final PMap<Node, PMap<Node, PMap<Node, Node>>> osp ;
+        final long size ;
+
+        GraphIndex(PMap<Node, PMap<Node, PMap<Node, Node>>> spo,
+                   PMap<Node, PMap<Node, PMap<Node, Node>>> pos,
+                   PMap<Node, PMap<Node, PMap<Node, Node>>> osp, long size) {
+            this.spo = spo ; this.pos = pos ; this.osp = osp ; this.size = size ;
+        }
+
+        boolean isEmpty() { return size == 0 ; }
+
+        boolean contains(Node s, Node p, Node o) {
+            PMap<Node, PMap<Node, Node>> x = spo.get(s) ;
+            if ( x == null )
+                return false ;
+            PMap<Node, Node> y = x.get(p) ;
+            return y != null && y.containsKey(o) ;
+        }
+
+        GraphIndex add(Node s, Node p, Node o) {
+            if ( contains(s, p, o) )
+                return this ;
+            return new GraphIndex(add(spo, s, p, o), add(pos, p, o, s), add(osp, o, s, p), size + 1) ;
+        }
+
+        GraphIndex delete(Node s, Node p, Node o) {
+            if ( !contains(s, p, o) )
+                return this ;
+            return new GraphIndex(delete(spo, s, p, o), delete(pos, p, o, s), delete(osp, o, s, p), size - 1) ;
+        }
+
+        private static PMap<Node, PMap<Node, PMap<Node, Node>>> add(PMap<Node, PMap<Node, PMap<Node, Node>>> index,
+                                                                   Node a, Node b, Node c) {
+            PMap<Node, PMap<Node, Node>> x = index.get(a) ;
+            if ( x == null )
+                x = PMap.empty() ;
+            PMap<Node, Node> y = x.get(b) ;
+            if ( y == null )
+                y = PMap.empty() ;
+            return index.plus(a, x.plus(b, y.plus(c, c))) ;
+        }
+
+        private static PMap<Node, PMap<Node, PMap<Node, Node>>> delete(PMap<Node, PMap<Node, PMap<Node, Node>>> index,
+                                                                      Node a, Node b, Node c) {
+            PMap<Node, PMap<Node, Node>> x = index.get(a) ;
+            PMap<Node, Node> y = x.get(b).minus(c) ;
+            x = y.isEmpty() ? x.minus(b) : x.plus(b, y) ;
+            return x.isEmpty() ? index.minus(a) : index.plus(a, x) ;
+        }
+
+        /** Choose the index as for GraphMem: subject, then object, then predicate. */
+        Iterator<Triple> find(Node s, Node p, Node o) {
+            s = concrete(s) ; p = concrete(p) ; o = concrete(o) ;
+            if ( s != null && p != null && o != null )
+                return contains(s, p, o) ? Iter.singleton(Triple.create(s, p, o)) : Iter.<Triple>nullIterator() ;
+            if ( s != null )
+                return new Scan(SPO, spo, s, p, o) ;
+            if ( o != null )
+                return new Scan(OSP, osp, o, s, p) ;
+            if ( p != null )
+                return new Scan(POS, pos, p, o, s) ;
+            return new Scan(SPO, spo, null, null, null) ;
+        }
+
+        private static Node concrete(Node n) {
+            return ( n == null || n == Node.ANY || n.isVariable() ) ? null : n ;
+        }
+    }
+
+    /** Iterate over the (a, b, c) entries of an index, with a, b and c fixed or any (null). */
+    private static final class Scan implements Iterator<Triple> {
+        private final int order ;
+        private final Node fixedB ;
+        private final Node fixedC ;
+        private final Iterator<Pair<Node, PMap<Node, PMap<Node, Node>>>> level1 ;
+        private Iterator<Pair<Node, PMap<Node, Node>>> level2 = null ;
+        private Iterator<Node> level3 = null ;
+        private Node a, b ;
+        private Triple next = null ;
+
+        Scan(int order, PMap<Node, PMap<Node, PMap<Node, Node>>> index, Node fixedA, Node fixedB, Node fixedC) {
+            this.order = order ;
+            this.fixedB = fixedB ;
+            this.fixedC = fixedC ;
+            this.level1 = entries(index, fixedA) ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( next != null )
+                return true ;
+            for ( ;; ) {
+                if ( level3 != null && level3.hasNext() ) {
+                    next = triple(a, b, level3.next()) ;
+                    return true ;
+                }
+                if ( level2 != null && level2.hasNext() ) {
+                    Pair<Node, PMap<Node, Node>> e = level2.next() ;
+                    b = e.getLeft() ;
+                    PMap<Node, Node> set = e.getRight() ;
+                    if ( fixedC == null )
+                        level3 = set.keys() ;
+                    else
+                        level3 = set.containsKey(fixedC) ? Iter.singleton(fixedC) : Iter.<Node>nullIterator() ;
+                    continue ;
+                }
+                if ( level1.hasNext() ) {
+                    Pair<Node, PMap<Node, PMap<Node, Node>>> e = level1.next() ;
+                    a = e.getLeft() ;
+                    level2 = entries(e.getRight(), fixedB) ;
+                    level3 = null ;
+                    continue ;
+                }
+                return false ;
+            }
+        }
+
+        @Override
+        public Triple next() {
+            if ( !hasNext() )
+                throw new NoSuchElementException("DatasetGraphTxnMem.find") ;
+            Triple t = next ;
+            next = null ;
+            return t ;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("DatasetGraphTxnMem.find.remove") ;
+        }
+
+        private Triple triple(Node a, Node b, Node c) {
+            switch (order) {
+                case SPO : return Triple.create(a, b, c) ;
+                case POS : return Triple.create(c, a, b) ;
+                default :  return Triple.create(b, c, a) ;
+            }
+        }
+
+        private static <X> Iterator<Pair<Node, X>> entries(PMap<Node, X> map, Node fixed) {
+            if ( fixed == null )
+                return map.iterator() ;
+            X x = map.get(fixed) ;
+            if ( x == null )
+                return Iter.nullIterator() ;
+            return Collections.singletonList(Pair.create(fixed, x)).iterator() ;
+        }
+    }
+}
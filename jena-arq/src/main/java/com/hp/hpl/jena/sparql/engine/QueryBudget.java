@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine;
+
+import org.apache.jena.atlas.logging.Log ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.QueryBudgetExceededException ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.Symbol ;
+
+/**
+ * Resource accounting for one query execution: the tuples scanned from storage, 
+ * the storage blocks read, and the bytes held in memory by sorting and DISTINCT.
+ * <p>
+ * A budget is placed in the execution context (key {@link ARQConstants#sysQueryBudget})
+ * when the query execution builds its plan. The limits are taken from the context symbols
+ * {@link ARQ#queryMaxTuples}, {@link ARQ#queryMaxBlocks} and {@link ARQ#queryMaxBufferedBytes}
+ * so they can be set globally, per dataset or per query execution.
+ * <p>
+ * Storage and the query engine report usage with the {@code add} operations.
+ * Going over a limit cancels the query: a {@link QueryBudgetExceededException}
+ * (a kind of {@link com.hp.hpl.jena.query.QueryCancelledException}) is thrown
+ * in the thread executing the query, the same as when an abortable iterator has been aborted.
+ * <p>
+ * Counts are updated by the thread executing the query without synchronization;
+ * other threads (e.g. for logging) may see slightly out of date values. 
+ */
+public class QueryBudget
+{
+    /** No limit */
+    public static final long Unlimited = -1 ;
+    
+    private final long maxTuples ;
+    private final long maxBlocks ;
+    private final long maxBytes ;
+    
+    private long tuples = 0 ;
+    private long blocks = 0 ;
+    private long bytes = 0 ;
+    private long peakBytes = 0 ;
+    
+    /** Create a budget with the limits from the context and add it to the context */ 
+    public static QueryBudget create(Context context)
+    {
+        QueryBudget budget = new QueryBudget(limit(context, ARQ.queryMaxTuples),
+                                             limit(context, ARQ.queryMaxBlocks),
+                                             limit(context, ARQ.queryMaxBufferedBytes)) ;
+        context.set(ARQConstants.sysQueryBudget, budget) ;
+        return budget ;
+    }
+    
+    /** The budget of the query execution for this context, or null */ 
+    public static QueryBudget get(Context context)
+    {
+        if ( context == null )
+            return null ;
+        Object x = context.get(ARQConstants.sysQueryBudget) ;
+        if ( x instanceof QueryBudget )
+            return (QueryBudget)x ;
+        return null ;
+    }
+    
+    private static long limit(Context context, Symbol symbol)
+    {
+        Object x = context.get(symbol) ;
+        if ( x == null )
+            return Unlimited ;
+        if ( x instanceof Number )
+            return ((Number)x).longValue() ;
+        try { return Long.parseLong(x.toString().trim()) ; }
+        catch (NumberFormatException ex) {
+            Log.warn(QueryBudget.class, "Can't interpret "+symbol+": "+x) ;
+            return Unlimited ;
+        }
+    }
+
+    /** Create a budget; a negative limit means no limit. */
+    public QueryBudget(long maxTuples, long maxBlocks, long maxBytes)
+    {
+        this.maxTuples = maxTuples ;
+        this.maxBlocks = maxBlocks ;
+        this.maxBytes = maxBytes ;
+    }
+    
+    /** Record tuples scanned from storage */
+    public void addTuples(long n)
+    {
+        tuples += n ;
+        if ( maxTuples >= 0 && tuples > maxTuples )
+            exceeded("tuples scanned", tuples, maxTuples) ;
+    }
+
+    /** Record storage blocks read */
+    public void addBlocks(long n)
+    {
+        blocks += n ;
+        if ( maxBlocks >= 0 && blocks > maxBlocks )
+            exceeded("blocks read", blocks, maxBlocks) ;
+    }
+    
+    /** Record bytes now held in memory */
+    public void addBytes(long n)
+    {
+        bytes += n ;
+        if ( bytes > peakBytes )
+            peakBytes = bytes ;
+        if ( maxBytes >= 0 && bytes > maxBytes )
+            exceeded("bytes buffered", bytes, maxBytes) ;
+    }
+
+    /** Record bytes no longer held in memory (e.g. written to disk) */
+    public void releaseBytes(long n)
+    {
+        bytes = Math.max(0, bytes-n) ;
+    }
+    
+    private static void exceeded(String what, long count, long limit)
+    {
+        throw new QueryBudgetExceededException("Query budget exceeded: "+what+" = "+count+" (limit "+limit+")") ;
+    }
+    
+    public long getTuplesScanned()      { return tuples ; }
+    public long getBlocksRead()         { return blocks ; }
+    public long getBytesBuffered()      { return bytes ; }
+    public long getPeakBytesBuffered()  { return peakBytes ; }
+
+    public long getMaxTuples()          { return maxTuples ; }
+    public long getMaxBlocks()          { return maxBlocks ; }
+    public long getMaxBytes()           { return maxBytes ; }
+    
+    @Override
+    public String toString()
+    {
+        return String.format("tuples=%d blocks=%d bytes=%d", tuples, blocks, peakBytes) ;
+    }
+}
@@ -543,6 +543,8 @@ public class QueryExecutionBase implements QueryExecution
                 inputBinding = BindingUtils.asBinding(initialBinding) ;
             if ( inputBinding == null )
                 inputBinding = BindingRoot.create() ;
+            // Resource accounting, and any budgets, for this execution.
+            QueryBudget.create(getContext()) ;
 
             plan = qeFactory.create(query, dsg, inputBinding, getContext()) ;
         }            
@@ -43,22 +43,23 @@ import com.hp.hpl.jena.sparql.engine.binding.BindingComparator ;
 public class QueryIterDistinct extends QueryIterDistinctReduced
 {
     final DistinctDataNet<Binding> db ;
+    private final ThresholdPolicy<Binding> policy ;
 
     public QueryIterDistinct(QueryIterator qIter, ExecutionContext context)
     {
         super(qIter, context) ;
-        ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(context.getContext()) ;
+        this.policy = ThresholdPolicyFactory.policyFromContext(context.getContext(), SerializationFactoryFinder.bindingSerializationFactory()) ;
         Comparator<Binding> comparator = new BindingComparator(new ArrayList<SortCondition>(), context) ;
         this.db = BagFactory.newDistinctNet(policy, SerializationFactoryFinder.bindingSerializationFactory(), comparator) ;
     }
     
     @Override
     protected void closeSubIterator()
-    { db.close() ; }
+    { db.close() ; policy.reset() ; }
 
     @Override
     protected void requestSubCancel()
-    { db.close() ; }
+    { db.close() ; policy.reset() ; }
 
     @Override
     protected boolean isFreshSighting(Binding binding)
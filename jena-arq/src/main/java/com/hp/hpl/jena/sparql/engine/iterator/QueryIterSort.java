@@ -48,6 +48,7 @@ public class QueryIterSort extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;      // Keep a record of the underlying source for .cancel.
 	final SortedDataBag<Binding> db;
+	private final ThresholdPolicy<Binding> policy ;
 	
     public QueryIterSort(QueryIterator qIter, List<SortCondition> conditions, ExecutionContext context)
     {
@@ -59,7 +60,7 @@ public class QueryIterSort extends QueryIterPlainWrapper
         super(null, context) ;
         this.embeddedIterator = qIter ;
         
-        ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(context.getContext());
+        this.policy = ThresholdPolicyFactory.policyFromContext(context.getContext(), SerializationFactoryFinder.bindingSerializationFactory());
         this.db = BagFactory.newSortedBag(policy, SerializationFactoryFinder.bindingSerializationFactory(), comparator);
         
         this.setIterator(new SortedBindingIterator(qIter));
@@ -103,6 +104,8 @@ public class QueryIterSort extends QueryIterPlainWrapper
         public void close()
         {
             db.close();
+            // Release any memory accounting.
+            policy.reset();
         }
     }
     
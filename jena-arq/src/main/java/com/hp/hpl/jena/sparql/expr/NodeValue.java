@@ -1070,7 +1070,15 @@ public abstract class NodeValue extends ExprNode
 
             // Order here is promotion order integer-decimal-float-double
             
-            if ( ! datatype.equals(XSDdecimal) ) {
+            // For the commonest datatypes, use the value held by the literal label.
+            // It is parsed once and then kept with the node.
+            if ( datatype.equals(XSDinteger) ) {
+                if ( lit.isWellFormed() ) {
+                    Number n = (Number)lit.getValue() ;
+                    BigInteger integer = ( n instanceof BigInteger ) ? (BigInteger)n : BigInteger.valueOf(n.longValue()) ;
+                    return new NodeValueInteger(integer, node) ;
+                }
+            } else if ( ! datatype.equals(XSDdecimal) ) {
                 // XSD integer and derived types 
                 if ( XSDinteger.isValidLiteral(lit) )
                 {
@@ -1085,7 +1093,7 @@ public abstract class NodeValue extends ExprNode
                 }
             }
             
-            if ( datatype.equals(XSDdecimal) && XSDdecimal.isValidLiteral(lit) ) {
+            if ( datatype.equals(XSDdecimal) && lit.isWellFormed() ) {
                 BigDecimal decimal = new BigDecimal(lit.getLexicalForm()) ;
                 return new NodeValueDecimal(decimal, node) ;
             }
@@ -1097,17 +1105,18 @@ public abstract class NodeValue extends ExprNode
                 return new NodeValueFloat(f, node) ;
             }
 
-            if ( datatype.equals(XSDdouble) && XSDdouble.isValidLiteral(lit) ) {
+            if ( datatype.equals(XSDdouble) && lit.isWellFormed() ) {
                 double d = ((Number)lit.getValue()).doubleValue() ;
                 return new NodeValueDouble(d, node) ;
             }
 
-            if ( (datatype.equals(XSDdateTime) || datatype.equals(XSDdateTimeStamp)) && XSDdateTime.isValid(lex) ) {
+            if ( ( datatype.equals(XSDdateTime) && lit.isWellFormed() ) || 
+                 ( datatype.equals(XSDdateTimeStamp) && XSDdateTime.isValid(lex) ) ) {
                 XSDDateTime dateTime = (XSDDateTime)lit.getValue() ;
                 return new NodeValueDT(lex, node) ;
             }
 
-            if ( datatype.equals(XSDdate) && XSDdate.isValidLiteral(lit) ) {
+            if ( datatype.equals(XSDdate) && lit.isWellFormed() ) {
                 // Jena datatype support works on masked dataTimes.
                 XSDDateTime dateTime = (XSDDateTime)lit.getValue() ;
                 return new NodeValueDT(lex, node) ;
@@ -1155,7 +1164,7 @@ public abstract class NodeValue extends ExprNode
                 return new NodeValueDuration(duration, node) ;
             }
             
-            if ( datatype.equals(XSDboolean) && XSDboolean.isValidLiteral(lit) ) {
+            if ( datatype.equals(XSDboolean) && lit.isWellFormed() ) {
                 boolean b = (Boolean) lit.getValue();
                 return new NodeValueBoolean(b, node) ;
             }
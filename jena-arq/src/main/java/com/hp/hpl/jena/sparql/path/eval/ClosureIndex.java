@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.sparql.path.eval ;
+
+import java.util.* ;
+import java.util.concurrent.CopyOnWriteArrayList ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.GraphUtil ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.graph.GraphListenerBase ;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
+
+/**
+ * Transitive closure of one predicate of a graph, kept as triples
+ * {@code (x closedPredicate y)} for each pair where {@code x p+ y}.
+ * <p>
+ * The closure is held in a separate graph, so with a TDB graph as the store
+ * it is persistent and off-heap. Lookups of successors or predecessors are
+ * then one index scan, proportional to the size of the result.
+ * <p>
+ * The index is maintained incrementally by {@link #add} and {@link #delete},
+ * which are called for changes to the graph if the index is registered as a
+ * listener with the graph's event manager. Changes made without events
+ * (such as bulk loading into TDB) need a {@link #rebuild}.
+ * <p>
+ * Property path evaluation uses an index for {@code p+} and {@code p*} when
+ * it is registered in the query context with {@link #register} and the
+ * active graph of the query is the graph of the index.
+ */
+public class ClosureIndex extends GraphListenerBase
+{
+    private final Graph graph ;
+    private final Node predicate ;
+    private final Graph store ;
+    private final Node closedPredicate ;
+
+    /**
+     * Create an index over a graph. If the store holds no closure triples
+     * the closure is computed, otherwise the store is assumed to be up to date.
+     * @param graph the data
+     * @param predicate the predicate to close
+     * @param store the graph holding the closure, can be the data graph
+     * @param closedPredicate the predicate of the closure triples
+     */
+    public ClosureIndex(Graph graph, Node predicate, Graph store, Node closedPredicate) {
+        if ( predicate.equals(closedPredicate) )
+            throw new IllegalArgumentException("The closure needs a different predicate: "+predicate) ;
+        this.graph = graph ;
+        this.predicate = predicate ;
+        this.store = store ;
+        this.closedPredicate = closedPredicate ;
+        if ( ! store.contains(Node.ANY, closedPredicate, Node.ANY) )
+            rebuild() ;
+    }
+
+    public Graph getGraph()             { return graph ; }
+    public Node getPredicate()          { return predicate ; }
+    public Graph getStore()             { return store ; }
+    public Node getClosedPredicate()    { return closedPredicate ; }
+
+    /** Recompute the closure from the graph */
+    public synchronized void rebuild() {
+        store.remove(Node.ANY, closedPredicate, Node.ANY) ;
+        Set<Node> sources = new HashSet<>() ;
+        ExtendedIterator<Triple> iter = graph.find(Node.ANY, predicate, Node.ANY) ;
+        try {
+            while ( iter.hasNext() )
+                sources.add(iter.next().getSubject()) ;
+        } finally { iter.close() ; }
+        List<Triple> batch = new ArrayList<>() ;
+        for ( Node x : sources ) {
+            for ( Node y : reach(x, null) )
+                batch.add(Triple.create(x, closedPredicate, y)) ;
+            if ( batch.size() >= BatchSize ) {
+                GraphUtil.add(store, batch) ;
+                batch.clear() ;
+            }
+        }
+        GraphUtil.add(store, batch) ;
+    }
+
+    private static final int BatchSize = 10000 ;
+
+    /** The nodes reachable from a node in one or more steps */
+    public Iterator<Node> successors(Node node) {
+        return Iter.iter(store.find(node, closedPredicate, Node.ANY)).map(PathEngine.selectObject) ;
+    }
+
+    /** The nodes which reach a node in one or more steps */
+    public Iterator<Node> predecessors(Node node) {
+        return Iter.iter(store.find(Node.ANY, closedPredicate, node)).map(PathEngine.selectSubject) ;
+    }
+
+    /** Test whether there is a path of one or more steps between two nodes */
+    public boolean reaches(Node start, Node end) {
+        return store.contains(start, closedPredicate, end) ;
+    }
+
+    /** Update the closure for a triple added to the graph */
+    public synchronized void add(Triple triple) {
+        if ( ! predicate.equals(triple.getPredicate()) )
+            return ;
+        Node a = triple.getSubject() ;
+        Node b = triple.getObject() ;
+        if ( reaches(a, b) )
+            return ;
+        // Everything reaching a (and a) now reaches b and everything b reaches.
+        List<Node> starts = Iter.toList(predecessors(a)) ;
+        starts.add(a) ;
+        List<Node> ends = Iter.toList(successors(b)) ;
+        ends.add(b) ;
+        List<Triple> batch = new ArrayList<>() ;
+        for ( Node x : starts ) {
+            for ( Node y : ends ) {
+                if ( ! reaches(x, y) )
+                    batch.add(Triple.create(x, closedPredicate, y)) ;
+            }
+        }
+        GraphUtil.add(store, batch) ;
+    }
+
+    /** Update the closure for a triple deleted from the graph */
+    public synchronized void delete(Triple triple) {
+        if ( ! predicate.equals(triple.getPredicate()) )
+            return ;
+        Node a = triple.getSubject() ;
+        Node b = triple.getObject() ;
+        if ( ! reaches(a, b) || graph.contains(a, predicate, b) )
+            return ;
+        // Only the closure of nodes reaching a can change. Recompute those,
+        // reusing the closure of any other node, which does not involve a.
+        Set<Node> affected = new HashSet<>(Iter.toList(predecessors(a))) ;
+        affected.add(a) ;
+        List<Triple> removed = new ArrayList<>() ;
+        for ( Node x : affected ) {
+            Set<Node> now = reach(x, affected) ;
+            Iterator<Node> iter = successors(x) ;
+            while ( iter.hasNext() ) {
+                Node y = iter.next() ;
+                if ( ! now.contains(y) )
+                    removed.add(Triple.create(x, closedPredicate, y)) ;
+            }
+        }
+        GraphUtil.delete(store, removed) ;
+    }
+
+    /**
+     * The nodes reachable from a node in the graph. Nodes outside the
+     * expand set contribute their stored closure rather than being walked.
+     */
+    private Set<Node> reach(Node start, Set<Node> expand) {
+        Set<Node> visited = new LinkedHashSet<>() ;
+        Deque<Node> stack = new ArrayDeque<>() ;
+        stack.push(start) ;
+        while ( ! stack.isEmpty() ) {
+            Node node = stack.pop() ;
+            ExtendedIterator<Triple> iter = graph.find(node, predicate, Node.ANY) ;
+            try {
+                while ( iter.hasNext() ) {
+                    Node next = iter.next().getObject() ;
+                    if ( ! visited.add(next) )
+                        continue ;
+                    if ( expand == null || expand.contains(next) )
+                        stack.push(next) ;
+                    else {
+                        Iterator<Node> iter2 = successors(next) ;
+                        while ( iter2.hasNext() )
+                            visited.add(iter2.next()) ;
+                    }
+                }
+            } finally { iter.close() ; }
+        }
+        return visited ;
+    }
+
+    @Override
+    protected void addEvent(Triple t)       { add(t) ; }
+
+    @Override
+    protected void deleteEvent(Triple t)    { delete(t) ; }
+
+    // ---- Registry
+
+    /** Make an index available to property path evaluation with the given context */
+    public static void register(Context context, ClosureIndex index) {
+        synchronized (context) {
+            List<ClosureIndex> indexes = get(context) ;
+            if ( indexes == null ) {
+                indexes = new CopyOnWriteArrayList<>() ;
+                context.set(ARQConstants.registryClosureIndexes, indexes) ;
+            }
+            indexes.add(index) ;
+        }
+    }
+
+    /** Remove an index from a context */
+    public static void unregister(Context context, ClosureIndex index) {
+        List<ClosureIndex> indexes = get(context) ;
+        if ( indexes != null )
+            indexes.remove(index) ;
+    }
+
+    /** Find the index for a predicate of a graph, or return null */
+    public static ClosureIndex find(Context context, Graph graph, Node predicate) {
+        List<ClosureIndex> indexes = get(context) ;
+        if ( indexes == null )
+            return null ;
+        for ( ClosureIndex index : indexes ) {
+            if ( index.graph == graph && index.predicate.equals(predicate) )
+                return index ;
+        }
+        return null ;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ClosureIndex> get(Context context) {
+        if ( context == null )
+            return null ;
+        return (List<ClosureIndex>)context.get(ARQConstants.registryClosureIndexes) ;
+    }
+}
@@ -36,6 +36,7 @@ import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRoot ;
+import com.hp.hpl.jena.sparql.path.P_Link ;
 import com.hp.hpl.jena.sparql.path.P_NegPropSet ;
 import com.hp.hpl.jena.sparql.path.Path ;
 import com.hp.hpl.jena.sparql.path.eval.PathEvaluator.FilterExclude ;
@@ -110,6 +111,25 @@ abstract public class PathEngine
         return iter2 ;
     }
 
+    // Where a transitive closure index is available for p+ or p*
+    // (no duplicates so works for both strategies).
+    protected final boolean doClosure(Path pathStep, Node node, boolean zeroLength, Collection<Node> output) {
+        if ( !(pathStep instanceof P_Link) )
+            return false ;
+        ClosureIndex index = ClosureIndex.find(context, graph, ((P_Link)pathStep).getNode()) ;
+        if ( index == null )
+            return false ;
+        if ( zeroLength )
+            output.add(node) ;
+        Iterator<Node> iter = direction() ? index.successors(node) : index.predecessors(node) ;
+        for (; iter.hasNext();) {
+            Node n = iter.next() ;
+            if ( !zeroLength || !n.equals(node) )
+                output.add(n) ;
+        }
+        return true ;
+    }
+
     protected abstract void doSeq(Path pathStepLeft, Path pathStepRight, Node node, Collection<Node> output) ;
 
     protected abstract void doAlt(Path pathStepLeft, Path pathStepRight, Node node, Collection<Node> output) ;
@@ -87,6 +87,8 @@ public class PathEngineSPARQL extends PathEngine
 
     @Override
     protected void doZeroOrMore(Path pathStep, Node node, Collection<Node> output) {
+        if ( doClosure(pathStep, node, true, output) )
+            return ;
         // Reuse "output"
         Collection<Node> visited = new LinkedList<>() ; // new
                                                             // HashSet<Node>() ;
@@ -96,6 +98,8 @@ public class PathEngineSPARQL extends PathEngine
 
     @Override
     protected void doOneOrMore(Path pathStep, Node node, Collection<Node> output) {
+        if ( doClosure(pathStep, node, false, output) )
+            return ;
         // Reuse "output"
         Collection<Node> visited = new LinkedList<>() ; // new
                                                             // HashSet<Node>() ;
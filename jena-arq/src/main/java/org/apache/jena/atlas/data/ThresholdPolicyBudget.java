@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.data;
+
+import com.hp.hpl.jena.sparql.engine.QueryBudget ;
+
+/**
+ * A threshold policy that passes decisions to another policy, and charges the
+ * estimated memory size of the items held in memory to a {@link QueryBudget}.
+ * The charge is released when the policy is reset (the items have been written to disk
+ * or the data bag is finished with).
+ */
+public class ThresholdPolicyBudget<T> implements ThresholdPolicy<T>
+{
+    private final ThresholdPolicy<T> policy ;
+    private final QueryBudget budget ;
+    private final SerializationFactory<T> serializerFactory ;
+    private long size = 0 ;
+    
+    public ThresholdPolicyBudget(ThresholdPolicy<T> policy, QueryBudget budget, SerializationFactory<T> serializerFactory)
+    {
+        this.policy = policy ;
+        this.budget = budget ;
+        this.serializerFactory = serializerFactory ;
+    }
+
+    @Override
+    public void increment(T item)
+    {
+        policy.increment(item) ;
+        long x = serializerFactory.getEstimatedMemorySize(item) ;
+        size += x ;
+        budget.addBytes(x) ;
+    }
+
+    @Override
+    public boolean isThresholdExceeded()
+    {
+        return policy.isThresholdExceeded() ;
+    }
+
+    @Override
+    public void reset()
+    {
+        policy.reset() ;
+        budget.releaseBytes(size) ;
+        size = 0 ;
+    }
+    
+    /** Estimated size, in bytes, of the items currently charged to the budget */
+    public long getMemorySize()
+    {
+        return size ;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ThresholdPolicyBudget:  Memory Size (bytes)=" + size + "  " + policy ;
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.jena.atlas.data ;
 
 import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.engine.QueryBudget ;
 import com.hp.hpl.jena.sparql.util.Context ;
 
 public class ThresholdPolicyFactory
@@ -80,4 +81,17 @@ public class ThresholdPolicyFactory
             return never() ;
         }
     }
+
+    /**
+     * As {@link #policyFromContext(Context)}, and also charge the estimated memory size of
+     * the items held to the query's {@link QueryBudget} if the context has one.
+     */
+    public static <E> ThresholdPolicy<E> policyFromContext(Context context, SerializationFactory<E> serializerFactory)
+    {
+        ThresholdPolicy<E> policy = policyFromContext(context) ;
+        QueryBudget budget = QueryBudget.get(context) ;
+        if ( budget == null )
+            return policy ;
+        return new ThresholdPolicyBudget<>(policy, budget, serializerFactory) ;
+    }
 }
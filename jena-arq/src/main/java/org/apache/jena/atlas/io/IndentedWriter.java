@@ -129,6 +129,36 @@ public class IndentedWriter extends AWriterBase implements AWriter, Closeable
         }
     }
 
+    /** Print text that has already been laid out, such as the contents of an
+     * {@link IndentedLineBuffer}, with "\n" line ends. When there is no
+     * indentation or line decoration to apply, the text is written in one
+     * operation and the row and column updated; otherwise it is the same as
+     * {@link #print(String)}.
+     */
+    public void printFormatted(String str)
+    {
+        if ( lineNumbers || flatMode || flushOnNewline || endOfLineMarker != null || currentIndent > 0 || str.isEmpty() )
+        {
+            print(str) ;
+            return ;
+        }
+        write$(str) ;
+        int lines = 0 ;
+        int lastNL = -1 ;
+        for ( int i = 0 ; i < str.length() ; i++ )
+        {
+            if ( str.charAt(i) == '\n' )
+            {
+                lines++ ;
+                lastNL = i ;
+            }
+        }
+        row += lines ;
+        column = ( lastNL < 0 ) ? column + str.length() : str.length() - lastNL - 1 ;
+        lastChar = str.charAt(str.length()-1) ;
+        startingNewLine = ( lastChar == '\n' ) ;
+    }
+
     /** Print a string N times */
     public void print(String s, int n)
     {
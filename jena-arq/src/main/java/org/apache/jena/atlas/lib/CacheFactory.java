@@ -30,6 +30,14 @@ public class CacheFactory {
         return new CacheGuava<>(maxSize) ;
     }
 
+    /**
+     * Create an LRU cache whose capacity can be changed later
+     * (see {@link CacheLRU#setMaxSize}). The cache returns null for a cache miss.
+     */
+    public static <Key, Value> CacheLRU<Key, Value> createResizableCache(int maxSize) {
+        return new CacheLRU<>(maxSize) ;
+    }
+
     /** Create a null cache */
     public static <Key, Value> Cache<Key, Value> createNullCache() {
         return new Cache0<>() ;
@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.lib;
+
+import java.util.ArrayDeque ;
+import java.util.Deque ;
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+/**
+ * An immutable (persistent) map: {@link #plus} and {@link #minus} return a new map
+ * and leave the original unchanged. The two share all structure except the path
+ * to the changed entry, so an update costs O(log<sub>32</sub> n) time and space.
+ * <p>
+ * This is a hash array mapped trie: each branch node holds up to 32 children,
+ * selected by successive 5 bit slices of the key's hash code. Keys with the same
+ * hash code share a collision node.
+ * <p>
+ * As nothing is ever changed in place, a map may be read, and iterated, by any number
+ * of threads without locking.
+ */
+public final class PMap<K, V> implements Iterable<Pair<K, V>>
+{
+    private static final PMap<Object, Object> empty = new PMap<>(null, 0) ;
+
+    /** The empty map */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PMap<K, V> empty() { return (PMap<K, V>)empty ; }
+
+    // Nodes are Leaf, Branch or Collision.
+    private final Object root ;
+    private final int size ;
+
+    private PMap(Object root, int size) {
+        this.root = root ;
+        this.size = size ;
+    }
+
+    public int size()           { return size ; }
+
+    public boolean isEmpty()    { return size == 0 ; }
+
+    /** Get the value for key, or null */
+    public V get(K key) {
+        int hash = hash(key) ;
+        Object node = root ;
+        int shift = 0 ;
+        for ( ;; ) {
+            if ( node instanceof Branch ) {
+                Branch b = (Branch)node ;
+                int bit = bit(hash, shift) ;
+                if ( (b.bitmap & bit) == 0 )
+                    return null ;
+                node = b.kids[index(b.bitmap, bit)] ;
+                shift += 5 ;
+                continue ;
+            }
+            Leaf leaf = ( node instanceof Collision ) ? ((Collision)node).find(hash, key) : (Leaf)node ;
+            if ( leaf == null || leaf.hash != hash || !leaf.key.equals(key) )
+                return null ;
+            @SuppressWarnings("unchecked")
+            V v = (V)leaf.value ;
+            return v ;
+        }
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null ;
+    }
+
+    /** Return a map with the addition of key to value (replacing any existing value for key) */
+    public PMap<K, V> plus(K key, V value) {
+        if ( key == null || value == null )
+            throw new IllegalArgumentException("PMap: null key or value") ;
+        int hash = hash(key) ;
+        Leaf leaf = new Leaf(hash, key, value) ;
+        boolean exists = get(key) != null ;
+        Object root2 = plus(root, leaf, 0) ;
+        if ( root2 == root )
+            return this ;
+        return new PMap<>(root2, exists ? size : size + 1) ;
+    }
+
+    /** Return a map without key */
+    public PMap<K, V> minus(K key) {
+        if ( get(key) == null )
+            return this ;
+        Object root2 = minus(root, hash(key), key, 0) ;
+        return new PMap<>(root2, size - 1) ;
+    }
+
+    /** Iterate over the keys of the map */
+    public Iterator<K> keys() {
+        final Iterator<Pair<K, V>> iter = iterator() ;
+        return new Iterator<K>() {
+            @Override public boolean hasNext()  { return iter.hasNext() ; }
+            @Override public K next()           { return iter.next().getLeft() ; }
+            @Override public void remove()      { throw new UnsupportedOperationException("PMap.keys.remove") ; }
+        } ;
+    }
+
+    /** Iterate over the values of the map */
+    public Iterator<V> values() {
+        final Iterator<Pair<K, V>> iter = iterator() ;
+        return new Iterator<V>() {
+            @Override public boolean hasNext()  { return iter.hasNext() ; }
+            @Override public V next()           { return iter.next().getRight() ; }
+            @Override public void remove()      { throw new UnsupportedOperationException("PMap.values.remove") ; }
+        } ;
+    }
+
+    /** Iterate over the entries of the map */
+    @Override
+    public Iterator<Pair<K, V>> iterator() {
+        return new PMapIterator<>(root) ;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{") ;
+        String sep = "" ;
+        for ( Pair<K, V> p : this ) {
+            sb.append(sep).append(p.getLeft()).append("=").append(p.getRight()) ;
+            sep = ", " ;
+        }
+        return sb.append("}").toString() ;
+    }
+
+    // ---- Implementation
+
+    private static final class Leaf {
+        final int    hash ;
+        final Object key ;
+        final Object value ;
+        Leaf(int hash, Object key, Object value) { this.hash = hash ; this.key = key ; this.value = value ; }
+    }
+
+    private static final class Branch {
+        final int      bitmap ;
+        final Object[] kids ;
+        Branch(int bitmap, Object[] kids) { this.bitmap = bitmap ; this.kids = kids ; }
+    }
+
+    private static final class Collision {
+        final int    hash ;
+        final Leaf[] leaves ;
+        Collision(int hash, Leaf[] leaves) { this.hash = hash ; this.leaves = leaves ; }
+
+        Leaf find(int hash, Object key) {
+            if ( hash != this.hash )
+                return null ;
+            for ( Leaf leaf : leaves )
+                if ( leaf.key.equals(key) )
+                    return leaf ;
+            return null ;
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() ;
+        return h ^ (h >>> 16) ;
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31) ;
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1)) ;
+    }
+
+    private static int nodeHash(Object node) {
+        return ( node instanceof Leaf ) ? ((Leaf)node).hash : ((Collision)node).hash ;
+    }
+
+    private static Object plus(Object node, Leaf leaf, int shift) {
+        if ( node == null )
+            return leaf ;
+        if ( node instanceof Branch ) {
+            Branch b = (Branch)node ;
+            int bit = bit(leaf.hash, shift) ;
+            int idx = index(b.bitmap, bit) ;
+            if ( (b.bitmap & bit) == 0 ) {
+                Object[] kids = new Object[b.kids.length + 1] ;
+                System.arraycopy(b.kids, 0, kids, 0, idx) ;
+                kids[idx] = leaf ;
+                System.arraycopy(b.kids, idx, kids, idx + 1, b.kids.length - idx) ;
+                return new Branch(b.bitmap | bit, kids) ;
+            }
+            Object kid = b.kids[idx] ;
+            Object kid2 = plus(kid, leaf, shift + 5) ;
+            if ( kid2 == kid )
+                return b ;
+            Object[] kids = b.kids.clone() ;
+            kids[idx] = kid2 ;
+            return new Branch(b.bitmap, kids) ;
+        }
+        if ( node instanceof Leaf ) {
+            Leaf x = (Leaf)node ;
+            if ( x.hash == leaf.hash ) {
+                if ( x.key.equals(leaf.key) )
+                    return x.value.equals(leaf.value) ? x : leaf ;
+                return new Collision(x.hash, new Leaf[]{x, leaf}) ;
+            }
+            return merge(x, leaf, shift) ;
+        }
+        Collision c = (Collision)node ;
+        if ( c.hash != leaf.hash )
+            return merge(c, leaf, shift) ;
+        Leaf[] leaves = c.leaves ;
+        for ( int i = 0 ; i < leaves.length ; i++ ) {
+            if ( leaves[i].key.equals(leaf.key) ) {
+                if ( leaves[i].value.equals(leaf.value) )
+                    return c ;
+                Leaf[] leaves2 = leaves.clone() ;
+                leaves2[i] = leaf ;
+                return new Collision(c.hash, leaves2) ;
+            }
+        }
+        Leaf[] leaves2 = new Leaf[leaves.length + 1] ;
+        System.arraycopy(leaves, 0, leaves2, 0, leaves.length) ;
+        leaves2[leaves.length] = leaf ;
+        return new Collision(c.hash, leaves2) ;
+    }
+
+    /** Combine two nodes (Leaf or Collision) with different hashes into a branch at this level */
+    private static Object merge(Object x, Object y, int shift) {
+        int ix = (nodeHash(x) >>> shift) & 31 ;
+        int iy = (nodeHash(y) >>> shift) & 31 ;
+        if ( ix == iy )
+            return new Branch(1 << ix, new Object[]{merge(x, y, shift + 5)}) ;
+        int bx = 1 << ix ;
+        int by = 1 << iy ;
+        Object[] kids = ( ix < iy ) ? new Object[]{x, y} : new Object[]{y, x} ;
+        return new Branch(bx | by, kids) ;
+    }
+
+    private static Object minus(Object node, int hash, Object key, int shift) {
+        if ( node instanceof Leaf )
+            return null ;
+        if ( node instanceof Collision ) {
+            Collision c = (Collision)node ;
+            Leaf[] leaves = c.leaves ;
+            if ( leaves.length == 2 )
+                return leaves[0].key.equals(key) ? leaves[1] : leaves[0] ;
+            Leaf[] leaves2 = new Leaf[leaves.length - 1] ;
+            int j = 0 ;
+            for ( Leaf leaf : leaves )
+                if ( !leaf.key.equals(key) )
+                    leaves2[j++] = leaf ;
+            return new Collision(c.hash, leaves2) ;
+        }
+        Branch b = (Branch)node ;
+        int bit = bit(hash, shift) ;
+        int idx = index(b.bitmap, bit) ;
+        Object kid2 = minus(b.kids[idx], hash, key, shift + 5) ;
+        if ( kid2 == null ) {
+            if ( b.kids.length == 1 )
+                return null ;
+            if ( b.kids.length == 2 ) {
+                Object other = b.kids[1 - idx] ;
+                // A single leaf or collision can move up; a branch must stay at its level.
+                if ( !(other instanceof Branch) )
+                    return other ;
+            }
+            Object[] kids = new Object[b.kids.length - 1] ;
+            System.arraycopy(b.kids, 0, kids, 0, idx) ;
+            System.arraycopy(b.kids, idx + 1, kids, idx, kids.length - idx) ;
+            return new Branch(b.bitmap & ~bit, kids) ;
+        }
+        if ( b.kids.length == 1 && !(kid2 instanceof Branch) )
+            return kid2 ;
+        Object[] kids = b.kids.clone() ;
+        kids[idx] = kid2 ;
+        return new Branch(b.bitmap, kids) ;
+    }
+
+    /** Depth first walk of the trie */
+    private static final class PMapIterator<K, V> implements Iterator<Pair<K, V>> {
+        private final Deque<Object[]> arrays = new ArrayDeque<>() ;
+        private final Deque<Integer>  positions = new ArrayDeque<>() ;
+        private Leaf[] collision = null ;
+        private int    collisionIdx = 0 ;
+        private Leaf   next = null ;
+
+        PMapIterator(Object root) {
+            if ( root != null )
+                push(new Object[]{root}) ;
+        }
+
+        private void push(Object[] array) {
+            arrays.push(array) ;
+            positions.push(0) ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( next != null )
+                return true ;
+            if ( collision != null ) {
+                if ( collisionIdx < collision.length ) {
+                    next = collision[collisionIdx++] ;
+                    return true ;
+                }
+                collision = null ;
+            }
+            while ( !arrays.isEmpty() ) {
+                Object[] array = arrays.peek() ;
+                int pos = positions.pop() ;
+                if ( pos >= array.length ) {
+                    arrays.pop() ;
+                    continue ;
+                }
+                positions.push(pos + 1) ;
+                Object node = array[pos] ;
+                if ( node instanceof Leaf ) {
+                    next = (Leaf)node ;
+                    return true ;
+                }
+                if ( node instanceof Branch ) {
+                    push(((Branch)node).kids) ;
+                    continue ;
+                }
+                collision = ((Collision)node).leaves ;
+                collisionIdx = 0 ;
+                return hasNext() ;
+            }
+            return false ;
+        }
+
+        @Override
+        public Pair<K, V> next() {
+            if ( !hasNext() )
+                throw new NoSuchElementException("PMap iterator") ;
+            Leaf leaf = next ;
+            next = null ;
+            @SuppressWarnings("unchecked")
+            Pair<K, V> p = new Pair<>((K)leaf.key, (V)leaf.value) ;
+            return p ;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("PMap.iterator.remove") ;
+        }
+    }
+}
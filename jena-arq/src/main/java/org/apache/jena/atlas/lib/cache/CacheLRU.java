@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.lib.cache;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.Map ;
+import java.util.concurrent.Callable ;
+
+import org.apache.jena.atlas.lib.ActionKeyValue ;
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.logging.Log ;
+
+/**
+ * An LRU cache whose capacity can be changed after creation.
+ * Shrinking the cache evicts least recently used entries (calling the drop handler)
+ * until the cache is within its new capacity.
+ * <p>
+ * Lookups via {@link #getIfPresent} and {@link #getOrFill} are counted as hits or misses
+ * so that the owner of the cache can decide how useful more space would be.
+ * <p>
+ * All operations are synchronized on the cache.
+ */
+public class CacheLRU<K,V> implements Cache<K,V>
+{
+    private final LinkedHashMap<K,V> map ;
+    private int maxSize ;
+    private ActionKeyValue<K,V> dropHandler = null ;
+    private long hits = 0 ;
+    private long misses = 0 ;
+
+    public CacheLRU(int maxSize)
+    {
+        if ( maxSize < 1 )
+            maxSize = 1 ;
+        this.maxSize = maxSize ;
+        // Access order.
+        this.map = new LinkedHashMap<K,V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+                if ( size() <= CacheLRU.this.maxSize )
+                    return false ;
+                drop(eldest.getKey(), eldest.getValue()) ;
+                return true ;
+            }
+        } ;
+    }
+
+    /** Current capacity of the cache, in entries. */
+    public synchronized int getMaxSize()    { return maxSize ; }
+
+    /** Change the capacity of the cache, evicting entries if the cache is now over capacity. */
+    public synchronized void setMaxSize(int newMaxSize)
+    {
+        if ( newMaxSize < 1 )
+            newMaxSize = 1 ;
+        maxSize = newMaxSize ;
+        Iterator<Map.Entry<K,V>> iter = map.entrySet().iterator() ;
+        while ( map.size() > maxSize && iter.hasNext() )
+        {
+            Map.Entry<K,V> e = iter.next() ;
+            iter.remove() ;
+            drop(e.getKey(), e.getValue()) ;
+        }
+    }
+
+    /** Number of lookups that found an entry. */
+    public synchronized long getHits()      { return hits ; }
+
+    /** Number of lookups that did not find an entry. */
+    public synchronized long getMisses()    { return misses ; }
+
+    @Override
+    public synchronized boolean containsKey(K key)
+    {
+        return map.containsKey(key) ;
+    }
+
+    @Override
+    public synchronized V getIfPresent(K key)
+    {
+        V v = map.get(key) ;
+        if ( v == null )
+            misses++ ;
+        else
+            hits++ ;
+        return v ;
+    }
+
+    @Override
+    public synchronized V getOrFill(K key, Callable<V> filler)
+    {
+        V v = getIfPresent(key) ;
+        if ( v != null )
+            return v ;
+        try {
+            v = filler.call() ;
+        } catch (Exception ex) {
+            Log.warn(CacheLRU.class, "Exception filling cache", ex) ;
+            return null ;
+        }
+        put(key, v) ;
+        return v ;
+    }
+
+    @Override
+    public synchronized void put(K key, V thing)
+    {
+        if ( thing == null ) {
+            map.remove(key) ;
+            return ;
+        }
+        map.put(key, thing) ;
+    }
+
+    @Override
+    public synchronized void remove(K key)
+    {
+        map.remove(key) ;
+    }
+
+    @Override
+    public synchronized Iterator<K> keys()
+    {
+        // Copy - callers may remove entries while iterating.
+        return new ArrayList<>(map.keySet()).iterator() ;
+    }
+
+    @Override
+    public synchronized boolean isEmpty()
+    {
+        return map.isEmpty() ;
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+        map.clear() ;
+    }
+
+    @Override
+    public synchronized long size()
+    {
+        return map.size() ;
+    }
+
+    @Override
+    public synchronized void setDropHandler(ActionKeyValue<K,V> dropHandler)
+    {
+        this.dropHandler = dropHandler ;
+    }
+
+    private void drop(K key, V value)
+    {
+        if ( dropHandler != null )
+            dropHandler.apply(key, value) ;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("CacheLRU[%d/%d]", map.size(), maxSize) ;
+    }
+}
@@ -30,6 +30,11 @@ public class RDFFormat {
      * incoming triple/quad stream
      */
     public static final RDFFormatVariant BLOCKS         = new RDFFormatVariant("blocks") ;
+    /**
+     * Print in blocks, as {@link #BLOCKS}, with the blocks formatted by
+     * several threads
+     */
+    public static final RDFFormatVariant PARALLEL       = new RDFFormatVariant("parallel") ;
     /** Print out one per line */
     public static final RDFFormatVariant FLAT           = new RDFFormatVariant("flat") ;
 
@@ -45,6 +50,7 @@ public class RDFFormat {
     public static final RDFFormat        TTL            = TURTLE_PRETTY ;
     public static final RDFFormat        TURTLE_BLOCKS  = new RDFFormat(Lang.TURTLE, BLOCKS) ;
     public static final RDFFormat        TURTLE_FLAT    = new RDFFormat(Lang.TURTLE, FLAT) ;
+    public static final RDFFormat        TURTLE_PARALLEL = new RDFFormat(Lang.TURTLE, PARALLEL) ;
 
     public static final RDFFormat        NTRIPLES_UTF8  = new RDFFormat(Lang.NTRIPLES, UTF8) ;
     public static final RDFFormat        NTRIPLES       = NTRIPLES_UTF8 ;
@@ -60,6 +66,7 @@ public class RDFFormat {
     public static final RDFFormat        TRIG           = TRIG_PRETTY ;
     public static final RDFFormat        TRIG_BLOCKS    = new RDFFormat(Lang.TRIG, BLOCKS) ;
     public static final RDFFormat        TRIG_FLAT      = new RDFFormat(Lang.TRIG, FLAT) ;
+    public static final RDFFormat        TRIG_PARALLEL  = new RDFFormat(Lang.TRIG, PARALLEL) ;
 
     public static final RDFFormat        JSONLD_PRETTY  = new RDFFormat(Lang.JSONLD, PRETTY) ;
     public static final RDFFormat        JSONLD         = JSONLD_PRETTY ;
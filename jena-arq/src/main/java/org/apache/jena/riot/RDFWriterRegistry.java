@@ -54,6 +54,8 @@ public class RDFWriterRegistry
                 return new TurtleWriterBlocks() ;
             if ( Lib.equal(RDFFormat.TURTLE_FLAT, serialization) )
                 return new TurtleWriterFlat() ;
+            if ( Lib.equal(RDFFormat.TURTLE_PARALLEL, serialization) )
+                return new TurtleWriterParallel() ;
             
             if ( Lib.equal(RDFFormat.NTRIPLES_UTF8, serialization) )
                 return new NTriplesWriter() ;
@@ -84,6 +86,8 @@ public class RDFWriterRegistry
                 return new TriGWriterBlocks() ;
             if ( Lib.equal(RDFFormat.TRIG_FLAT, serialization) )
                 return new TriGWriterFlat() ;
+            if ( Lib.equal(RDFFormat.TRIG_PARALLEL, serialization) )
+                return new TriGWriterParallel() ;
             if ( Lib.equal(RDFFormat.NQUADS_UTF8, serialization) )
                 return new NQuadsWriter() ;
             if ( Lib.equal(RDFFormat.NQUADS_ASCII, serialization) )
@@ -162,6 +166,7 @@ public class RDFWriterRegistry
          register(RDFFormat.TURTLE_PRETTY,  wgfactory) ;
          register(RDFFormat.TURTLE_BLOCKS,  wgfactory) ;
          register(RDFFormat.TURTLE_FLAT,    wgfactory) ;
+         register(RDFFormat.TURTLE_PARALLEL, wgfactory) ;
 
          register(RDFFormat.NTRIPLES,       wgfactory) ;
          register(RDFFormat.NTRIPLES_ASCII, wgfactory) ;
@@ -179,6 +184,7 @@ public class RDFWriterRegistry
          register(RDFFormat.TRIG_PRETTY,    wgfactory) ;
          register(RDFFormat.TRIG_BLOCKS,    wgfactory) ;
          register(RDFFormat.TRIG_FLAT,      wgfactory) ;
+         register(RDFFormat.TRIG_PARALLEL,  wgfactory) ;
 
          register(RDFFormat.NQUADS,         wgfactory) ;
          register(RDFFormat.NQUADS_ASCII,   wgfactory) ;
@@ -193,6 +199,7 @@ public class RDFWriterRegistry
          register(RDFFormat.TRIG_PRETTY,    wdsfactory) ;
          register(RDFFormat.TRIG_BLOCKS,    wdsfactory) ;
          register(RDFFormat.TRIG_FLAT,      wdsfactory) ;
+         register(RDFFormat.TRIG_PARALLEL,  wdsfactory) ;
 
          register(RDFFormat.NQUADS,         wdsfactory) ;
          register(RDFFormat.NQUADS_ASCII,   wdsfactory) ;
@@ -0,0 +1,906 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang ;
+
+import java.io.InputStream ;
+import java.io.Reader ;
+import java.util.* ;
+
+import javax.xml.stream.* ;
+
+import org.apache.jena.atlas.web.ContentType ;
+import org.apache.jena.iri.IRI ;
+import org.apache.jena.iri.Violation ;
+import org.apache.jena.riot.* ;
+import org.apache.jena.riot.system.* ;
+import org.apache.xerces.util.XMLChar ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.rdfxml.xmlinput.ARPOptions ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.vocabulary.RDF ;
+
+/** RDF/XML parser built directly on StAX.
+ * <p>
+ * This is an alternative to the ARP-based {@link LangRDFXML}.  It keeps one small
+ * frame per open XML element and sends triples straight to the {@link StreamRDF}:
+ * there are no SAX callbacks and no intermediate ARP objects.
+ * <p>
+ * It is not the default RDF/XML parser.  To use it for all RDF/XML reading:
+ * <pre>
+ *    RDFParserRegistry.registerLangTriples(Lang.RDFXML, ReaderRDFXMLStAX.factory) ;
+ * </pre>
+ * Differences from ARP: the grammar errors of the W3C RDF/XML specification are
+ * errors, not warnings, and XML literals are produced in exclusive canonical form
+ * (with comments) without checking them further.
+ * 
+ * @see <a href="http://www.w3.org/TR/rdf-syntax-grammar/">http://www.w3.org/TR/rdf-syntax-grammar/</a>
+ */
+public class ReaderRDFXMLStAX implements ReaderRIOT
+{
+    /** Factory for registering this reader with {@link RDFParserRegistry} */
+    public static final ReaderRIOTFactory factory = new ReaderRIOTFactory() {
+        @Override
+        public ReaderRIOT create(Lang language) {
+            return new ReaderRDFXMLStAX() ;
+        }
+    } ;
+
+    /** Most entity references expanded in one document */
+    private static final int EntityExpansionLimit = 10*1000 ;
+    
+    // Entity expansion limit properties of the JDK and Woodstox StAX parsers.
+    private static final String[] entityExpansionLimitProperties = {
+        "http://www.oracle.com/xml/jaxp/properties/entityExpansionLimit" ,
+        "com.ctc.wstx.maxEntityCount"
+    } ;
+    
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance() ;
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE) ;
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE) ;
+        xmlInputFactory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE) ;
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE) ;
+        // Internal entities (e.g. &rdf;) are common in RDF/XML, so DTDs are allowed as for ARP
+        // but entity expansion, which can grow exponentially ("billion laughs"), is limited.
+        // If the parser has no such limit, DTDs are not processed.  
+        if ( ! limitEntityExpansion(xmlInputFactory) )
+            xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE) ;
+    }
+    
+    private static boolean limitEntityExpansion(XMLInputFactory factory) {
+        for ( String p : entityExpansionLimitProperties ) {
+            if ( ! factory.isPropertySupported(p) )
+                continue ;
+            try {
+                factory.setProperty(p, Integer.valueOf(EntityExpansionLimit)) ;
+                return true ;
+            } catch (IllegalArgumentException ex) {}
+        }
+        return false ;
+    }
+
+    private ErrorHandler errorHandler = ErrorHandlerFactory.getDefaultErrorHandler() ;
+    private ParserProfile parserProfile = null ;
+
+    @Override
+    public void read(InputStream in, String baseURI, ContentType ct, StreamRDF output, Context context) {
+        XMLStreamReader xReader ;
+        try {
+            xReader = xmlInputFactory.createXMLStreamReader(in) ;
+        } catch (XMLStreamException e) { throw new RiotException("Can't initialize StAX parsing engine", e) ; }
+        read(xReader, baseURI, output) ;
+    }
+
+    @Override
+    public void read(Reader reader, String baseURI, ContentType ct, StreamRDF output, Context context) {
+        XMLStreamReader xReader ;
+        try {
+            xReader = xmlInputFactory.createXMLStreamReader(reader) ;
+        } catch (XMLStreamException e) { throw new RiotException("Can't initialize StAX parsing engine", e) ; }
+        read(xReader, baseURI, output) ;
+    }
+
+    private void read(XMLStreamReader xReader, String baseURI, StreamRDF output) {
+        ParserProfile profile = parserProfile ;
+        if ( profile == null )
+            profile = RiotLib.profile(RDFLanguages.RDFXML, baseURI, errorHandler) ;
+        else if ( errorHandler != null )
+            profile.setHandler(errorHandler) ;
+        String base = profile.getPrologue().getBaseURI() ;
+        if ( base == null )
+            base = IRIResolver.chooseBaseURI().toString() ;
+        // Same IRI rules as ARP.
+        IRI baseIRI = ARPOptions.getIRIFactoryGlobal().create(base) ;
+        output.start() ;
+        try {
+            new ParserRDFXML(xReader, baseIRI, profile, output).parse() ;
+        } finally {
+            try { xReader.close() ; } catch (XMLStreamException ex) {}
+            output.finish() ;
+        }
+    }
+
+    @Override
+    public ErrorHandler getErrorHandler()                       { return errorHandler ; }
+
+    @Override
+    public void setErrorHandler(ErrorHandler errorHandler)      { this.errorHandler = errorHandler ; }
+
+    @Override
+    public ParserProfile getParserProfile()                     { return parserProfile ; }
+
+    @Override
+    public void setParserProfile(ParserProfile profile)         { this.parserProfile = profile ; }
+
+    private static final String nsRDF       = RDF.getURI() ;
+    private static final String nsXML       = "http://www.w3.org/XML/1998/namespace" ;
+    private static final Node   nodeType    = RDF.type.asNode() ;
+    private static final Node   nodeFirst   = RDF.first.asNode() ;
+    private static final Node   nodeRest    = RDF.rest.asNode() ;
+    private static final Node   nodeNil     = RDF.nil.asNode() ;
+    private static final Node   nodeStatement = RDF.Statement.asNode() ;
+    private static final Node   nodeSubject = RDF.subject.asNode() ;
+    private static final Node   nodePredicate = RDF.predicate.asNode() ;
+    private static final Node   nodeObject  = RDF.object.asNode() ;
+
+    // Frame kinds.
+    /** rdf:RDF : node elements expected */
+    private static final int NODE_LIST  = 0 ;
+    /** Node element, or property element with rdf:parseType="Resource" : property elements expected */
+    private static final int NODE       = 1 ;
+    /** Property element : text, one node element or nothing expected */
+    private static final int PROPERTY   = 2 ;
+    /** Property element with rdf:parseType="Collection" : node elements expected */
+    private static final int COLLECTION = 3 ;
+
+    /** Parser state for one open XML element.  Frames are reused as the element depth changes. */
+    private static final class Frame
+    {
+        int kind ;
+        IRI base ;
+        String lang ;
+        /** NODE: the node itself.  PROPERTY and COLLECTION: subject of the triple. */
+        Node subject ;
+        Node predicate ;
+        /** Statement for rdf:ID on a property element */
+        Node reify ;
+        /** NODE: last rdf:li number used */
+        int li ;
+        /** PROPERTY: rdf:resource, rdf:nodeID or the node element.  COLLECTION: last list cell. */
+        Node object ;
+        String datatype ;
+        boolean hasChild ;
+        final StringBuilder text = new StringBuilder() ;
+        final List<Node> attrPredicates = new ArrayList<>() ;
+        final List<String> attrValues = new ArrayList<>() ;
+
+        void reset(int kind, IRI base, String lang) {
+            this.kind = kind ;
+            this.base = base ;
+            this.lang = lang ;
+            subject = null ;
+            predicate = null ;
+            reify = null ;
+            li = 0 ;
+            object = null ;
+            datatype = null ;
+            hasChild = false ;
+            text.setLength(0) ;
+            attrPredicates.clear() ;
+            attrValues.clear() ;
+        }
+    }
+
+    private static final class ParserRDFXML
+    {
+        private final XMLStreamReader parser ;
+        private final IRI baseIRI ;
+        private final ParserProfile profile ;
+        private final StreamRDF output ;
+        private final Set<String> idsUsed = new HashSet<>() ;
+        private Frame[] frames = new Frame[16] ;
+        private int depth = 0 ;
+
+        ParserRDFXML(XMLStreamReader parser, IRI baseIRI, ParserProfile profile, StreamRDF output) {
+            this.parser = parser ;
+            this.baseIRI = baseIRI ;
+            this.profile = profile ;
+            this.output = output ;
+        }
+
+        void parse() {
+            try {
+                while (parser.hasNext()) {
+                    int event = parser.next() ;
+                    switch (event) {
+                        case XMLStreamConstants.START_ELEMENT :
+                            startElement() ;
+                            break ;
+                        case XMLStreamConstants.END_ELEMENT :
+                            endElement() ;
+                            break ;
+                        case XMLStreamConstants.CHARACTERS :
+                        case XMLStreamConstants.CDATA :
+                        case XMLStreamConstants.SPACE :
+                            characters() ;
+                            break ;
+                        case XMLStreamConstants.END_DOCUMENT :
+                            if ( depth != 0 )
+                                error("End of document while processing XML element") ;
+                            return ;
+                        default :
+                            // Comments, processing instructions, DTD.
+                            break ;
+                    }
+                }
+            } catch (XMLStreamException ex) {
+                Location loc = ex.getLocation() ;
+                if ( loc != null )
+                    profile.getHandler().fatal("XML error: " + ex.getMessage(), loc.getLineNumber(), loc.getColumnNumber()) ;
+                else
+                    profile.getHandler().fatal("XML error: " + ex.getMessage(), -1, -1) ;
+                throw new RiotException(ex) ;
+            }
+        }
+
+        private void startElement() throws XMLStreamException {
+            int N = parser.getNamespaceCount() ;
+            for ( int i = 0 ; i < N ; i++ ) {
+                String prefix = parser.getNamespacePrefix(i) ;
+                String uri = parser.getNamespaceURI(i) ;
+                if ( uri != null && !uri.isEmpty() )
+                    output.prefix(prefix == null ? "" : prefix, uri) ;
+            }
+
+            if ( depth == 0 ) {
+                if ( isRDF(parser.getNamespaceURI()) && parser.getLocalName().equals("RDF") ) {
+                    Frame f = push(null, NODE_LIST) ;
+                    for ( int i = 0 ; i < parser.getAttributeCount() ; i++ ) {
+                        if ( !xmlAttribute(f, i) )
+                            error("Attribute " + attrName(i) + " not allowed on rdf:RDF") ;
+                    }
+                } else
+                    nodeElement(null) ;
+                return ;
+            }
+
+            Frame parent = frames[depth - 1] ;
+            switch (parent.kind) {
+                case NODE_LIST :
+                    nodeElement(parent) ;
+                    return ;
+                case NODE :
+                    propertyElement(parent) ;
+                    return ;
+                case PROPERTY : {
+                    if ( parent.hasChild )
+                        error("A property element can contain only one node element") ;
+                    if ( !isWhitespace(parent.text) )
+                        error("Property element has both text and element content") ;
+                    if ( parent.object != null || parent.datatype != null || !parent.attrPredicates.isEmpty() )
+                        error("A property element with element content can only have an rdf:ID attribute") ;
+                    parent.hasChild = true ;
+                    Node n = nodeElement(parent) ;
+                    parent.object = n ;
+                    emit(parent.subject, parent.predicate, n) ;
+                    reify(parent, n) ;
+                    return ;
+                }
+                case COLLECTION : {
+                    Node n = nodeElement(parent) ;
+                    Node cell = profile.createBlankNode(null, line(), col()) ;
+                    if ( parent.object == null ) {
+                        emit(parent.subject, parent.predicate, cell) ;
+                        reify(parent, cell) ;
+                    } else
+                        emit(parent.object, nodeRest, cell) ;
+                    emit(cell, nodeFirst, n) ;
+                    parent.object = cell ;
+                    return ;
+                }
+            }
+        }
+
+        private void endElement() {
+            Frame f = frames[--depth] ;
+            switch (f.kind) {
+                case PROPERTY :
+                    if ( !f.hasChild )
+                        endPropertyElement(f) ;
+                    return ;
+                case COLLECTION :
+                    if ( f.object == null ) {
+                        emit(f.subject, f.predicate, nodeNil) ;
+                        reify(f, nodeNil) ;
+                    } else
+                        emit(f.object, nodeRest, nodeNil) ;
+                    return ;
+                default :
+                    return ;
+            }
+        }
+
+        private void characters() {
+            if ( depth == 0 )
+                return ;
+            Frame f = frames[depth - 1] ;
+            if ( f.kind == PROPERTY && !f.hasChild ) {
+                f.text.append(parser.getTextCharacters(), parser.getTextStart(), parser.getTextLength()) ;
+                return ;
+            }
+            char[] chars = parser.getTextCharacters() ;
+            int end = parser.getTextStart() + parser.getTextLength() ;
+            for ( int i = parser.getTextStart() ; i < end ; i++ ) {
+                if ( !XMLChar.isSpace(chars[i]) ) {
+                    error("Text not allowed here: '" + parser.getText().trim() + "'") ;
+                    return ;
+                }
+            }
+        }
+
+        /** Start a node element : returns the subject */
+        private Node nodeElement(Frame parent) {
+            Frame f = push(parent, NODE) ;
+            String ns = parser.getNamespaceURI() ;
+            String local = parser.getLocalName() ;
+            if ( isRDF(ns) && !isNodeElementName(local) )
+                error("rdf:" + local + " is not allowed as a node element") ;
+
+            int N = parser.getAttributeCount() ;
+            String id = null ;
+            String about = null ;
+            String nodeID = null ;
+            boolean hasPropertyAttrs = false ;
+            for ( int i = 0 ; i < N ; i++ ) {
+                if ( xmlAttribute(f, i) )
+                    continue ;
+                String a = rdfAttribute(i) ;
+                if ( a == null ) {
+                    hasPropertyAttrs = true ;
+                    continue ;
+                }
+                switch (a) {
+                    case "ID" :         id = parser.getAttributeValue(i) ; break ;
+                    case "about" :      about = parser.getAttributeValue(i) ; break ;
+                    case "nodeID" :     nodeID = parser.getAttributeValue(i) ; break ;
+                    case "type" :       hasPropertyAttrs = true ; break ;
+                    default :
+                        if ( !isPropertyAttributeName(a) )
+                            error("rdf:" + a + " is not allowed on a node element") ;
+                        else
+                            hasPropertyAttrs = true ;
+                }
+            }
+
+            if ( (id == null ? 0 : 1) + (about == null ? 0 : 1) + (nodeID == null ? 0 : 1) > 1 )
+                error("Only one of rdf:ID, rdf:about and rdf:nodeID is allowed on a node element") ;
+
+            Node subject ;
+            if ( id != null )
+                subject = idNode(f, id) ;
+            else if ( about != null )
+                subject = resolve(f, about) ;
+            else if ( nodeID != null )
+                subject = labelledBlankNode(nodeID) ;
+            else
+                subject = profile.createBlankNode(null, line(), col()) ;
+            f.subject = subject ;
+
+            if ( !isRDF(ns) || !local.equals("Description") )
+                emit(subject, nodeType, elementURI(f, ns, local)) ;
+
+            if ( hasPropertyAttrs ) {
+                for ( int i = 0 ; i < N ; i++ ) {
+                    if ( isSyntaxAttribute(i) )
+                        continue ;
+                    Node p = attributeURI(f, i) ;
+                    emit(subject, p, propertyAttrValue(f, p, parser.getAttributeValue(i))) ;
+                }
+            }
+            return subject ;
+        }
+
+        /** Start a property element of the subject of the NODE frame */
+        private void propertyElement(Frame parent) throws XMLStreamException {
+            Frame f = push(parent, PROPERTY) ;
+            f.subject = parent.subject ;
+            String ns = parser.getNamespaceURI() ;
+            String local = parser.getLocalName() ;
+            if ( isRDF(ns) && local.equals("li") )
+                f.predicate = NodeFactory.createURI(nsRDF + "_" + (++parent.li)) ;
+            else {
+                if ( isRDF(ns) && !isPropertyElementName(local) )
+                    error("rdf:" + local + " is not allowed as a property element") ;
+                f.predicate = elementURI(f, ns, local) ;
+            }
+
+            int N = parser.getAttributeCount() ;
+            String id = null ;
+            String parseType = null ;
+            String resource = null ;
+            String nodeID = null ;
+            String datatype = null ;
+            boolean hasPropertyAttrs = false ;
+            for ( int i = 0 ; i < N ; i++ ) {
+                if ( xmlAttribute(f, i) )
+                    continue ;
+                String a = rdfAttribute(i) ;
+                if ( a == null ) {
+                    hasPropertyAttrs = true ;
+                    continue ;
+                }
+                switch (a) {
+                    case "ID" :         id = parser.getAttributeValue(i) ; break ;
+                    case "parseType" :  parseType = parser.getAttributeValue(i) ; break ;
+                    case "resource" :   resource = parser.getAttributeValue(i) ; break ;
+                    case "nodeID" :     nodeID = parser.getAttributeValue(i) ; break ;
+                    case "datatype" :   datatype = parser.getAttributeValue(i) ; break ;
+                    case "type" :       hasPropertyAttrs = true ; break ;
+                    default :
+                        if ( !isPropertyAttributeName(a) )
+                            error("rdf:" + a + " is not allowed on a property element") ;
+                        else
+                            hasPropertyAttrs = true ;
+                }
+            }
+
+            if ( id != null )
+                f.reify = idNode(f, id) ;
+
+            if ( parseType != null ) {
+                if ( resource != null || nodeID != null || datatype != null || hasPropertyAttrs )
+                    error("rdf:parseType can only be used with rdf:ID on a property element") ;
+                switch (parseType) {
+                    case "Resource" : {
+                        Node n = profile.createBlankNode(null, line(), col()) ;
+                        emit(f.subject, f.predicate, n) ;
+                        reify(f, n) ;
+                        f.kind = NODE ;
+                        f.subject = n ;
+                        return ;
+                    }
+                    case "Collection" :
+                        f.kind = COLLECTION ;
+                        return ;
+                    default : {
+                        // "Literal", and any other value, is treated as an XML literal.
+                        String lex = xmlLiteral() ;
+                        Node n = NodeFactory.createLiteral(lex, null, true) ;
+                        emit(f.subject, f.predicate, n) ;
+                        reify(f, n) ;
+                        depth-- ;
+                        return ;
+                    }
+                }
+            }
+
+            if ( resource != null && nodeID != null )
+                error("Only one of rdf:resource and rdf:nodeID is allowed on a property element") ;
+            if ( datatype != null && (resource != null || nodeID != null || hasPropertyAttrs) )
+                error("rdf:datatype can not be used with rdf:resource, rdf:nodeID or property attributes") ;
+            if ( resource != null )
+                f.object = resolve(f, resource) ;
+            else if ( nodeID != null )
+                f.object = labelledBlankNode(nodeID) ;
+            if ( datatype != null )
+                f.datatype = resolve(f, datatype).getURI() ;
+            if ( hasPropertyAttrs ) {
+                // Only used if the element is empty.
+                for ( int i = 0 ; i < N ; i++ ) {
+                    if ( isSyntaxAttribute(i) )
+                        continue ;
+                    f.attrPredicates.add(attributeURI(f, i)) ;
+                    f.attrValues.add(parser.getAttributeValue(i)) ;
+                }
+            }
+        }
+
+        /** End of a property element with text content or no content */
+        private void endPropertyElement(Frame f) {
+            if ( f.text.length() > 0 ) {
+                if ( f.object != null || !f.attrPredicates.isEmpty() )
+                    error("A property element with text content can only have rdf:ID and rdf:datatype attributes") ;
+                Node n = literal(f, f.text.toString()) ;
+                emit(f.subject, f.predicate, n) ;
+                reify(f, n) ;
+                return ;
+            }
+            // Empty property element.
+            Node obj = f.object ;
+            if ( obj == null ) {
+                if ( f.attrPredicates.isEmpty() )
+                    obj = literal(f, "") ;
+                else
+                    obj = profile.createBlankNode(null, line(), col()) ;
+            }
+            emit(f.subject, f.predicate, obj) ;
+            reify(f, obj) ;
+            for ( int i = 0 ; i < f.attrPredicates.size() ; i++ ) {
+                Node p = f.attrPredicates.get(i) ;
+                emit(obj, p, propertyAttrValue(f, p, f.attrValues.get(i))) ;
+            }
+        }
+
+        // ---- XML literals : exclusive canonical XML, with comments.
+
+        /** Read the content of the current element as an XML literal, up to and including the end tag. */
+        private String xmlLiteral() throws XMLStreamException {
+            StringBuilder sb = new StringBuilder() ;
+            // Namespace declarations rendered on output ancestors, one map per open element.
+            Deque<Map<String, String>> rendered = new ArrayDeque<>() ;
+            rendered.push(Collections.<String, String> emptyMap()) ;
+            int level = 0 ;
+            while (parser.hasNext()) {
+                int event = parser.next() ;
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT :
+                        level++ ;
+                        literalStartElement(sb, rendered) ;
+                        break ;
+                    case XMLStreamConstants.END_ELEMENT :
+                        if ( level == 0 )
+                            return sb.toString() ;
+                        level-- ;
+                        rendered.pop() ;
+                        sb.append("</") ;
+                        appendQName(sb, parser.getPrefix(), parser.getLocalName()) ;
+                        sb.append('>') ;
+                        break ;
+                    case XMLStreamConstants.CHARACTERS :
+                    case XMLStreamConstants.CDATA :
+                    case XMLStreamConstants.SPACE :
+                        escapeText(sb, parser.getTextCharacters(), parser.getTextStart(), parser.getTextLength()) ;
+                        break ;
+                    case XMLStreamConstants.COMMENT :
+                        sb.append("<!--").append(parser.getText()).append("-->") ;
+                        break ;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION : {
+                        sb.append("<?").append(parser.getPITarget()) ;
+                        String data = parser.getPIData() ;
+                        if ( data != null && !data.isEmpty() )
+                            sb.append(' ').append(data) ;
+                        sb.append("?>") ;
+                        break ;
+                    }
+                    case XMLStreamConstants.END_DOCUMENT :
+                        error("End of document in XML literal") ;
+                        return sb.toString() ;
+                }
+            }
+            return sb.toString() ;
+        }
+
+        private void literalStartElement(StringBuilder sb, Deque<Map<String, String>> rendered) {
+            Map<String, String> inScope = rendered.peek() ;
+            // Visibly utilized namespaces : the element's and those of prefixed attributes.
+            SortedMap<String, String> decls = null ;
+            String prefix = nonNull(parser.getPrefix()) ;
+            String ns = nonNull(parser.getNamespaceURI()) ;
+            if ( !Objects.equals(inScope.get(prefix), ns) && !(prefix.isEmpty() && ns.isEmpty() && nonNull(inScope.get("")).isEmpty()) ) {
+                decls = new TreeMap<>() ;
+                decls.put(prefix, ns) ;
+            }
+            int N = parser.getAttributeCount() ;
+            for ( int i = 0 ; i < N ; i++ ) {
+                String p = nonNull(parser.getAttributePrefix(i)) ;
+                if ( p.isEmpty() || p.equals("xml") )
+                    continue ;
+                String u = parser.getAttributeNamespace(i) ;
+                if ( !u.equals(inScope.get(p)) ) {
+                    if ( decls == null )
+                        decls = new TreeMap<>() ;
+                    decls.put(p, u) ;
+                }
+            }
+
+            sb.append('<') ;
+            appendQName(sb, prefix, parser.getLocalName()) ;
+            if ( decls != null ) {
+                Map<String, String> m = new HashMap<>(inScope) ;
+                for ( Map.Entry<String, String> e : decls.entrySet() ) {
+                    m.put(e.getKey(), e.getValue()) ;
+                    sb.append(e.getKey().isEmpty() ? " xmlns" : " xmlns:").append(e.getKey()).append("=\"") ;
+                    escapeAttr(sb, e.getValue()) ;
+                    sb.append('"') ;
+                }
+                inScope = m ;
+            }
+            rendered.push(inScope) ;
+
+            if ( N > 0 ) {
+                // Attributes sorted by namespace URI then local name; no namespace first.
+                Integer[] order = new Integer[N] ;
+                for ( int i = 0 ; i < N ; i++ )
+                    order[i] = i ;
+                if ( N > 1 )
+                    Arrays.sort(order, new Comparator<Integer>() {
+                        @Override
+                        public int compare(Integer i1, Integer i2) {
+                            int x = nonNull(parser.getAttributeNamespace(i1)).compareTo(nonNull(parser.getAttributeNamespace(i2))) ;
+                            if ( x != 0 )
+                                return x ;
+                            return parser.getAttributeLocalName(i1).compareTo(parser.getAttributeLocalName(i2)) ;
+                        }
+                    }) ;
+                for ( Integer i : order ) {
+                    sb.append(' ') ;
+                    appendQName(sb, parser.getAttributePrefix(i), parser.getAttributeLocalName(i)) ;
+                    sb.append("=\"") ;
+                    escapeAttr(sb, parser.getAttributeValue(i)) ;
+                    sb.append('"') ;
+                }
+            }
+            sb.append('>') ;
+        }
+
+        private static void appendQName(StringBuilder sb, String prefix, String local) {
+            if ( prefix != null && !prefix.isEmpty() )
+                sb.append(prefix).append(':') ;
+            sb.append(local) ;
+        }
+
+        private static void escapeText(StringBuilder sb, char[] chars, int start, int len) {
+            for ( int i = start ; i < start + len ; i++ ) {
+                char ch = chars[i] ;
+                switch (ch) {
+                    case '&' :  sb.append("&amp;") ; break ;
+                    case '<' :  sb.append("&lt;") ; break ;
+                    case '>' :  sb.append("&gt;") ; break ;
+                    case '\r' : sb.append("&#xD;") ; break ;
+                    default :   sb.append(ch) ;
+                }
+            }
+        }
+
+        private static void escapeAttr(StringBuilder sb, String value) {
+            for ( int i = 0 ; i < value.length() ; i++ ) {
+                char ch = value.charAt(i) ;
+                switch (ch) {
+                    case '&' :  sb.append("&amp;") ; break ;
+                    case '<' :  sb.append("&lt;") ; break ;
+                    case '"' :  sb.append("&quot;") ; break ;
+                    case '\t' : sb.append("&#x9;") ; break ;
+                    case '\n' : sb.append("&#xA;") ; break ;
+                    case '\r' : sb.append("&#xD;") ; break ;
+                    default :   sb.append(ch) ;
+                }
+            }
+        }
+
+        // ---- Frames
+
+        private Frame push(Frame parent, int kind) {
+            if ( depth == frames.length )
+                frames = Arrays.copyOf(frames, 2 * depth) ;
+            Frame f = frames[depth] ;
+            if ( f == null )
+                f = frames[depth] = new Frame() ;
+            depth++ ;
+            if ( parent == null )
+                f.reset(kind, baseIRI, "") ;
+            else
+                f.reset(kind, parent.base, parent.lang) ;
+            return f ;
+        }
+
+        /** Process attribute i if it is an xml: attribute, returning true if it is. */
+        private boolean xmlAttribute(Frame f, int i) {
+            String ns = parser.getAttributeNamespace(i) ;
+            if ( nsXML.equals(ns) ) {
+                switch (parser.getAttributeLocalName(i)) {
+                    case "base" :
+                        f.base = resolveIRI(f.base, parser.getAttributeValue(i)) ;
+                        break ;
+                    case "lang" :
+                        f.lang = parser.getAttributeValue(i) ;
+                        break ;
+                }
+                return true ;
+            }
+            // Names beginning "xml" are reserved.
+            return (ns == null || ns.isEmpty()) && parser.getAttributeLocalName(i).toLowerCase(Locale.ROOT).startsWith("xml") ;
+        }
+
+        /** Local name of attribute i if it is in the RDF namespace (or an unqualified RDF syntax attribute), else null. */
+        private String rdfAttribute(int i) {
+            String ns = parser.getAttributeNamespace(i) ;
+            String local = parser.getAttributeLocalName(i) ;
+            if ( isRDF(ns) )
+                return local ;
+            if ( (ns == null || ns.isEmpty()) && isUnqualifiedRDFName(local) ) {
+                warning("Unqualified use of rdf:" + local + " is deprecated") ;
+                return local ;
+            }
+            return null ;
+        }
+
+        /** Is attribute i anything other than a property attribute? */
+        private boolean isSyntaxAttribute(int i) {
+            String ns = parser.getAttributeNamespace(i) ;
+            String local = parser.getAttributeLocalName(i) ;
+            if ( nsXML.equals(ns) )
+                return true ;
+            if ( ns == null || ns.isEmpty() ) {
+                if ( local.toLowerCase(Locale.ROOT).startsWith("xml") )
+                    return true ;
+                return isUnqualifiedRDFName(local) && !local.equals("type") ;
+            }
+            if ( isRDF(ns) )
+                return !local.equals("type") && !isPropertyAttributeName(local) ;
+            return false ;
+        }
+
+        private Node attributeURI(Frame f, int i) {
+            String ns = parser.getAttributeNamespace(i) ;
+            String local = parser.getAttributeLocalName(i) ;
+            if ( ns == null || ns.isEmpty() ) {
+                if ( local.equals("type") )
+                    return nodeType ;
+                warning("Unqualified property attribute " + local + " treated as a relative URI") ;
+                return resolve(f, local) ;
+            }
+            return NodeFactory.createURI(ns + local) ;
+        }
+
+        private Node propertyAttrValue(Frame f, Node p, String value) {
+            if ( nodeType.equals(p) )
+                return resolve(f, value) ;
+            if ( f.lang.isEmpty() )
+                return profile.createStringLiteral(value, line(), col()) ;
+            return profile.createLangLiteral(value, f.lang, line(), col()) ;
+        }
+
+        private Node elementURI(Frame f, String ns, String local) {
+            if ( ns == null || ns.isEmpty() ) {
+                warning("Unqualified element " + local + " treated as a relative URI") ;
+                return resolve(f, local) ;
+            }
+            return NodeFactory.createURI(ns + local) ;
+        }
+
+        private Node literal(Frame f, String lex) {
+            if ( f.datatype != null )
+                return profile.createTypedLiteral(lex, NodeFactory.getType(f.datatype), line(), col()) ;
+            if ( f.lang.isEmpty() )
+                return profile.createStringLiteral(lex, line(), col()) ;
+            return profile.createLangLiteral(lex, f.lang, line(), col()) ;
+        }
+
+        private Node idNode(Frame f, String id) {
+            if ( !XMLChar.isValidNCName(id) )
+                error("Not a valid rdf:ID: '" + id + "'") ;
+            String base = f.base.toString() ;
+            int idx = base.indexOf('#') ;
+            if ( idx >= 0 )
+                base = base.substring(0, idx) ;
+            String uri = base + "#" + id ;
+            if ( !idsUsed.add(uri) )
+                error("Redefinition of rdf:ID '" + id + "'") ;
+            return NodeFactory.createURI(uri) ;
+        }
+
+        private Node labelledBlankNode(String label) {
+            if ( !XMLChar.isValidNCName(label) )
+                error("Not a valid rdf:nodeID: '" + label + "'") ;
+            return profile.createBlankNode(null, label, line(), col()) ;
+        }
+
+        private Node resolve(Frame f, String uriStr) {
+            return NodeFactory.createURI(resolveIRI(f.base, uriStr).toString()) ;
+        }
+
+        private IRI resolveIRI(IRI base, String uriStr) {
+            IRI iri = base.create(uriStr) ;
+            if ( iri.hasViolation(false) ) {
+                Violation v = iri.violations(false).next() ;
+                warning("Bad IRI: <" + uriStr + "> " + v.getShortMessage()) ;
+            }
+            return iri ;
+        }
+
+        private void emit(Node s, Node p, Node o) {
+            output.triple(Triple.create(s, p, o)) ;
+        }
+
+        private void reify(Frame f, Node o) {
+            if ( f.reify == null )
+                return ;
+            emit(f.reify, nodeType, nodeStatement) ;
+            emit(f.reify, nodeSubject, f.subject) ;
+            emit(f.reify, nodePredicate, f.predicate) ;
+            emit(f.reify, nodeObject, o) ;
+        }
+
+        private String attrName(int i) {
+            String p = parser.getAttributePrefix(i) ;
+            String local = parser.getAttributeLocalName(i) ;
+            return ( p == null || p.isEmpty() ) ? local : p + ":" + local ;
+        }
+
+        private long line()     { return parser.getLocation().getLineNumber() ; }
+        private long col()      { return parser.getLocation().getColumnNumber() ; }
+
+        private void error(String msg) {
+            profile.getHandler().error(msg, line(), col()) ;
+        }
+
+        private void warning(String msg) {
+            profile.getHandler().warning(msg, line(), col()) ;
+        }
+    }
+
+    private static boolean isRDF(String ns) {
+        return nsRDF.equals(ns) ;
+    }
+
+    private static boolean isWhitespace(CharSequence cs) {
+        for ( int i = 0 ; i < cs.length() ; i++ ) {
+            if ( !XMLChar.isSpace(cs.charAt(i)) )
+                return false ;
+        }
+        return true ;
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s ;
+    }
+
+    // coreSyntaxTerms | rdf:li | oldTerms
+    private static boolean isNodeElementName(String local) {
+        switch (local) {
+            case "RDF" : case "ID" : case "about" : case "parseType" : case "resource" :
+            case "nodeID" : case "datatype" : case "li" :
+            case "aboutEach" : case "aboutEachPrefix" : case "bagID" :
+                return false ;
+            default :
+                return true ;
+        }
+    }
+
+    // coreSyntaxTerms | rdf:Description | oldTerms
+    private static boolean isPropertyElementName(String local) {
+        switch (local) {
+            case "RDF" : case "ID" : case "about" : case "parseType" : case "resource" :
+            case "nodeID" : case "datatype" : case "Description" :
+            case "aboutEach" : case "aboutEachPrefix" : case "bagID" :
+                return false ;
+            default :
+                return true ;
+        }
+    }
+
+    // coreSyntaxTerms | rdf:Description | rdf:li | oldTerms
+    private static boolean isPropertyAttributeName(String local) {
+        return isPropertyElementName(local) && !local.equals("li") ;
+    }
+
+    /** RDF syntax attributes that ARP accepts without a namespace (with a warning) */
+    private static boolean isUnqualifiedRDFName(String local) {
+        switch (local) {
+            case "ID" : case "about" : case "resource" : case "parseType" : case "type" :
+            case "aboutEach" : case "aboutEachPrefix" : case "bagID" :
+                return true ;
+            default :
+                return false ;
+        }
+    }
+}
@@ -36,8 +36,10 @@ import org.apache.jena.riot.system.Prologue ;
 import org.apache.jena.riot.tokens.Tokenizer ;
 import org.apache.jena.riot.tokens.TokenizerFactory ;
 
+import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.Triple ;
 import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingInputStream ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingOutputStream ;
@@ -63,8 +65,11 @@ public class SerializationFactoryFinder
             @Override
             public long getEstimatedMemorySize(Binding item)
             {
-                // TODO traverse the binding, and add up the variable + node sizes + object overhead
-                return 0 ;
+                long size = BindingOverhead ;
+                Iterator<Var> vars = item.vars() ;
+                while ( vars.hasNext() )
+                    size += EntryOverhead + estimatedSize(item.get(vars.next())) ;
+                return size ;
             }
         };
     }
@@ -91,8 +96,8 @@ public class SerializationFactoryFinder
             @Override
             public long getEstimatedMemorySize(Triple item)
             {
-                // TODO
-                return 0 ;
+                return TupleOverhead + estimatedSize(item.getSubject()) + estimatedSize(item.getPredicate()) 
+                       + estimatedSize(item.getObject()) ;
             }
         };
     }
@@ -119,9 +124,27 @@ public class SerializationFactoryFinder
             @Override
             public long getEstimatedMemorySize(Quad item)
             {
-                // TODO
-                return 0 ;
+                return TupleOverhead + estimatedSize(item.getGraph()) + estimatedSize(item.getSubject()) 
+                       + estimatedSize(item.getPredicate()) + estimatedSize(item.getObject()) ;
             }
         };
     }
+    
+    // Rough sizes (bytes) of the in-memory objects, for the estimates above.
+    // Nodes are often shared so these are upper estimates. 
+    private static final long BindingOverhead   = 48 ;
+    private static final long EntryOverhead     = 32 ;
+    private static final long TupleOverhead     = 32 ;
+    private static final long NodeOverhead      = 40 ;
+    
+    private static long estimatedSize(Node node)
+    {
+        if ( node == null )
+            return 0 ;
+        if ( node.isURI() )
+            return NodeOverhead + 2L*node.getURI().length() ;
+        if ( node.isLiteral() )
+            return 2*NodeOverhead + 2L*node.getLiteralLexicalForm().length() ;
+        return NodeOverhead ;
+    }
 }
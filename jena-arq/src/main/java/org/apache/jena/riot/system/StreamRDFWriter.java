@@ -32,6 +32,7 @@ import org.apache.jena.riot.thrift.BinRDF ;
 import org.apache.jena.riot.writer.StreamWriterTriX ;
 import org.apache.jena.riot.writer.WriterStreamRDFBlocks ;
 import org.apache.jena.riot.writer.WriterStreamRDFFlat ;
+import org.apache.jena.riot.writer.WriterStreamRDFParallel ;
 import org.apache.jena.riot.writer.WriterStreamRDFPlain ;
 
 import com.hp.hpl.jena.graph.Graph ;
@@ -55,6 +56,13 @@ public class StreamRDFWriter {
         }
     } ;
     
+    private static StreamRDFWriterFactory streamWriterFactoryParallel = new StreamRDFWriterFactory() {
+        @Override
+        public StreamRDF create(OutputStream output, RDFFormat format) {
+            return new WriterStreamRDFParallel(output) ;
+        }
+    } ;
+    
     private static StreamRDFWriterFactory streamWriterFactoryFlat = new StreamRDFWriterFactory() {
         @Override
         public StreamRDF create(OutputStream output, RDFFormat format) {
@@ -126,8 +134,10 @@ public class StreamRDFWriter {
         
         register(RDFFormat.TURTLE_BLOCKS,   streamWriterFactoryBlocks) ;
         register(RDFFormat.TURTLE_FLAT,     streamWriterFactoryFlat) ;
+        register(RDFFormat.TURTLE_PARALLEL, streamWriterFactoryParallel) ;
         register(RDFFormat.TRIG_BLOCKS,     streamWriterFactoryBlocks) ;
         register(RDFFormat.TRIG_FLAT,       streamWriterFactoryFlat) ;
+        register(RDFFormat.TRIG_PARALLEL,   streamWriterFactoryParallel) ;
         
         register(RDFFormat.NTRIPLES,        streamWriterFactoryTriplesQuads) ;
         register(RDFFormat.NTRIPLES_UTF8,   streamWriterFactoryTriplesQuads) ;
@@ -119,7 +119,7 @@ public class WriterStreamRDFBlocks extends WriterStreamRDFBatched
         out.println() ;
     }
         
-    private void printBatch(Node s, List<Triple> triples) {
+    protected void printBatch(Node s, List<Triple> triples) {
         outputNode(s) ;
         if ( out.getCol() > LONG_SUBJECT )
             out.println() ;
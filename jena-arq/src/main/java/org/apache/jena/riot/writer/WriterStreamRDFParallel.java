@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.riot.writer;
+
+import java.io.OutputStream ;
+import java.util.ArrayDeque ;
+import java.util.ArrayList ;
+import java.util.Deque ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.concurrent.* ;
+
+import org.apache.jena.atlas.io.AWriter ;
+import org.apache.jena.atlas.io.IndentedLineBuffer ;
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.out.NodeFormatterTTL ;
+import org.apache.jena.riot.system.PrefixMap ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+
+/** An output of triples / quads in the same layout as {@link WriterStreamRDFBlocks}
+ *  where the formatting of the blocks is done by a pool of threads.
+ *  <p>
+ *  The calling thread groups adjacent same subject (same graph, same subject)
+ *  triples/quads and cuts the groups into chunks of about {@code chunkSize} items.
+ *  Chunks are formatted into buffers in parallel and the buffers are written
+ *  out in the order the chunks were made. The calling thread also allocates blank
+ *  node labels, in the order {@link WriterStreamRDFBlocks} would, so the output
+ *  is the same as the single-threaded writer.
+ *  <p>
+ *  If fed only quads, the output is valid TriG. 
+ *  If fed only triples, the output is valid Turtle. 
+ */
+public class WriterStreamRDFParallel extends WriterStreamRDFBase
+{
+    /** Default number of triples/quads in a chunk of work */ 
+    public static final int DefaultChunkSize = 1000 ;
+    
+    private final int threads ;
+    private final int chunkSize ;
+    // Chunks submitted but not yet written, in output order.
+    // Limited to a few per thread to bound the memory used. 
+    private final Deque<Chunk> pending = new ArrayDeque<>() ;
+    private ExecutorService executor = null ;
+    
+    // Blank node labels - allocated by the calling thread, read by the workers.
+    private final Map<Node, String> labels = new ConcurrentHashMap<>() ;
+    
+    private Chunk chunk             = null ;
+    private List<Triple> group      = null ;
+    private Node currentGraph       = null ;
+    private Node currentSubject     = null ;
+    private boolean firstGraph      = true ;
+
+    public WriterStreamRDFParallel(OutputStream output) {
+        this(new IndentedWriter(output)) ;
+    }
+
+    public WriterStreamRDFParallel(IndentedWriter output) {
+        this(output, Runtime.getRuntime().availableProcessors(), DefaultChunkSize) ;
+    }
+
+    public WriterStreamRDFParallel(IndentedWriter output, int threads, int chunkSize) {
+        super(output) ;
+        if ( threads < 1 )
+            throw new IllegalArgumentException("Number of threads must be positive: "+threads) ;
+        if ( chunkSize < 1 )
+            throw new IllegalArgumentException("Chunk size must be positive: "+chunkSize) ;
+        this.threads = threads ;
+        this.chunkSize = chunkSize ;
+    }
+
+    @Override
+    protected void startData() {
+        reset() ;
+    }
+
+    @Override
+    protected void endData() {
+        try {
+            if ( chunk != null ) {
+                chunk.closesGraph = true ;
+                submit(chunk) ;
+            }
+            while ( ! pending.isEmpty() )
+                writeNext() ;
+        } finally {
+            shutdown() ;
+        }
+        reset() ;
+    }
+
+    @Override
+    protected void reset() {
+        chunk = null ;
+        group = null ;
+        currentGraph = null ;
+        currentSubject = null ;
+    }
+
+    @Override
+    protected void print(Triple triple) {
+        Node s = triple.getSubject() ;
+        if ( chunk == null || currentGraph != null || !Lib.equal(s, currentSubject) )
+            startGroup(null, s) ;
+        add(triple) ;
+    }
+
+    @Override
+    protected void print(Quad quad) {
+        Node g = quad.getGraph() ;
+        Node s = quad.getSubject() ;
+        if ( chunk == null || !Lib.equal(g, currentGraph) || !Lib.equal(s, currentSubject) )
+            startGroup(g, s) ;
+        add(quad.asTriple()) ;
+    }
+
+    // Group boundary - the only place a chunk is cut.
+    private void startGroup(Node g, Node s) {
+        if ( chunk != null ) {
+            boolean graphChange = !Lib.equal(g, currentGraph) ;
+            if ( graphChange || chunk.size >= chunkSize ) {
+                chunk.closesGraph = graphChange ;
+                submit(chunk) ;
+                chunk = null ;
+            }
+        }
+        if ( chunk == null ) {
+            boolean opensGraph = ( g != null && !Lib.equal(g, currentGraph) ) ;
+            chunk = new Chunk(g, opensGraph, firstGraph) ;
+            if ( opensGraph ) {
+                firstGraph = false ;
+                label(g) ;
+            }
+        }
+        currentGraph = g ;
+        currentSubject = s ;
+        group = new ArrayList<>() ;
+        chunk.groups.add(group) ;
+        label(s) ;
+    }
+
+    private void add(Triple triple) {
+        group.add(triple) ;
+        chunk.size++ ;
+        label(triple.getPredicate()) ;
+        label(triple.getObject()) ;
+    }
+
+    private void label(Node n) {
+        if ( n.isBlank() && !labels.containsKey(n) )
+            labels.put(n, nodeToLabel.get(null, n)) ;
+    }
+
+    private void submit(final Chunk c) {
+        if ( executor == null )
+            executor = Executors.newFixedThreadPool(threads, threadFactory) ;
+        // The prefix map and base are only changed after endData has
+        // written all pending chunks.
+        final PrefixMap prefixes = pMap ;
+        final String base = baseURI ;
+        c.result = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return format(c, prefixes, base, labels) ;
+            }
+        }) ;
+        pending.add(c) ;
+        while ( pending.size() > 2 * threads )
+            writeNext() ;
+    }
+
+    private void writeNext() {
+        Chunk c = pending.removeFirst() ;
+        String x ;
+        try {
+            x = c.result.get() ;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt() ;
+            throw new RiotException("Interrupted while writing", ex) ;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            throw new RiotException(cause) ;
+        }
+        // Blank line between blocks of triples, as WriterStreamRDFBlocks. 
+        if ( c.graph == null && out.getRow() > 1 )
+            out.println() ;
+        out.printFormatted(x) ;
+    }
+
+    private void shutdown() {
+        pending.clear() ;
+        if ( executor != null )
+            executor.shutdownNow() ;
+        executor = null ;
+    }
+
+    private static ThreadFactory threadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "WriterStreamRDFParallel") ;
+            t.setDaemon(true) ;
+            return t ;
+        }
+    } ;
+
+    private static String format(Chunk c, PrefixMap prefixes, String base, Map<Node, String> labels) {
+        IndentedLineBuffer buff = new IndentedLineBuffer() ;
+        new ChunkWriter(buff, prefixes, base, labels).write(c) ;
+        return buff.asString() ;
+    }
+
+    /** Work unit : adjacent groups of same subject triples, all in one graph
+     * (graph is null for triples). */
+    private static class Chunk {
+        final Node graph ;
+        final boolean opensGraph ;
+        final boolean firstGraph ;
+        boolean closesGraph = false ;
+        final List<List<Triple>> groups = new ArrayList<>() ;
+        int size = 0 ;
+        Future<String> result = null ;
+        
+        Chunk(Node graph, boolean opensGraph, boolean firstGraph) {
+            this.graph = graph ;
+            this.opensGraph = opensGraph ;
+            this.firstGraph = firstGraph ;
+        }
+    }
+
+    /** Format one chunk, into a buffer, as WriterStreamRDFBlocks would. */
+    private static class ChunkWriter extends WriterStreamRDFBlocks {
+        ChunkWriter(IndentedWriter output, PrefixMap prefixes, String base, final Map<Node, String> labels) {
+            super(output) ;
+            pMap.putAll(prefixes) ;
+            baseURI = base ;
+            fmt = new NodeFormatterTTL(base, pMap) {
+                @Override
+                public void formatBNode(AWriter w, Node n) {
+                    w.print(labels.get(n)) ;
+                }
+            } ;
+        }
+
+        void write(Chunk c) {
+            if ( c.graph == null ) {
+                for ( List<Triple> triples : c.groups )
+                    printBatchTriples(triples.get(0).getSubject(), triples) ;
+                return ;
+            }
+            
+            firstGraph = c.firstGraph ;
+            if ( !c.opensGraph ) {
+                // Continue the graph of the previous chunk, which 
+                // finished with the separator between subjects.
+                lastGraph = c.graph ;
+                setGraphIndent(dftGraph(c.graph) ? INDENT_GDFT : INDENT_GNMD) ;
+                out.incIndent(graphIndent()) ;
+            }
+            boolean first = true ;
+            for ( List<Triple> triples : c.groups ) {
+                Node s = triples.get(0).getSubject() ;
+                if ( lastGraph == null )
+                    startGraph(c.graph) ;
+                else if ( !first ) {
+                    out.println(" .") ;
+                    out.println() ;
+                }
+                first = false ;
+                printBatch(s, triples) ;
+                lastSubject = s ;
+            }
+            if ( c.closesGraph )
+                endGraph(null) ;
+            else {
+                out.println(" .") ;
+                out.println() ;
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.junit.runners.Suite ;
     , TestDatasetGraphViewGraphs.class
     , TestDatasetMonitor.class
     , TestDatasetGraphWithLock.class
+    , TestDatasetGraphTxnMem.class
 })
 
 public class TS_Core
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.core;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.Iterator ;
+import java.util.concurrent.CountDownLatch ;
+import java.util.concurrent.atomic.AtomicReference ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.JenaTransactionException ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+
+public class TestDatasetGraphTxnMem extends AbstractDatasetGraphTests
+{
+    private static Quad q1 = SSE.parseQuad("(quad <g> <s> <p> 1)") ;
+    private static Quad q2 = SSE.parseQuad("(quad <g> <s> <p> 2)") ;
+    private static Quad q3 = SSE.parseQuad("(quad _ <s> <q> 3)") ;
+
+    @Override
+    public DatasetGraph emptyDataset()
+    {
+        return DatasetGraphFactory.createTxnMem() ;
+    }
+
+    // Iterators are over the state when find is called.
+    @Test public void txnmem_01()
+    {
+        DatasetGraph dsg = emptyDataset() ;
+        dsg.add(q1) ;
+        Iterator<Quad> iter = dsg.find() ;
+        dsg.add(q2) ;
+        dsg.delete(q1) ;
+        assertEquals(1, Iter.count(iter)) ;
+        assertEquals(1, Iter.count(dsg.find())) ;
+        assertTrue(dsg.contains(q2)) ;
+    }
+
+    // Find by each index.
+    @Test public void txnmem_02()
+    {
+        DatasetGraph dsg = emptyDataset() ;
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.add(q3) ;
+        Node s = SSE.parseNode("<s>") ;
+        Node p = SSE.parseNode("<p>") ;
+        Node o = SSE.parseNode("2") ;
+        assertEquals(3, Iter.count(dsg.find(Node.ANY, s, Node.ANY, Node.ANY))) ;
+        assertEquals(2, Iter.count(dsg.find(Node.ANY, Node.ANY, p, Node.ANY))) ;
+        assertEquals(1, Iter.count(dsg.find(Node.ANY, Node.ANY, p, o))) ;
+        assertEquals(q2, dsg.find(Node.ANY, Node.ANY, Node.ANY, o).next()) ;
+        assertEquals(2, Iter.count(dsg.findNG(Node.ANY, Node.ANY, Node.ANY, Node.ANY))) ;
+        assertEquals(2, Iter.count(dsg.find(Quad.unionGraph, Node.ANY, Node.ANY, Node.ANY))) ;
+        assertEquals(1, Iter.count(dsg.find(Quad.defaultGraphIRI, Node.ANY, Node.ANY, Node.ANY))) ;
+    }
+
+    // A read transaction does not see later commits.
+    @Test public void txnmem_03() throws Exception
+    {
+        final DatasetGraphTxnMem dsg = new DatasetGraphTxnMem() ;
+        dsg.add(q1) ;
+        dsg.begin(ReadWrite.READ) ;
+        final CountDownLatch done = new CountDownLatch(1) ;
+        final AtomicReference<Throwable> failed = new AtomicReference<>() ;
+        new Thread() {
+            @Override public void run() {
+                try {
+                    dsg.begin(ReadWrite.WRITE) ;
+                    dsg.add(q2) ;
+                    dsg.commit() ;
+                    dsg.end() ;
+                } catch (Throwable th) { failed.set(th) ; }
+                done.countDown() ;
+            }
+        }.start() ;
+        done.await() ;
+        assertEquals(null, failed.get()) ;
+        assertFalse(dsg.contains(q2)) ;
+        dsg.end() ;
+        assertTrue(dsg.contains(q2)) ;
+    }
+
+    // Uncommitted changes are not seen by others, and abort drops them.
+    @Test public void txnmem_04()
+    {
+        DatasetGraphTxnMem dsg = new DatasetGraphTxnMem() ;
+        dsg.begin(ReadWrite.WRITE) ;
+        dsg.add(q1) ;
+        assertTrue(dsg.contains(q1)) ;
+        assertFalse(visibleElsewhere(dsg, q1)) ;
+        dsg.abort() ;
+        dsg.end() ;
+        assertFalse(dsg.contains(q1)) ;
+    }
+
+    @Test(expected=JenaTransactionException.class)
+    public void txnmem_05()
+    {
+        DatasetGraphTxnMem dsg = new DatasetGraphTxnMem() ;
+        dsg.begin(ReadWrite.READ) ;
+        try { dsg.add(q1) ; }
+        finally { dsg.end() ; }
+    }
+
+    @Test public void txnmem_06()
+    {
+        DatasetGraph dsg = emptyDataset() ;
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.add(q3) ;
+        dsg.deleteAny(Node.ANY, Node.ANY, SSE.parseNode("<p>"), Node.ANY) ;
+        assertEquals(1, Iter.count(dsg.find())) ;
+        assertFalse(dsg.containsGraph(q1.getGraph())) ;
+        assertEquals(0, dsg.size()) ;
+    }
+
+    private static boolean visibleElsewhere(final DatasetGraph dsg, final Quad quad)
+    {
+        final boolean[] result = new boolean[1] ;
+        Thread t = new Thread() {
+            @Override public void run() { result[0] = dsg.contains(quad) ; }
+        } ;
+        t.start() ;
+        try { t.join() ; } catch (InterruptedException ex) { throw new RuntimeException(ex) ; }
+        return result[0] ;
+    }
+}
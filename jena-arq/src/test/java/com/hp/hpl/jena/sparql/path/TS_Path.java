@@ -27,6 +27,7 @@ import org.junit.runners.Suite ;
     TestPath.class
     , TestPath2.class
     , TestPathPF.class
+    , TestClosureIndex.class
 })
 
 public class TS_Path
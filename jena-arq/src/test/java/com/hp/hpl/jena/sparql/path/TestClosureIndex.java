@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.sparql.path;
+
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.Random ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.GraphUtil ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.path.eval.ClosureIndex ;
+import com.hp.hpl.jena.sparql.path.eval.PathEval ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+public class TestClosureIndex extends BaseTest
+{
+    static Node p = NodeFactory.createURI("http://example/p") ;
+    static Node q = NodeFactory.createURI("http://example/q") ;
+    static Node pStar = NodeFactory.createURI("http://example/pClosure") ;
+
+    @Test public void closure_01() {
+        Graph graph = SSE.parseGraph("(graph (:n1 :p :n2) (:n2 :p :n3) (:n3 :p :n4) (:n2 :q :n5))") ;
+        ClosureIndex index = new ClosureIndex(graph, p, GraphFactory.createDefaultGraph(), pStar) ;
+        assertEquals(nodes(":n2", ":n3", ":n4"), set(index.successors(node(":n1")))) ;
+        assertEquals(nodes(":n1", ":n2", ":n3"), set(index.predecessors(node(":n4")))) ;
+        assertEquals(nodes(), set(index.successors(node(":n5")))) ;
+        assertTrue(index.reaches(node(":n1"), node(":n4"))) ;
+        assertFalse(index.reaches(node(":n1"), node(":n5"))) ;
+        assertFalse(index.reaches(node(":n1"), node(":n1"))) ;
+    }
+
+    @Test public void closure_02() {
+        // Loop and tail
+        Graph graph = SSE.parseGraph("(graph (:n1 :p :n2) (:n2 :p :n1) (:n2 :p :n3))") ;
+        ClosureIndex index = new ClosureIndex(graph, p, GraphFactory.createDefaultGraph(), pStar) ;
+        assertEquals(nodes(":n1", ":n2", ":n3"), set(index.successors(node(":n1")))) ;
+        assertEquals(nodes(":n1", ":n2"), set(index.predecessors(node(":n2")))) ;
+    }
+
+    @Test public void closure_03() {
+        // Maintained by graph events
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        ClosureIndex index = new ClosureIndex(graph, p, GraphFactory.createDefaultGraph(), pStar) ;
+        graph.getEventManager().register(index) ;
+        graph.add(SSE.parseTriple("(:n1 :p :n2)")) ;
+        graph.add(SSE.parseTriple("(:n3 :p :n4)")) ;
+        assertFalse(index.reaches(node(":n1"), node(":n4"))) ;
+        graph.add(SSE.parseTriple("(:n2 :p :n3)")) ;
+        assertEquals(nodes(":n2", ":n3", ":n4"), set(index.successors(node(":n1")))) ;
+        graph.delete(SSE.parseTriple("(:n2 :p :n3)")) ;
+        assertEquals(nodes(":n2"), set(index.successors(node(":n1")))) ;
+        assertEquals(nodes(":n3"), set(index.predecessors(node(":n4")))) ;
+    }
+
+    @Test public void closure_04() {
+        // Random changes compared to recomputing the closure
+        Random random = new Random(7) ;
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        ClosureIndex index = new ClosureIndex(graph, p, GraphFactory.createDefaultGraph(), pStar) ;
+        graph.getEventManager().register(index) ;
+        for ( int i = 0 ; i < 300 ; i++ ) {
+            Triple t = Triple.create(node(random.nextInt(15)), random.nextInt(4) == 0 ? q : p, node(random.nextInt(15))) ;
+            if ( random.nextInt(3) == 0 )
+                graph.delete(t) ;
+            else
+                graph.add(t) ;
+            if ( i % 10 == 0 ) {
+                Graph copy = GraphFactory.createDefaultGraph() ;
+                GraphUtil.addInto(copy, graph) ;
+                ClosureIndex expected = new ClosureIndex(copy, p, GraphFactory.createDefaultGraph(), pStar) ;
+                assertTrue(expected.getStore().isIsomorphicWith(index.getStore())) ;
+            }
+        }
+    }
+
+    @Test public void closure_05() {
+        // An existing store is used as it is
+        Graph graph = SSE.parseGraph("(graph (:n1 :p :n2) (:n2 :p :n3))") ;
+        Graph store = GraphFactory.createDefaultGraph() ;
+        new ClosureIndex(graph, p, store, pStar) ;
+        graph.add(SSE.parseTriple("(:n3 :p :n4)")) ;
+        ClosureIndex index = new ClosureIndex(graph, p, store, pStar) ;
+        assertEquals(nodes(":n2", ":n3"), set(index.successors(node(":n1")))) ;
+        index.rebuild() ;
+        assertEquals(nodes(":n2", ":n3", ":n4"), set(index.successors(node(":n1")))) ;
+    }
+
+    @Test public void closure_path_01() {
+        Graph graph = SSE.parseGraph("(graph (:n1 :p :n2) (:n2 :p :n3) (:n3 :q :n4))") ;
+        ClosureIndex index = new ClosureIndex(graph, p, GraphFactory.createDefaultGraph(), pStar) ;
+        Context context = new Context() ;
+        ClosureIndex.register(context, index) ;
+        // Changed without the index seeing it, so results show which was used.
+        graph.add(SSE.parseTriple("(:n3 :p :n5)")) ;
+
+        Path pathPlus = SSE.parsePath("(path+ :p)") ;
+        Path pathStar = SSE.parsePath("(path* :p)") ;
+        assertEquals(nodes(":n2", ":n3"), set(PathEval.eval(graph, node(":n1"), pathPlus, context))) ;
+        assertEquals(nodes(":n1", ":n2", ":n3"), set(PathEval.eval(graph, node(":n1"), pathStar, context))) ;
+        assertEquals(nodes(":n3", ":n2", ":n1"), set(PathEval.evalReverse(graph, node(":n3"), pathStar, context))) ;
+        assertEquals(nodes(":n2", ":n3", ":n5"), set(PathEval.eval(graph, node(":n1"), pathPlus, new Context()))) ;
+
+        // Only for the graph of the index
+        Graph other = GraphFactory.createDefaultGraph() ;
+        GraphUtil.addInto(other, graph) ;
+        assertEquals(nodes(":n2", ":n3", ":n5"), set(PathEval.eval(other, node(":n1"), pathPlus, context))) ;
+
+        ClosureIndex.unregister(context, index) ;
+        assertEquals(nodes(":n2", ":n3", ":n5"), set(PathEval.eval(graph, node(":n1"), pathPlus, context))) ;
+    }
+
+    @Test public void closure_path_02() {
+        Graph graph = SSE.parseGraph("(graph (:n1 :p :n2) (:n2 :p :n3) (:n4 :p :n1))") ;
+        ClosureIndex index = new ClosureIndex(graph, p, GraphFactory.createDefaultGraph(), pStar) ;
+        Model model = ModelFactory.createModelForGraph(graph) ;
+        String qs = "PREFIX : <http://example/> SELECT * { ?x :p+ ?y }" ;
+        assertEquals(6, count(qs, model, null)) ;
+        // Changed without the index seeing it, so results show which was used.
+        graph.add(SSE.parseTriple("(:n3 :p :n5)")) ;
+        assertEquals(10, count(qs, model, null)) ;
+        assertEquals(6, count(qs, model, index)) ;
+    }
+
+    private static int count(String qs, Model model, ClosureIndex index) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs, model) ) {
+            if ( index != null )
+                ClosureIndex.register(qExec.getContext(), index) ;
+            return ResultSetFormatter.consume(qExec.execSelect()) ;
+        }
+    }
+
+    private static Node node(String str) {
+        return SSE.parseNode(str) ;
+    }
+
+    private static Node node(int i) {
+        return NodeFactory.createURI("http://example/n"+i) ;
+    }
+
+    private static Set<Node> nodes(String... strs) {
+        Set<Node> nodes = new HashSet<>() ;
+        for ( String str : strs )
+            nodes.add(node(str)) ;
+        return nodes ;
+    }
+
+    private static Set<Node> set(Iterator<Node> iter) {
+        return Iter.toSet(iter) ;
+    }
+}
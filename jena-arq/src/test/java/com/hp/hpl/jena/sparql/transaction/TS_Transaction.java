@@ -25,6 +25,7 @@ import org.junit.runners.Suite.SuiteClasses ;
 @RunWith(Suite.class)
 @SuiteClasses( {
     TestTransactionMem.class
+    , TestTransactionTxnMem.class
 })
 
 public class TS_Transaction
@@ -55,4 +55,29 @@ public class TestIndentedWriter extends BaseTest
             assertEquals("  0x0001\n  XX", b.asString()) ;
         }
     }
+    
+    @Test public void write04()
+    {
+        try(IndentedLineBuffer b = new IndentedLineBuffer()) {
+            b.print("A") ;
+            b.printFormatted("B\nCD\n\nEF") ;
+            assertEquals("AB\nCD\n\nEF", b.asString()) ;
+            assertEquals(4, b.getRow()) ;
+            assertEquals(2, b.getCol()) ;
+            b.printFormatted("G\n") ;
+            assertEquals(5, b.getRow()) ;
+            assertEquals(0, b.getCol()) ;
+            assertTrue(b.atLineStart()) ;
+        }
+    }
+    
+    @Test public void write05()
+    {
+        try(IndentedLineBuffer b = new IndentedLineBuffer()) {
+            b.incIndent() ;
+            b.printFormatted("X\nY") ;
+            b.decIndent() ;
+            assertEquals("  X\n  Y", b.asString()) ;
+        }
+    }
 }
@@ -45,6 +45,7 @@ import org.junit.runners.Suite ;
     , TestRefLong.class
     , TestReverseComparator.class
     , TestTrie.class
+    , TestPMap.class
 } )
 
 public class TS_Lib
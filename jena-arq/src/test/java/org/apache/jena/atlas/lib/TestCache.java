@@ -58,6 +58,16 @@ public class TestCache extends BaseTest
         }
     ;
 
+    private static CacheMaker<Integer, Integer> resizable = 
+        new CacheMaker<Integer, Integer>()
+        {
+        @Override
+        public Cache<Integer, Integer> make(int size) { return CacheFactory.createResizableCache(size) ; }
+        @Override
+        public String name() { return "Resizable" ; } 
+        }
+    ;
+
     @Parameters
     public static Collection<Object[]> cacheMakers()
     {
@@ -68,6 +78,9 @@ public class TestCache extends BaseTest
             , { standard , 10 }
             , { standard , 2 }
             , { standard , 1 }
+            , { resizable , 10 }
+            , { resizable , 2 }
+            , { resizable , 1 }
         } ) ; 
     }
 
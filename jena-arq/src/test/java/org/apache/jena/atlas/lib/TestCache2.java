@@ -24,6 +24,7 @@ import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.lib.Cache ;
 import org.apache.jena.atlas.lib.CacheFactory ;
 import org.apache.jena.atlas.lib.cache.Cache1 ;
+import org.apache.jena.atlas.lib.cache.CacheLRU ;
 import org.junit.Test ;
 
 // Non-parameterized tests
@@ -51,7 +52,44 @@ public class TestCache2 extends BaseTest
         assertEquals("1", str) ;
     }
     
-    
+    // CacheLRU
+    @Test public void cache_20()
+    {
+        CacheLRU<Integer, String> cache = CacheFactory.createResizableCache(2) ;
+        cache.put(1, "1") ;
+        cache.put(2, "2") ;
+        // Touch 1 so 2 is least recently used.
+        assertEquals("1", cache.getIfPresent(1)) ;
+        cache.put(3, "3") ;
+        assertEquals(2, cache.size()) ;
+        assertNull(cache.getIfPresent(2)) ;
+        assertEquals("1", cache.getIfPresent(1)) ;
+        assertEquals(2, cache.getHits()) ;
+        assertEquals(1, cache.getMisses()) ;
+    }
+
+    @Test public void cache_21()
+    {
+        CacheLRU<Integer, String> cache = CacheFactory.createResizableCache(4) ;
+        final int[] dropped = { 0 } ;
+        cache.setDropHandler(new ActionKeyValue<Integer, String>() {
+            @Override
+            public void apply(Integer key, String value) { dropped[0]++ ; }
+        }) ;
+        for ( int i = 1 ; i <= 4 ; i++ )
+            cache.put(i, Integer.toString(i)) ;
+        cache.setMaxSize(2) ;
+        assertEquals(2, cache.size()) ;
+        assertEquals(2, dropped[0]) ;
+        // Most recent entries kept.
+        assertTrue(cache.containsKey(3)) ;
+        assertTrue(cache.containsKey(4)) ;
+        cache.setMaxSize(10) ;
+        for ( int i = 5 ; i <= 12 ; i++ )
+            cache.put(i, Integer.toString(i)) ;
+        assertEquals(10, cache.size()) ;
+        assertEquals(2, dropped[0]) ;
+    }
     
     static Callable<String> getter(final Integer key) {
         return new Callable<String>() {
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.lib;
+
+import java.util.HashMap ;
+import java.util.Map ;
+import java.util.Random ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+public class TestPMap extends BaseTest
+{
+    @Test public void pmap_01()
+    {
+        PMap<String, Integer> map = PMap.empty() ;
+        assertTrue(map.isEmpty()) ;
+        assertEquals(0, map.size()) ;
+        assertNull(map.get("A")) ;
+        assertFalse(map.iterator().hasNext()) ;
+    }
+
+    @Test public void pmap_02()
+    {
+        PMap<String, Integer> map0 = PMap.empty() ;
+        PMap<String, Integer> map1 = map0.plus("A", 1) ;
+        PMap<String, Integer> map2 = map1.plus("B", 2) ;
+        assertTrue(map0.isEmpty()) ;
+        assertEquals(1, map1.size()) ;
+        assertEquals(2, map2.size()) ;
+        assertEquals(Integer.valueOf(1), map2.get("A")) ;
+        assertEquals(Integer.valueOf(2), map2.get("B")) ;
+        assertFalse(map1.containsKey("B")) ;
+    }
+
+    @Test public void pmap_03()
+    {
+        PMap<String, Integer> map1 = PMap.<String, Integer>empty().plus("A", 1).plus("B", 2) ;
+        PMap<String, Integer> map2 = map1.plus("A", 3) ;
+        PMap<String, Integer> map3 = map2.minus("B") ;
+        assertEquals(2, map2.size()) ;
+        assertEquals(Integer.valueOf(1), map1.get("A")) ;
+        assertEquals(Integer.valueOf(3), map2.get("A")) ;
+        assertEquals(1, map3.size()) ;
+        assertFalse(map3.containsKey("B")) ;
+        assertTrue(map2.containsKey("B")) ;
+        assertSame(map3, map3.minus("Z")) ;
+    }
+
+    // Keys with the same hash code.
+    @Test public void pmap_04()
+    {
+        PMap<String, Integer> map = PMap.<String, Integer>empty().plus("Aa", 1).plus("BB", 2) ;
+        assertEquals("Aa".hashCode(), "BB".hashCode()) ;
+        assertEquals(2, map.size()) ;
+        assertEquals(Integer.valueOf(1), map.get("Aa")) ;
+        assertEquals(Integer.valueOf(2), map.get("BB")) ;
+        map = map.minus("Aa") ;
+        assertEquals(1, map.size()) ;
+        assertNull(map.get("Aa")) ;
+        assertEquals(Integer.valueOf(2), map.get("BB")) ;
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void pmap_05()
+    {
+        PMap.<String, Integer>empty().plus(null, 1) ;
+    }
+
+    // Against java.util.HashMap
+    @Test public void pmap_06()
+    {
+        Random random = new Random(1234) ;
+        Map<Integer, Integer> expected = new HashMap<>() ;
+        PMap<Integer, Integer> map = PMap.empty() ;
+        for ( int i = 0 ; i < 20000 ; i++ )
+        {
+            // Some large keys, and many that collide in the low bits.
+            int k = random.nextBoolean() ? random.nextInt(2000) : random.nextInt(64) << 20 ;
+            if ( random.nextInt(3) == 0 )
+            {
+                expected.remove(k) ;
+                map = map.minus(k) ;
+            }
+            else
+            {
+                expected.put(k, i) ;
+                map = map.plus(k, i) ;
+            }
+        }
+        assertEquals(expected.size(), map.size()) ;
+        for ( Map.Entry<Integer, Integer> e : expected.entrySet() )
+            assertEquals(e.getValue(), map.get(e.getKey())) ;
+        assertEquals(expected.keySet(), Iter.toSet(map.keys())) ;
+    }
+}
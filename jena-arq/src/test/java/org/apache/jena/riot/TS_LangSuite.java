@@ -18,7 +18,10 @@
 
 package org.apache.jena.riot;
 
+import junit.extensions.TestSetup ;
+import junit.framework.Test ;
 import junit.framework.TestSuite ;
+import org.apache.jena.riot.lang.ReaderRDFXMLStAX ;
 import org.apache.jena.riot.langsuite.FactoryTestRiot ;
 import org.junit.runner.RunWith ;
 import org.junit.runners.AllTests ;
@@ -29,12 +32,41 @@ import org.junit.runners.AllTests ;
 public class TS_LangSuite
 {
     private static final String manifest1 = "testing/RIOT/Lang/manifest-all.ttl" ;
+    private static final String manifestRDFXML = "testing/RIOT/Lang/RDFXMLStd/manifest.ttl" ;
 
     static public TestSuite suite()
     {
         RIOT.init() ;
         TestSuite ts = new TestSuite("RIOT Lang") ;
         ts.addTest(FactoryTestRiot.make(manifest1, null, null)) ;
+        // The RDF/XML tests again, with the StAX parser in place of ARP.
+        TestSuite tsStAX = FactoryTestRiot.make(manifestRDFXML, null, "StAX-") ;
+        ts.addTest(new ParserSetup(tsStAX, Lang.RDFXML, ReaderRDFXMLStAX.factory)) ;
         return ts ;
     }
+
+    /** Run tests with a different parser registered for a triples language */
+    private static class ParserSetup extends TestSetup
+    {
+        private final Lang lang ;
+        private final ReaderRIOTFactory factory ;
+        private ReaderRIOTFactory previous = null ;
+
+        ParserSetup(Test test, Lang lang, ReaderRIOTFactory factory) {
+            super(test) ;
+            this.lang = lang ;
+            this.factory = factory ;
+        }
+
+        @Override
+        protected void setUp() {
+            previous = RDFParserRegistry.getFactory(lang) ;
+            RDFParserRegistry.registerLangTriples(lang, factory) ;
+        }
+
+        @Override
+        protected void tearDown() {
+            RDFParserRegistry.registerLangTriples(lang, previous) ;
+        }
+    }
 }
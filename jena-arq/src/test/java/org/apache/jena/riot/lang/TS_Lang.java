@@ -40,6 +40,7 @@ import org.junit.runners.Suite ;
     , TestLangRdfJson.class
     , TestTriXReader.class
     , TestTriXBad.class
+    , TestReaderRDFXMLStAX.class
     // Thrift is done in the "thift" package
     , TestParserFactory.class
     , TestPipedRDFIterators.class
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.StringReader ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.system.ErrorHandlerFactory ;
+import org.apache.jena.riot.system.PrefixMap ;
+import org.apache.jena.riot.system.PrefixMapFactory ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFLib ;
+import org.apache.jena.riot.system.StreamRDFWrapper ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.vocabulary.RDF ;
+
+/** Tests for the StAX RDF/XML reader.  The W3C tests are run by the manifest driven {@code TS_LangSuite}. */
+public class TestReaderRDFXMLStAX extends BaseTest
+{
+    private static final String BASE = "http://example/base/doc" ;
+
+    private static final String RDF_START =
+        "<rdf:RDF xmlns:rdf='http://www.w3.org/1999/02/22-rdf-syntax-ns#' xmlns:ex='http://example/'>" ;
+    private static final String RDF_END = "</rdf:RDF>" ;
+
+    @Test public void rdfxml_stax_01()
+    { test("<rdf:Description rdf:about='http://example/s'><ex:p>abc</ex:p></rdf:Description>",
+           "<http://example/s> <http://example/p> 'abc' .") ; }
+
+    @Test public void rdfxml_stax_02()
+    { test("<ex:T rdf:about='s' ex:p='v' xml:lang='en'/>",
+           "<http://example/base/s> <"+RDF.type.getURI()+"> <http://example/T> .",
+           "<http://example/base/s> <http://example/p> 'v'@en .") ; }
+
+    @Test public void rdfxml_stax_03()
+    { test("<rdf:Description rdf:nodeID='a'><ex:p rdf:nodeID='a'/><ex:q rdf:resource='#r'/></rdf:Description>",
+           "_:a <http://example/p> _:a .",
+           "_:a <http://example/q> <http://example/base/doc#r> .") ; }
+
+    @Test public void rdfxml_stax_04()
+    { test("<rdf:Description xml:base='http://example/other/' rdf:ID='x'><ex:p rdf:datatype='http://www.w3.org/2001/XMLSchema#integer'>1</ex:p></rdf:Description>",
+           "<http://example/other/#x> <http://example/p> 1 .") ; }
+
+    // Nested node element, and an empty property element with property attributes. 
+    @Test public void rdfxml_stax_05()
+    { test("<rdf:Description rdf:about='http://example/s'><ex:p><ex:T><ex:q ex:r='v'/></ex:T></ex:p></rdf:Description>",
+           "<http://example/s> <http://example/p> _:b .",
+           "_:b <"+RDF.type.getURI()+"> <http://example/T> .",
+           "_:b <http://example/q> _:c .",
+           "_:c <http://example/r> 'v' .") ; }
+
+    @Test public void rdfxml_stax_li()
+    { test("<rdf:Seq rdf:about='http://example/s'><rdf:li>a</rdf:li><rdf:li>b</rdf:li></rdf:Seq>",
+           "<http://example/s> <"+RDF.type.getURI()+"> <"+RDF.Seq.getURI()+"> .",
+           "<http://example/s> <"+RDF.getURI()+"_1> 'a' .",
+           "<http://example/s> <"+RDF.getURI()+"_2> 'b' .") ; }
+
+    @Test public void rdfxml_stax_parseType_resource()
+    { test("<rdf:Description rdf:about='http://example/s'><ex:p rdf:parseType='Resource'><ex:q>v</ex:q></ex:p></rdf:Description>",
+           "<http://example/s> <http://example/p> _:b .",
+           "_:b <http://example/q> 'v' .") ; }
+
+    @Test public void rdfxml_stax_parseType_collection()
+    { test("<rdf:Description rdf:about='http://example/s'><ex:p rdf:parseType='Collection'>" +
+           "<rdf:Description rdf:about='http://example/a'/><rdf:Description rdf:about='http://example/b'/></ex:p></rdf:Description>",
+           "<http://example/s> <http://example/p> _:l1 .",
+           "_:l1 <"+RDF.first.getURI()+"> <http://example/a> .",
+           "_:l1 <"+RDF.rest.getURI()+"> _:l2 .",
+           "_:l2 <"+RDF.first.getURI()+"> <http://example/b> .",
+           "_:l2 <"+RDF.rest.getURI()+"> <"+RDF.nil.getURI()+"> .") ; }
+
+    @Test public void rdfxml_stax_parseType_collection_empty()
+    { test("<rdf:Description rdf:about='http://example/s'><ex:p rdf:parseType='Collection'/></rdf:Description>",
+           "<http://example/s> <http://example/p> <"+RDF.nil.getURI()+"> .") ; }
+
+    @Test public void rdfxml_stax_parseType_literal()
+    {
+        Graph g = parse("<rdf:Description rdf:about='http://example/s'><ex:p rdf:parseType='Literal'>" +
+                        "<ex:a z='1' ex:y='&amp;' a='2'><br/></ex:a></ex:p></rdf:Description>") ;
+        Triple t = g.find(Node.ANY, NodeFactory.createURI("http://example/p"), Node.ANY).next() ;
+        assertEquals("<ex:a xmlns:ex=\"http://example/\" a=\"2\" z=\"1\" ex:y=\"&amp;\"><br></br></ex:a>",
+                     t.getObject().getLiteralLexicalForm()) ;
+        assertEquals(RDF.getURI()+"XMLLiteral", t.getObject().getLiteralDatatypeURI()) ;
+    }
+
+    @Test public void rdfxml_stax_reification()
+    { test("<rdf:Description rdf:about='http://example/s'><ex:p rdf:ID='st'>v</ex:p></rdf:Description>",
+           "<http://example/s> <http://example/p> 'v' .",
+           "<http://example/base/doc#st> <"+RDF.type.getURI()+"> <"+RDF.Statement.getURI()+"> .",
+           "<http://example/base/doc#st> <"+RDF.subject.getURI()+"> <http://example/s> .",
+           "<http://example/base/doc#st> <"+RDF.predicate.getURI()+"> <http://example/p> .",
+           "<http://example/base/doc#st> <"+RDF.object.getURI()+"> 'v' .") ; }
+
+    // No rdf:RDF : a single node element.
+    @Test public void rdfxml_stax_no_rdf()
+    { testDoc("<ex:T xmlns:ex='http://example/' xmlns:rdf='http://www.w3.org/1999/02/22-rdf-syntax-ns#' rdf:about='http://example/s'/>",
+              "<http://example/s> <"+RDF.type.getURI()+"> <http://example/T> .") ; }
+
+    @Test public void rdfxml_stax_prefixes()
+    {
+        final PrefixMap pmap = PrefixMapFactory.create() ;
+        StreamRDF dest = new StreamRDFWrapper(StreamRDFLib.sinkNull()) {
+            @Override
+            public void prefix(String prefix, String iri) { pmap.add(prefix, iri) ; }
+        } ;
+        new ReaderRDFXMLStAX().read(new StringReader(RDF_START+RDF_END), BASE, null, dest, null) ;
+        assertEquals("http://example/", pmap.expand("ex:")) ;
+        assertEquals(RDF.getURI(), pmap.expand("rdf:")) ;
+    }
+
+    @Test public void rdfxml_stax_same_as_arp()
+    {
+        String x = RDF_START +
+            "<ex:T rdf:about='#s' ex:p='v'>" +
+            "  <ex:q rdf:parseType='Resource'><ex:r rdf:resource='http://example/o'/></ex:q>" +
+            "  <ex:q rdf:ID='st' xml:lang='fr'>chat</ex:q>" +
+            "  <ex:q rdf:parseType='Literal'><b xmlns='http://www.w3.org/1999/xhtml'>bold</b></ex:q>" +
+            "  <rdf:li rdf:nodeID='a'/><rdf:li><rdf:Description rdf:nodeID='a'/></rdf:li>" +
+            "</ex:T>" + RDF_END ;
+        Graph g1 = GraphFactory.createDefaultGraph() ;
+        RDFDataMgr.read(g1, new StringReader(x), BASE, Lang.RDFXML) ;
+        Graph g2 = parseDoc(x) ;
+        assertTrue("Not the same as ARP", g1.isIsomorphicWith(g2)) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void rdfxml_stax_bad_01()     { parse("<rdf:Description rdf:ID='333-555-666'/>") ; }
+
+    @Test(expected=RiotException.class)
+    public void rdfxml_stax_bad_02()     { parse("<rdf:Description rdf:ID='x'/><rdf:Description rdf:ID='x'/>") ; }
+
+    @Test(expected=RiotException.class)
+    public void rdfxml_stax_bad_03()     { parse("<rdf:Description><ex:p rdf:parseType='Literal' rdf:resource='http://example/o'/></rdf:Description>") ; }
+
+    @Test(expected=RiotException.class)
+    public void rdfxml_stax_bad_04()     { parse("<rdf:li/>") ; }
+
+    @Test(expected=RiotException.class)
+    public void rdfxml_stax_bad_05()     { parse("<rdf:Description><ex:p>text<ex:T/></ex:p></rdf:Description>") ; }
+
+    @Test(expected=RiotException.class)
+    public void rdfxml_stax_bad_06()     { parse("<rdf:Description rdf:about='http://example/s' rdf:nodeID='a'/>") ; }
+
+    @Test(expected=RiotException.class)
+    public void rdfxml_stax_bad_07()     { parseDoc(RDF_START+"<rdf:Description>") ; }
+
+    private static void test(String xml, String... ntriples) {
+        testDoc(RDF_START+xml+RDF_END, ntriples) ;
+    }
+
+    // Internal entities are expanded.
+    @Test public void rdfxml_stax_entity_01()
+    { testDoc("<!DOCTYPE rdf:RDF [<!ENTITY ex 'http://example/'>]>"+RDF_START+
+              "<rdf:Description rdf:about='&ex;s'><ex:p>&ex;</ex:p></rdf:Description>"+RDF_END,
+              "<http://example/s> <http://example/p> 'http://example/' .") ; }
+
+    // Nested entities ("billion laughs") are not expanded without limit.
+    @Test(expected=RiotException.class)
+    public void rdfxml_stax_entity_02() {
+        StringBuilder sb = new StringBuilder() ;
+        sb.append("<!DOCTYPE rdf:RDF [\n<!ENTITY e0 'lol'>\n") ;
+        for ( int i = 1 ; i <= 9 ; i++ ) {
+            sb.append("<!ENTITY e"+i+" '") ;
+            for ( int j = 0 ; j < 10 ; j++ )
+                sb.append("&e"+(i-1)+";") ;
+            sb.append("'>\n") ;
+        }
+        sb.append("]>\n") ;
+        parseDoc(sb+RDF_START+"<rdf:Description rdf:about='http://example/s'><ex:p>&e9;</ex:p></rdf:Description>"+RDF_END) ;
+    }
+
+    private static void testDoc(String xml, String... ntriples) {
+        Graph g = parseDoc(xml) ;
+        Graph expected = GraphFactory.createDefaultGraph() ;
+        StringBuilder sb = new StringBuilder() ;
+        for ( String s : ntriples )
+            sb.append(s.replace('\'', '"')).append("\n") ;
+        RDFDataMgr.read(expected, new StringReader(sb.toString()), null, Lang.TURTLE) ;
+        if ( ! expected.isIsomorphicWith(g) ) {
+            System.out.println("---- Parsed") ;
+            RDFDataMgr.write(System.out, g, Lang.NT) ;
+            System.out.println("---- Expected") ;
+            RDFDataMgr.write(System.out, expected, Lang.NT) ;
+            fail("Graphs not isomorphic") ;
+        }
+    }
+
+    private static Graph parse(String xml) {
+        return parseDoc(RDF_START+xml+RDF_END) ;
+    }
+
+    private static Graph parseDoc(String xml) {
+        Graph g = GraphFactory.createDefaultGraph() ;
+        ReaderRDFXMLStAX reader = new ReaderRDFXMLStAX() ;
+        reader.setErrorHandler(ErrorHandlerFactory.errorHandlerStrictNoLogging) ;
+        reader.read(new StringReader(xml), BASE, null, StreamRDFLib.graph(g), null) ;
+        return g ;
+    }
+}
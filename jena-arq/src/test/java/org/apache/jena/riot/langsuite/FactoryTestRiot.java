@@ -34,6 +34,7 @@ public class FactoryTestRiot extends TestFactoryManifest
     public static String assumedRootURIex = "http://example/base/" ;
     public static String assumedRootURITurtle = "http://www.w3.org/2013/TurtleTests/" ;
     public static String assumedRootURITriG = "http://www.w3.org/2013/TriGTests/" ;
+    public static String assumedRootURIRDFXML = "http://www.w3.org/2000/10/rdf-tests/rdfcore/" ;
     
     public static EarlReport report = null ;
     
@@ -99,6 +100,9 @@ public class FactoryTestRiot extends TestFactoryManifest
             if ( r.equals(VocabLangRDF.TestNegativeSyntaxRJ) )
                 return new UnitTestBadSyntax(testName, item.getURI(), input.getURI(), RDFLanguages.RDFJSON, report) ;
             
+            if ( r.equals(VocabLangRDF.TestNegativeSyntaxXML) )
+                return new UnitTestBadSyntax(testName, item.getURI(), input.getURI(), RDFLanguages.RDFXML, report) ;
+
             if ( r.equals(VocabLangRDF.TestSurpressed ))
                 return new UnitTestSurpressed(testName, item.getURI(), report) ;
 
@@ -134,6 +138,12 @@ public class FactoryTestRiot extends TestFactoryManifest
             if ( r.equals(VocabLangRDF.TestNegativeEvalRJ) )
                 return new UnitTestBadEval(testName, item.getURI(), input.getURI(), RDFLanguages.RDFJSON, report) ;
 
+            if ( r.equals(VocabLangRDF.TestEvalXML) ) {
+                // RDF/XML tests are in a directory per issue.
+                String base = rebaseDir(input, assumedRootURIRDFXML) ;
+                return new UnitTestEval(testName, item.getURI(), input.getURI(), result.getURI(), base, RDFLanguages.RDFXML, report) ;
+            }
+
             System.err.println("Unrecognized turtle test : ("+r+")" + testName) ;
             return null ;
 
@@ -151,5 +161,12 @@ public class FactoryTestRiot extends TestFactoryManifest
         baseIRI = baseIRI+x ;
         return baseIRI ;
     }
+
+    private static String rebaseDir(Resource input, String baseIRI) {
+        String x = input.getURI() ;
+        int idx = x.lastIndexOf('/') ;
+        idx = x.lastIndexOf('/', idx-1) ;
+        return baseIRI+x.substring(idx+1) ;
+    }
     
 }
@@ -34,6 +34,7 @@ import org.junit.runners.Suite.SuiteClasses ;
     , TestRDFJSON.class
     , TestTurtleWriter.class
     , TestTriXWriter.class
+    , TestWriterParallel.class
 })
 
 public class TS_RiotWriter
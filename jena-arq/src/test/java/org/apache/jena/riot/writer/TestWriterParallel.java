@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.riot.writer;
+
+import java.io.StringWriter ;
+
+import org.apache.jena.riot.system.PrefixMap ;
+import org.apache.jena.riot.system.PrefixMapFactory ;
+import org.apache.jena.riot.system.RiotLib ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphFactory ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+/** The parallel writer produces the same output as the blocks writer */ 
+public class TestWriterParallel extends AbstractWriterTest
+{
+    @Test public void parallel_graph_01() { testGraph("writer-rt-01.ttl") ; }
+    @Test public void parallel_graph_02() { testGraph("writer-rt-05.ttl") ; }
+    @Test public void parallel_graph_03() { testGraph("writer-rt-10.ttl") ; }
+    @Test public void parallel_graph_04() { testGraph("writer-rt-13.ttl") ; }
+    @Test public void parallel_graph_05() { testGraph("writer-rt-17.ttl") ; }
+    @Test public void parallel_graph_06() { testGraph("writer-jena.ttl") ; }
+
+    @Test public void parallel_dataset_01() { testDataset("writer-rt-20.trig") ; }
+    @Test public void parallel_dataset_02() { testDataset("writer-rt-22.trig") ; }
+    @Test public void parallel_dataset_03() { testDataset("writer-rt-25.trig") ; }
+    @Test public void parallel_dataset_04() { testDataset("writer-rt-27.trig") ; }
+    @Test public void parallel_dataset_05() { testDataset("writer-rt-30.trig") ; }
+
+    @Test public void parallel_graph_large() {
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        graph.getPrefixMapping().setNsPrefix("", "http://example/") ;
+        for ( int i = 0 ; i < 500 ; i++ ) {
+            Node s = ( i % 3 == 0 ) ? NodeFactory.createAnon() : NodeFactory.createURI("http://example/s"+i) ;
+            for ( int j = 0 ; j < i % 7 + 1 ; j++ )
+                graph.add(Triple.create(s, NodeFactory.createURI("http://example/p"+j), NodeFactory.createLiteral("v"+i+"-"+j))) ;
+        }
+        testGraph(graph) ;
+    }
+
+    @Test public void parallel_dataset_large() {
+        DatasetGraph dsg = DatasetGraphFactory.createMem() ;
+        Node b = NodeFactory.createAnon() ;
+        for ( int i = 0 ; i < 300 ; i++ ) {
+            Node g = NodeFactory.createURI("http://example/g"+(i%4)) ;
+            Node s = NodeFactory.createURI("http://example/s"+i) ;
+            dsg.add(new Quad(g, s, NodeFactory.createURI("http://example/p"), b)) ;
+            dsg.add(new Quad(g, s, NodeFactory.createURI("http://example/q"), NodeFactory.createLiteral("v"+i))) ;
+            dsg.getDefaultGraph().add(Triple.create(s, NodeFactory.createURI("http://example/p"), b)) ;
+        }
+        testDataset(dsg, PrefixMapFactory.create()) ;
+    }
+
+    private static void testGraph(String filename) {
+        testGraph(readModel(filename).getGraph()) ;
+    }
+
+    private static void testGraph(Graph graph) {
+        PrefixMap pmap = RiotLib.prefixMap(graph) ;
+        String expected = write(new TurtleWriterBlocks(), graph, pmap) ;
+        for ( int chunkSize : new int[]{1, 2, 5, 1000} ) {
+            String actual = write(new TurtleWriterParallel(3, chunkSize), graph, pmap) ;
+            assertEquals("Chunk size "+chunkSize, expected, actual) ;
+        }
+    }
+
+    private static void testDataset(String filename) {
+        DatasetGraph dsg = readDataset(filename).asDatasetGraph() ;
+        testDataset(dsg, RiotLib.prefixMap(dsg.getDefaultGraph())) ;
+    }
+
+    private static void testDataset(DatasetGraph dsg, PrefixMap pmap) {
+        String expected = write(new TriGWriterBlocks(), dsg, pmap) ;
+        for ( int chunkSize : new int[]{1, 2, 5, 1000} ) {
+            String actual = write(new TriGWriterParallel(3, chunkSize), dsg, pmap) ;
+            assertEquals("Chunk size "+chunkSize, expected, actual) ;
+        }
+    }
+
+    private static String write(TurtleWriterBase writer, Graph graph, PrefixMap pmap) {
+        StringWriter sw = new StringWriter() ;
+        writer.write(sw, graph, pmap, null, new Context()) ;
+        return sw.toString() ;
+    }
+
+    private static String write(TriGWriterBase writer, DatasetGraph dsg, PrefixMap pmap) {
+        StringWriter sw = new StringWriter() ;
+        writer.write(sw, dsg, pmap, null, new Context()) ;
+        return sw.toString() ;
+    }
+}
@@ -270,6 +270,10 @@ public class XSDDatatype extends BaseDatatype {
      */
     @Override
     public Object parse(String lexicalForm) throws DatatypeFormatException {
+        Object value = parseFast(lexicalForm);
+        if (value != null) {
+            return value;
+        }
         try {
             ValidationContext context = new ValidationState();
             ValidatedInfo resultInfo = new ValidatedInfo();
@@ -280,6 +284,19 @@ public class XSDDatatype extends BaseDatatype {
         }
     }
 
+    /**
+     * Parse the common lexical forms of the commonly used datatypes without
+     * going through Xerces. Returns null if the lexical form is not handled,
+     * in which case the full parser is used.
+     * @see XSDLexicalParsers
+     */
+    protected Object parseFast(String lexicalForm) {
+        if (this == XSDboolean) {
+            return XSDLexicalParsers.parseBoolean(lexicalForm);
+        }
+        return null;
+    }
+
     /**
      * Convert a value of this datatype out
      * to lexical form.
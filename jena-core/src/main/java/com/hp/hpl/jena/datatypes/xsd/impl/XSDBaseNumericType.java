@@ -162,6 +162,17 @@ public class XSDBaseNumericType extends XSDDatatype {
         return super.parse(lexicalForm);
     }
     
+    @Override
+    protected Object parseFast(String lexicalForm) {
+        if (this == XSDinteger) {
+            return XSDLexicalParsers.parseInteger(lexicalForm);
+        }
+        if (this == XSDdecimal) {
+            return XSDLexicalParsers.parseDecimal(lexicalForm);
+        }
+        return null;
+    }
+    
     /**
      * Check for whitespace violations.
      * Turned off by default.
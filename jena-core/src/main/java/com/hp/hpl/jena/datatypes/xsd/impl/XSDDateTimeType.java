@@ -34,6 +34,14 @@ public class XSDDateTimeType extends XSDAbstractDateTimeType {
         javaClass = XSDDateTime.class;
     }
 
+    @Override
+    protected Object parseFast(String lexicalForm) {
+        if (XSDLexicalParsers.isDateTime(lexicalForm)) {
+            return parseValidated(lexicalForm);
+        }
+        return null;
+    }
+
     /**
      * Parse a validated date. This is invoked from
      * XSDDatatype.convertValidatedDataValue rather then from a local
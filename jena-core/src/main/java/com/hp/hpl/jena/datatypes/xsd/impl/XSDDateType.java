@@ -34,6 +34,14 @@ public class XSDDateType extends XSDAbstractDateTimeType {
         super(typename);
     }
 
+    @Override
+    protected Object parseFast(String lexicalForm) {
+        if (XSDLexicalParsers.isDate(lexicalForm)) {
+            return parseValidated(lexicalForm);
+        }
+        return null;
+    }
+
     /**
      * Parse a validated date. This is invoked from
      * XSDDatatype.convertValidatedDataValue rather then from a local
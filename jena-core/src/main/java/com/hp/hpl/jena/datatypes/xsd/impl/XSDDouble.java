@@ -80,6 +80,11 @@ public class XSDDouble extends XSDDatatype {
          return super.parse(lexicalForm);
      }
 
+    @Override
+    protected Object parseFast(String lexicalForm) {
+        return XSDLexicalParsers.parseDouble(lexicalForm);
+    }
+
     /**
      * Parse a validated lexical form. Subclasses which use the default
      * parse implementation and are not convered by the explicit convertValidatedData
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.datatypes.xsd.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+
+/**
+ * Parsers and validators, not using Xerces, for the common lexical forms of
+ * xsd:integer, xsd:decimal, xsd:double, xsd:boolean, xsd:date and xsd:dateTime.
+ * <p>
+ * Each operation handles a subset of the legal lexical forms - no whitespace,
+ * no unusual forms - and gives the same value as parsing with Xerces.
+ * Anything else is left to Xerces: parsers return null and validators
+ * return false for a lexical form they do not handle, which may or may not be legal.
+ */
+public class XSDLexicalParsers {
+
+    private XSDLexicalParsers() {}
+
+    /** Parse an xsd:integer: {@code [+-]?[0-9]+}. Returns null if not handled. */
+    public static Number parseInteger(String lex) {
+        return parseDecimal(lex, false);
+    }
+
+    /** Parse an xsd:decimal: {@code [+-]?([0-9]+(\.[0-9]*)?|\.[0-9]+)}. Returns null if not handled. */
+    public static Number parseDecimal(String lex) {
+        return parseDecimal(lex, true);
+    }
+
+    /* The value is calculated as XSDDatatype.convertValidatedDataValue does
+     * from the Xerces digit counts.
+     */
+    private static Number parseDecimal(String lex, boolean allowPoint) {
+        int n = lex.length();
+        int i = 0;
+        if ( n > 0 && ( lex.charAt(0) == '+' || lex.charAt(0) == '-' ) )
+            i++;
+        int digitsStart = i;
+        int point = -1;
+        // Counts of significant digits: integer part without leading zeros,
+        // fraction part without trailing zeros.
+        int firstSignificant = -1;
+        int lastFractionSignificant = -1;
+        for ( ; i < n ; i++ ) {
+            char ch = lex.charAt(i);
+            if ( ch == '.' ) {
+                if ( !allowPoint || point != -1 )
+                    return null;
+                point = i;
+                continue;
+            }
+            if ( ch < '0' || ch > '9' )
+                return null;
+            if ( ch != '0' ) {
+                if ( point == -1 ) {
+                    if ( firstSignificant == -1 )
+                        firstSignificant = i;
+                } else
+                    lastFractionSignificant = i;
+            }
+        }
+        int digits = n - digitsStart - (point == -1 ? 0 : 1);
+        if ( digits == 0 )
+            return null;
+        int intEnd = (point == -1) ? n : point;
+        int intDigits = (firstSignificant == -1) ? 0 : intEnd - firstSignificant;
+        int fractionDigits = (lastFractionSignificant == -1) ? 0 : lastFractionSignificant - point;
+
+        if ( intDigits + fractionDigits == 0 )
+            return Integer.valueOf(0);
+        String str = (lex.charAt(0) == '+') ? lex.substring(1) : lex;
+        if ( fractionDigits >= 1 )
+            return (Number)XSDDatatype.XSDdecimal.cannonicalise(new BigDecimal(str));
+        if ( point != -1 )
+            str = str.substring(0, str.indexOf('.'));
+        if ( intDigits > 18 )
+            return new BigInteger(str);
+        long x = Long.parseLong(str);
+        if ( x > Integer.MAX_VALUE || x < Integer.MIN_VALUE )
+            return Long.valueOf(x);
+        return Integer.valueOf((int)x);
+    }
+
+    /**
+     * Parse an xsd:double: a decimal with optional exponent, "INF", "-INF" or "NaN".
+     * Returns null if not handled.
+     */
+    public static Double parseDouble(String lex) {
+        switch (lex) {
+            case "INF":  return Double.POSITIVE_INFINITY;
+            case "-INF": return Double.NEGATIVE_INFINITY;
+            case "NaN":  return Double.NaN;
+        }
+        int n = lex.length();
+        int i = 0;
+        if ( n > 0 && ( lex.charAt(0) == '+' || lex.charAt(0) == '-' ) )
+            i++;
+        int mantissaDigits = 0;
+        boolean point = false;
+        for ( ; i < n ; i++ ) {
+            char ch = lex.charAt(i);
+            if ( ch >= '0' && ch <= '9' )
+                mantissaDigits++;
+            else if ( ch == '.' && !point )
+                point = true;
+            else
+                break;
+        }
+        if ( mantissaDigits == 0 )
+            return null;
+        if ( i < n ) {
+            char ch = lex.charAt(i);
+            if ( ch != 'e' && ch != 'E' )
+                return null;
+            i++;
+            if ( i < n && ( lex.charAt(i) == '+' || lex.charAt(i) == '-' ) )
+                i++;
+            if ( i == n )
+                return null;
+            for ( ; i < n ; i++ ) {
+                ch = lex.charAt(i);
+                if ( ch < '0' || ch > '9' )
+                    return null;
+            }
+        }
+        Double d = Double.valueOf(lex);
+        // Overflow : leave to the full parser.
+        if ( d.isInfinite() )
+            return null;
+        return d;
+    }
+
+    /** Parse an xsd:boolean. Returns null if not handled. */
+    public static Boolean parseBoolean(String lex) {
+        switch (lex) {
+            case "true":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Test for a common form of xsd:dateTime: {@code YYYY-MM-DDThh:mm:ss(.s+)?(Z|(+|-)hh:mm)?}
+     * with a 4 digit year, not 0000, and an hour less than 24.
+     */
+    public static boolean isDateTime(String lex) {
+        int n = lex.length();
+        int i = checkDate(lex, n);
+        if ( i < 0 || i+9 > n || lex.charAt(i) != 'T' )
+            return false;
+        i++;
+        int hour = twoDigits(lex, i);
+        if ( hour < 0 || hour > 23 || lex.charAt(i+2) != ':' )
+            return false;
+        int minute = twoDigits(lex, i+3);
+        if ( minute < 0 || minute > 59 || lex.charAt(i+5) != ':' )
+            return false;
+        int second = twoDigits(lex, i+6);
+        if ( second < 0 || second > 59 )
+            return false;
+        i = i+8;
+        if ( i < n && lex.charAt(i) == '.' ) {
+            i++;
+            int start = i;
+            while ( i < n && isDigit(lex.charAt(i)) )
+                i++;
+            if ( i == start )
+                return false;
+        }
+        return checkTimezone(lex, i, n);
+    }
+
+    /**
+     * Test for a common form of xsd:date: {@code YYYY-MM-DD(Z|(+|-)hh:mm)?}
+     * with a 4 digit year, not 0000.
+     */
+    public static boolean isDate(String lex) {
+        int n = lex.length();
+        int i = checkDate(lex, n);
+        if ( i < 0 )
+            return false;
+        return checkTimezone(lex, i, n);
+    }
+
+    // YYYY-MM-DD : return the index after the date, or -1.
+    private static int checkDate(String lex, int n) {
+        if ( n < 10 || lex.charAt(4) != '-' || lex.charAt(7) != '-' )
+            return -1;
+        int y1 = twoDigits(lex, 0);
+        int y2 = twoDigits(lex, 2);
+        if ( y1 < 0 || y2 < 0 )
+            return -1;
+        int year = y1*100+y2;
+        if ( year == 0 )
+            return -1;
+        int month = twoDigits(lex, 5);
+        if ( month < 1 || month > 12 )
+            return -1;
+        int day = twoDigits(lex, 8);
+        if ( day < 1 || day > daysInMonth(year, month) )
+            return -1;
+        return 10;
+    }
+
+    private static boolean checkTimezone(String lex, int i, int n) {
+        if ( i == n )
+            return true;
+        char ch = lex.charAt(i);
+        if ( ch == 'Z' )
+            return i+1 == n;
+        if ( ch != '+' && ch != '-' )
+            return false;
+        if ( i+6 != n || lex.charAt(i+3) != ':' )
+            return false;
+        int hour = twoDigits(lex, i+1);
+        int minute = twoDigits(lex, i+4);
+        if ( hour < 0 || minute < 0 || minute > 59 )
+            return false;
+        return hour < 14 || ( hour == 14 && minute == 0 );
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 4: case 6: case 9: case 11:
+                return 30;
+            case 2:
+                boolean leap = (year % 4 == 0) && ((year % 100 != 0) || (year % 400 == 0));
+                return leap ? 29 : 28;
+            default:
+                return 31;
+        }
+    }
+
+    // Two digits at idx as an int, or -1.
+    private static int twoDigits(String lex, int idx) {
+        if ( idx+2 > lex.length() )
+            return -1;
+        char c1 = lex.charAt(idx);
+        char c2 = lex.charAt(idx+1);
+        if ( !isDigit(c1) || !isDigit(c2) )
+            return -1;
+        return (c1-'0')*10 + (c2-'0');
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+}
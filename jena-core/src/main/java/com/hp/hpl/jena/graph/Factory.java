@@ -20,6 +20,7 @@ package com.hp.hpl.jena.graph;
 
 import com.hp.hpl.jena.graph.impl.GraphBase ;
 import com.hp.hpl.jena.mem.GraphMem ;
+import com.hp.hpl.jena.mem.GraphMemCompact ;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
 import com.hp.hpl.jena.util.iterator.NullIterator ;
 
@@ -42,6 +43,14 @@ public class Factory
     public static Graph createGraphMem()
         { return new GraphMem(); }
 
+    /**
+        Answer a memory-based Graph that stores triples compactly, as node ids.
+        Use for large graphs where memory matters more than the cost of recreating
+        triples on each find.
+    */
+    public static Graph createGraphMemCompact()
+        { return new GraphMemCompact(); }
+
     public static Graph createGraphMemWithTransactionHandler( final TransactionHandler th )
         {
         Graph g = new GraphMem() 
@@ -82,6 +82,13 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
 	 * if parsing failed for delayed exception thrown in getValue()
 	 */
 	private String exceptionMsg = null; // Suggested by Andreas Langegger
+
+	/**
+	 * The lexical form of an XSD typed literal is parsed on first use of 
+	 * the value, unless eager validation is on. Until then, value and
+	 * wellformed are not set.
+	 */
+	private volatile boolean unparsed = false;
 	
 	//=======================================================================
 	// Constructors
@@ -108,6 +115,9 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
         this.lang = (lang == null ? "" : lang);
         if (dtype == null) {
             value = lex;
+        } else if ( delayParse(dtype) ) {
+            unparsed = true;
+            return;
         } else {
             setValue(lex);
         }
@@ -162,6 +172,9 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
             lexicalForm = lex;
             if (dtype == null) {
                 this.value = lex;
+            } else if ( delayParse(dtype) ) {
+                unparsed = true;
+                return;
             } else {
                 setValue(lex);
             }
@@ -228,6 +241,36 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
 		}
 	}
     
+    /**
+     * Whether parsing of the lexical form can be left until the value is needed.
+     * For the XSD datatypes, normalization does not change the datatype of a literal
+     * created from a lexical form.
+     */
+    private static boolean delayParse(RDFDatatype dtype) {
+        return !JenaParameters.enableEagerLiteralValidation && dtype instanceof XSDDatatype;
+    }
+
+    /**
+     * Parse the lexical form if that was delayed when the literal was created.
+     */
+    private void ensureParsed() {
+        if ( ! unparsed )
+            return;
+        synchronized(this) {
+            if ( ! unparsed )
+                return;
+            try {
+                value = dtype.parse(lexicalForm);
+                wellformed = true;
+            } catch (DatatypeFormatException e) {
+                wellformed = false;
+                exceptionMsg = e.getMessage();
+            }
+            normalize();
+            unparsed = false;
+        }
+    }
+    
     /**
      * Normalize the literal. If the value is narrower than the current data type
      * (e.g. value is xsd:date but the time is xsd:datetime) it will narrow
@@ -248,7 +291,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public boolean isXML() {
-		return dtype == XMLLiteralType.theXMLLiteralType && this.wellformed;
+		return dtype == XMLLiteralType.theXMLLiteralType && isWellFormedRaw();
 	}
     
 	/** 
@@ -256,11 +299,12 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public boolean isWellFormed() {
-		return dtype != null && this.wellformed;
+		return dtype != null && isWellFormedRaw();
 	}
     
     @Override
     public boolean isWellFormedRaw() {
+        ensureParsed();
         return wellformed;
     }
 
@@ -313,7 +357,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
         return
             isXML() ? this
             : !lang.equals( "" ) ? getLexicalForm() + "@" + lang.toLowerCase(Locale.ROOT)
-            : wellformed ? getValue()
+            : isWellFormedRaw() ? getValue()
             : getLexicalForm() 
             ;
     }
@@ -333,7 +377,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public Object getValue() throws DatatypeFormatException {
-		if (wellformed) {
+		if (isWellFormedRaw()) {
 			return value;
 		} else {
 			throw new DatatypeFormatException(
@@ -490,6 +534,6 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
     @Override
     public int getDefaultHashcode()
-        { return (wellformed ? value : getLexicalForm()).hashCode(); }
+        { return (isWellFormedRaw() ? value : getLexicalForm()).hashCode(); }
 
     }
@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.impl.TripleStore;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+import com.hp.hpl.jena.util.iterator.NullIterator;
+
+/**
+    A TripleStore that holds no Triple objects. Nodes are given int ids by a 
+    <code>NodeDictionary</code> and each triple is held as pairs of ids in three
+    indexes, subject -> (predicate, object), predicate -> (object, subject) and
+    object -> (subject, predicate), each an array, indexed by node id, of 
+    <code>IntPairBunch</code> entries. Triples are recreated as they are returned by 
+    <code>find</code>.
+    <p>
+    Matching follows <code>GraphTripleStoreBase</code>: the index node is found by
+    its indexing value, predicates are matched by equality and objects by 
+    <code>sameValueAs</code>. Iterators throw ConcurrentModificationException if the
+    store is changed other than through their own <code>remove</code>.
+*/
+public class CompactTripleStore implements TripleStore
+    {
+    protected static final int SPO = 0, POS = 1, OSP = 2;
+    
+    protected final Graph parent;
+    protected final NodeDictionary dictionary = new NodeDictionary();
+    protected Object [] subjects = new Object[16];
+    protected Object [] predicates = new Object[16];
+    protected Object [] objects = new Object[16];
+    protected int size = 0;
+    
+    /**
+        A count of the changes made to the store, used for detecting concurrent
+        modifications.
+    */
+    protected int changes = 0;
+    
+    public CompactTripleStore( Graph parent )
+        { this.parent = parent; }
+    
+    @Override public void close()
+        { subjects = predicates = objects = null; }
+    
+    @Override public void add( Triple t )
+        {
+        int s = dictionary.allocate( t.getSubject() );
+        int p = dictionary.allocate( t.getPredicate() );
+        int o = dictionary.allocate( t.getObject() );
+        ensureCapacity( dictionary.size() );
+        long po = IntPairBunch.pack( p, o );
+        if (!IntPairBunch.contains( subjects[s], po ))
+            {
+            subjects[s] = IntPairBunch.add( subjects[s], po );
+            predicates[p] = IntPairBunch.add( predicates[p], IntPairBunch.pack( o, s ) );
+            objects[o] = IntPairBunch.add( objects[o], IntPairBunch.pack( s, p ) );
+            size += 1;
+            changes += 1;
+            }
+        }
+    
+    @Override public void delete( Triple t )
+        {
+        int s = dictionary.lookup( t.getSubject() );
+        int p = dictionary.lookup( t.getPredicate() );
+        int o = dictionary.lookup( t.getObject() );
+        if (s < 0 || p < 0 || o < 0) return;
+        long po = IntPairBunch.pack( p, o );
+        if (IntPairBunch.contains( subjects[s], po ))
+            {
+            subjects[s] = IntPairBunch.remove( subjects[s], po );
+            predicates[p] = IntPairBunch.remove( predicates[p], IntPairBunch.pack( o, s ) );
+            objects[o] = IntPairBunch.remove( objects[o], IntPairBunch.pack( s, p ) );
+            size -= 1;
+            changes += 1;
+            }
+        }
+    
+    @Override public void clear()
+        {
+        dictionary.clear();
+        subjects = new Object[16];
+        predicates = new Object[16];
+        objects = new Object[16];
+        size = 0;
+        changes += 1;
+        }
+    
+    @Override public int size()
+        { return size; }
+    
+    @Override public boolean isEmpty()
+        { return size == 0; }
+    
+    /**
+        Answer true iff this store contains the (concrete) triple <code>t</code>,
+        with objects compared by value. When no literals are involved the answer
+        comes straight from the subject index.
+    */
+    @Override public boolean contains( Triple t )
+        {
+        Node S = t.getSubject(), P = t.getPredicate(), O = t.getObject();
+        if (!S.isLiteral() && !P.isLiteral() && !O.isLiteral())
+            {
+            int s = dictionary.lookup( S ), p = dictionary.lookup( P ), o = dictionary.lookup( O );
+            if (s < 0 || p < 0 || o < 0) return false;
+            return IntPairBunch.contains( subjects[s], IntPairBunch.pack( p, o ) );
+            }
+        ExtendedIterator<Triple> it = find( t );
+        try { return it.hasNext(); } finally { it.close(); }
+        }
+    
+    /**
+        Answer the number of triples with a node of the same indexing value as
+        <code>n</code> in the given field (0 subject, 1 predicate, 2 object).
+    */
+    public long count( int field, Node n )
+        {
+        Object [] index = index( field );
+        long count = 0;
+        for (int id: dictionary.lookupByIndexingValue( n ))
+            count += IntPairBunch.size( index[id] );
+        return count;
+        }
+    
+    @Override public ExtendedIterator<Node> listSubjects()
+        { return new NodeIterator( subjects ); }
+    
+    @Override public ExtendedIterator<Node> listPredicates()
+        { return new NodeIterator( predicates ); }
+    
+    @Override public ExtendedIterator<Node> listObjects()
+        { return new NodeIterator( objects ); }
+    
+    /**
+        Answer an iterator over the triples matching <code>m</code>, choosing the
+        index in the same order as <code>GraphTripleStoreBase</code>: subject, 
+        object, predicate.
+    */
+    @Override public ExtendedIterator<Triple> find( Triple m )
+        {
+        Node sm = m.getSubject(), pm = m.getPredicate(), om = m.getObject();
+        if (sm.isConcrete())
+            {
+            int p = -1;
+            if (pm.isConcrete() && (p = dictionary.lookup( pm )) < 0) return NullIterator.instance();
+            int o = -1;
+            Node byValue = null;
+            if (om.isConcrete())
+                {
+                if (om.isLiteral()) byValue = om;
+                else if ((o = dictionary.lookup( om )) < 0) return NullIterator.instance();
+                }
+            return iterator( SPO, dictionary.lookupByIndexingValue( sm ), p, o, byValue );
+            }
+        else if (om.isConcrete())
+            {
+            int p = -1;
+            if (pm.isConcrete() && (p = dictionary.lookup( pm )) < 0) return NullIterator.instance();
+            return iterator( OSP, dictionary.lookupByIndexingValue( om ), -1, p, null );
+            }
+        else if (pm.isConcrete())
+            return iterator( POS, dictionary.lookupByIndexingValue( pm ), -1, -1, null );
+        else
+            return iterator( SPO, null, -1, -1, null );
+        }
+    
+    private ExtendedIterator<Triple> iterator( int order, int [] keys, int a, int b, Node bByValue )
+        {
+        if (keys != null && keys.length == 0) return NullIterator.instance();
+        return new TripleIterator( order, keys, a, b, bByValue );
+        }
+    
+    private Triple triple( int order, int key, long pair )
+        {
+        int a = IntPairBunch.first( pair ), b = IntPairBunch.second( pair );
+        switch (order)
+            {
+            case SPO: return Triple.create( dictionary.get( key ), dictionary.get( a ), dictionary.get( b ) );
+            case POS: return Triple.create( dictionary.get( b ), dictionary.get( key ), dictionary.get( a ) );
+            default:  return Triple.create( dictionary.get( a ), dictionary.get( b ), dictionary.get( key ) );
+            }
+        }
+    
+    private Object [] index( int order )
+        { return order == SPO ? subjects : order == POS ? predicates : objects; }
+    
+    private void ensureCapacity( int n )
+        {
+        if (n <= subjects.length) return;
+        int capacity = Math.max( n, subjects.length * 2 );
+        subjects = Arrays.copyOf( subjects, capacity );
+        predicates = Arrays.copyOf( predicates, capacity );
+        objects = Arrays.copyOf( objects, capacity );
+        }
+    
+    /**
+        Iterator over the bunches of one index, for the given keys or for every 
+        node, keeping the pairs whose first and second ids match <code>a</code>
+        and <code>b</code> (-1 for any) and, if <code>bByValue</code> is not null,
+        whose second node has the same value.
+    */
+    protected class TripleIterator extends NiceIterator<Triple>
+        {
+        protected final int order;
+        protected final int [] keys;
+        protected final int a, b;
+        protected final Node bByValue;
+        protected int expectedChanges = changes;
+        
+        protected int keyIndex = -1;
+        protected int key = -1;
+        protected Object bunch = null;
+        protected int slot = 0;
+        protected Triple next = null;
+        protected Triple current = null;
+        
+        protected TripleIterator( int order, int [] keys, int a, int b, Node bByValue )
+            {
+            this.order = order; this.keys = keys;
+            this.a = a; this.b = b; this.bByValue = bByValue;
+            }
+        
+        @Override public boolean hasNext()
+            {
+            checkChanges();
+            if (next != null) return true;
+            while (true)
+                {
+                while (slot > 0)
+                    {
+                    long pair = IntPairBunch.slot( bunch, --slot );
+                    if (pair >= 0 && accept( pair ))
+                        {
+                        next = triple( order, key, pair );
+                        return true;
+                        }
+                    }
+                if (!nextBunch()) return false;
+                }
+            }
+        
+        @Override public Triple next()
+            {
+            if (!hasNext()) throw new NoSuchElementException( "CompactTripleStore iterator" );
+            current = next;
+            next = null;
+            return current;
+            }
+        
+        @Override public void remove()
+            {
+            checkChanges();
+            if (current == null) throw new IllegalStateException();
+            delete( current );
+            expectedChanges = changes;
+            parent.getEventManager().notifyDeleteTriple( parent, current );
+            current = null;
+            }
+        
+        private boolean accept( long pair )
+            {
+            if (a >= 0 && IntPairBunch.first( pair ) != a) return false;
+            int second = IntPairBunch.second( pair );
+            if (b >= 0 && second != b) return false;
+            return bByValue == null || bByValue.sameValueAs( dictionary.get( second ) );
+            }
+        
+        private boolean nextBunch()
+            {
+            Object [] index = index( order );
+            if (index == null) return false;
+            while (true)
+                {
+                keyIndex += 1;
+                if (keys == null)
+                    {
+                    if (keyIndex >= dictionary.size()) return false;
+                    key = keyIndex;
+                    }
+                else 
+                    {
+                    if (keyIndex >= keys.length) return false;
+                    key = keys[keyIndex];
+                    }
+                bunch = index[key];
+                if (bunch != null)
+                    {
+                    slot = IntPairBunch.slots( bunch );
+                    return true;
+                    }
+                }
+            }
+        
+        private void checkChanges()
+            {
+            if (changes != expectedChanges) throw new ConcurrentModificationException();
+            }
+        }
+    
+    /**
+        Iterator over the nodes that have at least one triple in an index.
+    */
+    protected class NodeIterator extends NiceIterator<Node>
+        {
+        protected final Object [] index;
+        protected final int expectedChanges = changes;
+        protected int id = -1;
+        protected int nextId = -1;
+        
+        protected NodeIterator( Object [] index )
+            { this.index = index; }
+        
+        @Override public boolean hasNext()
+            {
+            if (changes != expectedChanges) throw new ConcurrentModificationException();
+            if (nextId > id) return true;
+            for (int i = id + 1; i < index.length; i += 1)
+                if (index[i] != null) { nextId = i; return true; }
+            return false;
+            }
+        
+        @Override public Node next()
+            {
+            if (!hasNext()) throw new NoSuchElementException( "CompactTripleStore node iterator" );
+            id = nextId;
+            return dictionary.get( id );
+            }
+        }
+    }
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem;
+
+import com.hp.hpl.jena.graph.* ;
+import com.hp.hpl.jena.graph.impl.TripleStore ;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
+
+/**
+    An in-memory graph with the same behaviour as <code>GraphMem</code> that stores
+    triples as node ids rather than Triple objects (see <code>CompactTripleStore</code>).
+    It uses a fraction of the memory of a GraphMem, which suits large graphs that
+    are mostly read; each triple is recreated as it is returned by <code>find</code>.
+*/
+public class GraphMemCompact extends GraphMemBase
+{
+    public GraphMemCompact()
+    { super(  ); }
+
+    @Override protected TripleStore createTripleStore()
+    { return new CompactTripleStore( this ); }
+
+    @Override protected void destroy()
+    { store.close(); }
+
+    @Override public void performAdd( Triple t )
+    { store.add( t ); }
+
+    @Override public void performDelete( Triple t )
+    { store.delete( t ); }
+
+    @Override public int graphBaseSize()  
+    { return store.size(); }
+
+    @Override protected GraphStatisticsHandler createStatisticsHandler()
+    { return new CompactStatisticsHandler( (CompactTripleStore) store ); }
+
+    /**
+        Statistics from the index sizes, answering as GraphMemStatisticsHandler does.
+     */
+    protected static class CompactStatisticsHandler implements GraphStatisticsHandler
+    {
+        protected final CompactTripleStore store;
+
+        public CompactStatisticsHandler( CompactTripleStore store )
+        { this.store = store; }
+
+        @Override
+        public long getStatistic( Node S, Node P, Node O )
+        {
+            boolean s = S.isConcrete(), p = P.isConcrete(), o = O.isConcrete();
+            if ( s && p && o )
+                return store.contains( Triple.create( S, P, O ) ) ? 1 : 0;
+            long countS = s ? store.count( CompactTripleStore.SPO, S ) : -1;
+            long countP = p ? store.count( CompactTripleStore.POS, P ) : -1;
+            long countO = o ? store.count( CompactTripleStore.OSP, O ) : -1;
+            if ( s && p ) return countS == 0 || countP == 0 ? 0 : -1;
+            if ( s && o ) return countS == 0 || countO == 0 ? 0 : -1;
+            if ( p && o ) return countP == 0 || countO == 0 ? 0 : -1;
+            if ( s ) return countS;
+            if ( p ) return countP;
+            if ( o ) return countO;
+            return store.size();
+        }
+    }
+
+    @Override public ExtendedIterator<Triple> graphBaseFind( Triple m ) 
+    { return store.find( m ); }
+
+    @Override public boolean graphBaseContains( Triple t )
+    { return t.isConcrete() ? store.contains( t ) : super.graphBaseContains( t ); }
+
+    @Override public void clear()
+    { 
+        clearStore(); 
+        getEventManager().notifyEvent(this, GraphEvents.removeAll ) ;   
+    }
+    
+    public void clearStore()
+    { 
+        store.clear();
+    }
+}
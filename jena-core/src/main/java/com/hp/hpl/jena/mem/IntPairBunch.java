@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem;
+
+import java.util.Arrays;
+
+/**
+    Sets of pairs of node ids, packed into longs, used by 
+    <code>CompactTripleStore</code> to hold the two remaining fields of the
+    triples that share an index node.
+    <p>
+    A set is held in an index slot as an <i>entry</i>, which is either a
+    <code>long[]</code> of exactly its elements, for up to <code>arrayLimit</code>
+    pairs, or an IntPairBunch, an open-addressed hash table, for more. Array entries
+    are never changed in place; updates answer a new array. Hashed entries mark
+    removed slots rather than moving elements. Either way, an iterator scanning an
+    entry (see <code>slots</code> and <code>slot</code>) may remove its current 
+    element and carry on.
+*/
+public class IntPairBunch
+    {
+    /**
+        The largest set kept as an array; beyond this, a hash table is used.
+    */
+    public static final int arrayLimit = 8;
+    
+    protected static final long EMPTY = -1L;
+    protected static final long DELETED = -2L;
+    
+    protected int size = 0;
+    /** Slots in use in the table, including deleted ones. */
+    protected int used = 0;
+    protected long [] table;
+    
+    protected IntPairBunch( long [] pairs )
+        {
+        table = newTable( pairs.length * 4 );
+        for (long pair: pairs) insert( table, pair );
+        size = used = pairs.length;
+        }
+    
+    /**
+        Answer the pair <code>(a, b)</code> packed into a long; both ids must be
+        non-negative.
+    */
+    public static long pack( int a, int b )
+        { return ((long) a << 32) | (b & 0xFFFFFFFFL); }
+    
+    public static int first( long pair )
+        { return (int) (pair >>> 32); }
+    
+    public static int second( long pair )
+        { return (int) pair; }
+    
+    /**
+        Answer the number of pairs in <code>entry</code>, which may be null.
+    */
+    public static int size( Object entry )
+        {
+        if (entry == null) return 0;
+        if (entry instanceof long[]) return ((long []) entry).length;
+        return ((IntPairBunch) entry).size;
+        }
+    
+    public static boolean contains( Object entry, long pair )
+        {
+        if (entry == null) return false;
+        if (entry instanceof long[]) return indexOf( (long []) entry, pair ) >= 0;
+        return findSlot( ((IntPairBunch) entry).table, pair ) >= 0;
+        }
+    
+    /**
+        Add <code>pair</code>, which must not be present, to <code>entry</code>,
+        which may be null. Answer the entry to keep in its place.
+    */
+    public static Object add( Object entry, long pair )
+        {
+        if (entry == null) return new long[] { pair };
+        if (entry instanceof long[])
+            {
+            long [] pairs = (long []) entry;
+            if (pairs.length == arrayLimit)
+                {
+                IntPairBunch b = new IntPairBunch( pairs );
+                b.insert( pair );
+                return b;
+                }
+            long [] x = Arrays.copyOf( pairs, pairs.length + 1 );
+            x[pairs.length] = pair;
+            return x;
+            }
+        ((IntPairBunch) entry).insert( pair );
+        return entry;
+        }
+    
+    /**
+        Remove <code>pair</code>, which must be present, from <code>entry</code>.
+        Answer the entry to keep in its place, null if it is now empty.
+    */
+    public static Object remove( Object entry, long pair )
+        {
+        if (entry instanceof long[])
+            {
+            long [] pairs = (long []) entry;
+            if (pairs.length == 1) return null;
+            long [] x = new long[pairs.length - 1];
+            int i = indexOf( pairs, pair );
+            System.arraycopy( pairs, 0, x, 0, i );
+            System.arraycopy( pairs, i + 1, x, i, x.length - i );
+            return x;
+            }
+        IntPairBunch b = (IntPairBunch) entry;
+        b.table[findSlot( b.table, pair )] = DELETED;
+        b.size -= 1;
+        // Back to an array when small; a scan of the table is unaffected.
+        return b.size <= arrayLimit / 2 ? b.toArray() : b;
+        }
+    
+    /**
+        Answer the number of slots a scan of <code>entry</code> must examine,
+        skipping slots for which <code>slot</code> answers a negative value.
+    */
+    public static int slots( Object entry )
+        {
+        if (entry instanceof long[]) return ((long []) entry).length;
+        return ((IntPairBunch) entry).table.length;
+        }
+    
+    /**
+        Answer the pair in slot <code>i</code> of <code>entry</code>, or a 
+        negative value if the slot is empty.
+    */
+    public static long slot( Object entry, int i )
+        {
+        if (entry instanceof long[]) return ((long []) entry)[i];
+        return ((IntPairBunch) entry).table[i];
+        }
+    
+    private static int indexOf( long [] pairs, long pair )
+        {
+        for (int i = 0; i < pairs.length; i += 1) if (pairs[i] == pair) return i;
+        return -1;
+        }
+    
+    private void insert( long pair )
+        {
+        if ((used + 1) * 4 > table.length * 3) rehash();
+        if (insert( table, pair )) used += 1;
+        size += 1;
+        }
+    
+    private long [] toArray()
+        {
+        long [] x = new long[size];
+        int n = 0;
+        for (long pair: table) if (pair >= 0) x[n++] = pair;
+        return x;
+        }
+    
+    private void rehash()
+        {
+        // Grow if genuinely full, otherwise just clear out deleted slots.
+        int capacity = size * 4 >= table.length ? table.length * 2 : table.length;
+        long [] t = newTable( capacity );
+        for (long pair: table) if (pair >= 0) insert( t, pair );
+        table = t;
+        used = size;
+        }
+    
+    private static long [] newTable( int minCapacity )
+        {
+        int capacity = Integer.highestOneBit( Math.max( 16, minCapacity ) - 1 ) << 1;
+        long [] t = new long[capacity];
+        Arrays.fill( t, EMPTY );
+        return t;
+        }
+    
+    private static int initialSlot( long [] t, long pair )
+        {
+        int h = (int) (pair ^ (pair >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (t.length - 1);
+        }
+    
+    /**
+        Put <code>pair</code> in the first free slot of its probe sequence; answer
+        true if that slot had never been used.
+    */
+    private static boolean insert( long [] t, long pair )
+        {
+        int mask = t.length - 1;
+        int i = initialSlot( t, pair );
+        while (t[i] >= 0) i = (i + 1) & mask;
+        boolean fresh = t[i] == EMPTY;
+        t[i] = pair;
+        return fresh;
+        }
+    
+    private static int findSlot( long [] t, long pair )
+        {
+        int mask = t.length - 1;
+        int i = initialSlot( t, pair );
+        while (true)
+            {
+            long x = t[i];
+            if (x == pair) return i;
+            if (x == EMPTY) return -1;
+            i = (i + 1) & mask;
+            }
+        }
+    }
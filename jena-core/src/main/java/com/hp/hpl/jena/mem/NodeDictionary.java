@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem;
+
+import java.util.Arrays;
+
+import com.hp.hpl.jena.graph.Node;
+
+/**
+    A dictionary assigning dense int ids, starting at 0, to Nodes. Nodes are held once,
+    in an array indexed by id, and found through an open-addressed table of ids 
+    hashed on the node's <i>indexing value</i>, so that nodes with the same value
+    (see <code>Node.getIndexingValue</code>) share a probe sequence and can be found 
+    together.
+    <p>
+    Ids are not reused: entries stay until the dictionary is cleared.
+*/
+public class NodeDictionary
+    {
+    protected Node [] nodes = new Node[16];
+    protected int count = 0;
+    
+    /** Id + 1 of a node in each slot; 0 is empty. */
+    protected int [] slots = new int[32];
+    
+    private static final int [] none = new int[0];
+    
+    /**
+        Answer the number of nodes in the dictionary, which is also the next id. 
+    */
+    public int size()
+        { return count; }
+    
+    /**
+        Answer the node with id <code>id</code>.
+    */
+    public Node get( int id )
+        { return nodes[id]; }
+    
+    /**
+        Answer the id of a node equal to <code>n</code>, or -1 if there is none.
+    */
+    public int lookup( Node n )
+        {
+        int mask = slots.length - 1;
+        for (int i = initialSlot( n ); slots[i] != 0; i = (i + 1) & mask)
+            {
+            int id = slots[i] - 1;
+            if (nodes[id].equals( n )) return id;
+            }
+        return -1;
+        }
+    
+    /**
+        Answer the ids of all the nodes with the same indexing value as 
+        <code>n</code>; usually there is at most one.
+    */
+    public int [] lookupByIndexingValue( Node n )
+        {
+        if (!n.isLiteral())
+            {
+            int id = lookup( n );
+            return id < 0 ? none : new int[] { id };
+            }
+        Object value = n.getIndexingValue();
+        int [] result = none;
+        int mask = slots.length - 1;
+        for (int i = initialSlot( n ); slots[i] != 0; i = (i + 1) & mask)
+            {
+            int id = slots[i] - 1;
+            if (value.equals( nodes[id].getIndexingValue() )) 
+                {
+                result = Arrays.copyOf( result, result.length + 1 );
+                result[result.length - 1] = id;
+                }
+            }
+        return result;
+        }
+    
+    /**
+        Answer the id of <code>n</code>, allocating a new one if the node is not 
+        yet in the dictionary.
+    */
+    public int allocate( Node n )
+        {
+        int id = lookup( n );
+        if (id >= 0) return id;
+        if (count == nodes.length) nodes = Arrays.copyOf( nodes, count * 2 );
+        if ((count + 1) * 2 > slots.length) growSlots();
+        id = count++;
+        nodes[id] = n;
+        insert( id );
+        return id;
+        }
+    
+    /**
+        Remove all the nodes.
+    */
+    public void clear()
+        {
+        nodes = new Node[16];
+        slots = new int[32];
+        count = 0;
+        }
+    
+    private void growSlots()
+        {
+        slots = new int[slots.length * 2];
+        for (int id = 0; id < count; id += 1) insert( id );
+        }
+    
+    private void insert( int id )
+        {
+        int mask = slots.length - 1;
+        int i = initialSlot( nodes[id] );
+        while (slots[i] != 0) i = (i + 1) & mask;
+        slots[i] = id + 1;
+        }
+    
+    private int initialSlot( Node n )
+        {
+        int h = n.getIndexingValue().hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (slots.length - 1);
+        }
+    }
@@ -38,37 +38,100 @@ public final class IteratorFactory
     private IteratorFactory(){}
 
 	/**
-	 * 
+	 * Answer a StmtIterator over the triples of <code>i</code>, each turned into
+	 * a Statement of <code>m</code> as it is delivered. This is a single stage;
+	 * there is no separate mapping iterator between <code>i</code> and the caller.
 	 */
 	static public StmtIterator asStmtIterator( Iterator<Triple> i, final ModelCom m ) 
-	    {
-	    Map1<Triple, Statement> asStatement = new Map1<Triple, Statement>() 
-	        { @Override
-            public Statement map1( Triple t ) { return m.asStatement( t ); }};
-	    return new StmtIteratorImpl( WrappedIterator.create( i ).mapWith( asStatement ) );
-	   }
+	    { return new TripleStmtIterator( i, m ); }
 
 	/**
-	 * 
+	 * Answer a ResIterator over the nodes of <code>i</code> as Resources of
+	 * <code>m</code>, in a single stage.
 	 */
 	static public ResIterator asResIterator( Iterator<Node> i, final ModelCom m) 
-	    {
-		Map1<Node, Resource> asResource = new Map1<Node, Resource>() 
-		    { @Override
-            public Resource map1( Node o) { return (Resource) m.asRDFNode( o ); }};
-		return new ResIteratorImpl( WrappedIterator.create( i ).mapWith( asResource ), null );
-	    }
+	    { return new NodeResIterator( i, m ); }
 
 	/**
-	 * 
+	 * Answer a NodeIterator over the nodes of <code>i</code> as RDFNodes of
+	 * <code>m</code>, in a single stage.
 	 */
 	static public NodeIterator asRDFNodeIterator( Iterator<Node> i, final ModelCom m) 
-	    {      
-	    Map1<Node, RDFNode> asRDFNode = new Map1<Node, RDFNode>() 
-	        { @Override
-            public RDFNode map1( Node o) { return m.asRDFNode( o ); }};
-	    return new NodeIteratorImpl( WrappedIterator.create( i ).mapWith( asRDFNode ), null );
-	    }
+	    { return new NodeRDFNodeIterator( i, m ); }
+
+    /**
+        Base for the model iterators: delivers the results of <code>convert</code>
+        on the elements of a graph-level iterator, and remembers the last one so
+        that subclasses can act on it in <code>remove</code>.
+    */
+    private static abstract class ConvertingIterator<From, To> extends NiceIterator<To>
+        {
+        protected final Iterator<From> base;
+        protected final ModelCom m;
+        protected To current;
+
+        ConvertingIterator( Iterator<From> base, ModelCom m )
+            { this.base = base; this.m = m; }
+
+        protected abstract To convert( From x );
+
+        @Override public boolean hasNext()
+            { return base.hasNext(); }
+
+        @Override public To next()
+            { return current = convert( base.next() ); }
+
+        @Override public void remove()
+            { base.remove(); }
+
+        @Override public void close()
+            { close( base ); }
+        }
+
+    /**
+        Removing a statement also removes it from the model, as StmtIteratorImpl does.
+    */
+    private static final class TripleStmtIterator extends ConvertingIterator<Triple, Statement> implements StmtIterator
+        {
+        TripleStmtIterator( Iterator<Triple> base, ModelCom m )
+            { super( base, m ); }
+
+        @Override protected Statement convert( Triple t )
+            { return m.asStatement( t ); }
+
+        @Override public void remove()
+            {
+            super.remove();
+            current.remove();
+            }
+
+        @Override public Statement nextStatement()
+            { return next(); }
+        }
+
+    private static final class NodeResIterator extends ConvertingIterator<Node, Resource> implements ResIterator
+        {
+        NodeResIterator( Iterator<Node> base, ModelCom m )
+            { super( base, m ); }
+
+        @Override protected Resource convert( Node n )
+            { return (Resource) m.asRDFNode( n ); }
+
+        @Override public Resource nextResource()
+            { return next(); }
+        }
+
+    private static final class NodeRDFNodeIterator extends ConvertingIterator<Node, RDFNode> implements NodeIterator
+        {
+        NodeRDFNodeIterator( Iterator<Node> base, ModelCom m )
+            { super( base, m ); }
+
+        @Override protected RDFNode convert( Node n )
+            { return m.asRDFNode( n ); }
+
+        @Override public RDFNode nextNode()
+            { return next(); }
+        }
 	    
     static  Resource asResource( Node n, ModelCom m )  
         { return asResource( n, Resource.class, m );  }	    
@@ -622,6 +622,8 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
     @Override
     public synchronized void performAdd(Triple t) {
         version++;
+        // A triple already known has already been through the forward engine
+        boolean isNew = !this.isPrepared() || !dataFind.contains(new TriplePattern(t.getSubject(), t.getPredicate(), t.getObject()));
         fdata.getGraph().add(t);
         if (useTGCCaching) {
             if (transitiveEngine.add(t)) this.setPreparedState(false);
@@ -644,7 +646,7 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
             }
             if (needReset) {
                 this.setPreparedState(false);
-            } else {
+            } else if (isNew) {
                 engine.add(t);
             }
         }
@@ -667,15 +669,15 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
                 this.setPreparedState(false);
             }
         } 
-        // Full incremental remove processing requires reference counting
-        // of all deductions. It's not clear the cost of maintaining the
-        // reference counts is worth it so the current implementation
-        // forces a recompute if any external deletes are performed.
-        if (this.isPrepared()) {
-            bEngine.deleteAllRules();
-            this.setPreparedState(false);
-            // Re-enable the code below when/if ref counting is added and remove above
-            // if (removeIsFromBase) engine.delete(t);
+        // The forward engine can remove a triple incrementally if its rule
+        // set is monotonic (see RETEEngine.delete). Otherwise, or if a
+        // preprocessing hook might have used the triple, force a recompute.
+        if (this.isPrepared() && removeIsFromBase) {
+            boolean done = (preprocessorHooks == null || preprocessorHooks.isEmpty()) && engine.delete(t);
+            if (!done) {
+                bEngine.deleteAllRules();
+                this.setPreparedState(false);
+            }
         }
         bEngine.reset();
     }
@@ -931,6 +933,14 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
         bEngine.printProfile();
     }
     
+    /**
+     * Return the LP engine which answers queries, which gives access to the
+     * goal table limit and the tabling statistics.
+     */
+    public LPBRuleEngine getLPEngine() {
+        return bEngine;
+    }
+    
 //  =======================================================================
 //  Implement Filter signature
  
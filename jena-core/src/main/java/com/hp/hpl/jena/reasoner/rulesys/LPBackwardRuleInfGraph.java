@@ -273,6 +273,14 @@ public class LPBackwardRuleInfGraph extends BaseInfGraph implements BackwardRule
     public boolean isTraceOn() {
         return engine.isTraceOn();
     }
+    
+    /**
+     * Return the LP engine which answers queries, which gives access to the
+     * goal table limit and the tabling statistics.
+     */
+    public LPBRuleEngine getLPEngine() {
+        return engine;
+    }
         
 //    =======================================================================
 //     Interface between infGraph and the goal processing machinery
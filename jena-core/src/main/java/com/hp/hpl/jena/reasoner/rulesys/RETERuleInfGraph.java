@@ -88,8 +88,10 @@ public class RETERuleInfGraph extends BasicForwardRuleInfGraph {
     @Override
     public synchronized void performAdd(Triple t) {
         this.requirePrepared();
+        // A triple already known has already been through the network
+        boolean isNew = !fdata.getGraph().contains(t) && !fdeductions.getGraph().contains(t);
         fdata.getGraph().add(t);
-        engine.add(t);
+        if (isNew) engine.add(t);
     }
     
     /** 
@@ -104,8 +106,10 @@ public class RETERuleInfGraph extends BasicForwardRuleInfGraph {
                 data.delete(t);
             }
         }
-        engine.delete(t);
-        fdeductions.getGraph().delete(t);
+        if (!engine.delete(t)) {
+            // Approximate propagation only, make sure the triple itself has gone
+            fdeductions.getGraph().delete(t);
+        }
     }
 
 }
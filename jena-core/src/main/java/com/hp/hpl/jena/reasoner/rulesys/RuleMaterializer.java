@@ -0,0 +1,523 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys;
+
+import java.util.*;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.GraphUtil;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Node_ANY;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.reasoner.ReasonerException;
+import com.hp.hpl.jena.reasoner.TriplePattern;
+import com.hp.hpl.jena.reasoner.rulesys.impl.BindingVector;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Bulk, set-at-a-time evaluation of forward rules, writing all the
+ * deductions to a target graph. This is an alternative to binding a
+ * forward reasoner for the case of materializing the closure of a
+ * large store once, rather than maintaining it under updates.
+ * <p>
+ * Evaluation is semi-naive. The first round evaluates each rule over all
+ * the data; each later round only evaluates rule bodies in which at least
+ * one clause matches a triple deduced in the previous round (the delta).
+ * A rule body is evaluated as a sequence of joins over sets of bindings,
+ * most bound clause first. Each join either looks up the matches for each
+ * distinct set of join values or, if there are many of them, scans the
+ * clause once and probes a hash table. The deductions of a round are
+ * added to the target graph in batches at the end of the round.
+ * <p>
+ * Only monotonic forward rules can be materialized: backward rules,
+ * rules which deduce backward rules and non-monotonic builtins
+ * (e.g. noValue, remove) are rejected. The table, tableAll and hide
+ * directives are ignored. Body builtins are called with a context in which
+ * {@link RuleContext#getGraph} is null.
+ */
+public class RuleMaterializer {
+
+    /** Default number of triples added to the target graph in each batch */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+    
+    /** Number of distinct join values above which a join scans the clause and uses a hash table */
+    public static final int HASH_JOIN_THRESHOLD = 256;
+    
+    /** The rules to evaluate, checked and with tabling directives removed */
+    protected List<Rule> rules = new ArrayList<>();
+    
+    /** Maximum number of triples in each batch of additions, also bounds the delta bindings processed at once */
+    protected int batchSize = DEFAULT_BATCH_SIZE;
+    
+    /** The data being read */
+    protected Graph source;
+    
+    /** The graph receiving the deductions, may be the source graph */
+    protected Graph target;
+    
+    /** Deductions of the current round which have not yet been added */
+    protected Set<Triple> pending;
+    
+    /** Statistics - number of rounds in the last run */
+    protected int nRounds;
+    
+    /** Statistics - number of rule body matches in the last run */
+    protected long nRulesFired;
+    
+    /**
+     * Constructor.
+     * @param rules the rules to materialize
+     * @throws ReasonerException if a rule can not be materialized
+     */
+    public RuleMaterializer(List<Rule> rules) {
+        for ( Rule rule : rules )
+        {
+            if ( isDirective( rule ) ) continue;
+            if ( rule.isBackward() || !rule.isMonotonic() )
+                throw new ReasonerException( "Only monotonic forward rules can be materialized: " + rule.toShortString() );
+            for ( ClauseEntry clause : rule.getHead() )
+            {
+                if ( clause instanceof Rule )
+                    throw new ReasonerException( "Rules deducing backward rules can not be materialized: " + rule.toShortString() );
+            }
+            for ( ClauseEntry clause : rule.getBody() )
+            {
+                if ( !( clause instanceof Functor ) ) continue;
+                Builtin implementor = ( (Functor) clause ).getImplementor();
+                if ( implementor == null )
+                    throw new ReasonerException( "Invoking undefined Functor " + ( (Functor) clause ).getName() + " in " + rule.toShortString() );
+                // Rule.isMonotonic only looks at the head, a test such as
+                // noValue can stop holding as the deductions grow
+                if ( !implementor.isMonotonic() )
+                    throw new ReasonerException( "Only monotonic forward rules can be materialized: " + rule.toShortString() );
+            }
+            this.rules.add( rule );
+        }
+    }
+    
+    /**
+     * Set the number of triples added to the target graph at a time.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Return the number of rounds of evaluation in the last run.
+     */
+    public int getNRounds() {
+        return nRounds;
+    }
+    
+    /**
+     * Return the number of rule body matches found in the last run.
+     */
+    public long getNRulesFired() {
+        return nRulesFired;
+    }
+    
+    /**
+     * Compute the closure of the source data under the rules and add all the
+     * deductions to the target graph.
+     * @param source the data
+     * @param target the graph to receive the deductions; this can be the source
+     * graph, otherwise triples already in the source are not added
+     * @return the number of triples added to the target
+     */
+    public synchronized long materialize(Graph source, Graph target) {
+        this.source = source;
+        this.target = target;
+        nRounds = 0;
+        nRulesFired = 0;
+        long added = 0;
+        try {
+            List<Triple> delta = null;
+            do {
+                pending = new LinkedHashSet<>();
+                for ( Rule rule : rules )
+                {
+                    if ( delta == null )
+                        evaluate( rule, -1, null );
+                    else
+                        evaluateDelta( rule, delta );
+                }
+                nRounds++;
+                delta = new ArrayList<>( pending );
+                pending = null;
+                for ( int i = 0; i < delta.size(); i += batchSize )
+                {
+                    GraphUtil.add( target, delta.subList( i, Math.min( delta.size(), i + batchSize ) ) );
+                }
+                added += delta.size();
+            } while (!delta.isEmpty());
+        } finally {
+            this.source = null;
+            this.target = null;
+            pending = null;
+        }
+        return added;
+    }
+    
+    /**
+     * Test for a rule which only holds directives for the backward engine.
+     */
+    private static boolean isDirective(Rule rule) {
+        if (rule.bodyLength() != 0 || rule.headLength() == 0) return false;
+        for ( ClauseEntry clause : rule.getHead() )
+        {
+            if ( !( clause instanceof Functor ) || !isDirective( (Functor) clause ) ) return false;
+        }
+        return true;
+    }
+    
+    private static boolean isDirective(Functor f) {
+        String name = f.getName();
+        return name.equals("table") || name.equals("tableAll") || name.equals("hide");
+    }
+    
+//  =======================================================================
+//  Rule evaluation
+    
+    /**
+     * Evaluate a rule for each body clause which matches some of the delta.
+     */
+    private void evaluateDelta(Rule rule, List<Triple> delta) {
+        for (int i = 0; i < rule.bodyLength(); i++) {
+            Object clause = rule.getBodyElement(i);
+            if (!(clause instanceof TriplePattern)) continue;
+            Node predicate = ((TriplePattern)clause).getPredicate();
+            List<Triple> matches = new ArrayList<>();
+            for (Triple t : delta) {
+                if (predicate.isVariable() || predicate.sameValueAs(t.getPredicate())) {
+                    matches.add(t);
+                    if (matches.size() == batchSize) {
+                        evaluate(rule, i, matches);
+                        matches = new ArrayList<>();
+                    }
+                }
+            }
+            if (!matches.isEmpty()) evaluate(rule, i, matches);
+        }
+    }
+    
+    /**
+     * Evaluate the body of a rule and record the deductions.
+     * @param rule the rule
+     * @param seed the index of the body clause to match against the seed triples, -1 for none
+     * @param seedTriples the triples for the seed clause
+     */
+    private void evaluate(Rule rule, int seed, List<Triple> seedTriples) {
+        int numVars = rule.getNumVars();
+        List<Node[]> rows = new ArrayList<>();
+        boolean[] done = new boolean[rule.bodyLength()];
+        if (seed < 0) {
+            rows.add(new Node[numVars]);
+        } else {
+            TriplePattern clause = (TriplePattern)rule.getBodyElement(seed);
+            for (Triple t : seedTriples) {
+                Node[] row = match(clause, t, new Node[numVars]);
+                if (row != null) rows.add(row);
+            }
+            done[seed] = true;
+        }
+        // Join the remaining clauses, most bound first
+        for (;;) {
+            if (rows.isEmpty()) return;
+            int next = chooseClause(rule, done, rows.get(0));
+            if (next < 0) break;
+            done[next] = true;
+            rows = join(rows, (TriplePattern)rule.getBodyElement(next));
+        }
+        Context context = new Context(rule);
+        for (Node[] row : rows) {
+            fire(rule, row, context);
+        }
+    }
+    
+    /**
+     * Pick the next body clause to join: the one with the most positions
+     * bound, counting subjects and objects over predicates. Returns -1 when
+     * all the triple patterns have been joined.
+     */
+    private static int chooseClause(Rule rule, boolean[] done, Node[] row) {
+        int best = -1;
+        int bestScore = -1;
+        for (int i = 0; i < rule.bodyLength(); i++) {
+            if (done[i]) continue;
+            Object clause = rule.getBodyElement(i);
+            if (!(clause instanceof TriplePattern)) continue;
+            TriplePattern pattern = (TriplePattern)clause;
+            int score = (lookup(pattern.getSubject(), row) == null ? 0 : 3)
+                      + (lookup(pattern.getPredicate(), row) == null ? 0 : 1)
+                      + (lookup(pattern.getObject(), row) == null ? 0 : 3);
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Extend each row with the matches for a clause. All rows bind the same
+     * variables, so the values to look up are the same positions in each row.
+     */
+    private List<Node[]> join(List<Node[]> rows, TriplePattern clause) {
+        Map<Triple, List<Node[]>> groups = new LinkedHashMap<>();
+        boolean functorKeys = false;
+        for (Node[] row : rows) {
+            Triple key = new Triple(lookupKey(clause.getSubject(), row),
+                                    lookupKey(clause.getPredicate(), row),
+                                    lookupKey(clause.getObject(), row));
+            functorKeys |= Functor.isFunctor(lookup(clause.getObject(), row));
+            List<Node[]> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(row);
+        }
+        List<Node[]> result = new ArrayList<>();
+        if (groups.size() <= HASH_JOIN_THRESHOLD || functorKeys) {
+            // Look up each distinct set of values
+            for (Map.Entry<Triple, List<Node[]>> e : groups.entrySet()) {
+                Triple key = e.getKey();
+                ExtendedIterator<Triple> it = find(key.getSubject(), key.getPredicate(), key.getObject());
+                try {
+                    while (it.hasNext()) {
+                        Triple t = it.next();
+                        for (Node[] row : e.getValue()) {
+                            Node[] extended = match(clause, t, row.clone());
+                            if (extended != null) result.add(extended);
+                        }
+                    }
+                } finally {
+                    it.close();
+                }
+            }
+        } else {
+            // Scan the clause once, probing the rows by the looked up values.
+            // Keys compare terms, so unlike the lookups literals which
+            // are equal in value but different terms do not join.
+            Triple key0 = groups.keySet().iterator().next();
+            boolean bs = !key0.getSubject().equals(Node.ANY) && !isConstant(clause.getSubject());
+            boolean bp = !key0.getPredicate().equals(Node.ANY) && !isConstant(clause.getPredicate());
+            boolean bo = !key0.getObject().equals(Node.ANY) && !isConstant(clause.getObject());
+            ExtendedIterator<Triple> it = find(constant(clause.getSubject()), constant(clause.getPredicate()), constant(clause.getObject()));
+            try {
+                while (it.hasNext()) {
+                    Triple t = it.next();
+                    Triple key = new Triple(bs ? probeValue(t.getSubject()) : key0.getSubject(),
+                                            bp ? probeValue(t.getPredicate()) : key0.getPredicate(),
+                                            bo ? probeValue(t.getObject()) : key0.getObject());
+                    List<Node[]> group = groups.get(key);
+                    if (group == null) continue;
+                    for (Node[] row : group) {
+                        Node[] extended = match(clause, t, row.clone());
+                        if (extended != null) result.add(extended);
+                    }
+                }
+            } finally {
+                it.close();
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Run the builtins for a complete body match and record the head triples.
+     */
+    private void fire(Rule rule, Node[] row, Context context) {
+        BindingVector env = new BindingVector(row);
+        context.setEnv(env);
+        for (int i = 0; i < rule.bodyLength(); i++) {
+            Object clause = rule.getBodyElement(i);
+            if (clause instanceof Functor) {
+                if (!((Functor)clause).evalAsBodyClause(context)) return;
+            }
+        }
+        nRulesFired++;
+        for (int i = 0; i < rule.headLength(); i++) {
+            Object head = rule.getHeadElement(i);
+            if (head instanceof TriplePattern) {
+                Triple t = env.instantiate((TriplePattern)head);
+                if (!t.isConcrete()) continue;
+                if (!pending.contains(t) && !contains(t)) {
+                    pending.add(t);
+                }
+            } else if (head instanceof Functor) {
+                Functor f = (Functor)head;
+                if (isDirective(f)) continue;
+                Builtin imp = f.getImplementor();
+                if (imp == null) {
+                    throw new ReasonerException("Invoking undefined Functor " + f.getName() +" in " + rule.toShortString());
+                }
+                imp.headAction(f.getBoundArgs(env), f.getArgLength(), context);
+            }
+        }
+    }
+
+//  =======================================================================
+//  Matching and data access
+    
+    /**
+     * Match a clause against a triple, extending the given bindings.
+     * @return the bindings, or null if the triple does not match
+     */
+    private static Node[] match(TriplePattern clause, Triple t, Node[] row) {
+        if (match(clause.getPredicate(), t.getPredicate(), row)
+                && match(clause.getObject(), t.getObject(), row)
+                && match(clause.getSubject(), t.getSubject(), row)) {
+            return row;
+        }
+        return null;
+    }
+    
+    private static boolean match(Node pattern, Node node, Node[] row) {
+        if (pattern instanceof Node_RuleVariable) {
+            int index = ((Node_RuleVariable)pattern).getIndex();
+            Node bound = row[index];
+            if (bound == null) {
+                row[index] = node;
+                return true;
+            }
+            return bound.sameValueAs(node);
+        } else if (pattern instanceof Node_ANY) {
+            return true;
+        } else if (Functor.isFunctor(pattern)) {
+            if (!Functor.isFunctor(node)) return false;
+            Functor patternF = (Functor) pattern.getLiteralValue();
+            Functor nodeF = (Functor) node.getLiteralValue();
+            if (!patternF.getName().equals(nodeF.getName())) return false;
+            Node[] patternArgs = patternF.getArgs();
+            Node[] nodeArgs = nodeF.getArgs();
+            if (patternArgs.length != nodeArgs.length) return false;
+            for (int i = 0; i < patternArgs.length; i++) {
+                if (!match(patternArgs[i], nodeArgs[i], row)) return false;
+            }
+            return true;
+        } else {
+            return pattern.sameValueAs(node);
+        }
+    }
+    
+    /** The value of a clause node under some bindings, null if not fixed */
+    private static Node lookup(Node node, Node[] row) {
+        if (node instanceof Node_RuleVariable) return row[((Node_RuleVariable)node).getIndex()];
+        return constant(node);
+    }
+    
+    /** As lookup, with Node.ANY for not fixed, for use in a key */
+    private static Node lookupKey(Node node, Node[] row) {
+        Node n = lookup(node, row);
+        return n == null ? Node.ANY : probeValue(n);
+    }
+    
+    /** A data value in the form used for keys: functor values are not looked up */
+    private static Node probeValue(Node n) {
+        return Functor.isFunctor(n) ? Node.ANY : n;
+    }
+    
+    private static boolean isConstant(Node node) {
+        return constant(node) != null;
+    }
+    
+    /** The node if it can be used in a find, else null */
+    private static Node constant(Node node) {
+        if (node == null || node.isVariable() || node instanceof Node_ANY || Functor.isFunctor(node)) return null;
+        return node;
+    }
+    
+    /**
+     * Find over the source data and the deductions so far. Pending
+     * deductions are not visible until the next round.
+     */
+    protected ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+        s = (s == null || s.equals(Node.ANY)) ? Node.ANY : s;
+        p = (p == null || p.equals(Node.ANY)) ? Node.ANY : p;
+        o = (o == null || o.equals(Node.ANY)) ? Node.ANY : o;
+        ExtendedIterator<Triple> it = source.find(s, p, o);
+        if (target == source) return it;
+        return it.andThen(target.find(s, p, o));
+    }
+    
+    /**
+     * Test if a triple is in the source or the deductions so far.
+     */
+    protected boolean contains(Triple t) {
+        return source.contains(t) || (target != source && target.contains(t));
+    }
+    
+    /**
+     * The context for builtins. The data visible is the source and the
+     * deductions of the earlier rounds.
+     */
+    private class Context implements RuleContext {
+        private final Rule rule;
+        private BindingEnvironment env;
+        
+        Context(Rule rule) { this.rule = rule; }
+        
+        @Override
+        public BindingEnvironment getEnv() { return env; }
+        
+        void setEnv(BindingEnvironment env) { this.env = env; }
+        
+        /** There is no inference graph */
+        @Override
+        public InfGraph getGraph() { return null; }
+        
+        @Override
+        public Rule getRule() { return rule; }
+        
+        @Override
+        public void setRule(Rule rule) {
+            throw new UnsupportedOperationException("RuleMaterializer context rule is fixed");
+        }
+        
+        @Override
+        public boolean contains(Triple t) { return RuleMaterializer.this.contains(t); }
+        
+        @Override
+        public boolean contains(Node s, Node p, Node o) {
+            ExtendedIterator<Triple> it = find(s, p, o);
+            try { return it.hasNext(); } finally { it.close(); }
+        }
+        
+        @Override
+        public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+            return RuleMaterializer.this.find(s, p, o);
+        }
+        
+        @Override
+        public void silentAdd(Triple t) { add(t); }
+        
+        @Override
+        public void add(Triple t) {
+            if (!pending.contains(t) && !contains(t)) pending.add(t);
+        }
+        
+        @Override
+        public void remove(Triple t) {
+            throw new UnsupportedOperationException("RuleMaterializer can not remove triples");
+        }
+    }
+}
@@ -20,6 +20,7 @@ package com.hp.hpl.jena.reasoner.rulesys.impl;
 
 import java.util.*;
 
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.reasoner.TriplePattern;
 
 /**
@@ -61,12 +62,18 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
     /** Flags whether the generator is live/dead/unknown during completion checking */
     protected LFlag completionState;
     
-    /** The goal the generator is satisfying - just used in debugging */
+    /** The goal the generator is satisfying, the key of its table in the engine */
     protected TriplePattern goal;
     
     /** True if this generator can produce at most one answer */
     protected boolean isSingleton;
     
+    /** The generation of the engine's goal table this generator was created for */
+    protected int tableGeneration;
+    
+    /** The version of the inference graph when this generator was created */
+    protected int graphVersion;
+    
 //    /** Distance of generator from top level goal, used in scheduling */
 //    protected int depth = DEFAULT_DEPTH;
 //    
@@ -80,8 +87,23 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
      * results for this generator.
      */
     public Generator(LPInterpreter interpreter, TriplePattern goal) {
+        this(interpreter, goal, 0, 0);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param interpreter an initialized interpreter instance that will answer 
+     * results for this generator.
+     * @param goal the goal whose results are to be generated
+     * @param tableGeneration the generation of the engine's goal table this generator belongs to
+     * @param graphVersion the version of the inference graph the results are computed over
+     */
+    public Generator(LPInterpreter interpreter, TriplePattern goal, int tableGeneration, int graphVersion) {
         this.interpreter = interpreter;
-        this.goal = goal;       // Just used for debugging
+        this.goal = goal;
+        this.tableGeneration = tableGeneration;
+        this.graphVersion = graphVersion;
         isSingleton = goal.isGround();
         if (!isSingleton) resultSet = new HashSet<>();
     }
@@ -157,6 +179,7 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
      */
     public void setComplete() {
         if (!isComplete()) {
+            LPBRuleEngine engine = interpreter.getEngine();
             interpreter.close();
             interpreter = null;
             resultSet = null;
@@ -172,9 +195,19 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
             }
             generatingCPs = null;
             consumingCPs.clear();
+            engine.notifyComplete(this);
         }
     }
     
+    /**
+     * Return the results of a complete generator. The list does not change
+     * once the generator is complete so can be read without synchronization.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Triple> completedResults() {
+        return Collections.unmodifiableList((List<Triple>)(List<?>)results);
+    }
+    
     /**
      * Add a new client choince point to consume results from this generator.
      */
@@ -26,6 +26,8 @@ import com.hp.hpl.jena.util.iterator.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * LP version of the core backward chaining engine. For each parent inference
@@ -33,6 +35,14 @@ import java.util.*;
  * instance. The shared instance holds any common result caching, rule store
  * and global state data. However, all the processing is done by instances
  * of the LPInterpreter - one per query.
+ * <p>
+ * Evaluation of goals is serialized on the engine. Once a tabled goal is
+ * complete its results no longer change, so queries which match a completed
+ * table are answered directly from it without taking the engine lock and
+ * can run concurrently. The number of tables kept can be limited, in which
+ * case the least recently used completed tables are dropped and recomputed
+ * if needed again.
+ * </p>
  */
 public class LPBRuleEngine {
     
@@ -55,8 +65,18 @@ public class LPBRuleEngine {
     protected List<LPInterpreter> activeInterpreters = new ArrayList<>();
     
     /** Table mapping tabled goals to generators for those goals.
-     *  This is here so that partial goal state can be shared across multiple queries. */
-    protected HashMap<TriplePattern, Generator> tabledGoals = new HashMap<>();
+     *  This is here so that partial goal state can be shared across multiple queries. 
+     *  Kept in access order so that the least recently used tables can be evicted. */
+    protected HashMap<TriplePattern, Generator> tabledGoals = newTable();
+    
+    /** The completed generators in tabledGoals, these can be read without locking the engine */
+    protected Map<TriplePattern, Generator> completedTables = new ConcurrentHashMap<>();
+    
+    /** Count of calls to reset, used to ignore generators which complete after their table has been dropped */
+    protected int tableGeneration = 0;
+    
+    /** The maximum number of tabled goals to keep */
+    protected int tableLimit = Integer.MAX_VALUE;
     
     /** Set of generators waiting to be run */
     protected LinkedList<LPAgendaEntry> agenda = new LinkedList<>();
@@ -66,6 +86,18 @@ public class LPBRuleEngine {
     /** Optional profile of number of time each rule is entered, set to non-null to profile */
     protected HashMap<String, Count> profile;
     
+    /** Number of queries started */
+    protected final AtomicLong nQueries = new AtomicLong();
+    
+    /** Number of queries answered from a completed table */
+    protected final AtomicLong nTableHits = new AtomicLong();
+    
+    /** Number of generators created */
+    protected final AtomicLong nGenerators = new AtomicLong();
+    
+    /** Number of completed tables evicted to keep within the table limit */
+    protected final AtomicLong nEvictions = new AtomicLong();
+    
     /** The number of generator cycles to wait before running a completion check.
      *  If set to 0 then checks will be done in the generator each time. */
     public static final int CYCLES_BETWEEN_COMPLETION_CHECK = 3;
@@ -102,10 +134,44 @@ public class LPBRuleEngine {
      * @param goal the query to be processed
      * @return a closable iterator over the query results
      */
-    public synchronized ExtendedIterator<Triple> find(TriplePattern goal) {
-        LPInterpreter interpreter = new LPInterpreter(this, goal);
-        activeInterpreters.add(interpreter);
-        return WrappedIterator.create( new LPTopGoalIterator(interpreter));
+    public ExtendedIterator<Triple> find(TriplePattern goal) {
+        nQueries.incrementAndGet();
+        Generator table = completedTableFor(goal);
+        if (table != null) {
+            nTableHits.incrementAndGet();
+            return new CompletedTableIterator(table.completedResults(), infGraph);
+        }
+        synchronized (this) {
+            LPInterpreter interpreter = new LPInterpreter(this, goal);
+            activeInterpreters.add(interpreter);
+            return WrappedIterator.create( new LPTopGoalIterator(interpreter));
+        }
+    }
+    
+    /**
+     * Return the completed generator which answers the given query, or null
+     * if there is none. The results of a generator for a goal include the
+     * matching data as well as the deductions, which is what the top level
+     * interpreter would return. Queries which repeat a variable or query for
+     * a functor are left to the interpreter.
+     */
+    private Generator completedTableFor(TriplePattern goal) {
+        if (completedTables.isEmpty()) return null;
+        Node s = goal.getSubject();
+        Node p = goal.getPredicate();
+        Node o = goal.getObject();
+        if (Functor.isFunctor(o)) return null;
+        if (s.isVariable() && (s.equals(p) || s.equals(o))) return null;
+        if (p.isVariable() && p.equals(o)) return null;
+        Generator table = completedTables.get( new TriplePattern(tableKey(s), tableKey(p), tableKey(o)) );
+        // Tables are not always reset when data is added, the interpreter would still see the new data
+        if (table == null || table.graphVersion != infGraph.getVersion()) return null;
+        return table;
+    }
+    
+    /** Map a node of a query onto the node a tabled goal would have */
+    private static Node tableKey(Node node) {
+        return (node == Node.ANY || node.isVariable()) ? Node_RuleVariable.WILD : node;
     }
     
     /**
@@ -113,10 +179,73 @@ public class LPBRuleEngine {
      */
     public synchronized void reset() {
         checkSafeToUpdate();
-        tabledGoals = new HashMap<>();
+        tabledGoals = newTable();
+        completedTables.clear();
+        tableGeneration++;
         agenda.clear();
     }
     
+    /**
+     * Set the maximum number of tabled goals to keep. When there are more the
+     * least recently used completed goals are dropped. Goals which are still
+     * being evaluated are always kept.
+     */
+    public synchronized void setTableLimit(int limit) {
+        if (limit < 1) throw new IllegalArgumentException("Table limit must be positive: " + limit);
+        tableLimit = limit;
+        evictTables();
+    }
+    
+    /**
+     * Return the maximum number of tabled goals to keep.
+     */
+    public int getTableLimit() {
+        return tableLimit;
+    }
+    
+    /**
+     * Return the number of tabled goals currently held.
+     */
+    public synchronized int getNTabledGoals() {
+        return tabledGoals.size();
+    }
+    
+    /**
+     * Return the number of tabled goals which are complete.
+     */
+    public int getNCompletedTables() {
+        return completedTables.size();
+    }
+    
+    /**
+     * Return the number of queries started on this engine.
+     */
+    public long getNQueries() {
+        return nQueries.get();
+    }
+    
+    /**
+     * Return the number of queries which were answered from a completed
+     * table without running the interpreter.
+     */
+    public long getNTableHits() {
+        return nTableHits.get();
+    }
+    
+    /**
+     * Return the number of generators (tabled goal evaluations) created.
+     */
+    public long getNGenerators() {
+        return nGenerators.get();
+    }
+    
+    /**
+     * Return the number of completed tables dropped to keep within the table limit.
+     */
+    public long getNEvictions() {
+        return nEvictions.get();
+    }
+    
     /**
      * Add a single rule to the store.
      * N.B. This will invalidate current partial results and the engine
@@ -260,9 +389,11 @@ public class LPBRuleEngine {
         if (generator == null) {
             LPInterpreter interpreter = new LPInterpreter(this, goal, clauses, false);
             activeInterpreters.add(interpreter);
-            generator = new Generator(interpreter, goal);
+            generator = new Generator(interpreter, goal, tableGeneration, infGraph.getVersion());
+            nGenerators.incrementAndGet();
             schedule(generator);
             tabledGoals.put(goal, generator);
+            evictTables();
         }
         return generator;
     }
@@ -277,13 +408,50 @@ public class LPBRuleEngine {
         if (generator == null) {
             LPInterpreter interpreter = new LPInterpreter(this, goal, false);
             activeInterpreters.add(interpreter);
-            generator = new Generator(interpreter, goal);
+            generator = new Generator(interpreter, goal, tableGeneration, infGraph.getVersion());
+            nGenerators.incrementAndGet();
             schedule(generator);
             tabledGoals.put(goal, generator);
+            evictTables();
         }
         return generator;
     }
     
+    /**
+     * Record that a generator is complete so that its results can be used
+     * by later queries without running the interpreter.
+     * Should be called from within an appropriately synchronized block.
+     */
+    public void notifyComplete(Generator generator) {
+        if (generator.tableGeneration == tableGeneration) {
+            completedTables.put(generator.goal, generator);
+            evictTables();
+        }
+    }
+    
+    /**
+     * Drop least recently used completed tables until there are no more than
+     * the table limit, or only incomplete tables are left.
+     */
+    private void evictTables() {
+        if (tabledGoals.size() <= tableLimit) return;
+        for ( Iterator<Generator> i = tabledGoals.values().iterator(); i.hasNext() && tabledGoals.size() > tableLimit; )
+        {
+            Generator generator = i.next();
+            if ( generator.isComplete() )
+            {
+                i.remove();
+                completedTables.remove( generator.goal, generator );
+                nEvictions.incrementAndGet();
+            }
+        }
+    }
+    
+    /** Create an empty table of goals, in access order */
+    private static HashMap<TriplePattern, Generator> newTable() {
+        return new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
     /**
      * Register that a generator or specific generator state (Consumer choice point)
      * is now ready to run.
@@ -402,6 +570,42 @@ public class LPBRuleEngine {
         }
     }
     
+    /**
+     * Iterator over the results of a completed table. Like the interpreter's
+     * iterator it fails if the graph is changed while it is open.
+     */
+    private static class CompletedTableIterator extends NiceIterator<Triple> {
+        private final List<Triple> results;
+        private final BackwardRuleInfGraphI infGraph;
+        private final int initialVersion;
+        private int index = 0;
+        
+        CompletedTableIterator(List<Triple> results, BackwardRuleInfGraphI infGraph) {
+            this.results = results;
+            this.infGraph = infGraph;
+            this.initialVersion = infGraph.getVersion();
+        }
+        
+        @Override
+        public boolean hasNext() {
+            checkCME();
+            return index < results.size();
+        }
+        
+        @Override
+        public Triple next() {
+            checkCME();
+            if (index >= results.size()) throw new NoSuchElementException("Overran end of LP result set");
+            return results.get(index++);
+        }
+        
+        private void checkCME() {
+            if (initialVersion != infGraph.getVersion()) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+    
     /**
      * Record count of number of rule invocations, used in profile structure only.
      */
@@ -189,9 +189,9 @@ public class RETEConflictSet {
                 Rule r = (Rule)hClause;
                 if (r.isBackward()) {
                     if (isAdd) {
-                        infGraph.addBRule(r.instantiate(env));
+                        engine.addBRule(r.instantiate(env));
                     } else {
-                        infGraph.deleteBRule(r.instantiate(env));
+                        engine.deleteBRule(r.instantiate(env));
                     }
                 } else {
                     throw new ReasonerException("Found non-backward subrule : " + r); 
@@ -26,6 +26,7 @@ import java.util.*;
 
 import com.hp.hpl.jena.util.OneToManyMap;
 import com.hp.hpl.jena.util.PrintUtil;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import com.hp.hpl.jena.util.iterator.WrappedIterator;
 
 import org.slf4j.Logger;
@@ -79,6 +80,15 @@ public class RETEEngine implements FRuleEngineI {
     /** True if all the rules are monotonic, so we short circuit the conflict set processing */
     boolean isMonotonic = true;
     
+    /** Map from head predicate to the forward rules which can deduce it, Node_ANY is used for wildcard predicates. Built on first delete. */
+    protected OneToManyMap<Node, Rule> headIndex;
+    
+    /** Number of active rule firings supporting each backward rule deduced by a forward rule (monotonic rule sets only) */
+    protected Map<Rule, Integer> bRuleSupport = new HashMap<>();
+    
+    /** Deductions removed while propagating a delete, candidates for rederivation, null if no delete is in progress */
+    protected Set<Triple> overdeleted;
+    
     protected static Logger logger = LoggerFactory.getLogger(FRuleEngine.class);
     
 //  =======================================================================
@@ -177,13 +187,43 @@ public class RETEEngine implements FRuleEngineI {
     
     /**
      * Remove one triple to the data graph.
+     * <p>
+     * For a monotonic rule set this is done by "delete and rederive" (DRed):
+     * every deduction that used the triple is removed, recursively, then those
+     * which still have a derivation from the remaining data are asserted
+     * again, and their consequences rederived by the network in the usual way.
+     * Non-monotonic rule sets just propagate the removal, which may leave
+     * deductions that have lost all support or remove ones that have not.
      * @return true if the effects could be correctly propagated or
      * false if not (in which case the entire engine should be restarted).
      */
     @Override
     public synchronized boolean delete(Triple t) {
+        if (!isMonotonic || rules == null) {
+            deleteTriple(t, false);
+            runAll();
+            return false;
+        }
+        RETERuleContext context = new RETERuleContext(infGraph, this);
+        infGraph.getCurrentDeductionsGraph().delete(t);
+        if (context.contains(t)) {
+            // Still present, e.g. from another component of the data graph
+            return true;
+        }
+        // Overdelete
+        overdeleted = new LinkedHashSet<>();
+        overdeleted.add(t);
         deleteTriple(t, false);
         runAll();
+        Set<Triple> candidates = overdeleted;
+        overdeleted = null;
+        // Rederive
+        for (Triple d : candidates) {
+            if (!context.contains(d) && isDerivable(d)) {
+                addTriple(d, true);
+            }
+        }
+        runAll();
         return true;
     }
     
@@ -220,7 +260,9 @@ public class RETEEngine implements FRuleEngineI {
      */
     @Override
     public Object getRuleStore() {
-        return new RuleStore(clauseIndex, predicatePatterns, wildcardRule, isMonotonic);
+        RuleStore rs = new RuleStore(rules, clauseIndex, predicatePatterns, wildcardRule, isMonotonic);
+        rs.bRuleSupport = new HashMap<>(bRuleSupport);
+        return rs;
     }
     
     /**
@@ -229,6 +271,9 @@ public class RETEEngine implements FRuleEngineI {
     @Override
     public void setRuleStore(Object ruleStore) {
         RuleStore rs = (RuleStore)ruleStore;
+        rules = rs.rules;
+        headIndex = null;
+        bRuleSupport = new HashMap<>(rs.bRuleSupport);
         predicatePatterns = rs.predicatePatterns;
         wildcardRule = rs.wildcardRule;
         isMonotonic = rs.isMonotonic;
@@ -250,6 +295,37 @@ public class RETEEngine implements FRuleEngineI {
         conflictSet.add(rule, env, isAdd);
     }
     
+    /**
+     * Add a backward rule deduced by a rule firing. For monotonic rule sets
+     * the firings supporting each backward rule are counted so that
+     * it is only passed to the parent graph once, and only removed
+     * when the last of them is retracted.
+     */
+    public void addBRule(Rule brule) {
+        if (isMonotonic) {
+            Integer count = bRuleSupport.get(brule);
+            bRuleSupport.put(brule, count == null ? 1 : count + 1);
+            if (count != null) return;
+        }
+        infGraph.addBRule(brule);
+    }
+    
+    /**
+     * Retract a backward rule deduced by a rule firing.
+     * @see #addBRule(Rule)
+     */
+    public void deleteBRule(Rule brule) {
+        if (isMonotonic) {
+            Integer count = bRuleSupport.get(brule);
+            if (count != null && count > 1) {
+                bRuleSupport.put(brule, count - 1);
+                return;
+            }
+            bRuleSupport.remove(brule);
+        }
+        infGraph.deleteBRule(brule);
+    }
+    
 //  =======================================================================
 //  Compiler support  
 
@@ -259,6 +335,8 @@ public class RETEEngine implements FRuleEngineI {
      * @param ignoreBrules set to true if rules written in backward notation should be ignored
      */
     public void compile(List<Rule> rules, boolean ignoreBrules) {
+        headIndex = null;
+        bRuleSupport.clear();
         clauseIndex = new OneToManyMap<>();
         predicatePatterns = new OneToManyMap<>();
         wildcardRule = false;
@@ -418,6 +496,8 @@ public class RETEEngine implements FRuleEngineI {
                 // Built in a graph which can't delete this triple
                 // so block further processing of this delete to avoid loops
                 deletesPending.remove(triple);
+            } else if (overdeleted != null) {
+                overdeleted.add(triple);
             }
         }
     }
@@ -478,6 +558,86 @@ public class RETEEngine implements FRuleEngineI {
         }
     }
     
+    /**
+     * Test if a triple can be deduced, in one step, by some forward rule
+     * from the current contents of the data and deductions graphs.
+     */
+    protected boolean isDerivable(Triple t) {
+        if (headIndex == null) {
+            headIndex = new OneToManyMap<>();
+            for ( Rule r : rules )
+            {
+                if ( r.isBackward() ) continue;
+                for ( int i = 0; i < r.headLength(); i++ )
+                {
+                    Object head = r.getHeadElement( i );
+                    if ( head instanceof TriplePattern )
+                    {
+                        Node predicate = ( (TriplePattern) head ).getPredicate();
+                        headIndex.put( predicate.isVariable() ? Node.ANY : predicate, r );
+                    }
+                }
+            }
+        }
+        Iterator<Rule> i1 = headIndex.getAll(t.getPredicate());
+        Iterator<Rule> i2 = headIndex.getAll(Node.ANY);
+        for (Iterator<Rule> i = WrappedIterator.create(i1).andThen(i2); i.hasNext(); ) {
+            Rule r = i.next();
+            for (int j = 0; j < r.headLength(); j++) {
+                Object head = r.getHeadElement(j);
+                if (!(head instanceof TriplePattern)) continue;
+                BindingStack env = new BindingStack();
+                env.reset(r.getNumVars());
+                if (FRuleEngine.match((TriplePattern)head, t, env) && matchBody(r, 0, env)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Match the body of a rule, from the given clause on, against the current
+     * data and deductions, then check any guards.
+     */
+    private boolean matchBody(Rule r, int index, BindingStack env) {
+        if (index == r.bodyLength()) {
+            RETERuleContext context = new RETERuleContext(infGraph, this);
+            context.setRule(r);
+            context.setEnv(new BindingVector(env.getEnvironment().clone()));
+            return context.shouldFire(true);
+        }
+        Object clause = r.getBodyElement(index);
+        if (!(clause instanceof TriplePattern)) {
+            return matchBody(r, index + 1, env);
+        }
+        TriplePattern pattern = (TriplePattern)clause;
+        Node objPattern = env.getBinding(pattern.getObject());
+        if (Functor.isFunctor(objPattern)) {
+            // Can't search on functor patterns so leave that as a wildcard
+            objPattern = null;
+        }
+        ExtendedIterator<Triple> i = infGraph.findDataMatches(
+                            env.getBinding(pattern.getSubject()),
+                            env.getBinding(pattern.getPredicate()),
+                            objPattern);
+        try {
+            while (i.hasNext()) {
+                Triple t = i.next();
+                env.push();
+                boolean matched = FRuleEngine.match(pattern.getPredicate(), t.getPredicate(), env)
+                                && FRuleEngine.match(pattern.getObject(), t.getObject(), env)
+                                && FRuleEngine.match(pattern.getSubject(), t.getSubject(), env)
+                                && matchBody(r, index + 1, env);
+                env.unwind();
+                if (matched) return true;
+            }
+            return false;
+        } finally {
+            i.close();
+        }
+    }
+    
     /**
      * Inject a single triple into the RETE network
      */
@@ -607,6 +767,9 @@ public class RETEEngine implements FRuleEngineI {
      */
     public static class RuleStore {
     
+        /** The rules compiled into this store */
+        protected List<Rule> rules;
+        
         /** Map from predicate node to rule + clause, Node_ANY is used for wildcard predicates */
         protected OneToManyMap<Node, RETENode> clauseIndex;
     
@@ -619,8 +782,12 @@ public class RETEEngine implements FRuleEngineI {
         /** True if all the rules are monotonic, so we short circuit the conflict set processing */
         protected boolean isMonotonic = true;
         
+        /** Support counts for the backward rules deduced so far, goes with the cloned network state */
+        protected Map<Rule, Integer> bRuleSupport = new HashMap<>();
+        
         /** Constructor */
-        RuleStore(OneToManyMap<Node, RETENode> clauseIndex, OneToManyMap<Node, Node> predicatesPatterns, boolean wildcardRule, boolean isMonotonic) {
+        RuleStore(List<Rule> rules, OneToManyMap<Node, RETENode> clauseIndex, OneToManyMap<Node, Node> predicatesPatterns, boolean wildcardRule, boolean isMonotonic) {
+            this.rules = rules;
             this.clauseIndex = clauseIndex;
             this.predicatePatterns = predicatesPatterns;
             this.wildcardRule = wildcardRule;
@@ -91,4 +91,50 @@ public class FilterIterator<T> extends WrappedIterator<T>
             }
 		throw new NoSuchElementException();
         }
+
+    /**
+        Answer an iterator over those of our elements that <code>g</code> accepts.
+        If nothing has been looked ahead at yet, our test and <code>g</code> are
+        combined into a single filtering stage over our base iterator rather
+        than stacking another FilterIterator on top of this one.
+    */
+    @Override public ExtendedIterator<T> filterKeep( Filter<T> g )
+        { return canFuse() ? new FilterKeepIterator<>( fuse( g, true ), plainBase() ) : super.filterKeep( g ); }
+
+    /**
+        Answer an iterator over those of our elements that <code>g</code> rejects,
+        fusing the tests as for <code>filterKeep</code>.
+    */
+    @Override public ExtendedIterator<T> filterDrop( Filter<T> g )
+        { return canFuse() ? new FilterKeepIterator<>( fuse( g, false ), plainBase() ) : super.filterDrop( g ); }
+
+    /**
+        Fusing is only safe when no element is pending in <code>current</code>
+        and when this is one of the standard filter classes, whose only
+        behaviour is <code>accept</code>.
+    */
+    private boolean canFuse()
+        {
+        Class<?> c = getClass();
+        return !hasCurrent && (c == FilterKeepIterator.class || c == FilterDropIterator.class || c == FilterIterator.class);
+        }
+
+    private Filter<T> fuse( final Filter<T> g, final boolean keep )
+        {
+        final Filter<T> first = f;
+        final boolean keepFirst = !(this instanceof FilterDropIterator<?>);
+        return new Filter<T>()
+            {
+            @Override public boolean accept( T x )
+                { return first.accept( x ) == keepFirst && g.accept( x ) == keep; }
+            };
+        }
+
+    /**
+        The base is always the <code>Iterator&lt;T&gt;</code> handed to our
+        constructor.
+    */
+    @SuppressWarnings("unchecked")
+    private Iterator<T> plainBase()
+        { return (Iterator<T>) base; }
     }
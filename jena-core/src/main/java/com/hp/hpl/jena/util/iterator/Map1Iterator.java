@@ -52,4 +52,22 @@ public class Map1Iterator<From, To> extends NiceIterator<To> implements Closable
 	
 	@Override public void close()
 	    { NiceIterator.close( base ); }
+
+    /**
+        Answer an iterator that applies our map and then <code>next</code> to
+        each element of our base, as a single mapping stage rather than a second
+        Map1Iterator stacked on this one. Subclasses may add behaviour to
+        <code>next</code> or <code>remove</code>, so they are wrapped as usual.
+    */
+	@Override public <U> ExtendedIterator<U> mapWith( final Map1<To, U> next )
+	    {
+	    if (getClass() != Map1Iterator.class) return super.mapWith( next );
+	    final Map1<From, To> first = map;
+	    Map1<From, U> both = new Map1<From, U>()
+	        {
+	        @Override public U map1( From x )
+	            { return next.map1( first.map1( x ) ); }
+	        };
+	    return new Map1Iterator<>( both, base );
+	    }
     }
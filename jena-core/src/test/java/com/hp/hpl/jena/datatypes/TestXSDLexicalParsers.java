@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.datatypes;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.math.BigInteger ;
+
+import org.junit.Test ;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype ;
+import com.hp.hpl.jena.datatypes.xsd.impl.* ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+
+/** The fast lexical parsers give the same results as parsing with Xerces. */
+public class TestXSDLexicalParsers {
+
+    // Datatypes that always parse with Xerces.
+    static XSDDatatype xercesInteger  = new XSDBaseNumericType("integer") ;
+    static XSDDatatype xercesDecimal  = new XSDBaseNumericType("decimal") ;
+    static XSDDatatype xercesBoolean  = new XSDDatatype("boolean") ;
+    static XSDDatatype xercesDouble   = new XSDDouble("double") {
+        @Override protected Object parseFast(String lexicalForm) { return null ; }
+    } ;
+    static XSDDatatype xercesDate     = new XSDDateType("date") {
+        @Override protected Object parseFast(String lexicalForm) { return null ; }
+    } ;
+    static XSDDatatype xercesDateTime = new XSDDateTimeType("dateTime") {
+        @Override protected Object parseFast(String lexicalForm) { return null ; }
+    } ;
+
+    @Test public void integer_01() {
+        test(XSDDatatype.XSDinteger, xercesInteger,
+             "0", "+0", "-0", "000", "1", "+1", "-1", "0012", "-0012",
+             "2147483647", "2147483648", "-2147483648", "-2147483649",
+             "999999999999999999", "1000000000000000000", "0001000000000000000000",
+             "-9223372036854775808", "123456789012345678901234567890",
+             "", "+", "-", "1.0", "1e3", " 1", "1 ", "+-1", "abc") ;
+    }
+
+    @Test public void integer_02() {
+        assertTrue(XSDLexicalParsers.parseInteger("1000000000000000000") instanceof BigInteger) ;
+        assertEquals(Integer.valueOf(5), XSDLexicalParsers.parseInteger("+005")) ;
+        assertNull(XSDLexicalParsers.parseInteger(" 5")) ;
+    }
+
+    @Test public void decimal_01() {
+        test(XSDDatatype.XSDdecimal, xercesDecimal,
+             "0", "0.0", ".0", "0.", "-0.0", "+.0", "1.5", "-1.50", "+1.500", "1.", ".5",
+             "001.100", "1.0", "12345678901234567890.0", "1234567890123456789.5",
+             "0.000000000000000000001", "99999999999999999999", "3.14159",
+             "", ".", "+.", "1..0", "1.0.0", "1e3", "1,0", " 1.0", "NaN") ;
+    }
+
+    @Test public void double_01() {
+        test(XSDDatatype.XSDdouble, xercesDouble,
+             "0", "0.0", "-0.0", "1", "1.5", "+1.5", "-1.5e10", "1E-5", "1e+5", ".5", "5.", ".5e3",
+             "INF", "-INF", "NaN", "1e400", "-1e400", "4.9e-324", "1.7976931348623157E308",
+             "", "e5", "1e", "1e+", "1.2.3", "inf", "+INF", "1.0d", "0x10", " 1.0", "1,5") ;
+    }
+
+    @Test public void boolean_01() {
+        test(XSDDatatype.XSDboolean, xercesBoolean,
+             "true", "false", "1", "0", "TRUE", "False", "", "2", " true") ;
+    }
+
+    @Test public void date_01() {
+        test(XSDDatatype.XSDdate, xercesDate,
+             "2015-02-23", "2015-02-23Z", "2015-02-23+01:00", "2015-02-23-05:30", "2015-02-23+14:00",
+             "2016-02-29", "2000-02-29", "0001-01-01", "9999-12-31",
+             "2015-02-29", "1900-02-29", "2015-04-31", "2015-13-01", "2015-00-10", "0000-01-01",
+             "2015-02-23+14:01", "2015-02-23+15:00", "2015-02-23+01:60", "-2015-02-23", "12015-02-23",
+             "2015-2-23", "2015-02-23T00:00:00", "2015-02-23 ", "") ;
+    }
+
+    @Test public void dateTime_01() {
+        test(XSDDatatype.XSDdateTime, xercesDateTime,
+             "2015-02-23T15:21:18", "2015-02-23T15:21:18Z", "2015-02-23T15:21:18.665Z",
+             "2015-02-23T15:21:18.6650+00:00", "2015-02-23T23:59:59-05:00", "2015-12-31T23:30:00-01:00",
+             "2015-02-23T00:00:00+14:00", "2016-02-29T12:00:00",
+             "2015-02-23T24:00:00", "2015-02-23T15:60:18", "2015-02-23T15:21:60", "2015-02-23T15:21:18.",
+             "2015-02-23T15:21:18.665+15:00", "2015-02-23T15:21", "2015-02-23", "2015-02-29T00:00:00",
+             "2015-02-23T15:21:18ZZ", "2015-02-23T15:21:18+0100", "2015-02-23t15:21:18", "") ;
+    }
+
+    @Test public void literal_01() {
+        // Typed literals parse when the value is needed.
+        Node n = NodeFactory.createLiteral("12", null, XSDDatatype.XSDinteger) ;
+        assertTrue(n.getLiteral().isWellFormed()) ;
+        assertEquals(Integer.valueOf(12), n.getLiteralValue()) ;
+        Node n2 = NodeFactory.createLiteral("12.0", null, XSDDatatype.XSDdecimal) ;
+        assertTrue(n.sameValueAs(n2)) ;
+        Node n3 = NodeFactory.createLiteral("twelve", null, XSDDatatype.XSDinteger) ;
+        assertFalse(n3.getLiteral().isWellFormed()) ;
+        assertFalse(n.sameValueAs(n3)) ;
+    }
+
+    private static void test(XSDDatatype dt, XSDDatatype xercesDT, String... lexicalForms) {
+        for ( String lex : lexicalForms ) {
+            Object expected = parse(xercesDT, lex) ;
+            Object actual = parse(dt, lex) ;
+            assertEquals("'"+lex+"'", expected, actual) ;
+            if ( expected != null ) {
+                assertEquals("'"+lex+"'", expected.getClass(), actual.getClass()) ;
+                assertEquals("'"+lex+"'", expected.toString(), actual.toString()) ;
+            }
+            assertEquals("'"+lex+"'", xercesDT.isValid(lex), dt.isValid(lex)) ;
+        }
+    }
+
+    private static Object parse(XSDDatatype dt, String lex) {
+        try {
+            return dt.parse(lex) ;
+        } catch (DatatypeFormatException ex) {
+            return null ;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem.test;
+
+import java.util.ConcurrentModificationException ;
+
+import junit.framework.TestSuite ;
+
+import com.hp.hpl.jena.graph.* ;
+import com.hp.hpl.jena.graph.test.AbstractTestGraph ;
+import com.hp.hpl.jena.mem.GraphMemCompact ;
+import com.hp.hpl.jena.mem.IntPairBunch ;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
+
+public class TestGraphMemCompact extends AbstractTestGraph
+    {
+    public TestGraphMemCompact( String name )
+        { super( name ); }
+    
+    public static TestSuite suite()
+        { return new TestSuite( TestGraphMemCompact.class ); }
+    
+    @Override public Graph getGraph()
+        { return new GraphMemCompact(); }   
+
+    public void testSizeAfterRemove() 
+        {
+        Graph g = getGraphWith( "x p y" );
+        ExtendedIterator<Triple> it = g.find( triple( "x ?? ??" ) );
+        it.removeNext();
+        assertEquals( 0, g.size() );        
+        }
+    
+    public void testBrokenIndexes()
+        {
+        Graph g = getGraphWith( "x R y; x S z" );
+        ExtendedIterator<Triple> it = g.find( Node.ANY, Node.ANY, Node.ANY );
+        it.removeNext(); it.removeNext();
+        assertFalse( g.find( node( "x" ), Node.ANY, Node.ANY ).hasNext() );
+        assertFalse( g.find( Node.ANY, node( "R" ), Node.ANY ).hasNext() );
+        assertFalse( g.find( Node.ANY, Node.ANY, node( "y" ) ).hasNext() );
+        }   
+    
+    public void testRemoveAllViaIteratorFromLargeBunch()
+        {
+        Graph g = getGraph();
+        for (int i = 0; i < 100; i += 1) g.add( triple( "s P o" + i ) );
+        ExtendedIterator<Triple> it = g.find( node( "s" ), Node.ANY, Node.ANY );
+        int n = 0;
+        while (it.hasNext()) { it.removeNext(); n += 1; }
+        assertEquals( 100, n );
+        assertEquals( 0, g.size() );
+        assertFalse( g.find( Node.ANY, node( "P" ), Node.ANY ).hasNext() );
+        }
+    
+    public void testAddThenNextThrowsCME()
+        {
+        Graph g = getGraphWith( "a P b; c Q d" );
+        ExtendedIterator<Triple> it = g.find( Node.ANY, Node.ANY, Node.ANY );
+        it.next();
+        g.add( triple( "change its state" ) );
+        try { it.next(); fail( "should have thrown ConcurrentModificationException" ); }
+        catch (ConcurrentModificationException e) { pass(); } 
+        }
+    
+    public void testDeleteThenNextThrowsCME()
+        {
+        Graph g = getGraphWith( "a P b; c Q d" );
+        ExtendedIterator<Triple> it = g.find( Node.ANY, Node.ANY, Node.ANY );
+        it.next();
+        g.delete( triple( "a P b" ) );
+        try { it.next(); fail( "should have thrown ConcurrentModificationException" ); }
+        catch (ConcurrentModificationException e) { pass(); } 
+        }
+    
+    public void testFindLiteralByValue()
+        {
+        Graph g = getGraphWith( "a P '1'xsd:integer; a Q '01'xsd:integer; b P 'x'" );
+        assertEquals( 2, g.find( Node.ANY, Node.ANY, node( "'1'xsd:integer" ) ).toList().size() );
+        assertEquals( 2, g.find( node( "a" ), Node.ANY, node( "'01'xsd:integer" ) ).toList().size() );
+        assertTrue( g.contains( triple( "a Q '1'xsd:integer" ) ) );
+        assertFalse( g.contains( triple( "b P '1'xsd:integer" ) ) );
+        }
+    
+    public void testSingletonStatistics()
+        {
+        Graph g = getGraphWith( "a P b; a P c; a Q b; x S y" );
+        GraphStatisticsHandler h = g.getStatisticsHandler();
+        assertEquals( 3L, h.getStatistic( node( "a" ), Node.ANY, Node.ANY ) );
+        assertEquals( 0L, h.getStatistic( node( "y" ), Node.ANY, Node.ANY ) );
+        assertEquals( 2L, h.getStatistic( Node.ANY, node( "P" ), Node.ANY ) );
+        assertEquals( 2L, h.getStatistic( Node.ANY, Node.ANY, node( "b" ) ) );
+        assertEquals( 0L, h.getStatistic( node( "a" ), node( "R" ), Node.ANY ) );
+        assertEquals( -1L, h.getStatistic( node( "a" ), node( "S" ), Node.ANY ) );
+        assertEquals( 4L, h.getStatistic( Node.ANY, Node.ANY, Node.ANY ) );
+        }
+    
+    public void testIntPairBunch()
+        {
+        Object b = null;
+        for (int i = 0; i < 50; i += 1) 
+            {
+            assertFalse( IntPairBunch.contains( b, IntPairBunch.pack( i, i * 2 ) ) );
+            b = IntPairBunch.add( b, IntPairBunch.pack( i, i * 2 ) );
+            }
+        assertEquals( 50, IntPairBunch.size( b ) );
+        assertTrue( IntPairBunch.contains( b, IntPairBunch.pack( 7, 14 ) ) );
+        for (int i = 0; i < 50; i += 2) b = IntPairBunch.remove( b, IntPairBunch.pack( i, i * 2 ) );
+        assertEquals( 25, IntPairBunch.size( b ) );
+        assertFalse( IntPairBunch.contains( b, IntPairBunch.pack( 8, 16 ) ) );
+        assertTrue( IntPairBunch.contains( b, IntPairBunch.pack( 9, 18 ) ) );
+        int n = 0;
+        for (int i = IntPairBunch.slots( b ) - 1; i >= 0; i -= 1) if (IntPairBunch.slot( b, i ) >= 0) n += 1;
+        assertEquals( 25, n );
+        for (int i = 1; i < 50; i += 2) b = IntPairBunch.remove( b, IntPairBunch.pack( i, i * 2 ) );
+        assertNull( b );
+        }
+    }
@@ -23,6 +23,7 @@ import java.util.*;
 import com.hp.hpl.jena.graph.*;
 import com.hp.hpl.jena.reasoner.*;
 import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.reasoner.rulesys.impl.LPBRuleEngine;
 import com.hp.hpl.jena.reasoner.test.TestUtil;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import com.hp.hpl.jena.vocabulary.*;
@@ -79,6 +80,9 @@ public class TestBasicLP  extends TestCase {
         
         TestSuite suite = new TestSuite();
         suite.addTest(new TestBasicLP( "testCME" ));
+        suite.addTest(new TestBasicLP( "testCompletedTables" ));
+        suite.addTest(new TestBasicLP( "testTableLimit" ));
+        suite.addTest(new TestBasicLP( "testConcurrentTables" ));
         return suite;
     }  
    
@@ -1311,6 +1315,130 @@ public class TestBasicLP  extends TestCase {
         assertTrue("Expect CME on unclosed iterators", ok);
     }
     
+    /**
+     * Test that queries which match a completed table are answered from it.
+     */
+    public void testCompletedTables() {
+        FBRuleInfGraph infgraph = makeChainGraph(5);
+        LPBRuleEngine engine = infgraph.getLPEngine();
+        Triple query = new Triple(chainNode(0), p, Node.ANY);
+        Triple[] expected = chainResults(0, 5);
+        TestUtil.assertIteratorValues(this, infgraph.find(query), expected);
+        assertEquals(0, engine.getNTableHits());
+        TestUtil.assertIteratorValues(this, infgraph.find(query), expected);
+        assertEquals(1, engine.getNTableHits());
+        
+        // Other queries still run the interpreter
+        TestUtil.assertIteratorValues(this, infgraph.find(new Triple(Node.ANY, p, Node.ANY)), chainResults(5));
+        assertEquals(1, engine.getNTableHits());
+        
+        // Open iterators over a table see changes to the graph
+        ExtendedIterator<Triple> i = infgraph.find(query);
+        assertEquals(2, engine.getNTableHits());
+        boolean ok = false;
+        try {
+            i.next();
+            infgraph.add(new Triple(chainNode(5), p, chainNode(6)));
+            i.next();
+        } catch (ConcurrentModificationException e) {
+            ok = true;
+        } finally {
+            i.close();
+        }
+        assertTrue("Expect CME on unclosed iterators", ok);
+        TestUtil.assertIteratorValues(this, infgraph.find(query), chainResults(0, 6));
+        assertEquals(2, engine.getNTableHits());
+    }
+    
+    /**
+     * Test that completed tables are evicted to keep within the table limit.
+     */
+    public void testTableLimit() {
+        FBRuleInfGraph infgraph = makeChainGraph(10);
+        LPBRuleEngine engine = infgraph.getLPEngine();
+        engine.setTableLimit(3);
+        for (int n = 0; n < 2; n++) {
+            for (int i = 0; i < 10; i++) {
+                TestUtil.assertIteratorValues(this, infgraph.find(chainNode(i), p, Node.ANY), chainResults(i, 10));
+            }
+        }
+        assertTrue(engine.getNTabledGoals() <= 3);
+        assertTrue(engine.getNEvictions() > 0);
+        assertTrue(engine.getNGenerators() > 10);
+    }
+    
+    /**
+     * Test queries over completed tables from several threads.
+     */
+    public void testConcurrentTables() throws InterruptedException {
+        final int size = 20;
+        final FBRuleInfGraph infgraph = makeChainGraph(size);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int n = 0; n < 20; n++) {
+                            for (int i = 0; i < size; i++) {
+                                List<Triple> results = infgraph.find(chainNode(i), p, Node.ANY).toList();
+                                assertEquals(new HashSet<>(Arrays.asList(chainResults(i, size))), new HashSet<>(results));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        assertTrue("Failures: " + failures, failures.isEmpty());
+        assertTrue(infgraph.getLPEngine().getNTableHits() > 0);
+    }
+    
+    /**
+     * Return a graph with a tabled transitive property over a chain of nodes.
+     */
+    private FBRuleInfGraph makeChainGraph(int length) {
+        List<Rule> rules = Rule.parseRules("-> tableAll(). [r1: (?a p ?c) <- (?a p ?b), (?b p ?c)]");
+        Graph data = Factory.createGraphMem();
+        for (int i = 0; i < length; i++) {
+            data.add(new Triple(chainNode(i), p, chainNode(i + 1)));
+        }
+        return (FBRuleInfGraph) makeInfGraph(rules, data);
+    }
+    
+    /**
+     * Return the closure of the chain from the given node.
+     */
+    private Triple[] chainResults(int from, int length) {
+        Triple[] results = new Triple[length - from];
+        for (int i = from; i < length; i++) {
+            results[i - from] = new Triple(chainNode(from), p, chainNode(i + 1));
+        }
+        return results;
+    }
+    
+    /**
+     * Return the closure of the whole chain.
+     */
+    private Triple[] chainResults(int length) {
+        List<Triple> results = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            results.addAll(Arrays.asList(chainResults(i, length)));
+        }
+        return results.toArray(new Triple[results.size()]);
+    }
+    
+    private Node chainNode(int i) {
+        return NodeFactory.createURI("n" + i);
+    }
+    
     /** 
      * Generic test operation.
      * @param ruleSrc the source of the rules
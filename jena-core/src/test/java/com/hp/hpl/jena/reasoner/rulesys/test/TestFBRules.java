@@ -524,6 +524,34 @@ public class TestFBRules extends TestCase {
         assertTrue(! di.hasNext());
     }
     
+    /**
+     * Test incremental delete of data supporting backward rules
+     */
+    public void testHybridDelete() {
+        Graph data = Factory.createGraphMem();
+        data.add(new Triple(p, r, n1));
+        data.add(new Triple(p, r, n2));
+        data.add(new Triple(n1, s, C1));
+        data.add(new Triple(n2, s, C1));
+        data.add(new Triple(a, p, b));
+        String rules = 
+        "[r1: (?p r ?n) (?n s ?c) -> [r1b: (?x rdf:type ?c) <- (?x ?p ?y)]]";
+        FBRuleInfGraph infgraph = (FBRuleInfGraph) createInfGraph(rules, data);
+        assertTrue(infgraph.contains(a, ty, C1));
+        
+        // Backward rule still has a supporting firing
+        infgraph.delete(new Triple(p, r, n1));
+        assertTrue(infgraph.isPrepared());
+        assertTrue(infgraph.contains(a, ty, C1));
+        
+        infgraph.delete(new Triple(n2, s, C1));
+        assertTrue(infgraph.isPrepared());
+        assertFalse(infgraph.contains(a, ty, C1));
+        
+        infgraph.add(new Triple(n2, s, C1));
+        assertTrue(infgraph.contains(a, ty, C1));
+    }
+    
     /**
      * Test example hybrid rules for rdfs.
      */
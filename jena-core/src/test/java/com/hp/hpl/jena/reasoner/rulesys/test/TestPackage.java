@@ -48,6 +48,7 @@ public class TestPackage extends TestSuite {
         addTest( "TestFBRules", TestFBRules.suite() );
         addTest( "TestGenericRules", TestGenericRules.suite() );
         addTest( "TestRETE", TestRETE.suite() );
+        addTest( "TestRuleMaterializer", TestRuleMaterializer.suite() );
         addTest( TestSetRules.suite() );
         addTest( "OWLRuleUnitTests", OWLUnitTest.suite() );
         addTest( "TestBugs", TestBugs.suite() );
@@ -283,4 +283,72 @@ public class TestRETE  extends TestCase {
                 new Triple(n1, p, d)
             });
     }
+
+    /**
+     * Check that deletes remove exactly the deductions which have lost all support.
+     */
+    public void testIncrementalDelete() {
+        String rules = "[trans: (?a p ?b) (?b p ?c) -> (?a p ?c)]" +
+                       "[sym: (?a q ?b) -> (?b q ?a)]";
+        Graph data = Factory.createGraphMem();
+        data.add(new Triple(a, p, b));
+        data.add(new Triple(b, p, c));
+        data.add(new Triple(a, p, c));
+        data.add(new Triple(c, p, d));
+        data.add(new Triple(a, q, b));
+        InfGraph infgraph = createRETEReasoner(rules).bind(data);
+        infgraph.prepare();
+
+        // Other derivations remain
+        infgraph.delete(new Triple(b, p, c));
+        TestUtil.assertIteratorValues(this, infgraph.find(null, p, null),
+            new Triple[] {
+                new Triple(a, p, b),
+                new Triple(a, p, c),
+                new Triple(c, p, d),
+                new Triple(a, p, d)
+            });
+        
+        // An asserted triple which is still entailed
+        infgraph.add(new Triple(b, p, c));
+        infgraph.delete(new Triple(a, p, c));
+        assertTrue(infgraph.contains(a, p, c));
+        
+        // Support only through a cycle
+        assertTrue(infgraph.contains(b, q, a));
+        infgraph.delete(new Triple(a, q, b));
+        assertFalse(infgraph.contains(b, q, a));
+        assertFalse(infgraph.contains(a, q, b));
+    }
+    
+    /**
+     * Compare incremental deletes against inference from scratch.
+     */
+    public void testIncrementalDeleteRandom() {
+        String rules = "[trans: (?a p ?b) (?b p ?c) -> (?a p ?c)]" +
+                       "[sym: (?a q ?b) -> (?b q ?a)]" +
+                       "[sub: (?a q ?b) -> (?a p ?b)]";
+        Node[] nodes = new Node[] {a, b, c, d, e};
+        Node[] props = new Node[] {p, q};
+        Random random = new Random(42);
+        Graph data = Factory.createGraphMem();
+        InfGraph infgraph = createRETEReasoner(rules).bind(data);
+        infgraph.prepare();
+        for (int i = 0; i < 300; i++) {
+            Triple t = new Triple(nodes[random.nextInt(nodes.length)], props[random.nextInt(props.length)], nodes[random.nextInt(nodes.length)]);
+            if (random.nextInt(3) == 0) {
+                infgraph.delete(t);
+            } else {
+                infgraph.add(t);
+            }
+            InfGraph expected = createRETEReasoner(rules).bind(data);
+            assertTrue("Step " + i, expected.isIsomorphicWith(infgraph));
+        }
+    }
+    
+    private Reasoner createRETEReasoner(String rules) {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(rules));
+        reasoner.setMode(GenericRuleReasoner.FORWARD_RETE);
+        return reasoner;
+    }
 }
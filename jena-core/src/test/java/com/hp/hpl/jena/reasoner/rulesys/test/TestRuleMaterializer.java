@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.test;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.reasoner.ReasonerException;
+import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.reasoner.test.TestUtil;
+
+/**
+ * Tests for the bulk rule materializer.
+ */
+public class TestRuleMaterializer extends TestCase {
+    
+    Node p = NodeFactory.createURI("p");
+    Node q = NodeFactory.createURI("q");
+    Node r = NodeFactory.createURI("r");
+    Node a = NodeFactory.createURI("a");
+    Node b = NodeFactory.createURI("b");
+    Node c = NodeFactory.createURI("c");
+    Node d = NodeFactory.createURI("d");
+    
+    /**
+     * Boilerplate for junit
+     */ 
+    public TestRuleMaterializer( String name ) {
+        super( name ); 
+    }
+    
+    /**
+     * Boilerplate for junit.
+     * This is its own test suite
+     */
+    public static TestSuite suite() {
+        return new TestSuite( TestRuleMaterializer.class ); 
+    }  
+
+    /**
+     * Basic closure into a separate graph.
+     */
+    public void testMaterialize() {
+        Graph data = Factory.createGraphMem();
+        data.add(new Triple(a, p, b));
+        data.add(new Triple(b, p, c));
+        data.add(new Triple(c, p, d));
+        RuleMaterializer materializer = new RuleMaterializer(Rule.parseRules(
+            "[trans: (?a p ?b) (?b p ?c) -> (?a p ?c)]" +
+            "[axiom: -> (p r p)]"));
+        Graph target = Factory.createGraphMem();
+        assertEquals(4, materializer.materialize(data, target));
+        TestUtil.assertIteratorValues(this, target.find(null, null, null),
+            new Triple[] {
+                new Triple(a, p, c),
+                new Triple(b, p, d),
+                new Triple(a, p, d),
+                new Triple(p, r, p)
+            });
+        assertEquals(3, data.size());
+        assertTrue(materializer.getNRounds() > 1);
+        
+        // Nothing more to add
+        assertEquals(0, materializer.materialize(data, target));
+    }
+    
+    /**
+     * Builtins in the body, closure in place.
+     */
+    public void testBuiltins() {
+        Graph data = Factory.createGraphMem();
+        data.add(new Triple(a, p, a));
+        data.add(new Triple(a, p, b));
+        data.add(new Triple(b, q, NodeFactory.createLiteral("2", null, com.hp.hpl.jena.datatypes.xsd.XSDDatatype.XSDinteger)));
+        RuleMaterializer materializer = new RuleMaterializer(Rule.parseRules(
+            "-> table(p)." +
+            "[r1: (?x p ?y) notEqual(?x, ?y) -> (?y r ?x)]" +
+            "[r2: (?x q ?v) sum(?v, 1, ?w) -> (?x r ?w)]"));
+        assertEquals(2, materializer.materialize(data, data));
+        assertTrue(data.contains(b, r, a));
+        assertFalse(data.contains(a, r, a));
+        assertTrue(data.contains(b, r, NodeFactory.createLiteral("3", null, com.hp.hpl.jena.datatypes.xsd.XSDDatatype.XSDinteger)));
+    }
+    
+    /**
+     * Rules which can not be materialized.
+     */
+    public void testUnsupported() {
+        assertUnsupported("[r1: (?x p ?y) noValue(?y p ?x) -> (?y p ?x)]");
+        assertUnsupported("[r1: (?x p ?y) <- (?y p ?x)]");
+        assertUnsupported("[r1: (?p r ?c) -> [(?x q ?c) <- (?x ?p ?y)]]");
+    }
+    
+    private void assertUnsupported(String rules) {
+        try {
+            new RuleMaterializer(Rule.parseRules(rules));
+            fail("Expected rejection of " + rules);
+        } catch (ReasonerException ex) {
+            // expected
+        }
+    }
+    
+    /**
+     * Compare with the RETE forward engine, on data big enough for hash joins.
+     */
+    public void testCompareRETE() {
+        String rules = 
+            "[trans: (?a p ?b) (?b p ?c) -> (?a p ?c)]" +
+            "[sym: (?a q ?b) -> (?b q ?a)]" +
+            "[join: (?a q ?b) (?b r ?c) notEqual(?a, ?c) -> (?a r ?c)]" +
+            "[pred: (?a ?x ?b) (?x r p) -> (?b p ?a)]";
+        // p and s edges stay within small clusters so the transitive closure
+        // is bounded, q and r edges connect the clusters at random
+        Random random = new Random(11);
+        Graph data = Factory.createGraphMem();
+        Node s = NodeFactory.createURI("s");
+        for (int i = 0; i < 1000; i++) {
+            int cluster = random.nextInt(200) * 5;
+            Node prop = random.nextInt(4) == 0 ? s : p;
+            data.add(new Triple(node(cluster + random.nextInt(5)), prop, node(cluster + random.nextInt(5))));
+            prop = random.nextBoolean() ? q : r;
+            data.add(new Triple(node(random.nextInt(1000)), prop, node(random.nextInt(1000))));
+        }
+        data.add(new Triple(s, r, p));
+        
+        List<Rule> ruleList = Rule.parseRules(rules);
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(ruleList);
+        reasoner.setMode(GenericRuleReasoner.FORWARD_RETE);
+        InfGraph expected = reasoner.bind(data);
+        
+        RuleMaterializer materializer = new RuleMaterializer(ruleList);
+        materializer.setBatchSize(100);
+        Graph target = Factory.createGraphMem();
+        GraphUtil.addInto(target, data);
+        materializer.materialize(target, target);
+        assertTrue(expected.isIsomorphicWith(target));
+    }
+    
+    private static Node node(int i) {
+        return NodeFactory.createURI("n" + i);
+    }
+}
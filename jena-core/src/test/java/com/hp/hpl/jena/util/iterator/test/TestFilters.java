@@ -116,6 +116,54 @@ public class TestFilters extends ModelTestBase
         assertEquals( listOfStrings( "an a animals" ), iteratorToList( it ) );
         }
     
+    protected Filter<String> containsE = new Filter<String>() 
+        { @Override public boolean accept( String o ) { return contains( o, 'e' ); } };
+    
+    public void testFilterKeepFusesStages()
+        {
+        Iterator<String> i = iteratorOfStrings( "there's an a in some animals and elephants" );
+        ExtendedIterator<String> it = new FilterKeepIterator<>( containsA, i ).filterKeep( containsE );
+        assertInstanceOf( FilterKeepIterator.class, it );
+        assertSame( i, ((FilterKeepIterator<String>) it).forTestingOnly_getBase() );
+        assertEquals( listOfStrings( "elephants" ), iteratorToList( it ) );
+        }
+    
+    public void testFilterDropFusesStages()
+        {
+        Iterator<String> i = iteratorOfStrings( "there's an a in some animals and elephants" );
+        ExtendedIterator<String> it = new FilterDropIterator<>( containsA, i ).filterDrop( containsE );
+        assertSame( i, ((FilterIterator<String>) it).forTestingOnly_getBase() );
+        assertEquals( listOfStrings( "in" ), iteratorToList( it ) );
+        }
+    
+    public void testFilterMixedFusesStages()
+        {
+        Iterator<String> i = iteratorOfStrings( "there's an a in some animals and elephants" );
+        ExtendedIterator<String> keepDrop = new FilterKeepIterator<>( containsA, i ).filterDrop( containsE );
+        assertEquals( listOfStrings( "an a animals and" ), iteratorToList( keepDrop ) );
+        Iterator<String> j = iteratorOfStrings( "there's an a in some animals and elephants" );
+        ExtendedIterator<String> dropKeep = new FilterDropIterator<>( containsA, j ).filterKeep( containsE );
+        assertEquals( listOfStrings( "there's some" ), iteratorToList( dropKeep ) );
+        }
+    
+    public void testFilterDoesNotFuseAfterLookahead()
+        {
+        Iterator<String> i = iteratorOfStrings( "there's an a in some animals and elephants" );
+        ExtendedIterator<String> first = new FilterKeepIterator<>( containsA, i );
+        assertTrue( first.hasNext() );
+        ExtendedIterator<String> it = first.filterKeep( containsE );
+        assertSame( first, ((FilterIterator<String>) it).forTestingOnly_getBase() );
+        assertEquals( listOfStrings( "elephants" ), iteratorToList( it ) );
+        }
+    
+    public void testFusedFilterRemoves()
+        {
+        List<String> L = listOfStrings( "there's an a in some animals and elephants" );
+        Iterator<String> it = new FilterKeepIterator<>( containsA, L.iterator() ).filterKeep( containsE );
+        while (it.hasNext()) { it.next(); it.remove(); }
+        assertEquals( listOfStrings( "there's an a in some animals and" ), L );
+        }
+
     protected boolean contains( Object o, char ch )
         { return o.toString().indexOf( ch ) > -1; }
     }
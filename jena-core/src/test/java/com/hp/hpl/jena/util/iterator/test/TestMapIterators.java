@@ -41,4 +41,18 @@ public class TestMapIterators extends ModelTestBase
         mit.close();
         assertTrue( "base must have been closed by closing map", base.isClosed() );
         }
+
+    public void testMapWithFusesStages()
+        {
+        Map1<String, Integer> length = new Map1<String, Integer>()
+            { @Override public Integer map1( String o ) { return o.length(); } };
+        Map1<Integer, String> stars = new Map1<Integer, String>()
+            { @Override public String map1( Integer n ) { return "*****".substring( 0, n ); } };
+        LoggingClosableIterator<String> base = new LoggingClosableIterator<>( listOfStrings( "a bb ccc" ).iterator() );
+        ExtendedIterator<String> it = new Map1Iterator<>( length, base ).mapWith( stars );
+        assertInstanceOf( Map1Iterator.class, it );
+        assertEquals( listOfStrings( "* ** ***" ), it.toList() );
+        it.close();
+        assertTrue( "fused map must close the original base", base.isClosed() );
+        }
     }
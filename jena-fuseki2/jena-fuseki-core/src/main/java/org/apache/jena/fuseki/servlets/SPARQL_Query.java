@@ -56,6 +56,7 @@ import org.apache.jena.web.HttpSC ;
 import com.hp.hpl.jena.query.* ;
 import com.hp.hpl.jena.rdf.model.Model ;
 import com.hp.hpl.jena.sparql.core.Prologue ;
+import com.hp.hpl.jena.sparql.engine.QueryBudget ;
 import com.hp.hpl.jena.sparql.resultset.SPARQLResult ;
 
 /** Handle SPARQL Query requests overt eh SPARQL Protocol. 
@@ -252,9 +253,11 @@ public abstract class SPARQL_Query extends SPARQL_Protocol
             action.beginRead() ;
             Dataset dataset = decideDataset(action, query, queryStringLog) ;
             try ( QueryExecution qExec = createQueryExecution(query, dataset) ; ) {
-                SPARQLResult result = executeQuery(action, qExec, query, queryStringLog) ;
-                // Deals with exceptions itself.
-                sendResults(action, result, query.getPrologue()) ;
+                try {
+                    SPARQLResult result = executeQuery(action, qExec, query, queryStringLog) ;
+                    // Deals with exceptions itself.
+                    sendResults(action, result, query.getPrologue()) ;
+                } finally { logResources(action, qExec) ; }
             }
         } catch (QueryCancelledException ex) {
             // Additional counter information.
@@ -263,6 +266,13 @@ public abstract class SPARQL_Query extends SPARQL_Protocol
         } finally { action.endRead() ; }
     }
 
+    /** Log the resources used by the query execution (tuples scanned, blocks read, bytes buffered). */
+    private static void logResources(HttpAction action, QueryExecution qExec) {
+        QueryBudget budget = QueryBudget.get(qExec.getContext()) ;
+        if ( budget != null )
+            action.log.info(format("[%d] resources: %s", action.id, budget)) ;
+    }
+
     /**
      * Check the query - if unacceptable, throw ActionErrorException or call
      * super.error
@@ -30,6 +30,7 @@ import com.hp.hpl.jena.tdb.base.file.Location ;
 import com.hp.hpl.jena.tdb.base.file.LocationLock ;
 import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
 import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.store.ChangeLog ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 import com.hp.hpl.jena.tdb.transaction.* ;
@@ -44,6 +45,13 @@ public class StoreConnection
     private final DatasetGraphTDB    baseDSG ;
     private boolean                  isValid = true ;
     private volatile boolean         haveUsedInTransaction = false ;
+    
+    // Exclusive mode : no transactions start ("starting" counts those in the process of starting).
+    private final Object             exclusiveLock = new Object() ;
+    private boolean                  exclusive = false ;
+    private int                      starting = 0 ;
+    // Set when the database files have been replaced and a new connection made. 
+    private volatile StoreConnection successor = null ;
 
     private StoreConnection(DatasetGraphTDB dsg)
     {
@@ -78,19 +86,106 @@ public class StoreConnection
         }
     }
 
-    public boolean haveUsedInTransaction() { return haveUsedInTransaction ; }
+    public boolean haveUsedInTransaction() { return current().haveUsedInTransaction ; }
     
     public Location getLocation()
     {
-        checkValid() ;
-        return baseDSG.getLocation() ;
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        return sConn.baseDSG.getLocation() ;
     }
 
     /** Return a description of the transaction manager state */
     public SysTxnState getTransMgrState()
     {
-        checkValid() ;
-        return transactionManager.state() ;
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        return sConn.transactionManager.state() ;
+    }
+    
+    /** The connection now in use for the database : this one, unless the database files
+     *  have been replaced (e.g. by {@link TDBCompact}).  
+     */
+    private StoreConnection current()
+    {
+        StoreConnection sConn = this ;
+        while ( sConn.successor != null )
+            sConn = sConn.successor ;
+        return sConn ;
+    }
+    
+    /** Stop new transactions starting and wait for all active transactions to finish.
+     *  The calling thread must not be in a transaction on this database.
+     *  @see #finishExclusiveMode 
+     */
+    public void startExclusiveMode()
+    {
+        synchronized (exclusiveLock)
+        {
+            try {
+                while ( exclusive )
+                    exclusiveLock.wait() ;
+                exclusive = true ;
+                while ( starting > 0 )
+                    exclusiveLock.wait() ;
+            } catch (InterruptedException ex)
+            {
+                exclusive = false ;
+                exclusiveLock.notifyAll() ;
+                throw new TDBTransactionException("Interrupted waiting for exclusive mode", ex) ;
+            }
+        }
+        try {
+            while ( transactionManager.activeTransactions() )
+                Thread.sleep(10) ;
+        } catch (InterruptedException ex)
+        {
+            finishExclusiveMode() ;
+            throw new TDBTransactionException("Interrupted waiting for exclusive mode", ex) ;
+        }
+    }
+    
+    /** Allow transactions to start again. */ 
+    public void finishExclusiveMode()
+    {
+        synchronized (exclusiveLock)
+        {
+            exclusive = false ;
+            exclusiveLock.notifyAll() ;
+        }
+    }
+    
+    /** Transactions waiting to start on this connection go to the successor. */
+    /*package*/ void setSuccessor(StoreConnection sConn)
+    {
+        this.successor = sConn ;
+    }
+    
+    // Wait until not in exclusive mode, and note a transaction is starting.
+    // Return false if the transaction should be started on the successor connection.  
+    private boolean enterBegin()
+    {
+        synchronized (exclusiveLock)
+        {
+            try {
+                while ( exclusive )
+                    exclusiveLock.wait() ;
+            } catch (InterruptedException ex)
+            { throw new TDBTransactionException("Interrupted waiting for exclusive mode to finish", ex) ; }
+            if ( successor != null )
+                return false ;
+            starting++ ;
+            return true ;
+        }
+    }
+    
+    private void exitBegin()
+    {
+        synchronized (exclusiveLock)
+        {
+            starting-- ;
+            exclusiveLock.notifyAll() ;
+        }
     }
 
     /**
@@ -100,10 +195,7 @@ public class StoreConnection
      */
     public DatasetGraphTxn begin(ReadWrite mode)
     {
-        checkValid() ;
-        checkTransactional() ;
-        haveUsedInTransaction = true ;
-        return transactionManager.begin(mode) ;
+        return begin(mode, null) ;
     }
 
 
@@ -114,9 +206,14 @@ public class StoreConnection
      */
     public DatasetGraphTxn begin(ReadWrite mode, String label)
     {
-        checkValid() ;
-        checkTransactional() ;
-        return transactionManager.begin(mode, label) ;
+        if ( ! enterBegin() )
+            return successor.begin(mode, label) ;
+        try {
+            checkValid() ;
+            checkTransactional() ;
+            haveUsedInTransaction = true ;
+            return transactionManager.begin(mode, label) ;
+        } finally { exitBegin() ; }
     }
 
     /**
@@ -127,8 +224,9 @@ public class StoreConnection
      */
     public DatasetGraphTDB getBaseDataset()
     {
-        checkValid() ;
-        return baseDSG ;
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        return sConn.baseDSG ;
     }
     
     /** Flush the delayed write queue to the base storage.
@@ -137,10 +235,58 @@ public class StoreConnection
      */ 
     public void flush()
     {
-        if ( ! haveUsedInTransaction() )
+        StoreConnection sConn = current() ;
+        if ( ! sConn.haveUsedInTransaction() )
             return ;
-        checkValid() ;
-        transactionManager.flush() ;
+        sConn.checkValid() ;
+        sConn.transactionManager.flush() ;
+    }
+    
+    /** Keep the database files unchanged : committed transactions stay in the journal
+     *  until {@link #releaseWriteBack} is called.  Transactions carry on as normal.
+     *  @see TDBBackup#snapshot
+     */
+    public void holdWriteBack()
+    {
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        sConn.transactionManager.holdWriteBack() ;
+    }
+    
+    /** End a {@link #holdWriteBack} */
+    public void releaseWriteBack()
+    {
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        sConn.transactionManager.releaseWriteBack() ;
+    }
+    
+    /** Record the changes made by write transactions that commit from now on; null stops recording.
+     *  @see TDBCompact
+     */
+    public void recordChanges(ChangeLog changes)
+    {
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        sConn.transactionManager.recordChanges(changes) ;
+    }
+    
+    /** Make write transactions wait before committing, so that the node table files
+     *  do not change, until {@link #releaseCommits} is called.
+     */
+    public void holdCommits()
+    {
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        sConn.transactionManager.holdCommits() ;
+    }
+    
+    /** End a {@link #holdCommits} */
+    public void releaseCommits()
+    {
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        sConn.transactionManager.releaseCommits() ;
     }
     
     /** Indicate whether there are any active transactions.
@@ -148,8 +294,9 @@ public class StoreConnection
      */
     public boolean activeTransactions()
     { 
-        checkValid() ;
-        return transactionManager.activeTransactions() ; 
+        StoreConnection sConn = current() ;
+        sConn.checkValid() ;
+        return sConn.transactionManager.activeTransactions() ; 
     }
     
     /** Flush the journal regardless - use with great case - do not use when transactions may be active. */ 
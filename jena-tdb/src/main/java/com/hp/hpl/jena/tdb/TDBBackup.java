@@ -19,8 +19,13 @@
 package com.hp.hpl.jena.tdb;
 
 import java.io.* ;
+import java.nio.file.Path ;
+import java.util.* ;
+import java.util.zip.Adler32 ;
+import java.util.zip.CRC32 ;
 
 import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.lib.FileOps ;
 import org.apache.jena.atlas.logging.Log ;
 import org.apache.jena.riot.Lang ;
 import org.apache.jena.riot.RDFDataMgr ;
@@ -28,10 +33,19 @@ import org.apache.jena.riot.RDFDataMgr ;
 import com.hp.hpl.jena.query.Dataset ;
 import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
 
 /**
  * Backup a database.
+ * <p>
+ * {@link #backup} writes N-Quads.
+ * {@link #snapshot} copies the database files, while the database is in use, into a
+ * directory. An incremental snapshot, made against a previous snapshot, only keeps
+ * the parts of files that have changed. {@link #restore} rebuilds the database files
+ * from a snapshot and the snapshots it is based on.
  */
 
 public class TDBBackup
@@ -59,5 +73,391 @@ public class TDBBackup
         RDFDataMgr.write(backupfile, dsg, Lang.NQUADS) ;
         dsg.end();
     }
-}
+    
+    /** Size of the units of files compared by incremental snapshots */
+    public static int ChunkSize = SystemTDB.BlockSize ;
+    
+    private static final String manifestFile    = "backup.manifest" ;
+    private static final String extDelta        = ".delta" ;
+    private static final String lockFile        = "tdb.lock" ;
+    private static final int MAGIC              = 0x54444242 ;     // "TDBB"
+    private static final int VERSION            = 1 ;
+    
+    /** Copy the database files into an empty directory. */
+    public static void snapshot(Location location, String backupDir)
+    {
+        snapshot(location, backupDir, null) ;
+    }
+
+    /**
+     * Copy the database files into an empty directory.
+     * If {@code previous} is not null, it is the directory of an earlier snapshot
+     * and only the parts of files changed since then are kept. It is recorded relative
+     * to {@code backupDir}, so snapshots can be moved or copied together.
+     * <p>
+     * Committed transactions are written back to the database files, if possible,
+     * then write-back is held off while the files are copied. Transactions carry on;
+     * changes committed during the copy stay in the journal. Commits, which add to the
+     * node tables, wait while the node table indexes are copied; the snapshot includes
+     * the journal as it is at that point and it is replayed when the restored database
+     * is first used.
+     */
+    public static void snapshot(Location location, String backupDir, String previous)
+    {
+        if ( location.isMem() )
+            throw new TDBException("Can't snapshot an in-memory database") ;
+        Manifest prev = ( previous == null ) ? null : Manifest.read(new File(previous)) ;
+        File dir = new File(backupDir) ;
+        if ( dir.exists() && dir.list().length != 0 )
+            throw new TDBException("Backup directory not empty: "+backupDir) ;
+        FileOps.ensureDir(backupDir) ;
+        
+        StoreConnection sConn = StoreConnection.make(location) ;
+        sConn.holdWriteBack() ;
+        try {
+            // Keep the database in use.
+            DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ, "snapshot") ;
+            try {
+                String parent = ( previous == null ) ? null : relativePath(dir, new File(previous)) ;
+                int chunkSize = ( prev == null ) ? ChunkSize : prev.chunkSize ;
+                Manifest manifest = new Manifest(parent, chunkSize) ;
+                StoreParams params = sConn.getBaseDataset().getConfig().params ;
+                Set<String> nodeData = new HashSet<>(Arrays.asList(params.getIndexId2Node(), params.getPrefixId2Node())) ;
+                Set<String> nodeIndexes = new HashSet<>(Arrays.asList(params.getIndexNode2Id(), params.getPrefixNode2Id())) ;
+                List<File> files = dataFiles(new File(location.getDirectoryPath())) ;
+
+                // Only changed by write-back.
+                for ( File f : files )
+                {
+                    String base = baseName(f) ;
+                    if ( ! nodeData.contains(base) && ! nodeIndexes.contains(base) )
+                        manifest.add(copy(f, -1, dir, chunkSize, prev)) ;
+                }
+                
+                // Node tables are changed by commits.
+                Map<File, Long> lengths = new HashMap<>() ;
+                File journal = new File(location.getPath(Names.journalFile)) ;
+                sConn.holdCommits() ;
+                try {
+                    for ( File f : files )
+                    {
+                        String base = baseName(f) ;
+                        if ( nodeIndexes.contains(base) )
+                            manifest.add(copy(f, -1, dir, chunkSize, prev)) ;
+                        else if ( nodeData.contains(base) )
+                            lengths.put(f, f.length()) ;
+                    }
+                    if ( journal.exists() )
+                        lengths.put(journal, journal.length()) ;
+                } finally { sConn.releaseCommits() ; }
+                // Append-only : the part matching the node indexes does not change.
+                for ( Map.Entry<File, Long> e : lengths.entrySet() )
+                    manifest.add(copy(e.getKey(), e.getValue(), dir, chunkSize, prev)) ;
+                manifest.write(dir) ;
+            } finally { dsg.end() ; }
+        } finally { sConn.releaseWriteBack() ; }
+    }
+
+    /** Rebuild the files of a database from a snapshot, applying incremental snapshots to the
+     *  full snapshot they are based on. The database directory must be empty and not in use.  
+     */
+    public static void restore(String backupDir, Location location)
+    {
+        if ( location.isMem() )
+            throw new TDBException("Can't restore an in-memory database") ;
+        if ( StoreConnection.getExisting(location) != null )
+            throw new TDBException("Database in use: "+location.getDirectoryPath()) ;
+        File dir = new File(location.getDirectoryPath()) ;
+        if ( dir.exists() && restoredFiles(dir).size() != 0 )
+            throw new TDBException("Database directory not empty: "+location.getDirectoryPath()) ;
+        FileOps.ensureDir(location.getDirectoryPath()) ;
+
+        // Oldest first.
+        LinkedList<Manifest> chain = new LinkedList<>() ;
+        for ( File d = new File(backupDir) ; d != null ; )
+        {
+            Manifest m = Manifest.read(d) ;
+            chain.addFirst(m) ;
+            d = ( m.parent == null ) ? null : resolvePath(d, m.parent) ;
+        }
+
+        for ( Manifest m : chain )
+        {
+            for ( File f : restoredFiles(dir) )
+            {
+                if ( ! m.entries.containsKey(f.getName()) )
+                    FileOps.delete(f.getPath()) ;
+            }
+            for ( Entry e : m.entries.values() )
+                apply(m, e, new File(dir, e.name)) ;
+        }
+        
+        // Check the result.
+        Manifest last = chain.getLast() ;
+        for ( Entry e : last.entries.values() )
+        {
+            Entry x = checksums(new File(dir, e.name), last.chunkSize) ;
+            if ( x.length != e.length || ! Arrays.equals(x.sums, e.sums) )
+                throw new TDBException("Restore failed: "+e.name+" differs from the snapshot") ;
+        }
+    }
+    
+    /** The path of a snapshot directory from another, so the snapshots can be moved together. */
+    private static String relativePath(File dir, File other)
+    {
+        Path base = dir.getAbsoluteFile().toPath().normalize() ;
+        Path target = other.getAbsoluteFile().toPath().normalize() ;
+        try { return base.relativize(target).toString() ; }
+        // e.g. a different drive.
+        catch (IllegalArgumentException ex) { return target.toString() ; }
+    }
+    
+    /** The parent directory of a snapshot ; earlier versions recorded an absolute path. */
+    private static File resolvePath(File dir, String parent)
+    {
+        File f = new File(parent) ;
+        if ( f.isAbsolute() )
+            return f ;
+        return dir.toPath().resolve(parent).normalize().toFile() ;
+    }
+    
+    /** The files of a database that make up its persistent state */
+    private static List<File> dataFiles(File dir)
+    {
+        List<File> x = new ArrayList<>() ;
+        for ( File f : dir.listFiles() )
+        {
+            String fn = f.getName() ;
+            // Node journals are empty after commit prepare.
+            if ( f.isDirectory() || fn.equals(lockFile) || fn.endsWith(Names.extJournal) || fn.endsWith(".tmp") )
+                continue ;
+            x.add(f) ;
+        }
+        Collections.sort(x) ;
+        return x ;
+    }
+    
+    private static String baseName(File f)
+    {
+        String fn = f.getName() ;
+        int i = fn.indexOf('.') ;
+        return ( i < 0 ) ? fn : fn.substring(0, i) ;
+    }
+    
+    /** The files of a database being restored, including the journal */
+    private static List<File> restoredFiles(File dir)
+    {
+        List<File> x = new ArrayList<>() ;
+        for ( File f : dir.listFiles() )
+        {
+            if ( f.isFile() && ! f.getName().equals(lockFile) )
+                x.add(f) ;
+        }
+        return x ;
+    }
+    
+    /** Copy a file, or the chunks that differ from the previous snapshot, up to limit bytes if not -1. */  
+    private static Entry copy(File file, long limit, File dir, int chunkSize, Manifest prev)
+    {
+        Entry previous = ( prev == null ) ? null : prev.entries.get(file.getName()) ;
+        File dest = new File(dir, ( prev == null ) ? file.getName() : file.getName()+extDelta) ;
+        List<Long> sums = new ArrayList<>() ;
+        long length = 0 ;
+        boolean changes = false ;
+        byte[] chunk = new byte[chunkSize] ;
+        try(InputStream in = new BufferedInputStream(new FileInputStream(file), 4*chunkSize) ;
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dest), 4*chunkSize)) ) {
+            for ( long i = 0 ; ; i++ )
+            {
+                int len = readChunk(in, chunk) ;
+                if ( limit >= 0 )
+                    len = (int)Math.min(len, limit-length) ;
+                if ( len <= 0 )
+                    break ;
+                long sum = checksum(chunk, len) ;
+                sums.add(sum) ;
+                length += len ;
+                if ( prev == null )
+                {
+                    out.write(chunk, 0, len) ;
+                    continue ;
+                }
+                if ( previous != null && i < previous.sums.length && previous.sums[(int)i] == sum 
+                     && previous.chunkLength(i, chunkSize) == len )
+                    continue ;
+                out.writeLong(i) ;
+                out.writeInt(len) ;
+                out.write(chunk, 0, len) ;
+                changes = true ;
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+        if ( prev != null && ! changes )
+            // Same as before, or only truncated.
+            FileOps.delete(dest.getPath()) ;
+        return new Entry(file.getName(), length, toArray(sums)) ;
+    }
+    
+    /** Bring a database file to the state recorded in a snapshot. */
+    private static void apply(Manifest m, Entry e, File file)
+    {
+        if ( m.parent == null )
+        {
+            copyFile(new File(m.dir, e.name), file) ;
+            return ;
+        }
+        try(RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(e.length) ;
+            File delta = new File(m.dir, e.name+extDelta) ;
+            if ( ! delta.exists() )
+                return ;
+            byte[] chunk = new byte[m.chunkSize] ;
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(delta), 4*m.chunkSize))) {
+                for ( ;; )
+                {
+                    long i ;
+                    try { i = in.readLong() ; } catch (EOFException ex) { break ; }
+                    int len = in.readInt() ;
+                    in.readFully(chunk, 0, len) ;
+                    out.seek(i*m.chunkSize) ;
+                    out.write(chunk, 0, len) ;
+                }
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+    
+    private static void copyFile(File src, File dst)
+    {
+        try(InputStream in = new FileInputStream(src) ; OutputStream out = new FileOutputStream(dst)) {
+            byte[] buff = new byte[64*1024] ;
+            for ( int len ; ( len = in.read(buff) ) != -1 ; )
+                out.write(buff, 0, len) ;
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
 
+    private static Entry checksums(File file, int chunkSize)
+    {
+        List<Long> sums = new ArrayList<>() ;
+        long length = 0 ;
+        byte[] chunk = new byte[chunkSize] ;
+        try(InputStream in = new BufferedInputStream(new FileInputStream(file), 4*chunkSize)) {
+            for ( int len ; ( len = readChunk(in, chunk) ) != 0 ; )
+            {
+                sums.add(checksum(chunk, len)) ;
+                length += len ;
+            }
+        } catch (IOException ex) { IO.exception(ex) ; }
+        return new Entry(file.getName(), length, toArray(sums)) ;
+    }
+    
+    /** Read a whole chunk, or up to the end of the file. */
+    private static int readChunk(InputStream in, byte[] chunk) throws IOException
+    {
+        int n = 0 ;
+        while ( n < chunk.length )
+        {
+            int len = in.read(chunk, n, chunk.length-n) ;
+            if ( len == -1 )
+                break ;
+            n += len ;
+        }
+        return n ;
+    }
+    
+    private static long checksum(byte[] bytes, int len)
+    {
+        CRC32 crc = new CRC32() ;
+        crc.update(bytes, 0, len) ;
+        Adler32 adler = new Adler32() ;
+        adler.update(bytes, 0, len) ;
+        return ( crc.getValue() << 32 ) | adler.getValue() ;
+    }
+    
+    private static long[] toArray(List<Long> x)
+    {
+        long[] a = new long[x.size()] ;
+        for ( int i = 0 ; i < a.length ; i++ )
+            a[i] = x.get(i) ;
+        return a ;
+    }
+
+    private static class Entry
+    {
+        final String name ;
+        final long length ;
+        final long[] sums ;
+        
+        Entry(String name, long length, long[] sums)
+        {
+            this.name = name ;
+            this.length = length ;
+            this.sums = sums ;
+        }
+        
+        long chunkLength(long i, int chunkSize)
+        {
+            return Math.min(chunkSize, length-i*chunkSize) ;
+        }
+    }
+    
+    /** Description of a snapshot : the files, their lengths and checksums of each chunk.  */
+    private static class Manifest
+    {
+        File dir = null ;
+        final String parent ;
+        final int chunkSize ;
+        final Map<String, Entry> entries = new LinkedHashMap<>() ;
+        
+        Manifest(String parent, int chunkSize)
+        {
+            this.parent = parent ;
+            this.chunkSize = chunkSize ;
+        }
+        
+        void add(Entry e) { entries.put(e.name, e) ; }
+        
+        void write(File dir)
+        {
+            File f = new File(dir, manifestFile) ;
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)))) {
+                out.writeInt(MAGIC) ;
+                out.writeInt(VERSION) ;
+                out.writeUTF(parent == null ? "" : parent) ;
+                out.writeInt(chunkSize) ;
+                out.writeInt(entries.size()) ;
+                for ( Entry e : entries.values() )
+                {
+                    out.writeUTF(e.name) ;
+                    out.writeLong(e.length) ;
+                    out.writeInt(e.sums.length) ;
+                    for ( long sum : e.sums )
+                        out.writeLong(sum) ;
+                }
+            } catch (IOException ex) { IO.exception(ex) ; }
+        }
+        
+        static Manifest read(File dir)
+        {
+            File f = new File(dir, manifestFile) ;
+            if ( ! f.exists() )
+                throw new TDBException("Not a snapshot: "+dir) ;
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+                if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+                    throw new TDBException("Not a snapshot manifest: "+f) ;
+                String parent = in.readUTF() ;
+                Manifest m = new Manifest(parent.isEmpty() ? null : parent, in.readInt()) ;
+                m.dir = dir ;
+                int n = in.readInt() ;
+                for ( int i = 0 ; i < n ; i++ )
+                {
+                    String name = in.readUTF() ;
+                    long length = in.readLong() ;
+                    long[] sums = new long[in.readInt()] ;
+                    for ( int j = 0 ; j < sums.length ; j++ )
+                        sums[j] = in.readLong() ;
+                    m.add(new Entry(name, length, sums)) ;
+                }
+                return m ;
+            } catch (IOException ex) { IO.exception(ex) ; return null ; }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb;
+
+import java.io.File ;
+import java.io.FileOutputStream ;
+import java.io.IOException ;
+import java.nio.charset.StandardCharsets ;
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.setup.StoreParamsCodec ;
+import com.hp.hpl.jena.tdb.setup.StoreParamsConst ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
+import com.hp.hpl.jena.tdb.store.ChangeLog ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.bulkloader2.LoaderParallel ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
+
+/**
+ * Compact a database : rebuild the node table and indexes so that they only contain
+ * the nodes still in use and the B+Trees are densely packed.
+ * <p>
+ * The new database is built, alongside the old one, from a read transaction so readers
+ * and writers carry on while it is built. The changes committed by writers during the build
+ * are recorded. Transactions are then paused while those changes are made to the new
+ * database and the files are swapped. If more than {@link #MaxChanges} changes were committed,
+ * the attempt is abandoned and, after a delay, tried again, up to {@link #MaxAttempts} times.
+ * <p>
+ * Datasets already open on the location continue to work, using the compacted database.
+ * <p>
+ * If the files can not all be swapped, the old ones are put back. If that fails too, or
+ * the process stops part way through, the next compaction puts them back before it starts.
+ */
+
+public class TDBCompact
+{
+    private static Logger log = LoggerFactory.getLogger(TDBCompact.class) ;
+    
+    /** Number of builds before giving up. */
+    public static int MaxAttempts = 3 ;
+    
+    /** Most changes, committed during a build, that are applied with transactions paused. */
+    public static int MaxChanges = 100*1000 ;
+    
+    /** Delay, in milliseconds, before the second build; it grows with each attempt. */
+    public static long RetryDelay = 1000 ;
+    
+    private static final String extCompact = "-compact" ;
+    private static final String extOld     = "-compact-old" ;
+    private static final String extDone    = "-compact-done" ;
+    // In the old files directory : the files of the old and new databases. 
+    private static final String swapFile   = "compact.swap" ;
+    private static final String lockFile   = "tdb.lock" ;
+
+    public static void compact(Location location)
+    {
+        if ( location.isMem() )
+            throw new TDBException("Can't compact an in-memory database") ;
+        String dir = new File(location.getDirectoryPath()).getAbsolutePath() ;
+        Location tmpLocation = Location.create(dir+extCompact) ;
+        recover(location, tmpLocation) ;
+        
+        long sizeBefore = dataSize(location) ;
+        for ( int attempt = 1 ; ; attempt++ )
+        {
+            StoreConnection sConn = StoreConnection.make(location) ;
+            ChangeLog changes = new ChangeLog(MaxChanges) ;
+            boolean swapFailed = false ;
+            try {
+                try {
+                    build(sConn, location, tmpLocation, changes) ;
+                    sConn.startExclusiveMode() ;
+                } finally { sConn.recordChanges(null) ; }
+                try {
+                    if ( changes.isComplete() )
+                    {
+                        update(tmpLocation, changes) ;
+                        swapFailed = true ;
+                        swap(sConn, location, tmpLocation) ;
+                        swapFailed = false ;
+                        break ;
+                    }
+                } finally { sConn.finishExclusiveMode() ; }
+            } finally {
+                // The new files, as far as they were put back, are left for inspection.
+                if ( ! swapFailed )
+                    clear(tmpLocation.getDirectoryPath()) ;
+            }
+            if ( attempt >= MaxAttempts )
+                throw new TDBException("Compaction abandoned - too many changes during compaction: "+location.getDirectoryPath()) ;
+            log.info("Too many changes during compaction - retrying: "+location.getDirectoryPath()) ;
+            backoff(attempt) ;
+        }
+        log.info(String.format("Compacted %s : %,d bytes -> %,d bytes", 
+                               location.getDirectoryPath(), sizeBefore, dataSize(location))) ;
+    }
+
+    /** Copy the committed state of the database into an empty database at tmpLocation,
+     *  recording the changes committed after that state. */
+    private static void build(StoreConnection sConn, Location location, Location tmpLocation, ChangeLog changes)
+    {
+        clear(tmpLocation.getDirectoryPath()) ;
+        FileOps.ensureDir(tmpLocation.getDirectoryPath()) ;
+        // Same on-disk layout.
+        if ( FileOps.exists(location.getPath(StoreParamsConst.TDB_CONFIG_FILE)) )
+        {
+            StoreParams params = sConn.getBaseDataset().getConfig().params ;
+            StoreParamsCodec.write(tmpLocation, params) ;
+        }
+        // No writer can commit between the start of recording and the start of the read transaction.  
+        DatasetGraphTxn dsg ;
+        DatasetGraphTxn writer = sConn.begin(ReadWrite.WRITE, "compact") ;
+        try {
+            sConn.recordChanges(changes) ;
+            dsg = sConn.begin(ReadWrite.READ, "compact") ;
+        } finally {
+            writer.abort() ;
+            writer.end() ;
+        }
+        try {
+            LoaderParallel.load(tmpLocation, dsg.getView(), false) ;
+        } finally { dsg.end() ; }
+    }
+    
+    /** Make the changes committed during the build to the new database. */
+    private static void update(Location tmpLocation, ChangeLog changes)
+    {
+        if ( changes.size() == 0 )
+            return ;
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(tmpLocation) ;
+        try {
+            changes.apply(dsg) ;
+            dsg.sync() ;
+        } finally { dsg.close() ; }
+    }
+    
+    private static void backoff(int attempt)
+    {
+        try { Thread.sleep(RetryDelay*attempt) ; }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt() ;
+            throw new TDBException("Interrupted waiting to retry compaction", ex) ;
+        }
+    }
+    
+    /** Replace the database files; called with transactions paused. */
+    private static void swap(StoreConnection sConn, Location location, Location tmpLocation)
+    {
+        File dir = new File(location.getDirectoryPath()) ;
+        File oldDir = new File(dir.getAbsolutePath()+extOld) ;
+        File tmpDir = new File(tmpLocation.getDirectoryPath()) ;
+        sConn.flush() ;
+        if ( new File(location.getPath(Names.journalFile)).length() != 0 )
+            throw new TDBException("Journal not empty: "+location.getDirectoryPath()) ;
+        StoreConnection.expel(location, false) ;
+        try {
+            List<File> oldFiles = dataFiles(dir) ;
+            List<File> newFiles = dataFiles(tmpDir) ;
+            FileOps.ensureDir(oldDir.getPath()) ;
+            writeSwapFile(oldDir, oldFiles, newFiles) ;
+            for ( File f : oldFiles )
+                move(f, new File(oldDir, f.getName())) ;
+            for ( File f : newFiles )
+                move(f, new File(dir, f.getName())) ;
+        } catch (RuntimeException ex)
+        {
+            try {
+                rollback(dir, oldDir, tmpDir) ;
+            } catch (RuntimeException ex2)
+            {
+                // Leave the database closed; the next compaction tries again.
+                log.error("Failed to restore the database files after a failed compaction: "+dir, ex2) ;
+                ex.addSuppressed(ex2) ;
+                throw ex ;
+            }
+            reopen(sConn, location) ;
+            throw ex ;
+        }
+        // The swap is complete when the old files are no longer where rollback looks for them.
+        File doneDir = new File(dir.getAbsolutePath()+extDone) ;
+        clear(doneDir.getPath()) ;
+        move(oldDir, doneDir) ;
+        clear(doneDir.getPath()) ;
+        // NodeIds have changed.
+        StatsIncremental.reset(location) ;
+        reopen(sConn, location) ;
+    }
+    
+    private static void reopen(StoreConnection sConn, Location location)
+    {
+        StoreConnection newConn = StoreConnection.make(location) ;
+        sConn.setSuccessor(newConn) ;
+    }
+    
+    /** Finish or undo a swap left from an earlier compaction. */
+    private static void recover(Location location, Location tmpLocation)
+    {
+        File dir = new File(location.getDirectoryPath()) ;
+        File oldDir = new File(dir.getAbsolutePath()+extOld) ;
+        // Completed, but not cleared up.
+        clear(dir.getAbsolutePath()+extDone) ;
+        if ( ! oldDir.exists() )
+            return ;
+        if ( StoreConnection.getExisting(location) != null )
+            throw new TDBException("Database in use after an incomplete compaction: "+location.getDirectoryPath()) ;
+        log.warn("Restoring the database files from an incomplete compaction: "+location.getDirectoryPath()) ;
+        File tmpDir = new File(tmpLocation.getDirectoryPath()) ;
+        FileOps.ensureDir(tmpDir.getPath()) ;
+        rollback(dir, oldDir, tmpDir) ;
+    }
+
+    /** Put back the files moved out of the database directory, and move any new files
+     *  back to the directory they came from.  */
+    private static void rollback(File dir, File oldDir, File tmpDir)
+    {
+        File swap = new File(oldDir, swapFile) ;
+        if ( ! swap.exists() )
+        {
+            // Nothing moved yet.
+            clear(oldDir.getPath()) ;
+            return ;
+        }
+        List<String> oldNames = new ArrayList<>() ;
+        List<String> newNames = new ArrayList<>() ;
+        readSwapFile(swap, oldNames, newNames) ;
+        for ( String fn : newNames )
+        {
+            File f = new File(dir, fn) ;
+            // A file of the old database is still in place if it has not been moved out.
+            if ( f.exists() && ( ! oldNames.contains(fn) || new File(oldDir, fn).exists() ) )
+                move(f, new File(tmpDir, fn)) ;
+        }
+        for ( String fn : oldNames )
+        {
+            File f = new File(oldDir, fn) ;
+            if ( f.exists() )
+                move(f, new File(dir, fn)) ;
+        }
+        FileOps.delete(swap.getPath()) ;
+        if ( ! oldDir.delete() )
+            throw new TDBException("Failed to remove "+oldDir) ;
+    }
+    
+    private static void writeSwapFile(File oldDir, List<File> oldFiles, List<File> newFiles)
+    {
+        StringBuilder sb = new StringBuilder() ;
+        for ( File f : oldFiles )
+            sb.append("old ").append(f.getName()).append("\n") ;
+        for ( File f : newFiles )
+            sb.append("new ").append(f.getName()).append("\n") ;
+        try(FileOutputStream out = new FileOutputStream(new File(oldDir, swapFile))) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8)) ;
+            out.getFD().sync() ;
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+    
+    private static void readSwapFile(File swap, List<String> oldNames, List<String> newNames)
+    {
+        String x = null ;
+        try { x = IO.readWholeFileAsUTF8(swap.getPath()) ; }
+        catch (IOException ex) { IO.exception(ex) ; }
+        for ( String line : x.split("\n") )
+        {
+            if ( line.startsWith("old ") )
+                oldNames.add(line.substring(4)) ;
+            else if ( line.startsWith("new ") )
+                newNames.add(line.substring(4)) ;
+        }
+    }
+    
+    /** The files of a database that are replaced by compaction. */
+    private static List<File> dataFiles(File dir)
+    {
+        List<File> x = new ArrayList<>() ;
+        for ( File f : dir.listFiles() )
+        {
+            if ( ! keep(f) )
+                x.add(f) ;
+        }
+        return x ;
+    }
+    
+    private static boolean keep(File f)
+    {
+        String fn = f.getName() ;
+        return f.isDirectory() || fn.equals(lockFile) || fn.equals(Names.journalFile) || fn.equals(Names.optStatsIncremental) ;
+    }
+
+    private static void move(File src, File dst)
+    {
+        if ( ! src.renameTo(dst) )
+            throw new TDBException("Failed to move "+src+" to "+dst) ;
+    }
+    
+    private static void clear(String dirname)
+    {
+        File dir = new File(dirname) ;
+        if ( ! dir.exists() )
+            return ;
+        FileOps.clearAll(dir) ;
+        dir.delete() ;
+    }
+    
+    private static long dataSize(Location location)
+    {
+        long size = 0 ;
+        File[] files = new File(location.getDirectoryPath()).listFiles() ;
+        if ( files != null )
+        {
+            for ( File f : files )
+                size += f.length() ;
+        }
+        return size ;
+    }
+}
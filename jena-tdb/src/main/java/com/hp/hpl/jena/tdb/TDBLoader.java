@@ -25,14 +25,17 @@ import java.util.List ;
 import org.slf4j.Logger ;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.rdf.model.Model ;
 import com.hp.hpl.jena.sparql.util.Timer ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.store.GraphTDB ;
 import com.hp.hpl.jena.tdb.store.bulkloader.BulkLoader ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTransaction ;
 
 /** Public interface to the loader functionality.
- * The bulk loader is not transactional. 
+ * The bulk loader is not transactional, except when loading a {@link DatasetGraphTransaction}
+ * which is done inside one write transaction. 
  */ 
 public class TDBLoader
 {
@@ -85,6 +88,22 @@ public class TDBLoader
         loader.loadDataset(dataset, input) ;
     }
     
+    /** Load the contents of URLs into a transactional dataset as one write transaction.
+     *  The dataset may already contain data: the new tuples are added in sorted batches.
+     *  The transaction is aborted if the load fails.
+     */
+    public static void load(DatasetGraphTransaction dataset, List<String> urls, boolean showProgress)
+    {
+        dataset.begin(ReadWrite.WRITE) ;
+        try {
+            load(dataset.get(), urls, showProgress) ;
+            dataset.commit() ;
+        } catch (RuntimeException ex) {
+            dataset.abort() ;
+            throw ex ;
+        } finally { dataset.end() ; }
+    }
+
     /** Load the contents of URL into a graph */
     public static void load(GraphTDB graph, String url)
     {
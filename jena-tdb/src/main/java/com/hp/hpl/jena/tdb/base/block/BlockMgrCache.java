@@ -23,9 +23,13 @@ import java.util.Iterator ;
 import org.apache.jena.atlas.lib.ActionKeyValue ;
 import org.apache.jena.atlas.lib.Cache ;
 import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.cache.CacheLRU ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
+import com.hp.hpl.jena.tdb.sys.CacheBudget ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
 /** Caching block manager - this is an LRU cache */
 public class BlockMgrCache extends BlockMgrSync
 {
@@ -40,6 +44,9 @@ public class BlockMgrCache extends BlockMgrSync
     // Delayed dirty writes.  May be present, may not.
     private final Cache<Long, Block> writeCache ;
     
+    // Accounting for the read cache (the write cache holds dirty blocks and is not resized).
+    private CacheBudget.Registration budgetRegistration = null ;
+    
     public static boolean globalLogging = false ;           // Also enable the logging level. 
     private boolean logging = false ;                       // Also enable the logging level. 
     // ---- stats
@@ -48,18 +55,31 @@ public class BlockMgrCache extends BlockMgrSync
     long cacheWriteHits = 0 ;
     
     static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr)
+    {
+        return create(null, SystemTDB.BlockSize, readSlots, writeSlots, blockMgr) ;
+    }
+    
+    /** Create a caching BlockMgr; the read cache is accounted for, under {@code group}, in the {@link CacheBudget}. */
+    static BlockMgr create(String group, int blockSize, int readSlots, int writeSlots, final BlockMgr blockMgr)
     {
         if ( readSlots < 0 && writeSlots < 0 )
             return blockMgr ;
-        return new BlockMgrCache(readSlots, writeSlots, blockMgr) ;
+        return new BlockMgrCache(group, blockSize, readSlots, writeSlots, blockMgr) ;
     }
     
-    private BlockMgrCache(int readSlots, int writeSlots, final BlockMgr blockMgr)
+    private BlockMgrCache(String group, int blockSize, int readSlots, int writeSlots, final BlockMgr blockMgr)
     {
         super(blockMgr) ;
         // Caches are related so we can't use a Getter for cache management.
         if ( readSlots < -1 )
             readCache = CacheFactory.createNullCache() ;
+        else if ( readSlots > 0 )
+        {
+            CacheLRU<Long, Block> cache = CacheFactory.createResizableCache(readSlots) ;
+            budgetRegistration = CacheBudget.register(group, blockMgr.getLabel(), 
+                                                      blockSize+CacheBudget.BlockCacheEntryOverhead, cache) ;
+            readCache = cache ;
+        }
         else
             readCache = CacheFactory.createCache(readSlots) ;
         if ( writeSlots <= 0 )
@@ -258,6 +278,8 @@ public class BlockMgrCache extends BlockMgrSync
         if ( writeCache != null )
             log("close ("+writeCache.size()+" blocks)") ;
         syncFlush() ;
+        CacheBudget.unregister(budgetRegistration) ;
+        budgetRegistration = null ;
         super.close() ;
     }
     
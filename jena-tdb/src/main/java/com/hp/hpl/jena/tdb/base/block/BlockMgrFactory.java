@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.tdb.base.block ;
 
+import org.apache.jena.atlas.lib.FileOps ;
 import org.apache.jena.atlas.logging.Log ;
 
 import com.hp.hpl.jena.tdb.TDBException ;
@@ -104,7 +105,8 @@ public class BlockMgrFactory {
     public static BlockMgr createStdFile(String filename, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
         BlockAccess file = new BlockAccessDirect(filename, blockSize) ;
         BlockMgr blockMgr = wrapFileAccess(file, blockSize) ;
-        blockMgr = addCache(blockMgr, readBlockCacheSize, writeBlockCacheSize) ;
+        String group = FileOps.splitDirFile(filename).get(0) ;
+        blockMgr = BlockMgrCache.create(group, blockSize, readBlockCacheSize, writeBlockCacheSize, blockMgr) ;
         return track(blockMgr) ;
     }
 
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.buffer;
+
+import static com.hp.hpl.jena.tdb.sys.SystemTDB.SizeOfLong ;
+
+import java.nio.ByteBuffer ;
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordException ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+
+/** Compact encoding of the records of a {@link RecordBuffer}.
+ * <p>
+ * A record is treated as a number of 8 byte columns (NodeIds, for the tuple indexes);
+ * the last column is shorter if the record length is not a multiple of 8.
+ * Records are sorted, so each record is written relative to the record before it
+ * (the first one relative to a record of all zeros):
+ * <ul>
+ * <li>one byte: the number of leading columns the same as the previous record</li>
+ * <li>the difference in the first column that is not the same, as a varint</li>
+ * <li>the remaining columns, each as a varint</li>
+ * </ul>
+ */
+public final class RecordBufferCodec
+{
+    /** Ratio of the number of records in a compressed block to the fixed width layout */
+    public static final int Expansion   = 4 ;
+
+    // A 64 bit varint is at most 10 bytes.
+    private static final int MaxVarLong = 10 ;
+
+    private final RecordFactory factory ;
+    private final int recordLength ;
+    private final int columns ;
+    private final int worstCase ;
+
+    /** Can records from this factory be encoded? */
+    public static boolean canEncode(RecordFactory factory)
+    {
+        int len = factory.recordLength() ;
+        return len > 0 && numColumns(len) < 0x100 ;
+    }
+
+    public RecordBufferCodec(RecordFactory factory)
+    {
+        if ( ! canEncode(factory) )
+            throw new RecordException("Can't compress records: "+factory) ;
+        this.factory = factory ;
+        this.recordLength = factory.recordLength() ;
+        this.columns = numColumns(recordLength) ;
+        this.worstCase = 1+columns*MaxVarLong ;
+    }
+
+    public RecordFactory getRecordFactory()     { return factory ; }
+
+    /** The most bytes one record can take when encoded */
+    public int worstCase()                      { return worstCase ; }
+
+    /** The maximum number of records for a given number of bytes of space */
+    public int maxRecords(int space)            { return Expansion*(space/recordLength) ; }
+
+    /** The least space for a block of compressed records. */
+    public int minSpace()                       { return 4*worstCase ; }
+
+    /** Space, in bytes, to encode the records of a RecordBuffer */
+    public int encodedLength(RecordBuffer rb)
+    {
+        int len = 0 ;
+        for ( int i = 0 ; i < rb.size() ; i++ )
+            len += encodedLength(rb.bb, i) ;
+        return len ;
+    }
+
+    /** Encode the records of a RecordBuffer into a ByteBuffer, starting at offset {@code start}
+     * and not going beyond {@code limit}.
+     * @return The index after the last byte written.
+     */
+    public int encode(RecordBuffer rb, ByteBuffer dst, int start, int limit)
+    {
+        ByteBuffer src = rb.bb ;
+        int idx = start ;
+        for ( int i = 0 ; i < rb.size() ; i++ )
+        {
+            if ( idx+worstCase > limit && idx+encodedLength(src, i) > limit )
+                throw new RecordException("Compressed records overflow the space ("+(limit-start)+" bytes)") ;
+            int base = i*recordLength ;
+            int col = prefix(src, i) ;
+            dst.put(idx++, (byte)col) ;
+            if ( col == columns )
+                continue ;
+            idx = putVarLong(dst, idx, column(src, base, col)-prev(src, i, col)) ;
+            for ( col++ ; col < columns ; col++ )
+                idx = putVarLong(dst, idx, column(src, base, col)) ;
+        }
+        return idx ;
+    }
+
+    /** Decode {@code count} records, starting at {@code start}, into a RecordBuffer, replacing its contents. */
+    public void decode(ByteBuffer src, int start, int count, RecordBuffer rb)
+    {
+        if ( count > rb.maxSize() )
+            throw new RecordException("Too many records for the buffer: "+count+" > "+rb.maxSize()) ;
+        ByteBuffer dst = rb.bb ;
+        Decoder decoder = new Decoder(src, start, count) ;
+        for ( int i = 0 ; i < count ; i++ )
+        {
+            decoder.step() ;
+            int base = i*recordLength ;
+            for ( int col = 0 ; col < columns ; col++ )
+                setColumn(dst, base, col, decoder.current[col]) ;
+        }
+        rb.setSize(count) ;
+    }
+
+    /** Decode records one at a time, as they are needed */
+    public Iterator<Record> iterator(ByteBuffer src, int start, int count)
+    {
+        final Decoder decoder = new Decoder(src, start, count) ;
+        return new Iterator<Record>() {
+            @Override
+            public boolean hasNext()
+            {
+                return decoder.remaining > 0 ;
+            }
+
+            @Override
+            public Record next()
+            {
+                if ( ! hasNext() )
+                    throw new NoSuchElementException("RecordBufferCodec") ;
+                decoder.step() ;
+                return record(decoder.current) ;
+            }
+
+            @Override
+            public void remove()
+            { throw new UnsupportedOperationException("remove") ; }
+        } ;
+    }
+
+    /** Find the record with the same key as {@code rec}, among {@code count} records starting at {@code start}.
+     * <p>
+     * Each record is written relative to the one before, so the records can not be binary searched.
+     * They are decoded in order, as columns, up to the first key that is not lower;
+     * no RecordBuffer is filled and only the record found is built.
+     * @return The record, or null if there is no record with that key.
+     */
+    public Record find(ByteBuffer src, int start, int count, Record rec)
+    {
+        long[] key = keyColumns(rec.getKey()) ;
+        Decoder decoder = new Decoder(src, start, count) ;
+        while ( decoder.remaining > 0 )
+        {
+            decoder.step() ;
+            int x = compareKey(decoder.current, key) ;
+            if ( x == 0 )
+                return record(decoder.current) ;
+            if ( x > 0 )
+                break ;
+        }
+        return null ;
+    }
+
+    private Record record(long[] current)
+    {
+        ByteBuffer bb = ByteBuffer.allocate(recordLength) ;
+        for ( int col = 0 ; col < columns ; col++ )
+            setColumn(bb, 0, col, current[col]) ;
+        return factory.buildFrom(bb, 0) ;
+    }
+
+    /** The key as columns; the last may be shorter than the column of the record. */
+    private long[] keyColumns(byte[] key)
+    {
+        long[] x = new long[(key.length+SizeOfLong-1)/SizeOfLong] ;
+        for ( int j = 0 ; j < key.length ; j++ )
+            x[j/SizeOfLong] = (x[j/SizeOfLong] << 8) | (key[j] & 0xFF) ;
+        return x ;
+    }
+
+    /** Compare the key part of a decoded record with a key, as unsigned bytes (as {@link Record#compareByKey}). */
+    private int compareKey(long[] current, long[] key)
+    {
+        int keyLength = factory.keyLength() ;
+        for ( int col = 0 ; col < key.length ; col++ )
+        {
+            long x = current[col] ;
+            // Drop the value bytes from a column that is part key, part value.
+            int width = Math.min(SizeOfLong, recordLength-col*SizeOfLong) ;
+            int keyWidth = Math.min(SizeOfLong, keyLength-col*SizeOfLong) ;
+            if ( keyWidth < width )
+                x >>>= 8*(width-keyWidth) ;
+            if ( x != key[col] )
+                // Unsigned comparison.
+                return (x+Long.MIN_VALUE) < (key[col]+Long.MIN_VALUE) ? -1 : 1 ;
+        }
+        return 0 ;
+    }
+
+    /** Decoding state: the last record decoded, as columns */
+    private final class Decoder
+    {
+        final ByteBuffer src ;
+        final long[] current = new long[columns] ;
+        int idx ;
+        int remaining ;
+
+        Decoder(ByteBuffer src, int start, int count)
+        {
+            this.src = src ;
+            this.idx = start ;
+            this.remaining = count ;
+        }
+
+        void step()
+        {
+            int col = src.get(idx++) & 0xFF ;
+            remaining-- ;
+            if ( col > columns )
+                throw new RecordException("Corrupt compressed record: prefix="+col) ;
+            if ( col == columns )
+                return ;
+            current[col] += getVarLong() ;
+            for ( col++ ; col < columns ; col++ )
+                current[col] = getVarLong() ;
+        }
+
+        private long getVarLong()
+        {
+            long x = 0 ;
+            for ( int shift = 0 ; ; shift += 7 )
+            {
+                byte b = src.get(idx++) ;
+                x |= (long)(b & 0x7F) << shift ;
+                if ( b >= 0 )
+                    return x ;
+            }
+        }
+    }
+
+    /** Space, in bytes, to encode record {@code idx} of a RecordBuffer, after the record before it */
+    public int encodedLength(RecordBuffer rb, int idx)
+    {
+        return encodedLength(rb.bb, idx) ;
+    }
+
+    private int encodedLength(ByteBuffer src, int i)
+    {
+        int base = i*recordLength ;
+        int col = prefix(src, i) ;
+        if ( col == columns )
+            return 1 ;
+        int len = 1+varLength(column(src, base, col)-prev(src, i, col)) ;
+        for ( col++ ; col < columns ; col++ )
+            len += varLength(column(src, base, col)) ;
+        return len ;
+    }
+
+    /** Number of leading columns of record i the same as the record before it. */
+    private int prefix(ByteBuffer src, int i)
+    {
+        int base = i*recordLength ;
+        int col = 0 ;
+        while ( col < columns && column(src, base, col) == prev(src, i, col) )
+            col++ ;
+        return col ;
+    }
+
+    private long prev(ByteBuffer src, int i, int col)
+    {
+        if ( i == 0 )
+            return 0 ;
+        return column(src, (i-1)*recordLength, col) ;
+    }
+
+    private static int numColumns(int recordLength)
+    {
+        return (recordLength+SizeOfLong-1)/SizeOfLong ;
+    }
+
+    /** Get a column as an unsigned number. */
+    private long column(ByteBuffer bb, int base, int col)
+    {
+        int start = base+col*SizeOfLong ;
+        int width = Math.min(SizeOfLong, recordLength-col*SizeOfLong) ;
+        if ( width == SizeOfLong )
+            return bb.getLong(start) ;
+        long x = 0 ;
+        for ( int j = 0 ; j < width ; j++ )
+            x = (x << 8) | (bb.get(start+j) & 0xFF) ;
+        return x ;
+    }
+
+    private void setColumn(ByteBuffer bb, int base, int col, long x)
+    {
+        int start = base+col*SizeOfLong ;
+        int width = Math.min(SizeOfLong, recordLength-col*SizeOfLong) ;
+        if ( width == SizeOfLong )
+        {
+            bb.putLong(start, x) ;
+            return ;
+        }
+        for ( int j = width-1 ; j >= 0 ; j-- )
+        {
+            bb.put(start+j, (byte)x) ;
+            x >>>= 8 ;
+        }
+    }
+
+    private static int varLength(long x)
+    {
+        int len = 1 ;
+        while ( (x & ~0x7FL) != 0 )
+        {
+            x >>>= 7 ;
+            len++ ;
+        }
+        return len ;
+    }
+
+    private static int putVarLong(ByteBuffer dst, int idx, long x)
+    {
+        while ( (x & ~0x7FL) != 0 )
+        {
+            dst.put(idx++, (byte)((x & 0x7F) | 0x80)) ;
+            x >>>= 7 ;
+        }
+        dst.put(idx++, (byte)x) ;
+        return idx ;
+    }
+}
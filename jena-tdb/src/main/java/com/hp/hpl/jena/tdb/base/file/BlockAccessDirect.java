@@ -28,6 +28,7 @@ import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
 import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
 public class BlockAccessDirect extends BlockAccessBase
 {
@@ -36,9 +37,21 @@ public class BlockAccessDirect extends BlockAccessBase
 
     private static Logger log = LoggerFactory.getLogger(BlockAccessDirect.class) ;
     
+    // Sequential scans: read the following blocks with one large read.
+    private final ReadAhead readAhead ;
+    private ByteBuffer readAheadBuffer = null ;     // Blocks [readAheadStart, readAheadStart+readAheadCount)
+    private long readAheadStart = -1 ;
+    private int readAheadCount = 0 ;
+    private long writeCount = 0 ;
+    
     public BlockAccessDirect(String filename, int blockSize)
     {
         super(filename, blockSize) ;
+        readAhead = new ReadAhead(SystemTDB.ReadAheadBlocks) {
+            @Override
+            protected void prefetch(long start, int count)
+            { readAhead(start, count) ; }
+        } ;
     }
 
     @Override
@@ -58,16 +71,77 @@ public class BlockAccessDirect extends BlockAccessBase
         check(id) ;
         checkIfClosed() ;
         ByteBuffer bb = ByteBuffer.allocate(blockSize) ;
-        readByteBuffer(id, bb) ;
+        if ( ! readBuffered(id, bb) )
+            readByteBuffer(id, bb) ;
         bb.rewind() ;
+        readAhead.access(id) ;
         Block block = new Block(id, bb) ;
         return block ;
     }
     
+    private synchronized boolean readBuffered(long id, ByteBuffer dst)
+    {
+        if ( readAheadBuffer == null || id < readAheadStart || id >= readAheadStart+readAheadCount )
+            return false ;
+        int offset = (int)(id-readAheadStart)*blockSize ;
+        ByteBuffer src = readAheadBuffer.duplicate() ;
+        src.position(offset) ;
+        src.limit(offset+blockSize) ;
+        dst.put(src) ;
+        return true ;
+    }
+    
+    private void readAhead(long start, int count)
+    {
+        long writes ;
+        synchronized(this)
+        {
+            count = (int)Math.min(count, numFileBlocks-start) ;
+            if ( count <= 0 )
+                return ;
+            writes = writeCount ;
+        }
+        ByteBuffer bb = ByteBuffer.allocate(count*blockSize) ;
+        try {
+            long posn = filePosition(start) ;
+            while ( bb.hasRemaining() )
+            {
+                int len = file.channel().read(bb, posn+bb.position()) ;
+                if ( len <= 0 )
+                    break ;
+            }
+        } catch (IOException ex)
+        { throw new FileException("FileAccessDirect", ex) ; }
+        int n = bb.position()/blockSize ;
+        synchronized(this)
+        {
+            if ( writes != writeCount )
+                // Written to while reading - may be out of date. 
+                n = 0 ;
+            readAheadBuffer = ( n > 0 ) ? bb : null ;
+            readAheadStart = start ;
+            readAheadCount = n ;
+        }
+    }
+    
+    private synchronized void invalidate(long id)
+    {
+        writeCount++ ;
+        if ( readAheadBuffer != null && id >= readAheadStart && id < readAheadStart+readAheadCount )
+        {
+            readAheadBuffer = null ;
+            readAheadCount = 0 ;
+            readAhead.reset() ;
+        }
+    }
+    
     private void readByteBuffer(long id, ByteBuffer dst)
     {
         try {
             int len = file.channel().read(dst, filePosition(id)) ;
+            if ( len == -1 && id < numFileBlocks )
+                // Allocated but not written yet - as a new block.
+                return ;
             if ( len != blockSize )
                 throw new FileException(format("get: short read (%d, not %d)", len, blockSize)) ;   
         } catch (IOException ex)
@@ -89,6 +163,7 @@ public class BlockAccessDirect extends BlockAccessBase
         // and the name does 
         bb.limit(bb.capacity()) ;   // It shouldn't have been changed.
         bb.rewind() ;
+        invalidate(block.getId()) ;
         try {
             int len = file.channel().write(bb, filePosition(block.getId())) ;
             if ( len != blockSize )
@@ -25,6 +25,10 @@ import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import static java.nio.channels.FileChannel.MapMode ;
 import java.util.Arrays;
+import java.util.concurrent.Executor ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.ThreadFactory ;
+import java.util.concurrent.atomic.AtomicLong ;
 
 import com.hp.hpl.jena.tdb.base.block.Block ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
@@ -51,6 +55,12 @@ public class BlockAccessMapped extends BlockAccessBase
     private final int SegmentSize = SystemTDB.SegmentSize ;
     private final int blocksPerSegment ;                              
     
+    // Bytes mapped by all open files (segments of closed files are released to the GC).
+    private static final AtomicLong mappedBytes = new AtomicLong(0) ;
+
+    /** Bytes currently memory mapped by all open memory mapped block files. */
+    public static long mappedBytes() { return mappedBytes.get() ; }
+    
     private int initialNumSegements = 1 ;
     private MappedByteBuffer[] segments = new MappedByteBuffer[initialNumSegements] ;  
     
@@ -58,6 +68,20 @@ public class BlockAccessMapped extends BlockAccessBase
     private int segmentDirtyCount = 0 ;
     private boolean[] segmentDirty = new boolean[initialNumSegements] ; 
     
+    // Sequential scans: touch the pages of the following blocks in the background
+    // so the page faults happen ahead of the scan. 
+    private final ReadAhead readAhead ;
+    private static final int PageSize = 4*1024 ;
+    private static volatile int touched ;
+    private static final Executor prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread t = new Thread(r, "TDB read-ahead") ;
+            t.setDaemon(true) ;
+            return t ;
+        }}) ;
+    
     public BlockAccessMapped(String filename, int blockSize)
     {
         super(filename, blockSize) ;
@@ -70,6 +94,12 @@ public class BlockAccessMapped extends BlockAccessBase
             segmentDirty[i] = false ;
         segmentDirtyCount = 0 ;
         
+        readAhead = new ReadAhead(SystemTDB.ReadAheadBlocks) {
+            @Override
+            protected void prefetch(long start, int count)
+            { readAhead(start, count) ; }
+        } ;
+        
         if ( getLog().isDebugEnabled() )
             getLog().debug(format("Segment:%d  BlockSize=%d  blocksPerSegment=%d", SegmentSize, blockSize, blocksPerSegment)) ;
     }
@@ -94,9 +124,45 @@ public class BlockAccessMapped extends BlockAccessBase
         checkIfClosed() ;
         ByteBuffer bb = getByteBuffer(id) ;
         bb.position(0) ;
+        readAhead.access(id) ;
         Block block = new Block(id, bb) ;
         return block ;
     }
+    
+    private void readAhead(long start, int count)
+    {
+        final ByteBuffer[] buffers = new ByteBuffer[count] ;
+        synchronized (this) {
+            for ( int i = 0 ; i < count ; i++ )
+            {
+                int id = (int)(start+i) ;
+                int seg = segment(id) ;
+                // Only blocks that exist, in segments that are already mapped. 
+                if ( id >= numFileBlocks || seg >= segments.length || segments[seg] == null )
+                    break ;
+                ByteBuffer bb = segments[seg].duplicate() ;
+                bb.position(byteOffset(id)) ;
+                bb.limit(byteOffset(id)+blockSize) ;
+                buffers[i] = bb.slice() ;
+            }
+        }
+        if ( buffers[0] == null )
+            return ;
+        prefetcher.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                int x = 0 ;
+                for ( ByteBuffer bb : buffers )
+                {
+                    if ( bb == null )
+                        break ;
+                    for ( int i = 0 ; i < bb.capacity() ; i += PageSize )
+                        x += bb.get(i) ;
+                }
+                touched = x ;
+            }}) ;
+    }
 
     @Override
     public void write(Block block)
@@ -223,6 +289,7 @@ public class BlockAccessMapped extends BlockAccessBase
                 if ( getLog().isDebugEnabled() )
                     getLog().debug(format("Segment: %d", seg)) ;
                 segments[seg] = segBuffer ;
+                mappedBytes.addAndGet(SegmentSize) ;
             } catch (IOException ex)
             {
                 if ( ex.getCause() instanceof java.lang.OutOfMemoryError )
@@ -258,6 +325,11 @@ public class BlockAccessMapped extends BlockAccessBase
         // There is no unmap operation for MappedByteBuffers.
         // Sun Bug id bug_id=4724038
         // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4724038
+       for ( MappedByteBuffer segment : segments )
+       {
+           if ( segment != null )
+               mappedBytes.addAndGet(-SegmentSize) ;
+       }
        Arrays.fill(segments, null) ;
        Arrays.fill(segmentDirty, false) ;
        segmentDirtyCount = 0 ;
@@ -20,6 +20,7 @@ package com.hp.hpl.jena.tdb.base.file;
 
 import java.io.IOException ;
 import java.nio.ByteBuffer ;
+import java.nio.MappedByteBuffer ;
 import java.nio.channels.FileChannel ;
 
 import org.apache.jena.atlas.io.IO ;
@@ -42,14 +43,16 @@ public class PlainFilePersistent extends PlainFile
     PlainFilePersistent(String filename)
     {
         file = FileBase.create(filename) ;
-        //long filesize = file.out.length() ;
-        //if ( channel.size() == 0 ) {}
+        filesize = file.size() ;
         byteBuffer = allocateBuffer(filesize) ;
     }
     
     @Override
     public void sync()
     { 
+        // Changes are made through the mapped buffer.
+        if ( byteBuffer instanceof MappedByteBuffer )
+            ((MappedByteBuffer)byteBuffer).force() ;
         file.sync() ; 
     }
     
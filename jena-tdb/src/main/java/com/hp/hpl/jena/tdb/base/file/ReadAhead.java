@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.base.file;
+
+/**
+ * Detect sequential block access and decide what to read ahead.
+ * <p>
+ * Scans over a B+Tree follow the leaf link pointers; when the leaves were
+ * written in order (bulk load, compaction, append-mostly updates) that is a
+ * run of ascending block ids. Once two consecutive ids are seen, a window of
+ * the following blocks is passed to {@link #prefetch}; the window doubles,
+ * up to a maximum, each time the reader gets halfway through the previous one.
+ * Any non-sequential access resets the window.
+ */
+abstract class ReadAhead
+{
+    private static final int InitialWindow = 4 ;
+    
+    private final int maxWindow ;
+    private long lastId = -2 ;
+    private int window = 0 ;
+    private long windowEnd = -1 ;       // Exclusive.
+    
+    protected ReadAhead(int maxWindow)
+    {
+        this.maxWindow = maxWindow ;
+    }
+
+    /** Note an access to block id - may call {@link #prefetch} */
+    final void access(long id)
+    {
+        if ( maxWindow <= 0 )
+            return ;
+        long start ;
+        int count ;
+        synchronized(this)
+        {
+            boolean sequential = ( id == lastId+1 ) ;
+            lastId = id ;
+            if ( ! sequential )
+            {
+                window = 0 ;
+                windowEnd = -1 ;
+                return ;
+            }
+            if ( id + window/2 < windowEnd )
+                // Still well inside the last window.
+                return ;
+            window = ( window == 0 ) ? Math.min(InitialWindow, maxWindow) : Math.min(2*window, maxWindow) ;
+            start = Math.max(windowEnd, id+1) ;
+            count = (int)(id+1+window-start) ;
+            if ( count <= 0 )
+                return ;
+            windowEnd = start+count ;
+        }
+        prefetch(start, count) ;
+    }
+    
+    /** Forget any sequential run (e.g. the file has been written) */ 
+    final synchronized void reset()
+    {
+        lastId = -2 ;
+        window = 0 ;
+        windowEnd = -1 ;
+    }
+
+    /** Read ahead blocks [start, start+count) ; the range may extend past the end of the file. */
+    protected abstract void prefetch(long start, int count) ;
+}
@@ -19,6 +19,8 @@
 package com.hp.hpl.jena.tdb.base.recordbuffer;
 
 import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBuffer ;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
 import com.hp.hpl.jena.tdb.base.page.Page ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
@@ -60,6 +62,36 @@ public final class RecordBufferPage extends RecordBufferPageBase
         this.link = block.getByteBuffer().getInt(LINK) ;
     }
 
+    /** Is the page full, that is, might adding one more record not fit? */
+    public boolean isFull()
+    {
+        RecordBuffer rb = getRecordBuffer() ;
+        RecordBufferCodec codec = getCodec() ;
+        if ( codec == null )
+            return rb.isFull() ;
+        return isFull(codec.encodedLength(rb)) ;
+    }
+    
+    /** Is a compressed page full, given the space the records currently take when encoded? */
+    public boolean isFull(int encodedLength)
+    {
+        RecordBufferCodec codec = getCodec() ;
+        // An insert adds a record and may change the encoding of the record after it.
+        return getCount() >= getMaxSize() || encodedLength+2*codec.worstCase() > space() ;
+    }
+    
+    /** Is the page at most half full? Two such pages can be merged. */
+    public boolean isMinSize()
+    {
+        RecordBuffer rb = getRecordBuffer() ;
+        RecordBufferCodec codec = getCodec() ;
+        // 50% packing minimum.
+        // If of max length 5 (i.e. odd), min size is 2.  Integer division works.  
+        if ( codec == null )
+            return rb.size() <= rb.maxSize()/2 ;
+        return rb.size() <= getMaxSize()/2 && codec.encodedLength(rb) <= (space()-2*codec.worstCase())/2 ;
+    }
+
     public static int calcRecordSize(RecordFactory factory, int blkSize)
     { return RecordBufferPageBase.calcRecordSize(factory, blkSize, FIELD_LENGTH) ; }
     
@@ -68,28 +100,39 @@ public final class RecordBufferPage extends RecordBufferPageBase
     
     /** The construction methods */
     public static RecordBufferPage createBlank(Block block,RecordFactory factory)
+    {
+        return createBlank(block, factory, null) ;
+    }
+
+    /** Create an empty page; the records are compressed if the codec is not null. */
+    public static RecordBufferPage createBlank(Block block, RecordFactory factory, RecordBufferCodec codec)
     {
         int count = 0 ;
         int linkId = NO_ID ;
-        return new RecordBufferPage(block, factory, count, linkId) ;
+        return new RecordBufferPage(block, factory, codec, count, linkId) ;
     }
 
     public static RecordBufferPage format(Block block, RecordFactory factory)
+    {
+        return format(block, factory, null) ;
+    } 
+        
+    /** A page over an existing block; the records are compressed if the codec is not null. */
+    public static RecordBufferPage format(Block block, RecordFactory factory, RecordBufferCodec codec)
     {
         int count = block.getByteBuffer().getInt(COUNT) ;
         int linkId = block.getByteBuffer().getInt(LINK) ;
-        return new RecordBufferPage(block, factory, count, linkId) ;
+        return new RecordBufferPage(block, factory, codec, count, linkId) ;
     } 
-        
     
-    private RecordBufferPage(Block block, RecordFactory factory, int count, int linkId)  
+    private RecordBufferPage(Block block, RecordFactory factory, RecordBufferCodec codec, int count, int linkId)  
     {
-        super(block, FIELD_LENGTH, factory, count) ;
+        super(block, FIELD_LENGTH, factory, codec, count) ;
         this.link = linkId ;
     }
     
     @Override
     public String toString()
-    { return String.format("RecordBufferPage[id=%d,link=%d]: %s", getBackingBlock().getId(), getLink(), recBuff) ; }
+    { return String.format("RecordBufferPage[id=%d,link=%d]: %s", getBackingBlock().getId(), getLink(), getRecordBuffer()) ; }
 
 }
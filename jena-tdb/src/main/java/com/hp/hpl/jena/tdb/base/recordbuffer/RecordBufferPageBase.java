@@ -20,19 +20,27 @@ package com.hp.hpl.jena.tdb.base.recordbuffer;
 
 
 import java.nio.ByteBuffer;
+import java.util.Iterator ;
 
 import org.apache.jena.atlas.io.IndentedWriter ;
 
 
 import com.hp.hpl.jena.tdb.base.block.Block ;
 import com.hp.hpl.jena.tdb.base.buffer.RecordBuffer;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
 import com.hp.hpl.jena.tdb.base.page.PageBase;
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordException ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory;
 import com.hp.hpl.jena.tdb.sys.SystemTDB;
 
 /** The on-disk form of a block of a single RecordBuffer
  * (i.e. this is not part of a BTree/BPlusTree branch node).
  * This must be compatible with B+Tree records nodes and hashbuckets.
+ * <p>
+ * If there is a {@link RecordBufferCodec}, the records are held compressed in
+ * the block and decoded into a separate RecordBuffer when first needed.
+ * They are only written back to the block when the page is written.
  */
 
 public abstract class RecordBufferPageBase extends PageBase //implements Page
@@ -47,6 +55,10 @@ public abstract class RecordBufferPageBase extends PageBase //implements Page
     // Interface: "Page" - id, byteBuffer, count
     protected RecordBuffer recBuff ;
     private final RecordFactory factory ;
+    // Null for the fixed width layout.
+    private final RecordBufferCodec codec ;
+    // Compressed: count of records in the block, until decoded.
+    private int encodedCount ;
     
     //private int offset ;                // Bytes of overhead.
     
@@ -69,15 +81,32 @@ public abstract class RecordBufferPageBase extends PageBase //implements Page
 
     protected RecordBufferPageBase(Block block, int offset, 
                                    RecordFactory factory, int count)
+    {
+        this(block, offset, factory, null, count) ;
+    }
+    
+    protected RecordBufferPageBase(Block block, int offset, 
+                                   RecordFactory factory, RecordBufferCodec codec, int count)
     {   // This code knows the alignment of the records in the ByteBuffer.
         super(block) ;
         this.headerLength = FIELD_LENGTH+offset ;        // NB +4 for the count field
         this.factory = factory ;
+        this.codec = codec ;
+        if ( codec != null && space() < codec.minSpace() )
+            throw new RecordException("Block too small for compressed records: "+space()+" bytes") ;
         reset(block, count) ;
     }
     
     protected void reset(Block block, int count)
     {
+        if ( codec != null )
+        {
+            // Compressed - decode later.
+            // If already decoded, keep the records: the block is being replaced by a copy.
+            if ( recBuff == null )
+                encodedCount = count ;
+            return ;
+        }
         ByteBuffer bb = block.getByteBuffer() ;
         bb.clear() ;
         bb.position(headerLength) ;
@@ -87,25 +116,86 @@ public abstract class RecordBufferPageBase extends PageBase //implements Page
 
     public final RecordBuffer getRecordBuffer()
     {
+        if ( recBuff == null )
+        {
+            RecordBuffer rb = new RecordBuffer(factory, getMaxSize()) ;
+            codec.decode(getBackingBlock().getByteBuffer(), headerLength, encodedCount, rb) ;
+            recBuff = rb ;
+        }
         return recBuff ;
     }
     
     public final int getCount()
     {
+        if ( recBuff == null )
+            return encodedCount ;
         return recBuff.size() ;
     }
 
     public final int getMaxSize()
     {
+        if ( codec != null )
+            return codec.maxRecords(space()) ;
         return recBuff.maxSize() ;
     }
 
     public void setCount(int count)
-    { recBuff.setSize(count) ; }
+    { getRecordBuffer().setSize(count) ; }
+
+    /** Is the page stored in compressed form? */
+    public final boolean isCompressed()
+    {
+        return codec != null ;
+    }
+    
+    /** Iterate over the records of the page.
+     * For a compressed page that has not been decoded,
+     * the records are decoded from the block as the iterator is used.
+     */
+    public final Iterator<Record> recordIterator()
+    {
+        if ( recBuff != null )
+            return recBuff.iterator() ;
+        return codec.iterator(getBackingBlock().getByteBuffer(), headerLength, encodedCount) ;
+    }
+
+    /** Find the record with the same key, or return null.
+     * A compressed page that has not been decoded is searched in the block,
+     * and is not decoded.
+     */
+    public final Record findGet(Record rec)
+    {
+        if ( recBuff != null )
+            return recBuff.findGet(rec) ;
+        if ( codec == null )
+            return getRecordBuffer().findGet(rec) ;
+        return codec.find(getBackingBlock().getByteBuffer(), headerLength, encodedCount, rec) ;
+    }
+
+    /** Write the records to the block, if the page is compressed. */
+    protected final void encode()
+    {
+        if ( codec == null || recBuff == null )
+            // Records are in the block already (or not decoded, so not changed).
+            return ;
+        ByteBuffer bb = getBackingBlock().getByteBuffer() ;
+        codec.encode(recBuff, bb, headerLength, bb.capacity()) ;
+    }
+
+    protected final RecordBufferCodec getCodec()
+    {
+        return codec ;
+    }
+
+    /** Bytes available for records */
+    protected final int space()
+    {
+        return getBackingBlock().getByteBuffer().capacity()-headerLength ;
+    }
 
     @Override
     public String toString()
-    { return String.format("RecordBufferPageBase[id=%d]: %s", getBackingBlock().getId(), recBuff) ; }
+    { return String.format("RecordBufferPageBase[id=%d]: %s", getBackingBlock().getId(), getRecordBuffer()) ; }
 
     @Override
     public void output(IndentedWriter out)
@@ -26,6 +26,7 @@ import com.hp.hpl.jena.tdb.base.block.Block ;
 import com.hp.hpl.jena.tdb.base.block.BlockConverter ;
 import com.hp.hpl.jena.tdb.base.block.BlockMgr;
 import com.hp.hpl.jena.tdb.base.block.BlockType;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
 import com.hp.hpl.jena.tdb.base.page.PageBlockMgr ;
 import com.hp.hpl.jena.tdb.base.record.RecordException;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory;
@@ -36,13 +37,28 @@ import com.hp.hpl.jena.tdb.base.record.RecordFactory;
 
 public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
 {
+    private final RecordBufferCodec codec ;
+    
     public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr)
+    {
+        this(factory, null, blockMgr) ;
+    }
+    
+    /** Pages are compressed if the codec is not null */
+    public RecordBufferPageMgr(RecordFactory factory, RecordBufferCodec codec, BlockMgr blockMgr)
     {
         super(null, blockMgr) ;
-        Block2RecordBufferPage conv = new Block2RecordBufferPage(factory) ;
+        this.codec = codec ;
+        Block2RecordBufferPage conv = new Block2RecordBufferPage(factory, codec) ;
         super.setConverter(conv) ;
     }
 
+    /** The codec for compressed pages, or null */
+    public RecordBufferCodec getRecordBufferCodec()
+    {
+        return codec ;
+    }
+    
     public RecordBufferPage create()
     {
         return super.create(BlockType.RECORD_BLOCK) ;
@@ -58,10 +74,17 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
     public static class Block2RecordBufferPage implements BlockConverter<RecordBufferPage>
     {
         private RecordFactory factory ;
+        private RecordBufferCodec codec ;
 
         public Block2RecordBufferPage(RecordFactory factory)
+        {
+            this(factory, null) ;
+        }
+        
+        public Block2RecordBufferPage(RecordFactory factory, RecordBufferCodec codec)
         {
             this.factory = factory ;
+            this.codec = codec ;
         }
         
         @Override
@@ -70,7 +93,7 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
             if ( blkType != BlockType.RECORD_BLOCK )
                 throw new RecordException("Not RECORD_BLOCK: "+blkType) ;
             // Initially empty
-            RecordBufferPage rb = RecordBufferPage.createBlank(block, factory) ;
+            RecordBufferPage rb = RecordBufferPage.createBlank(block, factory, codec) ;
             return rb ;
         }
 
@@ -79,7 +102,7 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
         {
             synchronized (block)    // [[TxTDB:TODO] needed? Right place?
             {
-                RecordBufferPage rb = RecordBufferPage.format(block, factory) ;
+                RecordBufferPage rb = RecordBufferPage.format(block, factory, codec) ;
 //                int count = block.getByteBuffer().getInt(COUNT) ;
 //                int linkId = block.getByteBuffer().getInt(LINK) ;
 //                RecordBufferPage rb = new RecordBufferPage(block, linkId, factory, count) ;
@@ -90,8 +113,8 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
         @Override
         public Block toBlock(RecordBufferPage rbp)
         {
-            int count = rbp.getRecordBuffer().size() ;
             ByteBuffer bb = rbp.getBackingBlock().getByteBuffer() ;
+            rbp.encode() ;
             bb.putInt(COUNT, rbp.getCount()) ;
             bb.putInt(LINK, rbp.getLink()) ;
             return rbp.getBackingBlock() ;
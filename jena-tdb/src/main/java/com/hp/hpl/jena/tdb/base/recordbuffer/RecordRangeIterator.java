@@ -46,6 +46,10 @@ class RecordRangeIterator implements Iterator<Record>, Closeable
     
     private RecordBufferPage currentPage ;      // Set null when finished.
     private int currentIdx ;
+    // Compressed pages : records are decoded as needed, not a whole page at a time.
+    private Iterator<Record> pageRecords = null ;
+    private Record pending = null ;             // First record of a compressed page, already decoded.
+    private Record lastRecord = null ;
     private Record slot = null ;
     
     private final RecordBufferPageMgr pageMgr ;
@@ -54,6 +58,15 @@ class RecordRangeIterator implements Iterator<Record>, Closeable
     
     private long countRecords = 0 ;
     private long countBlocks = 0 ;
+    
+    // Pages read by range iterators, per thread, for query resource accounting.
+    private static final ThreadLocal<long[]> threadPagesRead = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() { return new long[1] ; }
+    } ;
+    
+    /** The number of record pages read by range iterators in the current thread so far. */
+    public static long pagesReadThisThread() { return threadPagesRead.get()[0] ; }
 
     private RecordRangeIterator(int id, Record fromRec, Record toRec, RecordBufferPageMgr pageMgr)
     {
@@ -70,12 +83,20 @@ class RecordRangeIterator implements Iterator<Record>, Closeable
 
         pageMgr.getBlockMgr().beginIterator(this) ;
         currentPage = pageMgr.getReadIterator(id) ;
+        threadPagesRead.get()[0]++ ;
         if ( currentPage.getCount() == 0 )
         {
             // Empty page.
             close() ;
             return ;
         }
+        
+        if ( currentPage.isCompressed() )
+        {
+            // Records before fromRec are skipped in hasNext().
+            pageRecords = currentPage.recordIterator() ;
+            return ;
+        }
             
         if ( fromRec != null )
         {
@@ -93,44 +114,86 @@ class RecordRangeIterator implements Iterator<Record>, Closeable
         if ( currentPage == null )
             return false ;
         // Set slot.
-        while ( currentIdx >= currentPage.getCount() )
+        for ( ;; )
         {
-            // Move to next.
-            int link = currentPage.getLink() ;
-            if ( link < 0 )
+            Record r = nextInPage() ;
+            if ( r == null )
             {
-                close() ;
-                return false ;
+                // Move to next.
+                if ( ! nextPage() )
+                {
+                    close() ;
+                    return false ;
+                }
+                continue ;
             }
-            
-            if ( currentPage != null )
-                pageMgr.release(currentPage) ;
-            
-            RecordBufferPage nextPage = pageMgr.getReadIterator(link) ;
-            // Check currentPage -> nextPage is strictly increasing keys. 
-            Record r1 = currentPage.getRecordBuffer().getHigh() ;
-            Record r2 = nextPage.getRecordBuffer().getLow() ;
-            if ( Record.keyGE(r1, r2) )
-                throw new StorageException("RecordRangeIterator: records not strictly increasing: "+r1+" // "+r2) ;
-            currentPage = nextPage ;
-            countBlocks++ ;
-            currentIdx = 0 ;
+            // Only true at the start of the first page of a compressed B+Tree.
+            if ( minRec != null && countRecords == 0 && Record.keyLT(r, minRec) )
+                continue ;
+            slot = r ;
+            break ;
         }
-            
-        slot = currentPage.getRecordBuffer().get(currentIdx) ;
-        currentIdx++ ;
+        
         if ( maxRec != null && Record.keyGE(slot, maxRec) )
         {
             close() ;
             return false ;
         }
-        
-        if ( slot == null )
+        countRecords++ ;
+        return true ;
+    }
+
+    /** Next record in the current page, or null */
+    private Record nextInPage()
+    {
+        if ( pageRecords != null )
         {
-            close() ;
+            if ( pending != null )
+            {
+                lastRecord = pending ;
+                pending = null ;
+                return lastRecord ;
+            }
+            if ( ! pageRecords.hasNext() )
+                return null ;
+            lastRecord = pageRecords.next() ;
+            return lastRecord ;
+        }
+        if ( currentIdx >= currentPage.getCount() )
+            return null ;
+        return currentPage.getRecordBuffer().get(currentIdx++) ;
+    }
+    
+    private boolean nextPage()
+    {
+        int link = currentPage.getLink() ;
+        if ( link < 0 )
             return false ;
+        
+        pageMgr.release(currentPage) ;
+        
+        RecordBufferPage nextPage = pageMgr.getReadIterator(link) ;
+        // Check currentPage -> nextPage is strictly increasing keys.
+        if ( nextPage.isCompressed() )
+        {
+            pageRecords = nextPage.recordIterator() ;
+            Record r1 = lastRecord ;
+            Record r2 = pageRecords.next() ;
+            if ( Record.keyGE(r1, r2) )
+                throw new StorageException("RecordRangeIterator: records not strictly increasing: "+r1+" // "+r2) ;
+            pending = r2 ;
         }
-        countRecords++ ;
+        else
+        {
+            Record r1 = currentPage.getRecordBuffer().getHigh() ;
+            Record r2 = nextPage.getRecordBuffer().getLow() ;
+            if ( Record.keyGE(r1, r2) )
+                throw new StorageException("RecordRangeIterator: records not strictly increasing: "+r1+" // "+r2) ;
+        }
+        currentPage = nextPage ;
+        countBlocks++ ;
+        threadPagesRead.get()[0]++ ;
+        currentIdx = 0 ;
         return true ;
     }
 
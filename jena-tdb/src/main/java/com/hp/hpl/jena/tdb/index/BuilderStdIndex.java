@@ -18,13 +18,21 @@
 
 package com.hp.hpl.jena.tdb.index;
 
+import org.apache.jena.atlas.lib.FileOps ;
+
+import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
 import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory ;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
+import com.hp.hpl.jena.tdb.base.file.FileFactory ;
 import com.hp.hpl.jena.tdb.base.file.FileSet ;
+import com.hp.hpl.jena.tdb.base.file.PlainFile ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.index.bplustree.BPlusTree ;
 import com.hp.hpl.jena.tdb.index.bplustree.BPlusTreeParams ;
+import com.hp.hpl.jena.tdb.index.ext.ExtHash ;
 import com.hp.hpl.jena.tdb.setup.BlockMgrBuilder ;
+import com.hp.hpl.jena.tdb.setup.StoreParamsConst ;
 import com.hp.hpl.jena.tdb.sys.Names ;
 
 /** Building indexes, blockMgr and object files */ 
@@ -43,11 +51,37 @@ public class BuilderStdIndex {
 
         @Override
         public Index buildIndex(FileSet fileSet, RecordFactory recordFactory, IndexParams indexParams) {
+            if ( useExtHash(fileSet, indexParams) ) {
+                BlockMgr blkMgrBuckets = bMgrRecords.buildBlockMgr(fileSet, Names.extHashBucketExt, indexParams) ;
+                PlainFile dictionary = fileSet.isMem() 
+                    ? FileFactory.createPlainFileMem() 
+                    : FileFactory.createPlainFileDisk(fileSet.filename(Names.extHashExt)) ;
+                return new ExtHash(dictionary, recordFactory, blkMgrBuckets) ;
+            }
             // Cheap.
             return other.buildRangeIndex(fileSet, recordFactory, indexParams) ;
         }
     }
 
+    /** Whether to build a hash index (an {@link ExtHash}) rather than a B+Tree. */
+    private static boolean useExtHash(FileSet fileSet, IndexParams indexParams)
+    {
+        String type = indexParams.getIndexNode2IdType() ;
+        boolean hashIndex ;
+        if ( type == null || type.equals(StoreParamsConst.indexTypeBPlusTree) )
+            hashIndex = false ;
+        else if ( type.equals(StoreParamsConst.indexTypeExtHash) )
+            hashIndex = true ;
+        else
+            throw new IllegalArgumentException("Unknown node table index type: "+type) ;
+        // Both use the same record file name : don't read one as the other.
+        if ( ! fileSet.isMem() && ! hashIndex && FileOps.exists(fileSet.filename(Names.extHashExt)) )
+            throw new TDBException("Index is a hash index ("+fileSet.filename(Names.extHashExt)+") but the store parameters say "+type) ;
+        if ( ! fileSet.isMem() && hashIndex && FileOps.exists(fileSet.filename(Names.bptExtTree)) )
+            throw new TDBException("Index is a B+Tree ("+fileSet.filename(Names.bptExtTree)+") but the store parameters say "+type) ;
+        return hashIndex ;
+    }
+
     public static class RangeIndexBuilderStd implements RangeIndexBuilder
     {
         private BlockMgrBuilder bMgrNodes ;
@@ -87,7 +121,7 @@ public class BuilderStdIndex {
                 }
             }
 
-            BPlusTreeParams params = new BPlusTreeParams(order, factory) ;
+            BPlusTreeParams params = new BPlusTreeParams(order, factory, compressLeaves(factory, indexParams)) ;
             
             BlockMgr blkMgrNodes = blockMgrBuilderNodes.buildBlockMgr(fileset, Names.bptExtTree, indexParams) ;
             BlockMgr blkMgrRecords = blockMgrBuilderRecords.buildBlockMgr(fileset, Names.bptExtRecords, indexParams) ;
@@ -95,6 +129,19 @@ public class BuilderStdIndex {
         }
     }
 
+    /** Whether to compress the leaf blocks of a B+Tree.
+     *  Only indexes of key-only records can be compressed (the tuple indexes); others use the fixed layout.
+     */
+    public static boolean compressLeaves(RecordFactory factory, IndexParams indexParams)
+    {
+        String format = indexParams.getIndexLeafFormat() ;
+        if ( format == null || format.equals(StoreParamsConst.leafFormatFixed) )
+            return false ;
+        if ( ! format.equals(StoreParamsConst.leafFormatCompressed) )
+            throw new IllegalArgumentException("Unknown index leaf format: "+format) ;
+        return ! factory.hasValue() && RecordBufferCodec.canEncode(factory) ;
+    }
+
     public static class BlockMgrBuilderStd implements BlockMgrBuilder
     {
         public BlockMgrBuilderStd() {}
@@ -30,6 +30,16 @@ public interface IndexParams extends BlockParams {
      */
     @Override public Integer getBlockSize() ;
     
+    /** Layout of B+Tree leaf blocks - "fixed" or "compressed".
+     * Like the block size, this is set when the on-disk files are created.
+     */
+    public String getIndexLeafFormat() ;
+    
+    /** Structure of the (non-range) node table index - "bplustree" or "exthash".
+     * Like the block size, this is set when the on-disk are created.
+     */
+    public String getIndexNode2IdType() ;
+    
     /** Block read cache size (mmap'ed files do not have a block cache)*/
     @Override public Integer getBlockReadCacheSize() ;
     
@@ -925,7 +925,8 @@ public final class BPTreeNode extends BPTreePage
             {
                 // If two data blocks, then the split key is not inlcuded (it's alread ythere, with it value)
                 // Size is N+N and max could be odd so N+N and N+N+1 are possible. 
-                if ( left.getCount()+1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
+                // Compressed leaves are merged by space used, not by count.
+                if ( ! params.isCompressedLeaves() && left.getCount()+1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
                     error("Inconsistent data node size: %d/%d", left.getCount(), left.getMaxSize()) ;
             }
             else if ( ! left.isFull() )
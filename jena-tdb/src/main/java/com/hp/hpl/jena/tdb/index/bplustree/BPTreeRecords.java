@@ -43,14 +43,23 @@ public final class BPTreeRecords extends BPTreePage
     {
         super(bpTree) ;
         rBuffPage = rbp ;
-        rBuff = rBuffPage.getRecordBuffer() ;
+        // A compressed page is decoded when the records are first needed:
+        // a point lookup (internalSearch) does not decode it.
+        rBuff = null ;
+    }
+    
+    private RecordBuffer rBuff()
+    {
+        if ( rBuff == null )
+            rBuff = rBuffPage.getRecordBuffer() ;
+        return rBuff ;
     }
     
     RecordBufferPage getRecordBufferPage()
     { return rBuffPage ; }
     
     /*TEMP*/ public RecordBuffer getRecordBuffer()
-    { return rBuff ; }
+    { return rBuff() ; }
 
     @Override
     public final Block getBackingBlock()
@@ -62,7 +71,7 @@ public final class BPTreeRecords extends BPTreePage
     public void reset(Block block)
     { 
         rBuffPage.reset(block) ;
-        rBuff = rBuffPage.getRecordBuffer() ;
+        rBuff = null ;
     }
 
     int getLink()
@@ -71,30 +80,26 @@ public final class BPTreeRecords extends BPTreePage
     @Override
     public boolean isFull()
     {
-        return ( rBuff.size() >= rBuff.maxSize() ) ;
+        return rBuffPage.isFull() ;
     }
     
     @Override
     public boolean hasAnyKeys()
     {
-        return rBuff.size() > 0 ;
+        return rBuffPage.getCount() > 0 ;
     }
 
     @Override
     public boolean isMinSize()
     {
-        // 50% packing minimum.
-        // If of max length 5 (i.e. odd), min size is 2.  Integer division works.  
-        return ( rBuff.size() <= rBuff.maxSize()/2 ) ;
+        // 50% packing minimum, by count or, if compressed, also by space. 
+        return rBuffPage.isMinSize() ;
    }
 
     @Override
     public Record internalSearch(Record rec)
     {
-        int i = rBuff.find(rec) ;
-        if ( i < 0 )
-            return null ;
-        return rBuff.get(i) ;
+        return rBuffPage.findGet(rec) ;
     }
 
 //    @Override
@@ -129,21 +134,21 @@ public final class BPTreeRecords extends BPTreePage
     {
         // [TxTDB:PATCH-UP]
         promote() ;
-        int i = rBuff.find(record) ;
+        int i = rBuff().find(record) ;
         Record r2 = null ;
         if ( i < 0 )
         {
             i = decodeIndex(i) ;
-            if ( rBuff.size() >= rBuff.maxSize())  
+            if ( rBuff().size() >= rBuff().maxSize())  
                 throw new StorageException("RecordBlock.put overflow") ; 
-            rBuff.add(i, record) ;
+            rBuff().add(i, record) ;
         }
         else
         {
-            r2 = rBuff.get(i) ;
+            r2 = rBuff().get(i) ;
             if ( Record.compareByKeyValue(record, r2) != 0 )
                 // Replace : return old
-                rBuff.set(i, record) ;
+                rBuff().set(i, record) ;
         }
         write() ;
         return r2 ;
@@ -153,11 +158,11 @@ public final class BPTreeRecords extends BPTreePage
     public Record internalDelete(Record record)
     {
         promote() ;
-        int i = rBuff.find(record) ;
+        int i = rBuff().find(record) ;
         if ( i < 0 )
             return null ;
-        Record r2 = rBuff.get(i) ;
-        rBuff.remove(i) ;
+        Record r2 = rBuff().get(i) ;
+        rBuff().remove(i) ;
         write() ;
         return r2 ;       
     }
@@ -165,8 +170,8 @@ public final class BPTreeRecords extends BPTreePage
     @Override final
     public Record getSplitKey()
     {
-        int splitIdx = rBuff.size()/2-1 ;
-        Record r = rBuff.get(splitIdx) ;
+        int splitIdx = rBuff().size()/2-1 ;
+        Record r = rBuff().get(splitIdx) ;
         return r ;
     }
 
@@ -182,21 +187,21 @@ public final class BPTreeRecords extends BPTreePage
         BPTreeRecords other = create(rBuffPage.getLink()) ;
         rBuffPage.setLink(other.getId()) ;
         
-        int splitIdx = rBuff.size()/2-1 ;
-        Record r = rBuff.get(splitIdx) ;                // Only need key for checking later.
+        int splitIdx = rBuff().size()/2-1 ;
+        Record r = rBuff().get(splitIdx) ;                // Only need key for checking later.
         
-        int moveLen =  rBuff.size()-(splitIdx+1) ;      // Number to move.
+        int moveLen =  rBuff().size()-(splitIdx+1) ;      // Number to move.
         // Copy high end to new.  
-        rBuff.copy(splitIdx+1, other.getRecordBufferPage().getRecordBuffer(), 0, moveLen) ;
-        rBuff.clear(splitIdx+1, moveLen) ;
-        rBuff.setSize(splitIdx+1) ;
+        rBuff().copy(splitIdx+1, other.getRecordBufferPage().getRecordBuffer(), 0, moveLen) ;
+        rBuff().clear(splitIdx+1, moveLen) ;
+        rBuff().setSize(splitIdx+1) ;
         
         if ( CheckingNode )
         {
             if ( ! Record.keyEQ(r, maxRecord()) )
             {
-                System.err.println(rBuff) ;
-                System.err.println(other.rBuff) ;
+                System.err.println(rBuff()) ;
+                System.err.println(other.rBuff()) ;
                 error("BPTreeRecords.split: Not returning expected record") ;
             }
         }
@@ -215,10 +220,10 @@ public final class BPTreeRecords extends BPTreePage
     {
         // Error checking by RecordBuffer
         BPTreeRecords page = cast(other) ;
-        rBuff.shiftRight(page.rBuff) ;
-        if ( rBuff.size() == 0 )
+        rBuff().shiftRight(page.rBuff()) ;
+        if ( rBuff().size() == 0 )
             return null ;
-        return rBuff.getHigh() ;
+        return rBuff().getHigh() ;
     }
     
     @Override
@@ -226,10 +231,10 @@ public final class BPTreeRecords extends BPTreePage
     {
         // Error checking by RecordBuffer
         BPTreeRecords page = cast(other) ;
-        rBuff.shiftLeft(page.rBuff) ;
-        if ( rBuff.size() == 0 )
+        rBuff().shiftLeft(page.rBuff()) ;
+        if ( rBuff().size() == 0 )
             return null ;
-        return rBuff.getHigh() ;
+        return rBuff().getHigh() ;
     }
 
     @Override
@@ -244,9 +249,9 @@ public final class BPTreeRecords extends BPTreePage
     {
         // Copy right to top of left.
         // The other way round needs a shift as well.
-        right.rBuff.copyToTop(left.rBuff) ;
+        right.rBuff().copyToTop(left.rBuff()) ;
         // Same as: right.rBuff.copy(0, left.rBuff, left.rBuff.size(), right.rBuff.size()) ;
-        right.rBuff.clear() ;
+        right.rBuff().clear() ;
         
         //The right page is released by the caller.  left is still in use.
         // So the test code can poke around in the right block after merge. 
@@ -286,43 +291,43 @@ public final class BPTreeRecords extends BPTreePage
     @Override
     public final Record getLowRecord()
     {
-        if ( rBuff.size() == 0 )
+        if ( rBuff().size() == 0 )
             return null ;
-        return rBuff.getLow() ;
+        return rBuff().getLow() ;
     }
 
     @Override
     public final Record getHighRecord()
     {
-        if ( rBuff.size() == 0 )
+        if ( rBuff().size() == 0 )
             return null ;
-        return rBuff.getHigh() ;
+        return rBuff().getHigh() ;
     }
 
     @Override
-    public final int getMaxSize()             { return rBuff.maxSize() ; }
+    public final int getMaxSize()             { return rBuff().maxSize() ; }
     
     @Override
-    public final int getCount()             { return rBuff.size() ; }
+    public final int getCount()             { return rBuffPage.getCount() ; }
  
     @Override
-    public final void setCount(int count)   { rBuff.setSize(count) ; }
+    public final void setCount(int count)   { rBuff().setSize(count) ; }
     
     @Override
     public String toString()
-    { return String.format("BPTreeRecords[id=%d, link=%d]: %s", getId(), getLink(), rBuff.toString()); }
+    { return String.format("BPTreeRecords[id=%d, link=%d]: %s", getId(), getLink(), rBuff().toString()); }
     
     @Override
     public final void checkNode()
     {
         if ( ! CheckingNode ) return ;
-        if ( rBuff.size() < 0 || rBuff.size() > rBuff.maxSize() )
+        if ( rBuff().size() < 0 || rBuff().size() > rBuff().maxSize() )
             error("Misized: %s", this) ;
 
         for ( int i = 1 ; i < getCount() ; i++ )
         {
-            Record r1 = rBuff.get(i-1) ;
-            Record r2 = rBuff.get(i) ;
+            Record r1 = rBuff().get(i-1) ;
+            Record r2 = rBuff().get(i) ;
             if ( Record.keyGT(r1, r2) )
                 error("Not sorted: %s", this) ;
         }
@@ -21,6 +21,7 @@ package com.hp.hpl.jena.tdb.index.bplustree;
 import com.hp.hpl.jena.tdb.base.block.Block ;
 import com.hp.hpl.jena.tdb.base.block.BlockConverter ;
 import com.hp.hpl.jena.tdb.base.block.BlockType ;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.base.recordbuffer.RecordBufferPage ;
 import com.hp.hpl.jena.tdb.base.recordbuffer.RecordBufferPageMgr ;
@@ -38,7 +39,7 @@ final public class BPTreeRecordsMgr extends BPTreePageMgr<BPTreeRecords>
     {
         super(bpTree, null, rBuffPageMgr.getBlockMgr()) ;
         this.rBuffPageMgr = rBuffPageMgr ;
-        super.setConverter(new Block2BPTreeRecords(bpTree, bpTree.getRecordFactory())) ;
+        super.setConverter(new Block2BPTreeRecords(bpTree, bpTree.getRecordFactory(), rBuffPageMgr.getRecordBufferCodec())) ;
     }
     
     /** Converter BPTreeRecords -- make a RecordBufferPage and wraps it.*/ 
@@ -47,10 +48,10 @@ final public class BPTreeRecordsMgr extends BPTreePageMgr<BPTreeRecords>
         private Block2RecordBufferPage recordBufferConverter ;
         private BPlusTree bpTree ;
 
-        Block2BPTreeRecords(BPlusTree bpTree, RecordFactory recordFactory)
+        Block2BPTreeRecords(BPlusTree bpTree, RecordFactory recordFactory, RecordBufferCodec codec)
         { 
             this.bpTree = bpTree ; 
-            this.recordBufferConverter = new RecordBufferPageMgr.Block2RecordBufferPage(recordFactory) ;
+            this.recordBufferConverter = new RecordBufferPageMgr.Block2RecordBufferPage(recordFactory, codec) ;
         }
         
         @Override
@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory ;
 import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
 import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory ;
 import com.hp.hpl.jena.tdb.base.block.BlockMgrTracker ;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
 import com.hp.hpl.jena.tdb.base.record.Record ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.base.recordbuffer.RecordBufferPage ;
@@ -195,7 +196,8 @@ public class BPlusTree implements Iterable<Record>, RangeIndex
         // Consistency checks.
         this.bpTreeParams = params ;
         this.nodeManager = new BPTreeNodeMgr(this, blkMgrNodes) ;
-        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords) ;
+        RecordBufferCodec codec = params.isCompressedLeaves() ? new RecordBufferCodec(params.getRecordFactory()) : null ;
+        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), codec, blkMgrRecords) ;
         recordsMgr = new BPTreeRecordsMgr(this, recordPageMgr) ;
     }
 
@@ -23,6 +23,7 @@ import org.apache.jena.atlas.logging.Log ;
 import org.slf4j.Logger;
 
 import com.hp.hpl.jena.tdb.TDBException;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
 import com.hp.hpl.jena.tdb.base.file.MetaFile;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory;
 import com.hp.hpl.jena.tdb.sys.Names;
@@ -81,6 +82,9 @@ public class BPlusTreeParams
     /** Factory for key-only records */ 
     final RecordFactory keyFactory ;
     
+    /** Leaf (records) blocks are compressed */
+    final boolean compressedLeaves ;
+    
     // ---- Derived constants.
 
     /** Maximum number of keys per non-leaf block */
@@ -117,13 +121,14 @@ public class BPlusTreeParams
     @Override
     public String toString()
     {
-        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d",
+        return String.format("Order=%d : Records [key=%d, value=%d] : records=[%d,%d] : pointers=[%d,%d] : split=%d%s",
                              order,
                              keyFactory.keyLength() ,
                              recordFactory.valueLength() ,
                              MinRec, MaxRec, 
                              MinPtr, MaxPtr,
-                             SplitIndex
+                             SplitIndex,
+                             compressedLeaves ? " : compressed leaves" : ""
                              ) ;
     }
 
@@ -155,6 +160,14 @@ public class BPlusTreeParams
     }
     
     public BPlusTreeParams(int order, RecordFactory factory)
+    {
+        this(order, factory, false) ;
+    }
+    
+    /** B+Tree parameters, with leaf blocks compressed if {@code compressedLeaves} is true.
+     * @see RecordBufferCodec
+     */
+    public BPlusTreeParams(int order, RecordFactory factory, boolean compressedLeaves)
     {
         // BTrees of order one aren't strictly BTrees, where the order is >= 2
         // Order 1 => Min size = 0 and max size = 2*N-1 = 1.
@@ -165,9 +178,13 @@ public class BPlusTreeParams
         if ( order < 2 )
             throw new IllegalArgumentException("BPTree: illegal order (min 2): "+order);
 
+        if ( compressedLeaves && ! RecordBufferCodec.canEncode(factory) )
+            throw new IllegalArgumentException("BPTree: can't compress leaf blocks for records: "+factory) ;
+
         this.order = order ;
         recordFactory = factory ;
         keyFactory = factory.keyFactory() ;
+        this.compressedLeaves = compressedLeaves ;
 
         // Derived constants.
         MaxRec  = 2*order-1 + Gap ;
@@ -211,6 +228,11 @@ public class BPlusTreeParams
         return keyFactory ;
     }
     
+    public boolean isCompressedLeaves()
+    {
+        return compressedLeaves ;
+    }
+    
     
     public int getCalcBlockSize()
     {
@@ -198,14 +198,17 @@ public class BPlusTreeRewriter
             RecordBufferPage page1 = mgr.getWrite(id1) ;
             RecordBufferPage page2 = mgr.getWrite(id2) ;
             
-            // Wrong calculatation.
-            for ( int i = page2.getCount() ; i <  page1.getMaxSize()/2 ; i++ )
+            if ( page1.isCompressed() )
             {
-                //shiftOneup(node1, node2) ;
-                Record r = page1.getRecordBuffer().getHigh() ;
-                page1.getRecordBuffer().removeTop() ;
-
-                page2.getRecordBuffer().add(0, r) ;
+                // Space, not the count, is the limit : move until page2 is over half full.
+                while ( page2.isMinSize() && ! page1.isMinSize() )
+                    shiftOneUp(page1, page2) ;
+            }
+            else
+            {
+                // Wrong calculatation.
+                for ( int i = page2.getCount() ; i <  page1.getMaxSize()/2 ; i++ )
+                    shiftOneUp(page1, page2) ;
             }
 
             mgr.put(page1) ;
@@ -216,6 +219,13 @@ public class BPlusTreeRewriter
             //Record splitPoint = node1.maxRecord() ;
             return splitPoint ;
         }
+        
+        private static void shiftOneUp(RecordBufferPage page1, RecordBufferPage page2)
+        {
+            Record r = page1.getRecordBuffer().getHigh() ;
+            page1.getRecordBuffer().removeTop() ;
+            page2.getRecordBuffer().add(0, r) ;
+        }
     }
     
     // ---------------------------------------------------------------------------------------------
@@ -22,6 +22,7 @@ import java.util.Iterator ;
 import java.util.NoSuchElementException ;
 
 import com.hp.hpl.jena.tdb.base.buffer.RecordBuffer ;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
 import com.hp.hpl.jena.tdb.base.record.Record ;
 import com.hp.hpl.jena.tdb.base.recordbuffer.RecordBufferPage ;
 import com.hp.hpl.jena.tdb.base.recordbuffer.RecordBufferPageMgr ;
@@ -66,10 +67,25 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage>
             recordBufferPage = rbMgr.create() ;
             
             RecordBuffer rb = recordBufferPage.getRecordBuffer() ;
-            while ( !rb.isFull() && records.hasNext() )
+            RecordBufferCodec codec = rbMgr.getRecordBufferCodec() ;
+            if ( codec == null )
             {
-                Record r = records.next();
-                rb.add(r) ;
+                while ( !rb.isFull() && records.hasNext() )
+                {
+                    Record r = records.next();
+                    rb.add(r) ;
+                }
+            }
+            else
+            {
+                // Compressed : keep a running total of the space used.
+                int encodedLength = 0 ;
+                while ( !recordBufferPage.isFull(encodedLength) && records.hasNext() )
+                {
+                    Record r = records.next();
+                    rb.add(r) ;
+                    encodedLength += codec.encodedLength(rb, rb.size()-1) ;
+                }
             }
             if ( ! records.hasNext() )
                 records = null ;
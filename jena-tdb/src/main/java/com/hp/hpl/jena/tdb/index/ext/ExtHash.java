@@ -22,6 +22,7 @@ package com.hp.hpl.jena.tdb.index.ext;
 
 import static java.lang.String.format;
 
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -35,7 +36,6 @@ import org.apache.jena.atlas.lib.Bytes ;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.hp.hpl.jena.sparql.util.Utils ;
 import com.hp.hpl.jena.tdb.base.StorageException;
 import com.hp.hpl.jena.tdb.base.block.BlockMgr;
 import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory;
@@ -49,6 +49,13 @@ import com.hp.hpl.jena.tdb.sys.SystemTDB;
 
 /** Extensible hashing
  * http://en.wikipedia.org/wiki/Extendible_hashing
+ * <p>
+ * The dictionary file starts with a header: the state (clean or being changed) and
+ * the dictionary bit length. The state is set to "changed", and synced, before the
+ * first change after a sync; it is set back to "clean" by a sync once the buckets and
+ * the dictionary are on disk.  An index found in the "changed" state when opened may
+ * be damaged (see {@link #isRecoveryNeeded()}) and should be rebuilt from the data it
+ * indexes.
  */
 
 public final class ExtHash implements Index
@@ -104,6 +111,16 @@ public final class ExtHash implements Index
     private final RecordFactory recordFactory ;
     private final PlainFile dictionaryFile ;
     
+    // Dictionary file header.
+    private static final int STATE          = 0 ;
+    private static final int BITLEN         = STATE+SystemTDB.SizeOfInt ;
+    private static final int HeaderLength   = BITLEN+SystemTDB.SizeOfInt ;
+    private static final int StateClean     = 0 ;
+    private static final int StateChanged   = 1 ;
+    
+    private boolean changed = false ;
+    private final boolean recoveryNeeded ;
+    
     /** Testing version - in-memory but inefficient as it uses a copy-in/copy-out block manager as a RAM disk*/
     static public ExtHash createMem(RecordFactory factory, int bucketSizeBytes )
     {
@@ -116,31 +133,63 @@ public final class ExtHash implements Index
                    RecordFactory recordFactory, BlockMgr blockMgrHashBuckets)
     {
         this.dictionaryFile = dictionaryBackingFile ;
-        // Start bigger?
-        int dictionarySize = 1 ;
-        dictionary = dictionaryFile.ensure(SystemTDB.SizeOfInt).asIntBuffer() ;
         this.recordFactory = recordFactory ; 
         
         hashBucketMgr = new HashBucketMgr(recordFactory, blockMgrHashBuckets) ;
-        hashBucketMgr.valid(0) ;
         
         // Did it exist?
-        if ( hashBucketMgr.valid(0) )
+        if ( hashBucketMgr.valid(0) && dictionaryFile.getFileSize() >= HeaderLength+SystemTDB.SizeOfInt )
         {
-            
+            ByteBuffer header = dictionaryFile.getByteBuffer() ;
+            bitLen = header.getInt(BITLEN) ;
+            recoveryNeeded = ( header.getInt(STATE) != StateClean ) ;
+            dictionary = dictionaryBuffer(1<<bitLen) ;
         }
         else
         {
-//            int id = hashBucketMgr.allocateId() ;
-//            if ( id != 0 )
-//                throw new StorageException("ExtHash: First bucket is not id zero") ;
-            HashBucket hb = hashBucketMgr.create(0, 0) ;
-            dictionary.put(0, hb.getId()) ;    
-            bitLen = 0 ;
-            hashBucketMgr.put(hb) ;
+            recoveryNeeded = false ;
+            markChanged() ;
+            createDictionary() ;
         }
     }
     
+    /** The index was not synced after the last changes to it : it may be damaged. */ 
+    public boolean isRecoveryNeeded()
+    {
+        return recoveryNeeded ;
+    }
+    
+    private void createDictionary()
+    {
+        HashBucket hb = hashBucketMgr.create(0, 0) ;
+        bitLen = 0 ;
+        dictionary = dictionaryBuffer(1) ;
+        dictionary.put(0, hb.getId()) ;    
+        hashBucketMgr.put(hb) ;
+    }
+    
+    /** Dictionary of the given size, after the header in the dictionary file. */
+    private IntBuffer dictionaryBuffer(int size)
+    {
+        ByteBuffer bb = dictionaryFile.ensure(HeaderLength+size*SystemTDB.SizeOfInt) ;
+        bb.putInt(BITLEN, Integer.numberOfTrailingZeros(size)) ;
+        bb = bb.duplicate() ;
+        bb.position(HeaderLength) ;
+        bb.limit(HeaderLength+size*SystemTDB.SizeOfInt) ;
+        return bb.slice().asIntBuffer() ;
+    }
+    
+    /** Record that the index is being changed : set on disk before the first change after a sync.*/ 
+    private void markChanged()
+    {
+        if ( changed )
+            return ;
+        ByteBuffer bb = dictionaryFile.ensure(HeaderLength) ;
+        bb.putInt(STATE, StateChanged) ;
+        dictionaryFile.sync() ;
+        changed = true ;
+    }
+    
     // =====================
     // Hashing routines for converting to a bit-trie (i.e. lowest bit
     // is most significant in the trie).
@@ -228,7 +277,7 @@ public final class ExtHash implements Index
             log("resize: %d ==> %d", oldSize, newSize) ;
         }
         
-        IntBuffer newDictionary = dictionaryFile.ensure(newSize*SystemTDB.SizeOfInt).asIntBuffer() ;
+        IntBuffer newDictionary = dictionaryBuffer(newSize) ;
         if ( dictionary != null )
         {
             // Fill new dictionary
@@ -286,8 +335,9 @@ public final class ExtHash implements Index
     {
         if ( logging() ) log(">> get(%s)", key) ;
         int blockId = bucketId(key, bitLen) ;
-        HashBucket bucket = hashBucketMgr.get(blockId) ;
+        HashBucket bucket = hashBucketMgr.getRead(blockId) ;
         Record value = bucket.find(key) ;
+        hashBucketMgr.release(bucket) ;
         if ( logging() ) log("<< get(%s) -> %s", key.getKey(), value) ;
         return value ;
     }
@@ -297,6 +347,7 @@ public final class ExtHash implements Index
     public boolean add(Record record)
     {
         if ( logging() ) log(">> add(%s)", record) ;
+        markChanged() ;
         int h = trieKey(record) ;
         boolean b = put(record, h) ;
         if ( logging() )
@@ -312,6 +363,7 @@ public final class ExtHash implements Index
     public boolean delete(Record record)
     {
         if ( logging() ) log(">> remove(%s)", record) ;
+        markChanged() ;
         int blockId = bucketId(record, bitLen) ;
         HashBucket bucket = hashBucketMgr.get(blockId) ;
 
@@ -337,16 +389,22 @@ public final class ExtHash implements Index
     { 
        if ( dictionary.limit() == 1 )
        {
-           HashBucket b = hashBucketMgr.get(1) ;
-           return b.isEmpty() ;
+           HashBucket b = hashBucketMgr.getRead(dictionary.get(0)) ;
+           boolean empty = b.isEmpty() ;
+           hashBucketMgr.release(b) ;
+           return empty ;
        }
        // No idea.
        return false ;
     }
     
+    /** Empty the index. The space used by the old buckets is not reused. */ 
     @Override
     public void clear()
-    { throw new UnsupportedOperationException("RangeIndex("+Utils.classShortName(this.getClass())+").clear") ; }
+    {
+        markChanged() ;
+        createDictionary() ;
+    }
 
     @Override
     public long size()
@@ -363,8 +421,9 @@ public final class ExtHash implements Index
             if ( seen.contains(id) )
                 continue ;
             seen.add(id) ;
-            HashBucket bucket = hashBucketMgr.get(id) ;
+            HashBucket bucket = hashBucketMgr.getRead(id) ;
             count += bucket.getCount() ;
+            hashBucketMgr.release(bucket) ;
         }
         return count ;
     }
@@ -374,11 +433,20 @@ public final class ExtHash implements Index
     { 
         hashBucketMgr.getBlockMgr().sync() ;
         dictionaryFile.sync() ;
+        if ( changed )
+        {
+            // Only when all the changes are on disk.
+            dictionaryFile.getByteBuffer().putInt(STATE, StateClean) ;
+            dictionaryFile.sync() ;
+            changed = false ;
+        }
     }
 
     @Override
     public void close()
     {
+        if ( changed )
+            sync() ;
         hashBucketMgr.getBlockMgr().close() ;
         dictionaryFile.close() ;
     }
@@ -395,7 +463,8 @@ public final class ExtHash implements Index
         
         HashBucket bucket = hashBucketMgr.get(blockId) ;
         
-        if ( ! bucket.isFull() )
+        // A full bucket can still take a replacement. 
+        if ( ! bucket.isFull() || bucket.find(record) != null )
         {
             if ( Debugging ) log("Insert [(0x%04X) %s]: %d", hash, record, bucket.getId()) ; 
             boolean b = bucket.put(record) ;
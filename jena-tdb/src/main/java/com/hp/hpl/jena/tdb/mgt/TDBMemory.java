@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.Map ;
+
+import com.hp.hpl.jena.tdb.sys.CacheBudget ;
+
+public class TDBMemory implements TDBMemoryMBean
+{
+    @Override
+    public long getBudgetBytes()            { return CacheBudget.budgetBytes() ; }
+    @Override
+    public long getAllocatedBytes()         { return CacheBudget.allocatedBytes() ; }
+    @Override
+    public long getUsedBytes()              { return CacheBudget.usedBytes() ; }
+    @Override
+    public long getMappedBytes()            { return CacheBudget.mappedBytes() ; }
+    @Override
+    public int getCacheCount()              { return CacheBudget.numCaches() ; }
+    @Override
+    public long getRebalanceCount()         { return CacheBudget.numRebalances() ; }
+    @Override
+    public String[] getCaches()             { return CacheBudget.summary().toArray(new String[0]) ; }
+    @Override
+    public void rebalance()                 { CacheBudget.rebalance() ; }
+
+    @Override
+    public String[] getUsageByDataset()
+    {
+        List<String> x = new ArrayList<>() ;
+        for ( Map.Entry<String, Long> e : CacheBudget.usedBytesByGroup().entrySet() )
+            x.add(e.getKey()+" "+e.getValue()) ;
+        return x.toArray(new String[0]) ;
+    }
+}
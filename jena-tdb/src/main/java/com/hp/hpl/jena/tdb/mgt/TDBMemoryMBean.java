@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+/** Memory used by TDB caches and memory mapped files, across all datasets in the JVM.
+ *  Sizes are estimates.
+ *  @see com.hp.hpl.jena.tdb.sys.CacheBudget
+ */
+public interface TDBMemoryMBean
+{
+    /** Shared cache budget in bytes (-1 if there is no shared budget) */
+    public long getBudgetBytes() ;
+
+    /** Bytes the caches may grow to, under their current capacities */
+    public long getAllocatedBytes() ;
+
+    /** Bytes held in caches now */
+    public long getUsedBytes() ;
+
+    /** Bytes of file memory mapped (outside the Java heap) */
+    public long getMappedBytes() ;
+
+    /** Number of caches being accounted for */
+    public int getCacheCount() ;
+
+    /** Number of times the budget has been redistributed */
+    public long getRebalanceCount() ;
+
+    /** Bytes held in caches, per dataset location */
+    public String[] getUsageByDataset() ;
+
+    /** Size, capacity, hits and misses of each cache */
+    public String[] getCaches() ;
+
+    /** Redistribute the budget now */
+    public void rebalance() ;
+}
@@ -18,6 +18,13 @@
 
 package com.hp.hpl.jena.tdb.mgt;
 
+import java.lang.management.ManagementFactory ;
+
+import javax.management.MBeanServer ;
+import javax.management.ObjectName ;
+
+import org.apache.jena.atlas.logging.Log ;
+
 import com.hp.hpl.jena.sparql.mgt.SystemInfo ;
 import com.hp.hpl.jena.tdb.TDB ;
 
@@ -30,4 +37,29 @@ public class TDBMgt
 //        ARQMgt.register(NS+".system:type=SystemInfo", sysInfo) ;
 //        ARQMgt.register(NS+".system2:type=SystemInfo", new TDBSystemInfo()) ; 
     }
+
+    /** Name of the memory accounting MBean */
+    public static final String MemoryMBeanName = TDB.PATH+".system:type=Memory" ;
+
+    private static boolean memoryRegistered = false ;
+
+    /** Register the memory accounting MBean ({@link TDBMemoryMBean}) with the platform MBean server.
+     *  Done automatically when a shared cache budget is in use.
+     *  Silently does nothing if JMX is not available.  
+     */
+    public static synchronized void registerMemory()
+    {
+        if ( memoryRegistered )
+            return ;
+        memoryRegistered = true ;
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer() ;
+            ObjectName objName = new ObjectName(MemoryMBeanName) ;
+            if ( mbs.isRegistered(objName) )
+                mbs.unregisterMBean(objName) ;
+            mbs.registerMBean(new TDBMemory(), objName) ;
+        } catch (Throwable ex) {
+            Log.debug(TDBMgt.class, "Failed to register "+MemoryMBeanName+": "+ex.getMessage()) ;
+        }
+    }
 }
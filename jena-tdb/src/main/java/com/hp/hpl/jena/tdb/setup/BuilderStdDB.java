@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.tdb.setup;
 
 import org.apache.jena.atlas.lib.ColumnMap ;
+import org.apache.jena.atlas.logging.Log ;
 
 import com.hp.hpl.jena.tdb.base.file.FileFactory ;
 import com.hp.hpl.jena.tdb.base.file.FileSet ;
@@ -28,6 +29,7 @@ import com.hp.hpl.jena.tdb.index.Index ;
 import com.hp.hpl.jena.tdb.index.IndexBuilder ;
 import com.hp.hpl.jena.tdb.index.RangeIndex ;
 import com.hp.hpl.jena.tdb.index.RangeIndexBuilder ;
+import com.hp.hpl.jena.tdb.index.ext.ExtHash ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableCache ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableInline ;
@@ -72,12 +74,19 @@ public class BuilderStdDB {
             RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId) ;
             Index idx = indexBuilder.buildIndex(fsIndex, recordFactory, params) ;
             ObjectFile objectFile = objectFileBuilder.buildObjectFile(fsObjectFile, Names.extNodeData) ;
-            NodeTable nodeTable = new NodeTableNative(idx, objectFile) ;
+            NodeTableNative nodeTableNative = new NodeTableNative(idx, objectFile) ;
+            if ( idx instanceof ExtHash && ((ExtHash)idx).isRecoveryNeeded() )
+            {
+                Log.warn(this, "Node table index was not synced after its last changes - rebuilding: "+fsIndex.getBasename()) ;
+                nodeTableNative.rebuildIndex() ;
+            }
+            NodeTable nodeTable = nodeTableNative ;
             nodeTable = NodeTableCache.create(nodeTable, 
                                               params.getNode2NodeIdCacheSize(),
                                               params.getNodeId2NodeCacheSize(),
-                                              params.getNodeMissCacheSize()) ;
-            nodeTable = NodeTableInline.create(nodeTable) ;
+                                              params.getNodeMissCacheSize(),
+                                              fsObjectFile.getLocation().getDirectoryPath()) ;
+            nodeTable = NodeTableInline.create(nodeTable, params.getNodeIdFormat()) ;
             return nodeTable ;
         }
     }
@@ -44,6 +44,8 @@ import com.hp.hpl.jena.tdb.index.IndexBuilder ;
 import com.hp.hpl.jena.tdb.index.IndexParams ;
 import com.hp.hpl.jena.tdb.index.RangeIndexBuilder ;
 import com.hp.hpl.jena.tdb.solver.OpExecutorTDB1 ;
+import com.hp.hpl.jena.tdb.solver.stats.ReorderIncremental ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
 import com.hp.hpl.jena.tdb.store.* ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
@@ -212,7 +214,13 @@ public class DatasetBuilderStd implements DatasetBuilder {
         QuadTable quadTable = makeQuadTable(location, nodeTable, policy, params) ;
         DatasetPrefixesTDB prefixes = makePrefixTable(location, policy, params) ;
 
-        ReorderTransformation transform = (_transform == null) ? chooseReorderTransformation(location) : _transform ;
+        ReorderTransformation transform = _transform ;
+        StatsIncremental stats = null ;
+        if ( transform == null ) {
+            // The base dataset, not a transaction view.
+            stats = StatsIncremental.create(location, nodeTable, tripleTable.getNodeTupleTable(), quadTable.getNodeTupleTable()) ;
+            transform = chooseReorderTransformation(location, stats) ;
+        }
 
         StorageConfig storageConfig = new StorageConfig(location, params, writeable, 
                                                         recorder.blockMgrs, recorder.bufferChannels, recorder.nodeTables) ;
@@ -220,6 +228,7 @@ public class DatasetBuilderStd implements DatasetBuilder {
         recorder.finish() ;
         
         DatasetGraphTDB dsg = new DatasetGraphTDB(tripleTable, quadTable, prefixes, transform, storageConfig) ;
+        dsg.setStatsIncremental(stats) ;
         // TDB does filter placement on BGPs itself.
         dsg.getContext().set(ARQ.optFilterPlacementBGP, false) ;
         QC.setFactory(dsg.getContext(), OpExecutorTDB1.OpExecFactoryTDB) ;
@@ -301,6 +310,14 @@ public class DatasetBuilderStd implements DatasetBuilder {
         return chooseOptimizer(location) ;
     }
 
+    private ReorderTransformation chooseReorderTransformation(Location location, StatsIncremental stats) {
+        if ( stats != null && ! location.exists(Names.optNone) ) {
+            log.debug("Incremental statistics BGP optimizer") ;
+            return new ReorderIncremental(stats) ;
+        }
+        return chooseReorderTransformation(location) ;
+    }
+
     private TupleIndex[] makeTupleIndexes(Location location, String primary, String[] indexNames, StoreParams params) {
         return makeTupleIndexes(location, primary, indexNames, indexNames, params) ;
     }
@@ -61,7 +61,10 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
      */
     
     /*package*/ final Item<Integer>            blockSize ;
+    /*package*/ final Item<String>             indexLeafFormat ;
+    /*package*/ final Item<Integer>            nodeIdFormat ;
     /*package*/ final Item<String>             indexNode2Id ;
+    /*package*/ final Item<String>             indexNode2IdType ;
     /*package*/ final Item<String>             indexId2Node ;
     /*package*/ final Item<String>             primaryIndexTriples ;
     /*package*/ final Item<String[]>           tripleIndexes ;
@@ -85,17 +88,20 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
      */
     public static StoreParamsBuilder builder(StoreParams params) { return StoreParamsBuilder.create(params) ; }
     
-    /*package*/ StoreParams(Item<FileMode> fileMode, Item<Integer> blockSize,
+    /*package*/ StoreParams(Item<FileMode> fileMode, Item<Integer> blockSize, Item<String> indexLeafFormat,
+                            Item<Integer> nodeIdFormat,
                             Item<Integer> blockReadCacheSize, Item<Integer> blockWriteCacheSize,
                             Item<Integer> node2NodeIdCacheSize, Item<Integer> nodeId2NodeCacheSize,
                             Item<Integer> nodeMissCacheSize,
-                            Item<String> indexNode2Id, Item<String> indexId2Node, 
+                            Item<String> indexNode2Id, Item<String> indexNode2IdType, Item<String> indexId2Node, 
                             Item<String> primaryIndexTriples, Item<String[]> tripleIndexes,
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
                             Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes,
                             Item<String> indexPrefix, Item<String> prefixNode2Id, Item<String> prefixId2Node) {
         this.fileMode               = fileMode ;
         this.blockSize              = blockSize ;
+        this.indexLeafFormat        = indexLeafFormat ;
+        this.nodeIdFormat           = nodeIdFormat ;
         this.blockReadCacheSize     = blockReadCacheSize ;
         this.blockWriteCacheSize    = blockWriteCacheSize ;
         this.Node2NodeIdCacheSize   = node2NodeIdCacheSize ;
@@ -103,6 +109,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         this.NodeMissCacheSize      = nodeMissCacheSize ;
 
         this.indexNode2Id           = indexNode2Id ;
+        this.indexNode2IdType       = indexNode2IdType ;
         this.indexId2Node           = indexId2Node ;
         this.primaryIndexTriples    = primaryIndexTriples ;
         this.tripleIndexes          = tripleIndexes ;
@@ -151,6 +158,22 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return blockSize.value ;
     }
 
+    /** Layout of the leaf blocks of the B+Tree indexes: "fixed" (the default) or "compressed".
+     *  Compression applies to the triple, quad and prefix indexes, not the node table index.
+     */
+    @Override
+    public String getIndexLeafFormat() {
+        return indexLeafFormat.value ;
+    }
+
+    /** Which literals are encoded in node ids: 1 (integers, decimals, dates, dateTimes, booleans),
+     *  or 2 (also short strings, short language-tagged strings, doubles and floats).
+     *  Databases created before this setting existed are format 1.
+     */
+    public Integer getNodeIdFormat() {
+        return nodeIdFormat.value ;
+    }
+
     @Override
     public Integer getBlockReadCacheSize() {
         return blockReadCacheSize.value ;
@@ -205,6 +228,14 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return indexNode2Id.value ;
     }
 
+    /** Structure of the node table index (node hash to NodeId): "bplustree" (the default) or "exthash".
+     *  The prefix node table uses the same structure.
+     */
+    @Override
+    public String getIndexNode2IdType() {
+        return indexNode2IdType.value ;
+    }
+
     public String getIndexId2Node() {
         return indexId2Node.value ;
     }
@@ -250,6 +281,8 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         StringBuilder buff = new StringBuilder() ;
         fmt(buff, "fileMode", getFileMode().toString(), fileMode.isSet) ;
         fmt(buff, "blockSize", getBlockSize(), blockSize.isSet) ;
+        fmt(buff, "indexLeafFormat", getIndexLeafFormat(), indexLeafFormat.isSet) ;
+        fmt(buff, "nodeIdFormat", getNodeIdFormat(), nodeIdFormat.isSet) ;
         fmt(buff, "readCacheSize", getBlockReadCacheSize(), blockReadCacheSize.isSet) ;
         fmt(buff, "writeCacheSize", getBlockWriteCacheSize(), blockWriteCacheSize.isSet) ;
         fmt(buff, "Node2NodeIdCacheSize", getNode2NodeIdCacheSize(), Node2NodeIdCacheSize.isSet) ;
@@ -257,6 +290,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "NodeMissCacheSize", getNodeMissCacheSize(), NodeMissCacheSize.isSet) ;
 
         fmt(buff, "indexNode2Id", getIndexNode2Id(), indexNode2Id.isSet) ;
+        fmt(buff, "indexNode2IdType", getIndexNode2IdType(), indexNode2IdType.isSet) ;
         fmt(buff, "indexId2Node", getIndexId2Node(), indexId2Node.isSet) ;
         fmt(buff, "primaryIndexTriples", getPrimaryIndexTriples(), primaryIndexTriples.isSet) ;
         fmt(buff, "tripleIndexes", getTripleIndexes(), tripleIndexes.isSet) ;
@@ -305,7 +339,10 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((blockWriteCacheSize == null) ? 0 : blockWriteCacheSize.hashCode()) ;
         result = prime * result + ((fileMode == null) ? 0 : fileMode.hashCode()) ;
         result = prime * result + ((indexId2Node == null) ? 0 : indexId2Node.hashCode()) ;
+        result = prime * result + ((indexLeafFormat == null) ? 0 : indexLeafFormat.hashCode()) ;
         result = prime * result + ((indexNode2Id == null) ? 0 : indexNode2Id.hashCode()) ;
+        result = prime * result + ((indexNode2IdType == null) ? 0 : indexNode2IdType.hashCode()) ;
+        result = prime * result + ((nodeIdFormat == null) ? 0 : nodeIdFormat.hashCode()) ;
         result = prime * result + ((indexPrefix == null) ? 0 : indexPrefix.hashCode()) ;
         result = prime * result + ((prefixId2Node == null) ? 0 : prefixId2Node.hashCode()) ;
         result = prime * result + ((prefixIndexes == null) ? 0 : prefixIndexes.hashCode()) ;
@@ -340,8 +377,14 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false ;
         if ( !sameValues(params1.blockSize, params2.blockSize) )
             return false ;
+        if ( !sameValues(params1.indexLeafFormat, params2.indexLeafFormat) )
+            return false ;
+        if ( !sameValues(params1.nodeIdFormat, params2.nodeIdFormat) )
+            return false ;
         if ( !sameValues(params1.indexNode2Id, params2.indexNode2Id) )
             return false ;
+        if ( !sameValues(params1.indexNode2IdType, params2.indexNode2IdType) )
+            return false ;
         if ( !sameValues(params1.indexId2Node, params2.indexId2Node) )
             return false ;
         if ( !sameValues(params1.primaryIndexTriples, params2.primaryIndexTriples) )
@@ -423,11 +466,26 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !indexNode2Id.equals(other.indexNode2Id) )
             return false ;
+        if ( indexNode2IdType == null ) {
+            if ( other.indexNode2IdType != null )
+                return false ;
+        } else if ( !indexNode2IdType.equals(other.indexNode2IdType) )
+            return false ;
         if ( indexPrefix == null ) {
             if ( other.indexPrefix != null )
                 return false ;
         } else if ( !indexPrefix.equals(other.indexPrefix) )
             return false ;
+        if ( indexLeafFormat == null ) {
+            if ( other.indexLeafFormat != null )
+                return false ;
+        } else if ( !indexLeafFormat.equals(other.indexLeafFormat) )
+            return false ;
+        if ( nodeIdFormat == null ) {
+            if ( other.nodeIdFormat != null )
+                return false ;
+        } else if ( !nodeIdFormat.equals(other.nodeIdFormat) )
+            return false ;
         if ( prefixId2Node == null ) {
             if ( other.prefixId2Node != null )
                 return false ;
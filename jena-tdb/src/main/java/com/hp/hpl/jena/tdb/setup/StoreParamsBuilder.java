@@ -77,9 +77,13 @@ public class StoreParamsBuilder {
     /** Database layout - ignored after a database is created */
 
     private Item<Integer>            blockSize             = new Item<>(StoreParamsConst.blockSize, false) ;
+    private Item<String>             indexLeafFormat       = new Item<>(StoreParamsConst.indexLeafFormat, false) ;
+    private Item<Integer>            nodeIdFormat          = new Item<>(StoreParamsConst.nodeIdFormat, false) ;
 
     private Item<String>             indexNode2Id          = new Item<>(StoreParamsConst.indexNode2Id, false) ;
 
+    private Item<String>             indexNode2IdType      = new Item<>(StoreParamsConst.indexNode2IdType, false) ;
+
     private Item<String>             indexId2Node          = new Item<>(StoreParamsConst.indexId2Node, false) ;
 
     private Item<String>             primaryIndexTriples   = new Item<>(StoreParamsConst.primaryIndexTriples, false) ;
@@ -146,6 +150,8 @@ public class StoreParamsBuilder {
     private StoreParamsBuilder(StoreParams other) {
         this.fileMode               = other.fileMode ;
         this.blockSize              = other.blockSize ;
+        this.indexLeafFormat        = other.indexLeafFormat ;
+        this.nodeIdFormat           = other.nodeIdFormat ;
         this.blockReadCacheSize     = other.blockReadCacheSize ; 
         this.blockWriteCacheSize    = other.blockWriteCacheSize ; 
         this.Node2NodeIdCacheSize   = other.Node2NodeIdCacheSize ; 
@@ -153,6 +159,7 @@ public class StoreParamsBuilder {
         this.NodeMissCacheSize      = other.NodeMissCacheSize ; 
 
         this.indexNode2Id           = other.indexNode2Id ; 
+        this.indexNode2IdType       = other.indexNode2IdType ; 
         this.indexId2Node           = other.indexId2Node ; 
         
         this.primaryIndexTriples    = other.primaryIndexTriples ; 
@@ -171,9 +178,9 @@ public class StoreParamsBuilder {
     
     public StoreParams build() {
         return new StoreParams(
-                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize, 
+                 fileMode, blockSize, indexLeafFormat, nodeIdFormat, blockReadCacheSize, blockWriteCacheSize, 
                  Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize,
-                 indexNode2Id, indexId2Node, primaryIndexTriples, tripleIndexes,
+                 indexNode2Id, indexNode2IdType, indexId2Node, primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes, primaryIndexPrefix,
                  prefixIndexes, indexPrefix,
                  prefixNode2Id, prefixId2Node) ;
@@ -197,6 +204,24 @@ public class StoreParamsBuilder {
         return this ;
     }
 
+    public String getIndexLeafFormat() {
+        return indexLeafFormat.value ;
+    }
+
+    public StoreParamsBuilder indexLeafFormat(String indexLeafFormat) {
+        this.indexLeafFormat = new Item<>(indexLeafFormat, true) ;
+        return this ;
+    }
+
+    public int getNodeIdFormat() {
+        return nodeIdFormat.value ;
+    }
+
+    public StoreParamsBuilder nodeIdFormat(int nodeIdFormat) {
+        this.nodeIdFormat = new Item<>(nodeIdFormat, true) ;
+        return this ;
+    }
+
     public int getBlockReadCacheSize() {
         return blockReadCacheSize.value ;
     }
@@ -251,6 +276,15 @@ public class StoreParamsBuilder {
        return this ;
    }
 
+    public String getIndexNode2IdType() {
+        return indexNode2IdType.value ;
+    }
+
+   public StoreParamsBuilder indexNode2IdType(String indexNode2IdType) {
+       this.indexNode2IdType = new Item<>(indexNode2IdType, true) ;
+       return this ;
+   }
+
     public String getIndexId2Node() {
         return indexId2Node.value ;
     }
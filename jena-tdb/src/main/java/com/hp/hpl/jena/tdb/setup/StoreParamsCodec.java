@@ -24,9 +24,12 @@ import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fBlockSize ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fBlockWriteCacheSize ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fFileMode ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fIndexId2Node ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fIndexLeafFormat ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fIndexNode2Id ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fIndexNode2IdType ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fIndexPrefix ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNode2NodeIdCacheSize ;
+import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNodeIdFormat ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNodeId2NodeCacheSize ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fNodeMissCacheSize ;
 import static com.hp.hpl.jena.tdb.setup.StoreParamsConst.fPrefixId2Node ;
@@ -96,12 +99,15 @@ public class StoreParamsCodec {
         
         encode(builder, key(fFileMode),                 params.getFileMode().name()) ;
         encode(builder, key(fBlockSize),                params.getBlockSize()) ;
+        encode(builder, key(fIndexLeafFormat),          params.getIndexLeafFormat()) ;
+        encode(builder, key(fNodeIdFormat),             params.getNodeIdFormat()) ;
         encode(builder, key(fBlockReadCacheSize),       params.getBlockReadCacheSize()) ;
         encode(builder, key(fBlockWriteCacheSize),      params.getBlockWriteCacheSize()) ;
         encode(builder, key(fNode2NodeIdCacheSize),     params.getNode2NodeIdCacheSize()) ;
         encode(builder, key(fNodeId2NodeCacheSize),     params.getNodeId2NodeCacheSize()) ;
         encode(builder, key(fNodeMissCacheSize),        params.getNodeMissCacheSize()) ;
         encode(builder, key(fIndexNode2Id),             params.getIndexNode2Id()) ;
+        encode(builder, key(fIndexNode2IdType),         params.getIndexNode2IdType()) ;
         encode(builder, key(fIndexId2Node),             params.getIndexId2Node()) ;
         encode(builder, key(fPrimaryIndexTriples),      params.getPrimaryIndexTriples()) ;
         encode(builder, key(fTripleIndexes),            params.getTripleIndexes()) ;
@@ -139,12 +145,15 @@ public class StoreParamsCodec {
             switch(short_key) {
                 case fFileMode :               builder.fileMode(FileMode.valueOf(getString(json, key))) ;   break ;
                 case fBlockSize:               builder.blockSize(getInt(json, key)) ;                       break ;
+                case fIndexLeafFormat:         builder.indexLeafFormat(getString(json, key)) ;              break ;
+                case fNodeIdFormat:            builder.nodeIdFormat(getInt(json, key)) ;                    break ;
                 case fBlockReadCacheSize:      builder.blockReadCacheSize(getInt(json, key)) ;              break ;
                 case fBlockWriteCacheSize:     builder.blockWriteCacheSize(getInt(json, key)) ;             break ;
                 case fNode2NodeIdCacheSize:    builder.node2NodeIdCacheSize(getInt(json, key)) ;            break ;
                 case fNodeId2NodeCacheSize:    builder.nodeId2NodeCacheSize(getInt(json, key)) ;            break ;
                 case fNodeMissCacheSize:       builder.nodeMissCacheSize(getInt(json, key)) ;               break ;
                 case fIndexNode2Id:            builder.indexNode2Id(getString(json, key)) ;                 break ;
+                case fIndexNode2IdType:        builder.indexNode2IdType(getString(json, key)) ;             break ;
                 case fIndexId2Node:            builder.indexId2Node(getString(json, key)) ;                 break ;
                 case fPrimaryIndexTriples:     builder.primaryIndexTriples(getString(json, key)) ;          break ;
                 case fTripleIndexes:           builder.tripleIndexes(getStringArray(json, key)) ;           break ;
@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.tdb.setup;
 
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.sys.Names ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
@@ -55,9 +56,22 @@ public class StoreParamsConst {
     public static final String   fBlockSize            = "block_size" ;
     public static final int      blockSize             = SystemTDB.BlockSize ;
     
+    public static final String   fIndexLeafFormat      = "index_leaf_format" ;
+    public static final String   leafFormatFixed       = "fixed" ;
+    public static final String   leafFormatCompressed  = "compressed" ;
+    public static final String   indexLeafFormat       = leafFormatFixed ;
+    
+    public static final String   fNodeIdFormat         = "node_id_format" ;
+    public static final int      nodeIdFormat          = NodeId.FORMAT_1 ;
+    
     public static final String   fIndexNode2Id         = "index_node2id" ;
     public static final String   indexNode2Id          = Names.indexNode2Id ;
     
+    public static final String   fIndexNode2IdType     = "index_node2id_type" ;
+    public static final String   indexTypeBPlusTree    = "bplustree" ;
+    public static final String   indexTypeExtHash      = "exthash" ;
+    public static final String   indexNode2IdType      = indexTypeBPlusTree ;
+    
     public static final String   fIndexId2Node         = "index_id2node" ;
     public static final String   indexId2Node          = Names.indexId2Node ;
     
@@ -34,18 +34,21 @@ import com.hp.hpl.jena.sparql.core.BasicPattern ;
 import com.hp.hpl.jena.sparql.core.Quad ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryBudget ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterNullIterator ;
 import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.recordbuffer.RecordRangeIterator ;
 import com.hp.hpl.jena.tdb.lib.NodeLib ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.store.GraphTDB ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 import com.hp.hpl.jena.tdb.sys.TDBInternal ;
 
 /** Utilities used within the TDB BGP solver : local TDB store */
@@ -200,15 +203,107 @@ public class SolverLib
         }
     }
     
+    /** The resource budget of the query being executed, or null. */
+    static QueryBudget budget(ExecutionContext execCxt)
+    {
+        if ( execCxt == null )
+            return null ;
+        return QueryBudget.get(execCxt.getContext()) ;
+    }
+    
+    /** Find matching tuples, charging the tuples scanned and the index blocks read
+     *  to the query budget, if there is one.  The filter, if not null, is applied
+     *  to the tuples found.
+     *  <p>
+     *  If anyGraph is true, the matches are from the union of the named graphs,
+     *  each returned once with the graph slot set to {@link NodeId#NodeIdAny}
+     *  (see {@link NodeTupleTable#findUnion}).
+     */
+    static Iterator<Tuple<NodeId>> find(NodeTupleTable nodeTupleTable, Tuple<NodeId> pattern, boolean anyGraph,
+                                        Filter<Tuple<NodeId>> filter, QueryBudget budget)
+    {
+        long blocks = ( budget == null ) ? 0 : RecordRangeIterator.pagesReadThisThread() ;
+        Iterator<Tuple<NodeId>> iter ;
+        if ( anyGraph )
+            // Filtered before the graph slot is dropped.  Tuples are counted
+            // after duplicates are removed.
+            iter = nodeTupleTable.findUnion(pattern, filter) ;
+        else
+            iter = nodeTupleTable.find(pattern) ;
+        if ( budget != null )
+        {
+            budget.addBlocks(RecordRangeIterator.pagesReadThisThread()-blocks) ;
+            iter = new IterBudget<>(iter, budget) ;
+        }
+        if ( ! anyGraph && filter != null )
+            iter = Iter.filter(iter, filter) ;
+        return iter ;
+    }
+    
+    /** Iterator over an index scan that charges each item, and the blocks
+     *  read to get it, to a query budget.  Going over the budget throws
+     *  {@link com.hp.hpl.jena.query.QueryBudgetExceededException}, 
+     *  a {@link QueryCancelledException}, as an aborted {@link IterAbortable} does.
+     */
+    static class IterBudget<T> extends IteratorWrapper<T>
+    {
+        private final QueryBudget budget ;
+        
+        public IterBudget(Iterator<T> iterator, QueryBudget budget)
+        {
+            super(iterator) ;
+            this.budget = budget ;
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            long blocks = RecordRangeIterator.pagesReadThisThread() ;
+            boolean b = iterator.hasNext() ;
+            long x = RecordRangeIterator.pagesReadThisThread()-blocks ;
+            if ( x > 0 )
+                budget.addBlocks(x) ;
+            return b ;
+        }
+        
+        @Override
+        public T next()
+        {
+            T item = iterator.next() ;
+            budget.addTuples(1) ;
+            return item ;
+        }
+    }
+    
     public static Iterator<BindingNodeId> solve(NodeTupleTable nodeTupleTable, 
                                                 Tuple<Node> tuple,
                                                 boolean anyGraph,
                                                 Iterator<BindingNodeId> chain, Filter<Tuple<NodeId>> filter,
                                                 ExecutionContext execCxt)
     {
+        int batchSize = batchSize(execCxt) ;
+        if ( batchSize > 1 )
+            return new StageMatchTupleBatched(nodeTupleTable, chain, tuple, anyGraph, filter, batchSize, execCxt) ;
         return new StageMatchTuple(nodeTupleTable, chain, tuple, anyGraph, filter, execCxt) ;
     }
     
+    /** The block size for batched lookups, from {@link SystemTDB#symMatchBatchSize}; 0 means not batched. */
+    private static int batchSize(ExecutionContext execCxt)
+    {
+        if ( execCxt == null || execCxt.getContext() == null )
+            return 0 ;
+        Object x = execCxt.getContext().get(SystemTDB.symMatchBatchSize) ;
+        if ( x == null )
+            return 0 ;
+        if ( x instanceof Number )
+            return ((Number)x).intValue() ;
+        try { return Integer.parseInt(x.toString().trim()) ; }
+        catch (NumberFormatException ex) {
+            log.warn("Not an integer for "+SystemTDB.symMatchBatchSize+": "+x) ;
+            return 0 ;
+        }
+    }
+    
     // Transform : BindingNodeId ==> Binding
     private static Transform<BindingNodeId, Binding> convToBinding(final NodeTable nodeTable) {
         return new Transform<BindingNodeId, Binding>() {
@@ -305,10 +400,8 @@ public class SolverLib
     public static QueryIterator graphNames(DatasetGraphTDB ds, Node graphNode, QueryIterator input,
                                            Filter<Tuple<NodeId>> filter, ExecutionContext execCxt) {
         List<Abortable> killList = new ArrayList<>() ;
-        Iterator<Tuple<NodeId>> iter1 = ds.getQuadTable().getNodeTupleTable().find(NodeId.NodeIdAny, NodeId.NodeIdAny,
-                                                                                   NodeId.NodeIdAny, NodeId.NodeIdAny) ;
-        if ( filter != null )
-            iter1 = Iter.filter(iter1, filter) ;
+        Tuple<NodeId> all = Tuple.createTuple(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny) ;
+        Iterator<Tuple<NodeId>> iter1 = find(ds.getQuadTable().getNodeTupleTable(), all, false, filter, budget(execCxt)) ;
 
         Iterator<NodeId> iter2 = Tuple.project(0, iter1) ;
         // Project is cheap - don't brother wrapping iter1
@@ -351,24 +444,7 @@ public class SolverLib
 
     public static Iterator<Tuple<NodeId>> unionGraph(NodeTupleTable ntt)
     {
-        Iterator<Tuple<NodeId>> iter = ntt.find((NodeId)null, null, null, null) ;
-        iter = Iter.operate(iter, quadsToAnyTriples) ;
-        //iterMatches = Iter.distinct(iterMatches) ;
-        
-        // This depends on the way indexes are choose and
-        // the indexing pattern. It assumes that the index 
-        // chosen ends in G so same triples are adjacent 
-        // in a union query.
-        /// See TupleTable.scanAllIndex that ensures this.
-        iter = Iter.distinctAdjacent(iter) ;
-        return iter ;
+        Tuple<NodeId> all = Tuple.createTuple(NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny, NodeId.NodeIdAny) ;
+        return ntt.findUnion(all, null) ;
     }
-    
-    // -- Mutating "transform in place"
-    private static Action<Tuple<NodeId>> quadsToAnyTriples = new Action<Tuple<NodeId>>(){
-        @Override
-        public void apply(Tuple<NodeId> item)
-        { item.tuple()[0] = NodeId.NodeIdAny ; }
-    } ;
-
 }
@@ -28,6 +28,7 @@ import org.apache.jena.atlas.lib.Tuple ;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.QueryBudget ;
 import com.hp.hpl.jena.tdb.store.NodeId;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
@@ -38,6 +39,7 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
     private final Tuple<Node> patternTuple ;
 
     private final ExecutionContext execCxt ;
+    private final QueryBudget budget ;
     private boolean anyGraphs ;
     private Filter<Tuple<NodeId>> filter ;
 
@@ -51,6 +53,7 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
         this.nodeTupleTable = nodeTupleTable ; 
         this.patternTuple = tuple ;
         this.execCxt = execCxt ;
+        this.budget = SolverLib.budget(execCxt) ;
         this.anyGraphs = anyGraphs ; 
     }
 
@@ -86,37 +89,18 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
 
         prepare(nodeTupleTable.getNodeTable(), patternTuple, input, ids, var) ;
         
-        Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(Tuple.create(ids)) ;  
-        
-        // ** Allow a triple or quad filter here.
-        if ( filter != null )
-            iterMatches = Iter.filter(iterMatches, filter) ;
-        
-        // If we want to reduce to RDF semantics over quads,
-        // we need to reduce the quads to unique triples. 
-        // We do that by having the graph slot as "any", then running
-        // through a distinct-ifier. 
-        // Assumes quads are GSPO - zaps the first slot.
-        // Assumes that tuples are not shared.
-        if ( anyGraphs )
-        {
-            iterMatches = Iter.operate(iterMatches, quadsToAnyTriples) ;
-            //Guaranteed 
-            //iterMatches = Iter.distinct(iterMatches) ;
-            
-            // This depends on the way indexes are chosen and
-            // the indexing pattern. It assumes that the index 
-            // chosen ends in G so same triples are adjacent 
-            // in a union query.
-            // 
-            // If any slot is defined, then the index will be X??G.
-            // If no slot is defined, then the index will be ???G.
-            // But the  TupleTable
-            //  See TupleTable.scanAllIndex that ensures the latter.
-            //  No G part way through.
-            iterMatches = Iter.distinctAdjacent(iterMatches) ;
-        }
-        
+        Iterator<Tuple<NodeId>> iterMatches = SolverLib.find(nodeTupleTable, Tuple.create(ids), anyGraphs, filter, budget) ;  
+        return bindMatches(iterMatches, input, var) ;
+    }
+    
+    /** Turn the matches for a prepared pattern into the output bindings for one input binding.
+     *  Shared with {@link StageMatchTupleBatched}.
+     *  <p>
+     *  For the union of named graphs, the matches have already been reduced to
+     *  unique triples (graph slot "any") by {@link SolverLib#find}.
+     */
+    static Iterator<BindingNodeId> bindMatches(Iterator<Tuple<NodeId>> iterMatches, final BindingNodeId input, final Var[] var)
+    {
         // Map Tuple<NodeId> to BindingNodeId
         Transform<Tuple<NodeId>, BindingNodeId> binder = new Transform<Tuple<NodeId>, BindingNodeId>()
         {
@@ -201,11 +185,4 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
         // May return NodeId.NodeDoesNotExist which must not be null. 
         return nodeTable.getNodeIdForNode(node) ;
     }
-    
-    // -- Mutating "transform in place"
-    private static Action<Tuple<NodeId>> quadsToAnyTriples = new Action<Tuple<NodeId>>(){
-        @Override
-        public void apply(Tuple<NodeId> item)
-        { item.tuple()[0] = NodeId.NodeIdAny ; }
-    } ;
 }
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.* ;
+
+import org.apache.jena.atlas.iterator.Filter ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.ColumnMap ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryBudget ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleTable ;
+
+/** Block-at-a-time version of {@link StageMatchTuple}.
+ * <p>
+ * A block of input bindings is read, each is substituted into the pattern
+ * and the resulting probe tuples are sorted so the index lookups are made
+ * in key order. Consecutive lookups then descend the B+Tree along much the
+ * same path and land on the same, or the next, leaf blocks, which are
+ * already in the block cache. Inputs with the same probe share one lookup.
+ * <p>
+ * Output is grouped by probe, not by the order of the input bindings.
+ */
+public class StageMatchTupleBatched implements Iterator<BindingNodeId>, Closeable
+{
+    private final NodeTupleTable nodeTupleTable ;
+    private final Tuple<Node> patternTuple ;
+    private final Iterator<BindingNodeId> input ;
+    private final int blockSize ;
+    private final boolean anyGraphs ;
+    private final Filter<Tuple<NodeId>> filter ;
+    private final ExecutionContext execCxt ;
+    private final QueryBudget budget ;
+
+    // Current block of probes, sorted, and the position in it.
+    private List<Probe> block = null ;
+    private int blockIdx = 0 ;
+    // Results for the current probe, shared by all inputs with that probe.
+    private List<Tuple<NodeId>> probeMatches = null ;
+    private int inputIdx = 0 ;
+    private Iterator<BindingNodeId> current = null ;
+    private boolean finished = false ;
+
+    public StageMatchTupleBatched(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                                  Tuple<Node> tuple, boolean anyGraphs,
+                                  Filter<Tuple<NodeId>> filter,
+                                  int blockSize,
+                                  ExecutionContext execCxt)
+    {
+        this.nodeTupleTable = nodeTupleTable ;
+        this.input = input ;
+        this.patternTuple = tuple ;
+        this.anyGraphs = anyGraphs ;
+        this.filter = filter ;
+        this.blockSize = blockSize ;
+        this.execCxt = execCxt ;
+        this.budget = SolverLib.budget(execCxt) ;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( finished )
+            return false ;
+        for ( ;; )
+        {
+            if ( current != null && current.hasNext() )
+                return true ;
+            current = nextStage() ;
+            if ( current == null )
+            {
+                finished = true ;
+                return false ;
+            }
+        }
+    }
+
+    @Override
+    public BindingNodeId next()
+    {
+        if ( ! hasNext() )
+            throw new NoSuchElementException(Utils.className(this)+".next()/finished") ;
+        return current.next() ;
+    }
+
+    @Override
+    public void remove()
+    { throw new UnsupportedOperationException() ; }
+
+    @Override
+    public void close()
+    {
+        Iter.close(input) ;
+    }
+
+    /** The iterator of results for the next input binding, or null when all input is used */
+    private Iterator<BindingNodeId> nextStage()
+    {
+        for ( ;; )
+        {
+            if ( block != null && blockIdx < block.size() )
+            {
+                Probe probe = block.get(blockIdx) ;
+                if ( inputIdx < probe.inputs.size() )
+                    return stage(probe, inputIdx++) ;
+                blockIdx++ ;
+                inputIdx = 0 ;
+                probeMatches = null ;
+                continue ;
+            }
+            if ( ! fillBlock() )
+                return null ;
+        }
+    }
+
+    private Iterator<BindingNodeId> stage(Probe probe, int idx)
+    {
+        BindingNodeId binding = probe.inputs.get(idx) ;
+        if ( probe.inputs.size() == 1 )
+            // No sharing - stream the matches.
+            return StageMatchTuple.bindMatches(SolverLib.find(nodeTupleTable, probe.ids, anyGraphs, filter, budget), binding, probe.vars) ;
+        if ( probeMatches == null )
+            probeMatches = Iter.toList(SolverLib.find(nodeTupleTable, probe.ids, anyGraphs, filter, budget)) ;
+        return StageMatchTuple.bindMatches(probeMatches.iterator(), binding, probe.vars) ;
+    }
+
+    /** Read the next block of input bindings, group them by probe tuple and sort the probes. */
+    private boolean fillBlock()
+    {
+        if ( ! input.hasNext() )
+            return false ;
+        Map<Tuple<NodeId>, Probe> probes = new HashMap<>() ;
+        int N = patternTuple.size() ;
+        for ( int i = 0 ; i < blockSize && input.hasNext() ; i++ )
+        {
+            BindingNodeId binding = input.next() ;
+            NodeId ids[] = new NodeId[N] ;
+            Var[] var = new Var[N] ;
+            StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternTuple, binding, ids, var) ;
+            Tuple<NodeId> key = Tuple.create(ids) ;
+            Probe probe = probes.get(key) ;
+            // Same probe ids implies the same unbound variables.
+            if ( probe == null )
+            {
+                probe = new Probe(key, var) ;
+                probes.put(key, probe) ;
+            }
+            probe.inputs.add(binding) ;
+        }
+        block = new ArrayList<>(probes.values()) ;
+        Collections.sort(block, new ProbeOrder(lookupOrder(block.get(0).ids))) ;
+        blockIdx = 0 ;
+        inputIdx = 0 ;
+        probeMatches = null ;
+        return true ;
+    }
+
+    private static class Probe
+    {
+        final Tuple<NodeId> ids ;
+        final Var[] vars ;
+        final List<BindingNodeId> inputs = new ArrayList<>(2) ;
+
+        Probe(Tuple<NodeId> ids, Var[] vars)
+        {
+            this.ids = ids ;
+            this.vars = vars ;
+        }
+    }
+
+    /** The column order of the index the tuple table will use for a probe, or null for a scan. */
+    private ColumnMap lookupOrder(Tuple<NodeId> ids)
+    {
+        TupleTable table = nodeTupleTable.getTupleTable() ;
+        boolean bound = false ;
+        for ( int i = ( anyGraphs ? 1 : 0 ) ; i < ids.size() ; i++ )
+            bound = bound || ! NodeId.isAny(ids.get(i)) ;
+        if ( ! bound )
+            return null ;
+        TupleIndex index = anyGraphs ? table.chooseIndexUnion(ids) : table.chooseIndex(ids) ;
+        return index.getColumnMap() ;
+    }
+
+    /** Sort probes column by column of the index used for the lookups, in natural order,
+     * unbound slots first. The index is the one chosen for the first probe of the block;
+     * for a block where the same slots are bound (the usual case) it is the index used
+     * for every probe, so the lookups are made in key order.
+     */
+    private static class ProbeOrder implements Comparator<Probe>
+    {
+        private final ColumnMap colMap ;
+
+        ProbeOrder(ColumnMap colMap) { this.colMap = colMap ; }
+
+        @Override
+        public int compare(Probe p1, Probe p2)
+        {
+            Tuple<NodeId> t1 = p1.ids ;
+            Tuple<NodeId> t2 = p2.ids ;
+            for ( int i = 0 ; i < t1.size() ; i++ )
+            {
+                int slot = ( colMap == null ) ? i : colMap.fetchSlotIdx(i) ;
+                NodeId x1 = t1.get(slot) ;
+                NodeId x2 = t2.get(slot) ;
+                long v1 = NodeId.isAny(x1) ? Long.MIN_VALUE : x1.getId() ;
+                long v2 = NodeId.isAny(x2) ? Long.MIN_VALUE : x2.getId() ;
+                if ( v1 != v2 )
+                    return v1 < v2 ? -1 : 1 ;
+            }
+            return 0 ;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.solver.stats;
+
+import java.util.Arrays ;
+
+/** Count-min sketch : approximate counts of keys (longs) in fixed space.
+ *  Estimates are never less than the true count, provided removals
+ *  (negative increments) are only of keys that were added. 
+ */
+public final class CountMinSketch
+{
+    private final int depth ;
+    private final int width ;
+    private final long[] counts ;
+    
+    /** @param depth Number of hash functions
+     *  @param width Counters per hash function (a power of two)
+     */
+    public CountMinSketch(int depth, int width)
+    {
+        if ( depth < 1 || width < 1 || Integer.bitCount(width) != 1 )
+            throw new IllegalArgumentException("CountMinSketch: bad dimensions: "+depth+"x"+width) ;
+        this.depth = depth ;
+        this.width = width ;
+        this.counts = new long[depth*width] ;
+    }
+    
+    public void add(long key, long delta)
+    {
+        for ( int i = 0 ; i < depth ; i++ )
+            counts[slot(i, key)] += delta ;
+    }
+    
+    public long estimate(long key)
+    {
+        long x = Long.MAX_VALUE ;
+        for ( int i = 0 ; i < depth ; i++ )
+            x = Math.min(x, counts[slot(i, key)]) ;
+        return Math.max(0, x) ;
+    }
+    
+    /** Add the counts of another sketch of the same dimensions. */
+    public void merge(CountMinSketch other)
+    {
+        if ( other.depth != depth || other.width != width )
+            throw new IllegalArgumentException("CountMinSketch: different dimensions") ;
+        for ( int i = 0 ; i < counts.length ; i++ )
+            counts[i] += other.counts[i] ;
+    }
+    
+    public void clear()
+    {
+        Arrays.fill(counts, 0) ;
+    }
+
+    public int getDepth()       { return depth ; }
+    public int getWidth()       { return width ; }
+    
+    /** The counters, row by row - for saving and restoring the sketch. */
+    public long[] counts()      { return counts ; }
+
+    private int slot(int row, long key)
+    {
+        long h = HyperLogLog.hash(key + row*0x9e3779b97f4a7c15L) ;
+        return row*width + (int)(h & (width-1)) ;
+    }
+}
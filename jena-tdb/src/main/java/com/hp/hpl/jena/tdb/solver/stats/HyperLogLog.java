@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.solver.stats;
+
+import java.util.Arrays ;
+
+/** HyperLogLog estimator of the number of distinct values (longs) seen.
+ *  Estimators can be merged; values can not be removed.
+ */
+public final class HyperLogLog
+{
+    private final int precision ;
+    private final byte[] registers ;
+    
+    /** @param precision Number of bits of the hash used to choose a register (4 to 16) : 
+     * the standard error is about 1.04/sqrt(2^precision). */
+    public HyperLogLog(int precision)
+    {
+        if ( precision < 4 || precision > 16 )
+            throw new IllegalArgumentException("HyperLogLog: precision must be 4 to 16: "+precision) ;
+        this.precision = precision ;
+        this.registers = new byte[1<<precision] ;
+    }
+    
+    public void add(long value)
+    {
+        long h = hash(value) ;
+        int idx = (int)(h >>> (64-precision)) ;
+        long w = h << precision ;
+        int rho = ( w == 0 ) ? 64-precision+1 : Long.numberOfLeadingZeros(w)+1 ;
+        if ( rho > registers[idx] )
+            registers[idx] = (byte)rho ;
+    }
+    
+    public long estimate()
+    {
+        int m = registers.length ;
+        double sum = 0 ;
+        int zeros = 0 ;
+        for ( byte r : registers )
+        {
+            sum += 1.0 / (1L << r) ;
+            if ( r == 0 )
+                zeros++ ;
+        }
+        double alpha = 0.7213/(1+1.079/m) ;
+        double estimate = alpha*m*m/sum ;
+        if ( estimate <= 2.5*m && zeros > 0 )
+            // Small range : linear counting.
+            estimate = m*Math.log((double)m/zeros) ;
+        return Math.round(estimate) ;
+    }
+    
+    /** Add all the values seen by another estimator of the same precision. */
+    public void merge(HyperLogLog other)
+    {
+        if ( other.precision != precision )
+            throw new IllegalArgumentException("HyperLogLog: different precisions: "+precision+"/"+other.precision) ;
+        for ( int i = 0 ; i < registers.length ; i++ )
+        {
+            if ( other.registers[i] > registers[i] )
+                registers[i] = other.registers[i] ;
+        }
+    }
+    
+    public void clear()
+    {
+        Arrays.fill(registers, (byte)0) ;
+    }
+    
+    public int getPrecision()   { return precision ; }
+    
+    /** The registers - for saving and restoring the estimator. */
+    public byte[] registers()   { return registers ; }
+    
+    /** Mix the bits of a long (MurmurHash3 finalizer). */
+    static long hash(long x)
+    {
+        x ^= x >>> 33 ;
+        x *= 0xff51afd7ed558ccdL ;
+        x ^= x >>> 33 ;
+        x *= 0xc4ceb9fe1a85ec53L ;
+        x ^= x >>> 33 ;
+        return x ;
+    }
+}
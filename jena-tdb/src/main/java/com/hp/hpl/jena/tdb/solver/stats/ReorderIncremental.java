@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.solver.stats;
+
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.PatternTriple ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformationSubstitution ;
+
+/** Reorder basic graph patterns using statistics that are kept up to date as the data changes. 
+ * @see StatsIncremental 
+ */
+public class ReorderIncremental extends ReorderTransformationSubstitution
+{
+    private final StatsIncremental stats ;
+    
+    public ReorderIncremental(StatsIncremental stats)
+    {
+        this.stats = stats ;
+    }
+
+    @Override
+    protected double weight(PatternTriple pTriple)
+    {
+        return stats.matcher().match(pTriple) ;
+    }
+}
@@ -0,0 +1,591 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.solver.stats;
+
+import static com.hp.hpl.jena.sparql.sse.Item.addPair ;
+import static com.hp.hpl.jena.sparql.sse.Item.createTagged ;
+
+import java.io.* ;
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.Tuple ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.engine.optimizer.StatsMatcher ;
+import com.hp.hpl.jena.sparql.graph.NodeConst ;
+import com.hp.hpl.jena.sparql.sse.Item ;
+import com.hp.hpl.jena.sparql.sse.ItemList ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** Statistics for the BGP optimizer, kept up to date as triples and quads are added and deleted.
+ * <ul>
+ * <li>the number of triples and quads, and the number for each predicate.</li>
+ * <li>the number of distinct subjects and of distinct objects for each predicate (HyperLogLog).</li>
+ * <li>the number of instances of each class (rdf:type).</li>
+ * <li>the most frequent objects of each predicate (count-min sketch).</li>
+ * </ul>
+ * Distinct counts do not go down when data is deleted.
+ * <p>
+ * A transaction records its changes in its own {@code StatsIncremental}, which is merged into the
+ * statistics of the database when the transaction commits. The statistics of a database are kept in
+ * the file {@link Names#optStatsIncremental}; an empty file means they must be rebuilt by scanning the
+ * database when it is next opened.
+ */
+public class StatsIncremental
+{
+    private static Logger log = LoggerFactory.getLogger(StatsIncremental.class) ;
+    
+    /** Number of frequent objects tracked for each predicate */
+    public static int HeavyHitters          = 10 ;
+    /** Minimum time, in milliseconds, between rebuilding the weights used by the optimizer */
+    public static long RefreshInterval      = 1000 ;
+    
+    private static final int HLL_PRECISION  = 10 ;
+    private static final int CMS_DEPTH      = 4 ;
+    private static final int CMS_WIDTH      = 2048 ;
+    private static final int MAGIC          = 0x54444253 ;  // "TDBS"
+    private static final int VERSION        = 1 ;
+    private static final Item ZERO          = Item.createNode(NodeFactoryExtra.intToNode(0)) ;
+
+    private static class Counter
+    {
+        Node node ;
+        long count = 0 ;
+        Counter(Node node) { this.node = node ; }
+    }
+    
+    private static class PredicateStats extends Counter
+    {
+        final HyperLogLog subjects = new HyperLogLog(HLL_PRECISION) ;
+        final HyperLogLog objects = new HyperLogLog(HLL_PRECISION) ;
+        // Candidate frequent objects, with the count when last estimated.
+        final Map<NodeId, Counter> heavy = new HashMap<>() ;
+        PredicateStats(Node node) { super(node) ; }
+        
+        void offer(NodeId o, Node node, long estimate)
+        {
+            Counter c = heavy.get(o) ;
+            if ( c == null )
+            {
+                if ( heavy.size() >= HeavyHitters )
+                {
+                    NodeId min = null ;
+                    long minCount = Long.MAX_VALUE ;
+                    for ( Map.Entry<NodeId, Counter> e : heavy.entrySet() )
+                    {
+                        if ( e.getValue().count < minCount )
+                        {
+                            min = e.getKey() ;
+                            minCount = e.getValue().count ;
+                        }
+                    }
+                    if ( estimate <= minCount )
+                        return ;
+                    heavy.remove(min) ;
+                }
+                c = new Counter(node) ;
+                heavy.put(o, c) ;
+            }
+            if ( c.node == null )
+                c.node = node ;
+            c.count = estimate ;
+        }
+    }
+    
+    private final NodeTable nodeTable ;
+    private final String filename ;
+    private long count = 0 ;
+    private final Map<NodeId, PredicateStats> predicates = new HashMap<>() ;
+    private final Map<NodeId, Counter> types = new HashMap<>() ;
+    private final CountMinSketch objects = new CountMinSketch(CMS_DEPTH, CMS_WIDTH) ;
+    private NodeId typeId = null ;
+    
+    private volatile long version = 0 ;
+    private boolean dirty = false ;
+    private boolean stale = false ;
+    
+    private volatile StatsMatcher matcher = null ;
+    private volatile long matcherVersion = -1 ;
+    private volatile long matcherTimestamp = 0 ;
+
+    /** Statistics not kept in a file - for example, those of one transaction.
+     * @param nodeTable Node table for the NodeIds recorded.
+     */
+    public StatsIncremental(NodeTable nodeTable)
+    {
+        this(nodeTable, null) ;
+    }
+    
+    private StatsIncremental(NodeTable nodeTable, String filename)
+    {
+        this.nodeTable = nodeTable ;
+        this.filename = filename ;
+    }
+    
+    /** The statistics for the database at a location, or null if they are not kept for this location.
+     *  They are kept if {@link SystemTDB#incrementalStats} is set or the database already has them.  
+     */
+    public static StatsIncremental create(Location location, NodeTable nodeTable, NodeTupleTable triples, NodeTupleTable quads)
+    {
+        String filename = location.isMem() ? null : location.getPath(Names.optStatsIncremental) ;
+        boolean exists = ( filename != null && FileOps.exists(filename) ) ;
+        if ( ! exists && ! SystemTDB.incrementalStats )
+            return null ;
+        StatsIncremental stats = new StatsIncremental(nodeTable, filename) ;
+        if ( exists && stats.read() )
+            return stats ;
+        if ( ! triples.isEmpty() || ! quads.isEmpty() )
+            log.info("Building statistics: "+location.getDirectoryPath()) ;
+        stats.scan(triples) ;
+        stats.scan(quads) ;
+        stats.dirty = true ;
+        return stats ;
+    }
+    
+    /** Require the statistics of the database at the location, if it has any, to be
+     *  rebuilt when the database is next opened. Use when the data has been changed
+     *  other than by adding or deleting triples and quads (e.g. bulk loading).
+     */
+    public static void reset(Location location)
+    {
+        if ( location.isMem() )
+            return ;
+        String fn = location.getPath(Names.optStatsIncremental) ;
+        if ( FileOps.exists(fn) )
+            writeEmpty(fn) ;
+    }
+    
+    private void scan(NodeTupleTable table)
+    {
+        Iterator<Tuple<NodeId>> iter = table.findAll() ;
+        while ( iter.hasNext() )
+            record(iter.next(), true) ;
+    }
+
+    /** Record a triple (S,P,O) or quad (G,S,P,O) that has been added or deleted. */
+    public synchronized void record(Tuple<NodeId> tuple, boolean added)
+    {
+        int N = tuple.size() ;
+        NodeId s = tuple.get(N-3) ;
+        NodeId p = tuple.get(N-2) ;
+        NodeId o = tuple.get(N-1) ;
+        int delta = added ? 1 : -1 ;
+        count += delta ;
+        PredicateStats ps = predicate(p) ;
+        ps.count += delta ;
+        if ( added )
+        {
+            ps.subjects.add(s.getId()) ;
+            ps.objects.add(o.getId()) ;
+        }
+        if ( p.equals(typeId) )
+            type(o).count += delta ;
+        else
+        {
+            long key = key(p, o) ;
+            objects.add(key, delta) ;
+            ps.offer(o, null, objects.estimate(key)) ;
+        }
+        changed() ;
+    }
+    
+    /** The data has been changed in some way that can't be recorded. */
+    public synchronized void invalidate()
+    {
+        stale = true ;
+        changed() ;
+    }
+    
+    /** Add the changes recorded by another StatsIncremental (e.g. of a transaction that has committed). */
+    public void merge(StatsIncremental delta)
+    {
+        synchronized(delta)
+        {
+            delta.resolve() ;
+            synchronized(this)
+            {
+                stale |= delta.stale ;
+                count += delta.count ;
+                if ( typeId == null )
+                    typeId = delta.typeId ;
+                for ( Map.Entry<NodeId, Counter> e : delta.types.entrySet() )
+                {
+                    Counter c = types.get(e.getKey()) ;
+                    if ( c == null )
+                    {
+                        c = new Counter(e.getValue().node) ;
+                        types.put(e.getKey(), c) ;
+                    }
+                    c.count += e.getValue().count ;
+                }
+                objects.merge(delta.objects) ;
+                for ( Map.Entry<NodeId, PredicateStats> e : delta.predicates.entrySet() )
+                {
+                    NodeId p = e.getKey() ;
+                    PredicateStats d = e.getValue() ;
+                    PredicateStats ps = predicates.get(p) ;
+                    if ( ps == null )
+                    {
+                        ps = new PredicateStats(d.node) ;
+                        predicates.put(p, ps) ;
+                    }
+                    ps.count += d.count ;
+                    ps.subjects.merge(d.subjects) ;
+                    ps.objects.merge(d.objects) ;
+                    for ( Map.Entry<NodeId, Counter> h : ps.heavy.entrySet() )
+                        h.getValue().count = objects.estimate(key(p, h.getKey())) ;
+                    for ( Map.Entry<NodeId, Counter> h : d.heavy.entrySet() )
+                        ps.offer(h.getKey(), h.getValue().node, objects.estimate(key(p, h.getKey()))) ;
+                }
+                changed() ;
+            }
+        }
+    }
+    
+    private void changed()
+    {
+        dirty = true ;
+        version++ ;
+    }
+    
+    private PredicateStats predicate(NodeId p)
+    {
+        PredicateStats ps = predicates.get(p) ;
+        if ( ps == null )
+        {
+            Node n = node(p) ;
+            ps = new PredicateStats(n) ;
+            predicates.put(p, ps) ;
+            if ( typeId == null && NodeConst.nodeRDFType.equals(n) )
+                typeId = p ;
+        }
+        return ps ;
+    }
+    
+    private Counter type(NodeId o)
+    {
+        Counter c = types.get(o) ;
+        if ( c == null )
+        {
+            c = new Counter(node(o)) ;
+            types.put(o, c) ;
+        }
+        return c ;
+    }
+    
+    // Frequent objects are recorded without looking up the node; find the nodes now. 
+    private synchronized void resolve()
+    {
+        for ( PredicateStats ps : predicates.values() )
+        {
+            for ( Map.Entry<NodeId, Counter> e : ps.heavy.entrySet() )
+            {
+                if ( e.getValue().node == null )
+                    e.getValue().node = node(e.getKey()) ;
+            }
+        }
+    }
+    
+    private Node node(NodeId id)
+    {
+        try {
+            return nodeTable.getNodeForNodeId(id) ;
+        } catch (RuntimeException ex)
+        {
+            log.warn("Can't find the node for "+id) ;
+            return null ;
+        }
+    }
+    
+    private static long key(NodeId p, NodeId o)
+    {
+        return HyperLogLog.hash(p.getId()) ^ o.getId() ;
+    }
+
+    // ---- Access
+    
+    public synchronized long getCount()   { return count ; }
+    
+    /** Number of triples and quads with the predicate */ 
+    public synchronized long getPredicateCount(Node predicate)
+    {
+        PredicateStats ps = find(predicate) ;
+        return ps == null ? 0 : ps.count ;
+    }
+    
+    /** Estimate of the number of distinct subjects of the predicate */ 
+    public synchronized long getDistinctSubjects(Node predicate)
+    {
+        PredicateStats ps = find(predicate) ;
+        return ps == null ? 0 : ps.subjects.estimate() ;
+    }
+
+    /** Estimate of the number of distinct objects of the predicate */ 
+    public synchronized long getDistinctObjects(Node predicate)
+    {
+        PredicateStats ps = find(predicate) ;
+        return ps == null ? 0 : ps.objects.estimate() ;
+    }
+    
+    /** Number of instances of the class (rdf:type triples and quads) */ 
+    public synchronized long getTypeCount(Node type)
+    {
+        for ( Counter c : types.values() )
+        {
+            if ( type.equals(c.node) )
+                return c.count ;
+        }
+        return 0 ;
+    }
+    
+    /** The statistics have been invalidated and will be rebuilt when the database is next opened. */
+    public synchronized boolean isStale()   { return stale ; }
+
+    private PredicateStats find(Node predicate)
+    {
+        for ( PredicateStats ps : predicates.values() )
+        {
+            if ( predicate.equals(ps.node) )
+                return ps ;
+        }
+        return null ;
+    }
+    
+    /** The counts, in the form used to write a stats file. */
+    public synchronized StatsResults results()
+    {
+        Map<Node, Integer> p = new HashMap<>() ;
+        for ( PredicateStats ps : predicates.values() )
+        {
+            if ( ps.node != null && ps.count > 0 )
+                p.put(ps.node, (int)Math.min(ps.count, Integer.MAX_VALUE)) ;
+        }
+        Map<Node, Integer> t = new HashMap<>() ;
+        for ( Counter c : types.values() )
+        {
+            if ( c.node != null && c.count > 0 )
+                t.put(c.node, (int)Math.min(c.count, Integer.MAX_VALUE)) ;
+        }
+        return new StatsResults(p, t, count) ;
+    }
+    
+    /** Weights for the BGP optimizer. These are rebuilt when the statistics have changed, 
+     *  but not more often than every {@link #RefreshInterval} milliseconds. */
+    public StatsMatcher matcher()
+    {
+        StatsMatcher m = matcher ;
+        if ( m != null && ( matcherVersion == version || System.currentTimeMillis() < matcherTimestamp+RefreshInterval ) )
+            return m ;
+        synchronized(this)
+        {
+            resolve() ;
+            matcherVersion = version ;
+            matcherTimestamp = System.currentTimeMillis() ;
+            matcher = new StatsMatcher(format()) ;
+            return matcher ;
+        }
+    }
+    
+    /** The statistics as an SSE stats item (see {@link StatsMatcher}). */
+    public synchronized Item format()
+    {
+        Item stats = Item.createList() ;
+        ItemList statsList = stats.getList() ;
+        statsList.add(StatsMatcher.STATS) ;
+        Item meta = createTagged(StatsMatcher.META) ;
+        addPair(meta.getList(), StatsMatcher.COUNT, NodeFactoryExtra.intToNode((int)Math.min(count, Integer.MAX_VALUE))) ;
+        statsList.add(meta) ;
+        
+        for ( Map.Entry<NodeId, PredicateStats> e : predicates.entrySet() )
+        {
+            PredicateStats ps = e.getValue() ;
+            Node p = ps.node ;
+            if ( p == null || ! p.isURI() || ps.count <= 0 )
+                continue ;
+            // Skip these - they just clog things up!
+            if ( p.getURI().startsWith("http://www.w3.org/1999/02/22-rdf-syntax-ns#_") )
+                continue ;
+            double c = ps.count ;
+            double perSubject = Math.max(1, c/Math.max(1, ps.subjects.estimate())) ;
+            double perObject = Math.max(1, c/Math.max(1, ps.objects.estimate())) ;
+            
+            // The first pattern that matches is used : specific objects come first.
+            if ( e.getKey().equals(typeId) )
+            {
+                for ( Counter t : types.values() )
+                {
+                    if ( t.node != null && t.count > 0 )
+                        addPattern(statsList, "VAR", Item.createNode(p), Item.createNode(t.node), t.count) ;
+                }
+            }
+            else
+            {
+                for ( Counter h : ps.heavy.values() )
+                {
+                    if ( h.node != null && h.count > 2*perObject )
+                        addPattern(statsList, "ANY", Item.createNode(p), Item.createNode(h.node), Math.min(h.count, c)) ;
+                }
+            }
+            addPattern(statsList, "TERM", Item.createNode(p), Item.createSymbol("ANY"), perSubject) ;
+            addPattern(statsList, "ANY", Item.createNode(p), Item.createSymbol("TERM"), perObject) ;
+            addPattern(statsList, "ANY", Item.createNode(p), Item.createSymbol("ANY"), c) ;
+        }
+        // Predicates not mentioned do not occur in the data.
+        addPair(statsList, StatsMatcher.OTHER, ZERO) ;
+        return stats ;
+    }
+
+    private static void addPattern(ItemList statsList, String subject, Item predicate, Item object, double weight)
+    {
+        ItemList triple = new ItemList() ;
+        triple.add(subject) ;
+        triple.add(predicate) ;
+        triple.add(object) ;
+        addPair(statsList, Item.createList(triple), Item.createNode(NodeFactoryExtra.doubleToNode(weight))) ;
+    }
+
+    // ---- Persistence
+    
+    /** Write the statistics to their file, if they have changed. */
+    public synchronized void sync()
+    {
+        if ( filename == null || ! dirty )
+            return ;
+        if ( stale )
+            writeEmpty(filename) ;
+        else
+            write() ;
+        dirty = false ;
+    }
+
+    public void close()
+    {
+        sync() ;
+    }
+    
+    private void write()
+    {
+        String tmp = filename+".tmp" ;
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC) ;
+            out.writeInt(VERSION) ;
+            out.writeLong(count) ;
+            out.writeLong(typeId == null ? -1 : typeId.getId()) ;
+            for ( long x : objects.counts() )
+                out.writeLong(x) ;
+            out.writeInt(predicates.size()) ;
+            for ( Map.Entry<NodeId, PredicateStats> e : predicates.entrySet() )
+            {
+                PredicateStats ps = e.getValue() ;
+                out.writeLong(e.getKey().getId()) ;
+                out.writeLong(ps.count) ;
+                out.write(ps.subjects.registers()) ;
+                out.write(ps.objects.registers()) ;
+                out.writeInt(ps.heavy.size()) ;
+                for ( NodeId o : ps.heavy.keySet() )
+                    out.writeLong(o.getId()) ;
+            }
+            out.writeInt(types.size()) ;
+            for ( Map.Entry<NodeId, Counter> e : types.entrySet() )
+            {
+                out.writeLong(e.getKey().getId()) ;
+                out.writeLong(e.getValue().count) ;
+            }
+        } catch (IOException ex)
+        { 
+            log.warn("Problem writing statistics: "+filename, ex) ;
+            return ;
+        }
+        File f = new File(filename) ;
+        f.delete() ;
+        if ( ! new File(tmp).renameTo(f) )
+            log.warn("Problem writing statistics: "+filename) ;
+    }
+    
+    private static void writeEmpty(String fn)
+    {
+        try { new FileOutputStream(fn).close() ; }
+        catch (IOException ex) { throw new TDBException("Failed to reset statistics: "+fn, ex) ; }
+    }
+
+    // Return false if the statistics need to be rebuilt.
+    private boolean read()
+    {
+        if ( new File(filename).length() == 0 )
+            return false ;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+            {
+                log.warn("Not a statistics file (will rebuild): "+filename) ;
+                return false ;
+            }
+            count = in.readLong() ;
+            long t = in.readLong() ;
+            typeId = ( t == -1 ) ? null : NodeId.create(t) ;
+            long[] counts = objects.counts() ;
+            for ( int i = 0 ; i < counts.length ; i++ )
+                counts[i] = in.readLong() ;
+            int numPredicates = in.readInt() ;
+            for ( int i = 0 ; i < numPredicates ; i++ )
+            {
+                NodeId p = NodeId.create(in.readLong()) ;
+                PredicateStats ps = new PredicateStats(node(p)) ;
+                predicates.put(p, ps) ;
+                ps.count = in.readLong() ;
+                in.readFully(ps.subjects.registers()) ;
+                in.readFully(ps.objects.registers()) ;
+                int numHeavy = in.readInt() ;
+                for ( int j = 0 ; j < numHeavy ; j++ )
+                {
+                    NodeId o = NodeId.create(in.readLong()) ;
+                    ps.offer(o, node(o), objects.estimate(key(p, o))) ;
+                }
+            }
+            int numTypes = in.readInt() ;
+            for ( int i = 0 ; i < numTypes ; i++ )
+            {
+                NodeId o = NodeId.create(in.readLong()) ;
+                type(o).count = in.readLong() ;
+            }
+            return true ;
+        } catch (IOException ex)
+        {
+            log.warn("Problem reading statistics (will rebuild): "+filename+" : "+ex.getMessage()) ;
+            count = 0 ;
+            typeId = null ;
+            predicates.clear() ;
+            types.clear() ;
+            objects.clear() ;
+            return false ;
+        }
+    }
+}
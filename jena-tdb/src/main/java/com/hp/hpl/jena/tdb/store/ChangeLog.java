@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+
+/** The rows added to and deleted from the tables of a dataset, in order, so that the same
+ *  changes can be made to another copy of the data.
+ *  <p>
+ *  A log holds at most a fixed number of changes. Beyond that, it is no longer complete
+ *  and the changes it held are dropped.
+ *  <p>
+ *  A write transaction records its changes in its own log, which is added to the log of
+ *  the database when the transaction commits.
+ */
+public class ChangeLog
+{
+    public enum Table { TRIPLES, QUADS, PREFIXES }
+
+    private static class Change
+    {
+        final Table table ;
+        final Node[] row ;      // Null for "clear".
+        final boolean add ;
+
+        Change(Table table, Node[] row, boolean add)
+        {
+            this.table = table ;
+            this.row = row ;
+            this.add = add ;
+        }
+    }
+
+    private final int limit ;
+    private List<Change> changes = new ArrayList<>() ;
+    private boolean complete = true ;
+
+    /** A log of at most {@code limit} changes. */
+    public ChangeLog(int limit)
+    {
+        this.limit = limit ;
+    }
+
+    /** A new, empty log with the same limit. */
+    public ChangeLog newLog()
+    {
+        return new ChangeLog(limit) ;
+    }
+
+    public synchronized void add(Table table, Node... row)
+    { record(new Change(table, row.clone(), true)) ; }
+
+    public synchronized void delete(Table table, Node... row)
+    { record(new Change(table, row.clone(), false)) ; }
+
+    public synchronized void clear(Table table)
+    { record(new Change(table, null, false)) ; }
+
+    private void record(Change change)
+    {
+        if ( ! complete )
+            return ;
+        if ( changes.size() >= limit )
+        {
+            invalidate() ;
+            return ;
+        }
+        changes.add(change) ;
+    }
+
+    /** Some changes were not recorded : the log can not be used. */
+    public synchronized void invalidate()
+    {
+        complete = false ;
+        changes = new ArrayList<>() ;
+    }
+
+    /** Whether all the changes have been recorded. */
+    public synchronized boolean isComplete()
+    { return complete ; }
+
+    public synchronized int size()
+    { return changes.size() ; }
+
+    /** Add the changes of another log after the changes in this one. */
+    public synchronized void append(ChangeLog other)
+    {
+        if ( ! complete )
+            return ;
+        synchronized (other)
+        {
+            if ( ! other.complete || changes.size()+other.changes.size() > limit )
+            {
+                invalidate() ;
+                return ;
+            }
+            changes.addAll(other.changes) ;
+        }
+    }
+
+    /** Make the changes to a dataset. */
+    public synchronized void apply(DatasetGraphTDB dsg)
+    {
+        if ( ! complete )
+            throw new TDBException("Change log is not complete") ;
+        for ( Change c : changes )
+        {
+            NodeTupleTable table = table(dsg, c.table) ;
+            if ( c.row == null )
+                table.clear() ;
+            else if ( c.add )
+                table.addRow(c.row) ;
+            else
+                table.deleteRow(c.row) ;
+        }
+    }
+
+    private static NodeTupleTable table(DatasetGraphTDB dsg, Table table)
+    {
+        switch (table)
+        {
+            case TRIPLES :  return dsg.getTripleTable().getNodeTupleTable() ;
+            case QUADS :    return dsg.getQuadTable().getNodeTupleTable() ;
+            case PREFIXES : return dsg.getPrefixes().getNodeTupleTable() ;
+        }
+        throw new TDBException("Unknown table: "+table) ;
+    }
+}
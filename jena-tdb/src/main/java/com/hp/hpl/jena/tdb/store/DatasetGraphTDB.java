@@ -37,7 +37,10 @@ import com.hp.hpl.jena.sparql.core.Quad ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
 import com.hp.hpl.jena.tdb.lib.NodeLib ;
+import com.hp.hpl.jena.tdb.lib.TupleLib ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTableConcrete ;
 import com.hp.hpl.jena.tdb.sys.Session ;
 import com.hp.hpl.jena.tdb.transaction.DatasetGraphTransaction ;
 import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
@@ -61,6 +64,8 @@ public class DatasetGraphTDB extends DatasetGraphCaching
     private DatasetPrefixesTDB prefixes ;
     private final ReorderTransformation transform ;
     private final StorageConfig config ;
+    private StatsIncremental stats = null ;
+    private ChangeLog changes = null ;
     
     private GraphTDB effectiveDefaultGraph ;
     private boolean closed = false ;
@@ -122,6 +127,8 @@ public class DatasetGraphTDB extends DatasetGraphCaching
             return ;
         closed = true ;
         
+        if ( stats != null )
+            stats.close() ;
         tripleTable.close() ;
         quadTable.close() ;
         prefixes.close();
@@ -172,6 +179,40 @@ public class DatasetGraphTDB extends DatasetGraphCaching
     public ReorderTransformation getReorderTransform()      { return transform ; }
     
     public DatasetPrefixesTDB getPrefixes()                 { return prefixes ; }
+    
+    /** Statistics kept up to date as the data changes, or null. */
+    public StatsIncremental getStatsIncremental()           { return stats ; }
+
+    /** Set the statistics which record changes to this dataset. */
+    public void setStatsIncremental(StatsIncremental stats) {
+        this.stats = stats ;
+        setStats(tripleTable.getNodeTupleTable(), stats) ;
+        setStats(quadTable.getNodeTupleTable(), stats) ;
+    }
+    
+    private static void setStats(NodeTupleTable table, StatsIncremental stats) {
+        if ( table instanceof NodeTupleTableConcrete )
+            ((NodeTupleTableConcrete)table).setStats(stats) ;
+    }
+    
+    /** The log recording changes to this dataset, or null. */
+    public ChangeLog getChangeLog()                         { return changes ; }
+    
+    /** Set the log which records changes to this dataset. */
+    public void setChangeLog(ChangeLog changes) {
+        this.changes = changes ;
+        setChangeLog(tripleTable.getNodeTupleTable(), changes, ChangeLog.Table.TRIPLES) ;
+        setChangeLog(quadTable.getNodeTupleTable(), changes, ChangeLog.Table.QUADS) ;
+        setChangeLog(prefixes.getNodeTupleTable(), changes, ChangeLog.Table.PREFIXES) ;
+    }
+    
+    private static void setChangeLog(NodeTupleTable table, ChangeLog changes, ChangeLog.Table kind) {
+        if ( table instanceof NodeTupleTableConcrete )
+            ((NodeTupleTableConcrete)table).setChangeLog(changes, kind) ;
+        else if ( changes != null )
+            // Changes would be missed.
+            changes.invalidate() ;
+    }
 
     static private Transform<Tuple<NodeId>, NodeId> project0 = new Transform<Tuple<NodeId>, NodeId>()
     {
@@ -222,6 +263,7 @@ public class DatasetGraphTDB extends DatasetGraphCaching
         // from the indexes happens.
 
         NodeTupleTable t = chooseNodeTupleTable(g) ;
+        ChangeLog.Table kind = ( t == getTripleTable().getNodeTupleTable() ) ? ChangeLog.Table.TRIPLES : ChangeLog.Table.QUADS ;
         startUpdate() ;
         @SuppressWarnings("unchecked")
         Tuple<NodeId>[] array = (Tuple<NodeId>[])new Tuple<?>[sliceSize] ;
@@ -248,7 +290,12 @@ public class DatasetGraphTDB extends DatasetGraphCaching
 
             // Delete them.
             for (int i = 0; i < len; i++) {
-                t.getTupleTable().delete(array[i]) ;
+                if ( t.getTupleTable().delete(array[i]) ) {
+                    if ( stats != null )
+                        stats.record(array[i], false) ;
+                    if ( changes != null )
+                        changes.delete(kind, TupleLib.tupleNodes(t.getNodeTable(), array[i]).tuple()) ;
+                }
                 array[i] = null ;
             }
             // Finished?
@@ -267,6 +314,8 @@ public class DatasetGraphTDB extends DatasetGraphCaching
         tripleTable.sync() ;
         quadTable.sync() ;
         prefixes.sync() ;
+        if ( stats != null )
+            stats.sync() ;
     }
     
     // --- GraphStore
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.store;
+
+import java.math.BigDecimal ;
+
+/** xsd:double values held in a NodeId.
+ * <p>
+ * A double is encoded by its shortest decimal form, in the layout of {@link DecimalNode}
+ * (8 bits of scale, 48 bits of signed value), so about 14 significant digits.
+ * Only doubles that convert back exactly are inlined; NaN, infinities and
+ * negative zero are not.
+ */
+public class DoubleNode
+{
+    /** Pack a double : return -1 if it does not fit. */ 
+    public static long pack(double d)
+    {
+        if ( Double.isNaN(d) || Double.isInfinite(d) )
+            return -1 ;
+        if ( d == 0 && Double.doubleToRawLongBits(d) != 0 )
+            // -0.0
+            return -1 ;
+        BigDecimal decimal = new BigDecimal(Double.toString(d)) ;
+        if ( d != 0 )
+            decimal = decimal.stripTrailingZeros() ;
+        // DecimalNode scales are not negative.
+        if ( decimal.scale() < 0 )
+            decimal = decimal.setScale(0) ;
+        DecimalNode dn = DecimalNode.valueOf(decimal) ;
+        if ( dn == null )
+            return -1 ;
+        long v = dn.pack() ;
+        if ( unpack(v) != d )
+            return -1 ;
+        return NodeId.setType(v, NodeId.DOUBLE) ;
+    }
+
+    public static double unpack(long v)
+    {
+        return DecimalNode.unpackAsBigDecimal(v).doubleValue() ;
+    }
+}
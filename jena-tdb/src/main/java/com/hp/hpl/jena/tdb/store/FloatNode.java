@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.store;
+
+import org.apache.jena.atlas.lib.BitsLong ;
+
+/** xsd:float values held in a NodeId : the 32 bits of the float, so every float can be inlined. */
+public class FloatNode
+{
+    public static long pack(float f)
+    {
+        long v = Float.floatToIntBits(f) & 0xFFFFFFFFL ;
+        return NodeId.setType(v, NodeId.FLOAT) ;
+    }
+
+    public static float unpack(long v)
+    {
+        return Float.intBitsToFloat((int)BitsLong.unpack(v, 0, 32)) ;
+    }
+}
@@ -25,15 +25,14 @@ import org.apache.jena.atlas.iterator.Transform ;
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Sync ;
 import org.apache.jena.atlas.lib.Tuple ;
-import org.apache.jena.riot.other.GLib ;
 
 import com.hp.hpl.jena.graph.* ;
 import com.hp.hpl.jena.shared.PrefixMapping ;
 import com.hp.hpl.jena.sparql.core.GraphView ;
 import com.hp.hpl.jena.sparql.core.Quad ;
-import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.graph.BulkUpdateHandlerTDB ;
 import com.hp.hpl.jena.tdb.graph.TransactionHandlerTDB ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
 import com.hp.hpl.jena.util.iterator.WrappedIterator ;
@@ -118,31 +117,56 @@ public class GraphTDB extends GraphView implements Closeable, Sync {
     protected static ExtendedIterator<Triple> graphBaseFindNG(DatasetGraphTDB dataset, Node graphNode, Triple m) {
         Node gn = graphNode ;
         // Explicitly named union graph.
-        if ( isUnionGraph(gn) )
-            gn = Node.ANY ;
+        if ( isUnionGraph(gn) || gn == Node.ANY )
+            return WrappedIterator.createNoRemove(unionFind(dataset, m.getMatchSubject(), m.getMatchPredicate(), m.getMatchObject())) ;
 
         Iterator<Quad> iter = dataset.getQuadTable().find(gn, m.getMatchSubject(), m.getMatchPredicate(),
                                                           m.getMatchObject()) ;
         if ( iter == null )
             return com.hp.hpl.jena.util.iterator.NullIterator.instance() ;
 
-        Iterator<Triple> iterTriples = new ProjectQuadsToTriples((gn == Node.ANY ? null : gn), iter) ;
-
-        if ( gn == Node.ANY )
-            iterTriples = Iter.distinct(iterTriples) ;
+        Iterator<Triple> iterTriples = new ProjectQuadsToTriples(gn, iter) ;
         return WrappedIterator.createNoRemove(iterTriples) ;
     }
 
     @Override
     protected ExtendedIterator<Triple> graphUnionFind(Node s, Node p, Node o) {
-        Node g = Quad.unionGraph ;
-        Iterator<Quad> iterQuads = getDSG().find(g, s, p, o) ;
-        Iterator<Triple> iter = GLib.quads2triples(iterQuads) ;
-        // Suppress duplicates after projecting to triples.
-        // TDB guarantees that duplicates are adjacent.
-        // See SolverLib.
-        iter = Iter.distinctAdjacent(iter) ;
-        return WrappedIterator.createNoRemove(iter) ;
+        return WrappedIterator.createNoRemove(unionFind(getDSG(), s, p, o)) ;
+    }
+
+    /** The triples of the union of the named graphs, without duplicates.
+     * @see NodeTupleTable#findUnion
+     */
+    private static Iterator<Triple> unionFind(DatasetGraphTDB dataset, Node s, Node p, Node o) {
+        final NodeTable nodeTable = dataset.getQuadTable().getNodeTupleTable().getNodeTable() ;
+        Iterator<Tuple<NodeId>> iter = unionFindAsNodeIds(dataset, s, p, o) ;
+        Transform<Tuple<NodeId>, Triple> toTriple = new Transform<Tuple<NodeId>, Triple>() {
+            @Override
+            public Triple convert(Tuple<NodeId> item) {
+                return new Triple(nodeTable.getNodeForNodeId(item.get(1)),
+                                  nodeTable.getNodeForNodeId(item.get(2)),
+                                  nodeTable.getNodeForNodeId(item.get(3))) ;
+            }
+        } ;
+        return Iter.map(iter, toTriple) ;
+    }
+
+    /** As {@link #unionFind}, as NodeId quads, without looking up the nodes. */
+    private static Iterator<Tuple<NodeId>> unionFindAsNodeIds(DatasetGraphTDB dataset, Node s, Node p, Node o) {
+        NodeTupleTable ntt = dataset.getQuadTable().getNodeTupleTable() ;
+        NodeTable nodeTable = ntt.getNodeTable() ;
+        NodeId[] ids = { NodeId.NodeIdAny, idForNode(nodeTable, s), idForNode(nodeTable, p), idForNode(nodeTable, o) } ;
+        for ( NodeId id : ids ) {
+            if ( NodeId.isDoesNotExist(id) )
+                return Iter.nullIterator() ;
+        }
+        return ntt.findUnion(Tuple.create(ids), null) ;
+    }
+    
+    private static NodeId idForNode(NodeTable nodeTable, Node node) {
+        if ( node == null || node == Node.ANY )
+            return NodeId.NodeIdAny ;
+        return nodeTable.getNodeIdForNode(node) ;
     }
 
     public void startRead() {
@@ -167,29 +191,12 @@ public class GraphTDB extends GraphView implements Closeable, Sync {
             return (int)getNodeTupleTable().size() ;
 
         Node gn = getGraphName() ;
-        boolean unionGraph = isUnionGraph(gn) ;
-        gn = unionGraph ? Node.ANY : gn ;
+        if ( isUnionGraph(gn) )
+            return (int)Iter.count(unionFindAsNodeIds(getDSG(), null, null, null)) ;
         Iterator<Tuple<NodeId>> iter = getDSG().getQuadTable().getNodeTupleTable().findAsNodeIds(gn, null, null, null) ;
-        if ( unionGraph ) {
-            iter = Iter.map(iter, project4TupleTo3Tuple) ;
-            iter = Iter.distinctAdjacent(iter) ;
-        }
         return (int)Iter.count(iter) ;
     }
 
-    private static Transform<Tuple<NodeId>, Tuple<NodeId>> project4TupleTo3Tuple = new Transform<Tuple<NodeId>, Tuple<NodeId>>() {
-                                                                                     @Override
-                                                                                     public Tuple<NodeId> convert(Tuple<NodeId> item) {
-                                                                                         if ( item.size() != 4 )
-                                                                                             throw new TDBException(
-                                                                                                                    "Expected a Tuple of 4, got: "
-                                                                                                                        + item) ;
-                                                                                         return Tuple.createTuple(item.get(1),
-                                                                                                                  item.get(2),
-                                                                                                                  item.get(3)) ;
-                                                                                     }
-                                                                                 } ;
-
     // Convert from Iterator<Quad> to Iterator<Triple>
     static class ProjectQuadsToTriples implements Iterator<Triple> {
         private final Iterator<Quad> iter ;
@@ -140,6 +140,15 @@ public class NodeId
      *  Date format:
      *  DateTime format:
      *  Boolean format:
+     *  
+     *  Format 2 (StoreParams node id format 2) adds:
+     *  Short string format: up to 7 bytes of UTF-8.
+     *  Language string format: 8 bits of language tag code, up to 6 bytes of UTF-8.
+     *  Double format: as decimal, for doubles with a short decimal form.
+     *  Float format: 32 bits of float.
+     *  
+     *  Decoding handles all types; which types are created depends on the format
+     *  of the database, so databases made before format 2 never see the new types. 
      */
     
     // Type codes.
@@ -152,10 +161,25 @@ public class NodeId
     public static final int DATETIME           = 4 ;
     public static final int BOOLEAN            = 5 ;
     public static final int SHORT_STRING       = 6 ;
+    public static final int LANG_STRING        = 7 ;
+    public static final int DOUBLE             = 8 ;
+    public static final int FLOAT              = 9 ;
     public static final int SPECIAL            = 0xFF ;
     
-    /** Encode a node as an inline literal.  Return null if it can't be done */
+    // Inline formats.
+    /** Integers, decimals, dates, dateTimes and booleans. */ 
+    public static final int FORMAT_1           = 1 ;
+    /** As format 1, and short strings, short language strings, doubles and floats. */ 
+    public static final int FORMAT_2           = 2 ;
+    
+    /** Encode a node as an inline literal, format 1.  Return null if it can't be done */
     public static NodeId inline(Node node)
+    {
+        return inline(node, FORMAT_1) ;
+    }
+    
+    /** Encode a node as an inline literal in the given format.  Return null if it can't be done */
+    public static NodeId inline(Node node, int format)
     {
         if ( node == null )
         {
@@ -170,9 +194,21 @@ public class NodeId
             return null ;
         
         if ( NodeUtils.isSimpleString(node) || NodeUtils.isLangString(node) )
-            return null ;
+        {
+            if ( format < FORMAT_2 )
+                return null ;
+            return inlineString(node) ;
+        }
         
-        try { return inline$(node) ; }
+        try {
+            if ( format >= FORMAT_2 )
+            {
+                NodeId nid = inlineFloatingPoint(node) ;
+                if ( nid != null )
+                    return nid ;
+            }
+            return inline$(node) ;
+        }
         catch (Throwable th) {
             Log.warn(NodeId.class, "Failed to process "+node) ;
             return null ; 
@@ -209,6 +245,40 @@ public class NodeId
             if ( dt.equals(dtn) ) return true ;
         return false ;
     }
+    
+    private static NodeId inlineString(Node node)
+    {
+        String lex = node.getLiteralLexicalForm() ;
+        long v ;
+        if ( NodeUtils.isLangString(node) )
+            v = StringNode.packLangString(lex, node.getLiteralLanguage()) ;
+        else
+            v = StringNode.packString(lex) ;
+        if ( v == -1 )
+            return null ;
+        return new NodeId(v) ;
+    }
+    
+    private static NodeId inlineFloatingPoint(Node node)
+    {
+        RDFDatatype dt = node.getLiteralDatatype() ;
+        LiteralLabel lit = node.getLiteral() ;
+        if ( XSDDatatype.XSDdouble.equals(dt) )
+        {
+            if ( ! XSDDatatype.XSDdouble.isValidLiteral(lit) )
+                return null ;
+            long v = DoubleNode.pack(((Number)lit.getValue()).doubleValue()) ;
+            return ( v == -1 ) ? null : new NodeId(v) ;
+        }
+        if ( XSDDatatype.XSDfloat.equals(dt) )
+        {
+            if ( ! XSDDatatype.XSDfloat.isValidLiteral(lit) )
+                return null ;
+            long v = FloatNode.pack(((Number)lit.getValue()).floatValue()) ;
+            return new NodeId(v) ;
+        }
+        return null ;
+    }
      
     private static NodeId inline$(Node node)
     {
@@ -313,6 +383,10 @@ public class NodeId
             case DATETIME:
             case DATE:
             case BOOLEAN:
+            case SHORT_STRING:
+            case LANG_STRING:
+            case DOUBLE:
+            case FLOAT:
                 return true ;
             default:
                 throw new TDBException("Unrecognized node id type: "+type) ;
@@ -360,6 +434,24 @@ public class NodeId
                     return NodeConst.nodeTrue ;
                 throw new TDBException("Unrecognized boolean node id : " + val) ;
             }
+            case SHORT_STRING : {
+                return NodeFactory.createLiteral(StringNode.unpackString(v)) ;
+            }
+            case LANG_STRING : {
+                String lang = StringNode.unpackLang(v) ;
+                if ( lang == null )
+                    throw new TDBException("Unrecognized language code in node id : " + nodeId) ;
+                return NodeFactory.createLiteral(StringNode.unpackLangString(v), lang, false) ;
+            }
+            case DOUBLE : {
+                double d = DoubleNode.unpack(v) ;
+                return NodeFactory.createLiteral(Double.toString(d), XSDDatatype.XSDdouble) ;
+            }
+            case FLOAT : {
+                float f = FloatNode.unpack(v) ;
+                String lex = Float.isInfinite(f) ? ( f > 0 ? "INF" : "-INF" ) : Float.toString(f) ;
+                return NodeFactory.createLiteral(lex, XSDDatatype.XSDfloat) ;
+            }
             default :
                 throw new TDBException("Unrecognized node id type: " + type) ;
         }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.store;
+
+import java.nio.charset.StandardCharsets ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.lib.BitsLong ;
+
+/** Short strings and short language-tagged strings held in a NodeId.
+ * <p>
+ * A short string is up to 7 bytes of UTF-8, left-aligned in the 56 bits, zero padded;
+ * a language-tagged string is 8 bits of language tag code then up to 6 bytes of UTF-8.
+ * Strings containing U+0000 are not inlined. Within a language tag, the unsigned order
+ * of the packed values is the codepoint order of the strings.
+ */
+public class StringNode
+{
+    static final int MAX_BYTES      = 7 ;
+    static final int MAX_LANG_BYTES = 6 ;
+    
+    static private int LANG_LO = 48 ;
+    static private int LANG_HI = 56 ;    // Exclusive index
+    
+    /** Language tags that can be inlined; the code is the index plus one.
+     *  This is part of the persistent format: only ever add to the end. */
+    private static final String[] langTags = {
+        "en", "de", "fr", "es", "it", "nl", "pt", "ru", "ja", "zh",
+        "pl", "sv", "da", "fi", "no", "nb", "nn", "cs", "hu", "ro",
+        "tr", "ar", "ko", "el", "he", "uk", "ca", "bg", "hr", "sk",
+        "sl", "sr", "et", "lv", "lt", "ga", "cy", "eu", "gl", "la",
+        "is", "id", "ms", "th", "vi", "hi", "fa", "af", "sw", "mt",
+        "lb", "eo",
+        "en-GB", "en-US", "en-gb", "en-us", "pt-BR", "pt-br", "zh-CN", "zh-TW",
+        "zh-cn", "zh-tw", "de-DE", "de-de", "fr-FR", "fr-fr", "es-ES", "es-es"
+    } ;
+    
+    private static final Map<String, Integer> langCodes = new HashMap<>() ;
+    static {
+        for ( int i = 0 ; i < langTags.length ; i++ )
+            langCodes.put(langTags[i], i+1) ;
+    }
+    
+    /** Pack a string : return -1 if it does not fit. */ 
+    public static long packString(String str)
+    {
+        if ( str.length() > MAX_BYTES )
+            return -1 ;
+        long v = packBytes(str, MAX_BYTES) ;
+        if ( v == -1 )
+            return -1 ;
+        return NodeId.setType(v, NodeId.SHORT_STRING) ;
+    }
+    
+    /** Pack a string with a language tag : return -1 if it does not fit or the tag is not one of the common ones. */ 
+    public static long packLangString(String str, String lang)
+    {
+        if ( str.length() > MAX_LANG_BYTES )
+            return -1 ;
+        Integer code = langCodes.get(lang) ;
+        if ( code == null )
+            return -1 ;
+        long v = packBytes(str, MAX_LANG_BYTES) ;
+        if ( v == -1 )
+            return -1 ;
+        v = BitsLong.pack(v, code, LANG_LO, LANG_HI) ;
+        return NodeId.setType(v, NodeId.LANG_STRING) ;
+    }
+
+    public static String unpackString(long v)
+    {
+        return unpackBytes(v, MAX_BYTES) ;
+    }
+
+    public static String unpackLangString(long v)
+    {
+        return unpackBytes(v, MAX_LANG_BYTES) ;
+    }
+
+    public static String unpackLang(long v)
+    {
+        int code = (int)BitsLong.unpack(v, LANG_LO, LANG_HI) ;
+        if ( code < 1 || code > langTags.length )
+            return null ;
+        return langTags[code-1] ;
+    }
+
+    // UTF-8 bytes, left-aligned in len bytes.
+    private static long packBytes(String str, int len)
+    {
+        byte[] b = str.getBytes(StandardCharsets.UTF_8) ;
+        if ( b.length > len )
+            return -1 ;
+        long v = 0 ;
+        for ( int i = 0 ; i < b.length ; i++ )
+        {
+            if ( b[i] == 0 )
+                return -1 ;
+            v = v | ((b[i]&0xFFL) << (8*(len-1-i))) ;
+        }
+        // Unpaired surrogates do not survive UTF-8.
+        if ( ! str.equals(new String(b, StandardCharsets.UTF_8)) )
+            return -1 ;
+        return v ;
+    }
+
+    private static String unpackBytes(long v, int len)
+    {
+        byte[] b = new byte[len] ;
+        int n = 0 ;
+        for ( ; n < len ; n++ )
+        {
+            byte x = (byte)(v >>> (8*(len-1-n))) ;
+            if ( x == 0 )
+                break ;
+            b[n] = x ;
+        }
+        return new String(b, 0, n, StandardCharsets.UTF_8) ;
+    }
+}
@@ -38,7 +38,6 @@ import com.hp.hpl.jena.tdb.solver.stats.Stats ;
 import com.hp.hpl.jena.tdb.solver.stats.StatsCollector ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
-import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTableView ;
 import com.hp.hpl.jena.tdb.sys.Names ;
 
 /** Overall framework for bulk loading */
@@ -53,6 +52,9 @@ public class BulkLoader {
     /** Number of ticks per super tick */
     public static int       superTick             = 10 ;
 
+    /** Number of tuples sorted and added together when loading into a table with existing data */
+    public static int       AppendBatchSize       = 100 * 1000 ;
+
     // Events.
     // private static String baseNameGeneral = "http://openjena.org/TDB/event#"
     // ;
@@ -258,6 +260,12 @@ public class BulkLoader {
                 String filename = dsg.getLocation().getPath(Names.optStats) ;
                 Stats.write(filename, stats.results()) ;
             }
+            // Indexes may have been built directly : incremental statistics are rebuilt when next opened.
+            if ( dsg.getStatsIncremental() != null )
+                dsg.getStatsIncremental().invalidate() ;
+            // ... and the rows were not recorded as changes.
+            if ( dsg.getChangeLog() != null )
+                dsg.getChangeLog().invalidate() ;
             forceSync(dsg) ;
         }
 
@@ -280,6 +288,7 @@ public class BulkLoader {
     private static final class DestinationGraph implements BulkStreamRDF {
         final private DatasetGraphTDB      dsg ;
         final private Node                 graphName ;
+        final private boolean              isQuads ;
         final private LoadMonitor          monitor ;
         final private LoaderNodeTupleTable loaderTriples ;
         final private boolean              startedEmpty ;
@@ -290,15 +299,15 @@ public class BulkLoader {
         DestinationGraph(final DatasetGraphTDB dsg, Node graphNode, boolean showProgress) {
             this.dsg = dsg ;
             this.graphName = graphNode ;
+            this.isQuads = ( graphNode != null && !Quad.isDefaultGraph(graphNode) ) ;
 
             // Choose NodeTupleTable.
+            // A named graph is loaded as quads so the loader sees the whole tuple.
             NodeTupleTable nodeTupleTable ;
             if ( graphNode == null || Quad.isDefaultGraph(graphNode) )
                 nodeTupleTable = dsg.getTripleTable().getNodeTupleTable() ;
-            else {
-                NodeTupleTable ntt = dsg.getQuadTable().getNodeTupleTable() ;
-                nodeTupleTable = new NodeTupleTableView(ntt, graphName) ;
-            }
+            else
+                nodeTupleTable = dsg.getQuadTable().getNodeTupleTable() ;
             startedEmpty = dsg.isEmpty() ;
             monitor = createLoadMonitor(dsg, "triples", showProgress) ;
             loaderTriples = new LoaderNodeTupleTable(nodeTupleTable, "triples", monitor) ;
@@ -318,7 +327,10 @@ public class BulkLoader {
             Node p = triple.getPredicate() ;
             Node o = triple.getObject() ;
 
-            loaderTriples.load(s, p, o) ;
+            if ( isQuads )
+                loaderTriples.load(graphName, s, p, o) ;
+            else
+                loaderTriples.load(s, p, o) ;
             stats.record(null, s, p, o) ;
             count++ ;
         }
@@ -334,6 +346,12 @@ public class BulkLoader {
                 String filename = dsg.getLocation().getPath(Names.optStats) ;
                 Stats.write(filename, stats.results()) ;
             }
+            // Indexes may have been built directly : incremental statistics are rebuilt when next opened.
+            if ( dsg.getStatsIncremental() != null )
+                dsg.getStatsIncremental().invalidate() ;
+            // ... and the rows were not recorded as changes.
+            if ( dsg.getChangeLog() != null )
+                dsg.getChangeLog().invalidate() ;
             forceSync(dsg) ;
         }
 
@@ -18,19 +18,24 @@
 
 package com.hp.hpl.jena.tdb.store.bulkloader;
 
-import java.util.Iterator ;
+import java.util.* ;
 
 import org.apache.jena.atlas.lib.ArrayUtils ;
+import org.apache.jena.atlas.lib.Bytes ;
 import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.ColumnMap ;
 import org.apache.jena.atlas.lib.Sync ;
 import org.apache.jena.atlas.lib.Tuple ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.tdb.lib.NodeLib ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
 import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleTable ;
 
 /** 
  * Load into one NodeTupleTable (triples, quads, other) 
@@ -51,6 +56,8 @@ public class LoaderNodeTupleTable implements Closeable, Sync
     //private Timer timer ;
     private long count = 0 ;
     private String itemsName ;
+    // Rows waiting to be added, when loading into a table with existing data.
+    private List<Node[]> batch = null ;
     
     static private Logger logLoad = LoggerFactory.getLogger("com.hp.hpl.jena.tdb.loader") ;
 
@@ -79,6 +86,8 @@ public class LoaderNodeTupleTable implements Closeable, Sync
         else
         {
             monitor.print("** Load into %s table with existing data", itemsName) ;
+            if ( BulkLoader.AppendBatchSize > 1 )
+                batch = new ArrayList<>(BulkLoader.AppendBatchSize) ;
         }
     }
         
@@ -104,7 +113,14 @@ public class LoaderNodeTupleTable implements Closeable, Sync
     {
         count++ ;           // Not zero the first time.
         monitor.dataItem() ;
-        nodeTupleTable.addRow(nodes) ;  
+        if ( batch == null )
+        {
+            nodeTupleTable.addRow(nodes) ;
+            return ;
+        }
+        batch.add(nodes) ;
+        if ( batch.size() >= BulkLoader.AppendBatchSize )
+            flushBatch() ;
     }
     
     /** Notify End of data to load - this operation may 
@@ -112,6 +128,7 @@ public class LoaderNodeTupleTable implements Closeable, Sync
      */
     public void loadDataFinish()
     {
+        flushBatch() ;
         monitor.finishDataPhase() ;
     }
     
@@ -177,6 +194,103 @@ public class LoaderNodeTupleTable implements Closeable, Sync
         
     }
     
+    /** Add the waiting rows.
+     * New nodes are allocated in the order of their hash, which is the order of the node table index,
+     * then the tuples are added to each index sorted into the order of that index.
+     * Successive inserts go to the same, or nearby, B+Tree blocks while they are in the cache
+     * and a block is filled before the next is touched.
+     */
+    private void flushBatch()
+    {
+        if ( batch == null || batch.isEmpty() )
+            return ;
+        nodeTupleTable.getPolicy().startUpdate() ;
+        try {
+            Map<Node, NodeId> ids = allocateNodeIds(batch) ;
+            List<Tuple<NodeId>> tuples = new ArrayList<>(batch.size()) ;
+            for ( Node[] row : batch )
+            {
+                NodeId[] n = new NodeId[row.length] ;
+                for ( int i = 0 ; i < row.length ; i++ )
+                    n[i] = ids.get(row[i]) ;
+                tuples.add(Tuple.create(n)) ;
+            }
+            batch.clear() ;
+
+            TupleTable tupleTable = nodeTupleTable.getTupleTable() ;
+            // The primary index decides which tuples are new.
+            tuples = addSorted(tupleTable.getIndex(0), tuples) ;
+            for ( int i = 1 ; i < tupleTable.numIndexes() ; i++ )
+            {
+                TupleIndex index = tupleTable.getIndex(i) ;
+                if ( index != null )
+                    addSorted(index, tuples) ;
+            }
+        } finally { nodeTupleTable.getPolicy().finishUpdate() ; }
+    }
+
+    private Map<Node, NodeId> allocateNodeIds(List<Node[]> rows)
+    {
+        Map<Node, byte[]> hashes = new HashMap<>() ;
+        for ( Node[] row : rows )
+        {
+            for ( Node n : row )
+            {
+                if ( ! hashes.containsKey(n) )
+                    hashes.put(n, NodeLib.hash(n).getBytes()) ;
+            }
+        }
+        List<Map.Entry<Node, byte[]>> nodes = new ArrayList<>(hashes.entrySet()) ;
+        Collections.sort(nodes, hashOrder) ;
+        NodeTable nodeTable = nodeTupleTable.getNodeTable() ;
+        Map<Node, NodeId> ids = new HashMap<>(2*nodes.size()) ;
+        for ( Map.Entry<Node, byte[]> e : nodes )
+            ids.put(e.getKey(), nodeTable.getAllocateNodeId(e.getKey())) ;
+        return ids ;
+    }
+
+    /** Add tuples to an index in index order; return the tuples that were not already present. */
+    private static List<Tuple<NodeId>> addSorted(TupleIndex index, List<Tuple<NodeId>> tuples)
+    {
+        ColumnMap colMap = index.getColumnMap() ;
+        List<Tuple<NodeId>> mapped = new ArrayList<>(tuples.size()) ;
+        for ( Tuple<NodeId> t : tuples )
+            mapped.add(colMap.map(t)) ;
+        Collections.sort(mapped, tupleOrder) ;
+        List<Tuple<NodeId>> added = new ArrayList<>(tuples.size()) ;
+        for ( Tuple<NodeId> m : mapped )
+        {
+            Tuple<NodeId> t = colMap.unmap(m) ;
+            if ( index.add(t) )
+                added.add(t) ;
+        }
+        return added ;
+    }
+
+    private static Comparator<Tuple<NodeId>> tupleOrder = new Comparator<Tuple<NodeId>>() {
+        @Override
+        public int compare(Tuple<NodeId> t1, Tuple<NodeId> t2)
+        {
+            for ( int i = 0 ; i < t1.size() ; i++ )
+            {
+                // As unsigned, the order of records in the B+Tree.
+                long x1 = t1.get(i).getId()+Long.MIN_VALUE ;
+                long x2 = t2.get(i).getId()+Long.MIN_VALUE ;
+                if ( x1 != x2 )
+                    return x1 < x2 ? -1 : 1 ;
+            }
+            return 0 ;
+        }
+    } ;
+
+    private static Comparator<Map.Entry<Node, byte[]>> hashOrder = new Comparator<Map.Entry<Node, byte[]>>() {
+        @Override
+        public int compare(Map.Entry<Node, byte[]> e1, Map.Entry<Node, byte[]> e2)
+        {
+            return Bytes.compare(e1.getValue(), e2.getValue()) ;
+        }
+    } ;
+
     private static Object lock = new Object() ;
     
     static void copyIndex(Iterator<Tuple<NodeId>> srcIter, TupleIndex[] destIndexes, String label, LoadMonitor monitor)
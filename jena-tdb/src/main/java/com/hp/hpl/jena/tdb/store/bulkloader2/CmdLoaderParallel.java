@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.store.bulkloader2;
+
+import java.util.Arrays ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFLanguages ;
+import tdb.cmdline.CmdTDB ;
+import arq.cmd.CmdException ;
+import arq.cmdline.ArgDecl ;
+import arq.cmdline.CmdGeneral ;
+
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
+
+/** Load an empty database with {@link LoaderParallel} */
+public class CmdLoaderParallel extends CmdGeneral
+{
+    static { LogCtl.setLog4j() ; }
+
+    private static ArgDecl argLocation = new ArgDecl(ArgDecl.HasValue, "loc", "location") ;
+    private static ArgDecl argSpill = new ArgDecl(ArgDecl.HasValue, "spill") ;
+    private static ArgDecl argParsers = new ArgDecl(ArgDecl.HasValue, "parsers") ;
+    private Location location ;
+    private List<String> datafiles ;
+
+    public static void main(String...argv)
+    {
+        CmdTDB.init() ;
+        DatasetBuilderStd.setOptimizerWarningFlag(false) ;
+        new CmdLoaderParallel(argv).mainRun() ;
+    }
+
+    public CmdLoaderParallel(String...argv)
+    {
+        super(argv) ;
+        super.add(argLocation,  "--loc",        "Location") ;
+        super.add(argSpill,     "--spill",      "Rows per index to sort in memory before writing a spill file") ;
+        super.add(argParsers,   "--parsers",    "Number of files to parse at the same time") ;
+    }
+
+    @Override
+    protected void processModulesAndArgs()
+    {
+        if ( !super.contains(argLocation) ) throw new CmdException("Required: --loc DIR") ;
+        location = Location.create(super.getValue(argLocation)) ;
+
+        if ( super.contains(argSpill) )
+            LoaderParallel.SpillThreshold = number(argSpill) ;
+        if ( super.contains(argParsers) )
+            LoaderParallel.ParserThreads = (int)number(argParsers) ;
+
+        datafiles = getPositional() ;
+        if ( datafiles.isEmpty() )
+            datafiles = Arrays.asList("-") ;
+
+        for( String filename : datafiles)
+        {
+            Lang lang = RDFLanguages.filenameToLang(filename, RDFLanguages.NQUADS) ;
+            if ( lang == null )
+                cmdError("File suffix not recognized: " +filename) ;
+            if ( ! filename.equals("-") && ! FileOps.exists(filename) )
+                cmdError("File does not exist: "+filename) ;
+        }
+    }
+
+    private long number(ArgDecl arg)
+    {
+        String x = super.getValue(arg) ;
+        try {
+            long v = Long.parseLong(x) ;
+            if ( v <= 0 )
+                throw new CmdException("Not a positive number: "+x) ;
+            return v ;
+        } catch (NumberFormatException ex) { throw new CmdException("Not a number: "+x) ; }
+    }
+
+    @Override
+    protected void exec()
+    {
+        LoaderParallel.load(location, datafiles, ! isQuiet()) ;
+    }
+
+    @Override
+    protected String getSummary()
+    {
+        return getCommandName()+" --loc=DIR [--spill=N] [--parsers=N] FILE ..." ;
+    }
+
+    @Override
+    protected String getCommandName()
+    {
+        return this.getClass().getName() ;
+    }
+}
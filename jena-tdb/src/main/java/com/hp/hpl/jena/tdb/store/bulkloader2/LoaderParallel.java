@@ -0,0 +1,628 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.store.bulkloader2;
+
+import java.io.File ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Comparator ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.NoSuchElementException ;
+import java.util.concurrent.* ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import org.apache.jena.atlas.data.SortedDataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicyCount ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.ColumnMap ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.slf4j.Logger ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.util.Timer ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory ;
+import com.hp.hpl.jena.tdb.base.file.FileSet ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+import com.hp.hpl.jena.tdb.index.BuilderStdIndex ;
+import com.hp.hpl.jena.tdb.index.bplustree.BPlusTree ;
+import com.hp.hpl.jena.tdb.index.bplustree.BPlusTreeParams ;
+import com.hp.hpl.jena.tdb.index.bplustree.BPlusTreeRewriter ;
+import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.solver.stats.Stats ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsCollectorNodeId ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.DatasetPrefixesTDB ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.bulkloader.BulkLoader ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** All-Java bulk loader into an empty database.
+ * <p>
+ * The load is a pipeline:
+ * <ul>
+ * <li>Parse: the input files are parsed in parallel, one thread per file (or a dataset is copied).
+ *     Each parser turns nodes into NodeIds through a shared {@link NodeDictionary}
+ *     and passes blocks of rows of NodeIds (S,P,O or G,S,P,O) to every index.</li>
+ * <li>Sort: each index has a thread that puts the rows in the order of that index and adds
+ *     them to a {@link SortedDataBag}, which sorts them and spills to a file in the database
+ *     directory each time {@link #SpillThreshold} rows have been collected.</li>
+ * <li>Build: at the end of the input, each index thread merges its spill files, drops duplicates
+ *     and writes the B+Tree bottom-up with {@link BPlusTreeRewriter}.</li>
+ * </ul>
+ * The node table and prefixes are written as the data is parsed; the index files are replaced.
+ * The database must not be in use by this JVM or any other.
+ */
+public class LoaderParallel
+{
+    /** Number of rows passed between threads in one go */
+    public static int       RowBlockSize        = 10 * 1000 ;
+    /** Number of rows of each index held in memory before sorting and writing a spill file */
+    public static long      SpillThreshold      = 1000 * 1000 ;
+    /** Number of blocks waiting for each index before the parsers wait */
+    public static int       QueueLength         = 10 ;
+    /** Size of the concurrent Node to NodeId cache in front of the node table */
+    public static int       DictionaryCacheSize = 1000 * 1000 ;
+    /** Maximum number of files parsed at the same time */
+    public static int       ParserThreads       = Math.max(1, Runtime.getRuntime().availableProcessors()/2) ;
+
+    static private Logger   loadLogger          = TDB.logLoader ;
+
+    // End of input marker.
+    private static final long[] END = new long[0] ;
+
+    private final Location location ;
+    private final boolean showProgress ;
+    private volatile boolean aborted = false ;
+    private final AtomicLong count = new AtomicLong(0) ;
+
+    private DatasetGraphTDB dsg ;
+    private StoreParams params ;
+    private NodeDictionary dictionary ;
+    private StatsCollectorNodeId stats ;
+    private List<IndexBuilder> tripleIndexes ;
+    private List<IndexBuilder> quadIndexes ;
+
+    /** Load files into the database at the given location, which must be empty. */
+    public static void load(Location location, List<String> urls, boolean showProgress)
+    {
+        LoaderParallel loader = new LoaderParallel(location, showProgress) ;
+        List<Producer> producers = new ArrayList<>() ;
+        for ( String url : urls )
+            producers.add(loader.new Parser(url)) ;
+        loader.load(producers) ;
+    }
+
+    /** Copy a dataset, and its prefixes if it is a TDB dataset, into the database at
+     *  the given location, which must be empty. The source should not change during the copy
+     *  (e.g. it is the view of a read transaction). 
+     */
+    public static void load(Location location, DatasetGraph source, boolean showProgress)
+    {
+        LoaderParallel loader = new LoaderParallel(location, showProgress) ;
+        List<Producer> producers = new ArrayList<>() ;
+        producers.add(loader.new Copier(source)) ;
+        loader.load(producers) ;
+    }
+
+    private LoaderParallel(Location location, boolean showProgress)
+    {
+        this.location = location ;
+        this.showProgress = showProgress ;
+    }
+
+    private void load(List<Producer> producers)
+    {
+        if ( location.isMem() )
+            throw new TDBException("LoaderParallel: in-memory databases are not supported") ;
+        if ( StoreConnection.getExisting(location) != null )
+            throw new TDBException("LoaderParallel: database in use: "+location.getDirectoryPath()) ;
+
+        Timer timer = new Timer() ;
+        timer.startTimer() ;
+        dsg = DatasetBuilderStd.create(location) ;
+        if ( ! dsg.isEmpty() )
+        {
+            dsg.close() ;
+            throw new TDBException("LoaderParallel: database is not empty: "+location.getDirectoryPath()) ;
+        }
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        // Whatever happens, the node table and prefixes are closed so their files are released.
+        try {
+            // The indexes are built from scratch - release and remove the existing (empty) ones.
+            dsg.getTripleTable().getNodeTupleTable().getTupleTable().close() ;
+            dsg.getQuadTable().getNodeTupleTable().getTupleTable().close() ;
+
+            params = dsg.getConfig().params ;
+            dictionary = new NodeDictionary(nodeTable, DictionaryCacheSize) ;
+            stats = new StatsCollectorNodeId(nodeTable) ;
+
+            tripleIndexes = indexBuilders(params.getPrimaryIndexTriples(), params.getTripleIndexes()) ;
+            quadIndexes = indexBuilders(params.getPrimaryIndexQuads(), params.getQuadIndexes()) ;
+            List<IndexBuilder> indexes = new ArrayList<>(tripleIndexes) ;
+            indexes.addAll(quadIndexes) ;
+            for ( IndexBuilder index : indexes )
+                index.removeFiles() ;
+
+            run(producers, indexes, timer) ;
+
+            nodeTable.sync() ;
+            dsg.getPrefixes().sync() ;
+            Stats.write(location.getPath(Names.optStats), stats.results()) ;
+            StatsIncremental.reset(location) ;
+        } finally {
+            // The tuple tables are already closed.
+            nodeTable.close() ;
+            dsg.getPrefixes().close() ;
+        }
+
+        long time = timer.endTimer() ;
+        float elapsedSecs = time/1000F ;
+        float rate = (elapsedSecs!=0) ? count.get()/elapsedSecs : 0 ;
+        print("Total: %,d tuples : %,.2f seconds : %,.2f tuples/sec [%s]", count.get(), elapsedSecs, rate, Utils.nowAsString()) ;
+    }
+
+    /** Run the parsers and index builders to completion. On failure, the other threads
+     *  are stopped and have finished before the exception is passed on. */
+    private void run(List<Producer> producers, List<IndexBuilder> indexes, Timer timer)
+    {
+        ExecutorService indexThreads = Executors.newFixedThreadPool(indexes.size()) ;
+        ExecutorService parserThreads = Executors.newFixedThreadPool(Math.min(ParserThreads, Math.max(1, producers.size()))) ;
+        try {
+            List<Future<Long>> indexResults = new ArrayList<>() ;
+            for ( IndexBuilder index : indexes )
+                indexResults.add(indexThreads.submit(index)) ;
+
+            List<Future<Long>> parseResults = new ArrayList<>() ;
+            for ( Producer producer : producers )
+                parseResults.add(parserThreads.submit(producer)) ;
+            for ( Future<Long> f : parseResults )
+                await(f) ;
+            print("Data: %,d tuples : %,.2f seconds [%s]", count.get(), timer.readTimer()/1000.0, Utils.nowAsString()) ;
+
+            for ( IndexBuilder index : indexes )
+                index.send(END) ;
+            for ( int i = 0 ; i < indexes.size() ; i++ )
+            {
+                long n = await(indexResults.get(i)) ;
+                print("Index %s: %,d records", indexes.get(i).indexName, n) ;
+            }
+        } finally {
+            parserThreads.shutdownNow() ;
+            indexThreads.shutdownNow() ;
+            // Parsers may still be adding to the node table.
+            awaitTermination(parserThreads) ;
+            awaitTermination(indexThreads) ;
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor)
+    {
+        try {
+            if ( ! executor.awaitTermination(1, TimeUnit.MINUTES) )
+                loadLogger.warn("LoaderParallel: threads did not stop") ;
+        } catch (InterruptedException ex) { Thread.currentThread().interrupt() ; }
+    }
+
+    private List<IndexBuilder> indexBuilders(String primary, String[] indexNames)
+    {
+        List<IndexBuilder> x = new ArrayList<>() ;
+        for ( String indexName : indexNames )
+            x.add(new IndexBuilder(indexName, new ColumnMap(primary, indexName))) ;
+        return x ;
+    }
+
+    /** Wait for a stage; on failure, stop all the other stages. */
+    private long await(Future<Long> future)
+    {
+        try {
+            return future.get() ;
+        } catch (InterruptedException ex) {
+            aborted = true ;
+            throw new TDBException("LoaderParallel: interrupted", ex) ;
+        } catch (ExecutionException ex) {
+            aborted = true ;
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            throw new TDBException("LoaderParallel", cause) ;
+        }
+    }
+
+    private void print(String fmt, Object... args)
+    {
+        if ( showProgress )
+            loadLogger.info(String.format(fmt, args)) ;
+    }
+
+    /** Parse one file. */
+    private class Parser extends Producer
+    {
+        private final String url ;
+
+        Parser(String url) { this.url = url ; }
+
+        @Override
+        protected void produce()
+        {
+            print("Load: %s -- %s", url, Utils.nowAsString()) ;
+            Lang lang = RDFLanguages.filenameToLang(url, Lang.NQUADS) ;
+            RDFDataMgr.parse(this, url, lang) ;
+        }
+    }
+
+    /** Copy the quads and triples of a dataset. */
+    private class Copier extends Producer
+    {
+        private final DatasetGraph source ;
+
+        Copier(DatasetGraph source) { this.source = source ; }
+
+        @Override
+        protected void produce()
+        {
+            if ( source instanceof DatasetGraphTDB )
+            {
+                DatasetPrefixesTDB prefixes = ((DatasetGraphTDB)source).getPrefixes() ;
+                DatasetPrefixesTDB destination = dsg.getPrefixes() ;
+                for ( String graphName : prefixes.graphNames() )
+                {
+                    for ( Map.Entry<String, String> e : prefixes.readPrefixMap(graphName).entrySet() )
+                        destination.insertPrefix(graphName, e.getKey(), e.getValue()) ;
+                }
+            }
+            Iterator<Quad> iter = source.find() ;
+            while ( iter.hasNext() )
+            {
+                if ( aborted )
+                    throw new TDBException("LoaderParallel: aborted") ;
+                quad(iter.next()) ;
+            }
+        }
+    }
+
+    /** Turn tuples into rows of NodeIds and pass them to the indexes. */
+    private abstract class Producer implements StreamRDF, Callable<Long>
+    {
+        private long[] triples = new long[3*RowBlockSize] ;
+        private int triplesIdx = 0 ;
+        private long[] quads = new long[4*RowBlockSize] ;
+        private int quadsIdx = 0 ;
+        private long tuples = 0 ;
+
+        protected abstract void produce() ;
+
+        @Override
+        public Long call()
+        {
+            try {
+                produce() ;
+                flushTriples() ;
+                flushQuads() ;
+            } catch (RuntimeException ex) {
+                aborted = true ;
+                throw ex ;
+            }
+            return tuples ;
+        }
+
+        @Override
+        public void start() {}
+
+        @Override
+        public void triple(Triple triple)
+        {
+            row3(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+        }
+
+        @Override
+        public void quad(Quad quad)
+        {
+            if ( quad.isTriple() || quad.isDefaultGraph() )
+                row3(quad.getSubject(), quad.getPredicate(), quad.getObject()) ;
+            else
+                row4(quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject()) ;
+        }
+
+        private void row3(Node s, Node p, Node o)
+        {
+            triples[triplesIdx++] = id(s) ;
+            triples[triplesIdx++] = id(p) ;
+            triples[triplesIdx++] = id(o) ;
+            if ( triplesIdx == triples.length )
+                flushTriples() ;
+        }
+
+        private void row4(Node g, Node s, Node p, Node o)
+        {
+            quads[quadsIdx++] = id(g) ;
+            quads[quadsIdx++] = id(s) ;
+            quads[quadsIdx++] = id(p) ;
+            quads[quadsIdx++] = id(o) ;
+            if ( quadsIdx == quads.length )
+                flushQuads() ;
+        }
+
+        private long id(Node node)
+        {
+            return dictionary.getAllocateNodeId(node).getId() ;
+        }
+
+        private void flushTriples()
+        {
+            if ( triplesIdx == 0 )
+                return ;
+            long[] block = ( triplesIdx == triples.length ) ? triples : Arrays.copyOf(triples, triplesIdx) ;
+            synchronized (stats)
+            {
+                for ( int i = 0 ; i < block.length ; i += 3 )
+                    stats.record(null, NodeId.create(block[i]), NodeId.create(block[i+1]), NodeId.create(block[i+2])) ;
+            }
+            for ( IndexBuilder index : tripleIndexes )
+                index.send(block) ;
+            tick(block.length/3) ;
+            triples = new long[3*RowBlockSize] ;
+            triplesIdx = 0 ;
+        }
+
+        private void flushQuads()
+        {
+            if ( quadsIdx == 0 )
+                return ;
+            long[] block = ( quadsIdx == quads.length ) ? quads : Arrays.copyOf(quads, quadsIdx) ;
+            synchronized (stats)
+            {
+                for ( int i = 0 ; i < block.length ; i += 4 )
+                    stats.record(NodeId.create(block[i]), NodeId.create(block[i+1]), NodeId.create(block[i+2]), NodeId.create(block[i+3])) ;
+            }
+            for ( IndexBuilder index : quadIndexes )
+                index.send(block) ;
+            tick(block.length/4) ;
+            quads = new long[4*RowBlockSize] ;
+            quadsIdx = 0 ;
+        }
+
+        private void tick(int n)
+        {
+            tuples += n ;
+            long before = count.getAndAdd(n) ;
+            long after = before+n ;
+            long tickPoint = (long)BulkLoader.DataTickPoint*BulkLoader.superTick ;
+            if ( before/tickPoint != after/tickPoint )
+                print("Data: %,d tuples [%s]", after, Utils.nowAsString()) ;
+        }
+
+        @Override
+        public void base(String base) {}
+
+        @Override
+        public void prefix(String prefix, String iri)
+        {
+            DatasetPrefixesTDB prefixes = dsg.getPrefixes() ;
+            synchronized (prefixes)
+            {
+                prefixes.getPrefixMapping().setNsPrefix(prefix, iri) ;
+            }
+        }
+
+        @Override
+        public void finish() {}
+    }
+
+    /** Collect, sort and spill the rows for one index, then build the B+Tree. */
+    private class IndexBuilder implements Callable<Long>
+    {
+        final String indexName ;
+        final ColumnMap colMap ;
+        final int width ;
+        final BlockingQueue<long[]> queue = new ArrayBlockingQueue<>(QueueLength) ;
+
+        IndexBuilder(String indexName, ColumnMap colMap)
+        {
+            this.indexName = indexName ;
+            this.colMap = colMap ;
+            this.width = indexName.length() ;
+        }
+
+        void removeFiles()
+        {
+            FileOps.delete(location.getPath(indexName, Names.bptExtTree)) ;
+            FileOps.delete(location.getPath(indexName, Names.bptExtRecords)) ;
+        }
+
+        /** Pass a block of rows to this index, waiting if it is behind. */
+        void send(long[] block)
+        {
+            try {
+                while ( ! queue.offer(block, 100, TimeUnit.MILLISECONDS) )
+                {
+                    if ( aborted )
+                        throw new TDBException("LoaderParallel: aborted") ;
+                }
+            } catch (InterruptedException ex) { throw new TDBException("LoaderParallel: interrupted", ex) ; }
+        }
+
+        private long[] receive() throws InterruptedException
+        {
+            for ( ;; )
+            {
+                long[] block = queue.poll(100, TimeUnit.MILLISECONDS) ;
+                if ( block != null )
+                    return block ;
+                if ( aborted )
+                    throw new TDBException("LoaderParallel: aborted") ;
+            }
+        }
+
+        @Override
+        public Long call() throws InterruptedException
+        {
+            SortedDataBag<long[]> bag = new SpillBag(width) ;
+            try {
+                for ( ;; )
+                {
+                    long[] block = receive() ;
+                    if ( block == END )
+                        break ;
+                    for ( int i = 0 ; i < block.length ; i += width )
+                    {
+                        long[] row = new long[width] ;
+                        for ( int j = 0 ; j < width ; j++ )
+                            row[colMap.mapSlotIdx(j)] = block[i+j] ;
+                        bag.add(row) ;
+                    }
+                }
+                return build(bag.iterator()) ;
+            } catch (RuntimeException ex) {
+                aborted = true ;
+                throw ex ;
+            } finally { bag.close() ; }
+        }
+
+        private long build(Iterator<long[]> rows)
+        {
+            RecordFactory recordFactory = new RecordFactory(width*SystemTDB.SizeOfNodeId, 0) ;
+            int order = BPlusTreeParams.calcOrder(params.getBlockSize(), recordFactory) ;
+            boolean compressed = BuilderStdIndex.compressLeaves(recordFactory, params) ;
+            BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory, compressed) ;
+            FileSet fileSet = new FileSet(location, indexName) ;
+            BlockMgr blkMgrNodes = BlockMgrFactory.create(fileSet, Names.bptExtTree, params) ;
+            BlockMgr blkMgrRecords = BlockMgrFactory.create(fileSet, Names.bptExtRecords, params) ;
+            RowsToRecords records = new RowsToRecords(rows, recordFactory, width) ;
+            BPlusTree bpt = null ;
+            try {
+                bpt = BPlusTreeRewriter.packIntoBPlusTree(records, bptParams, recordFactory, blkMgrNodes, blkMgrRecords) ;
+                bpt.sync() ;
+            } finally {
+                if ( bpt != null )
+                    bpt.close() ;
+                else
+                {
+                    blkMgrNodes.close() ;
+                    blkMgrRecords.close() ;
+                }
+            }
+            return records.count ;
+        }
+
+        /** A sorted bag that spills into the database directory. */
+        private class SpillBag extends SortedDataBag<long[]>
+        {
+            SpillBag(int width)
+            {
+                super(new ThresholdPolicyCount<long[]>(SpillThreshold), new RowSerializationFactory(width), rowOrder) ;
+            }
+
+            @Override
+            protected File getNewTemporaryFile()
+            {
+                return new File(location.getPath(indexName+"-"+System.nanoTime(), "tmp")) ;
+            }
+        }
+    }
+
+    /** Rows, in sorted order, to records. Duplicate rows are skipped. */
+    private static class RowsToRecords implements Iterator<Record>
+    {
+        private final Iterator<long[]> rows ;
+        private final RecordFactory recordFactory ;
+        private final int width ;
+        private long[] previous = null ;
+        private Record slot = null ;
+        long count = 0 ;
+
+        RowsToRecords(Iterator<long[]> rows, RecordFactory recordFactory, int width)
+        {
+            this.rows = rows ;
+            this.recordFactory = recordFactory ;
+            this.width = width ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( slot != null )
+                return true ;
+            while ( rows.hasNext() )
+            {
+                long[] row = rows.next() ;
+                if ( previous != null && Arrays.equals(previous, row) )
+                    continue ;
+                previous = row ;
+                Record record = recordFactory.create() ;
+                for ( int i = 0 ; i < width ; i++ )
+                    Bytes.setLong(row[i], record.getKey(), i*SystemTDB.SizeOfLong) ;
+                slot = record ;
+                return true ;
+            }
+            return false ;
+        }
+
+        @Override
+        public Record next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("RowsToRecords") ;
+            Record r = slot ;
+            slot = null ;
+            count++ ;
+            return r ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException("remove") ; }
+    }
+
+    /** Order of rows: column by column, unsigned, as for records in a B+Tree. */
+    private static Comparator<long[]> rowOrder = new Comparator<long[]>() {
+        @Override
+        public int compare(long[] row1, long[] row2)
+        {
+            for ( int i = 0 ; i < row1.length ; i++ )
+            {
+                long x1 = row1[i]+Long.MIN_VALUE ;
+                long x2 = row2[i]+Long.MIN_VALUE ;
+                if ( x1 != x2 )
+                    return x1 < x2 ? -1 : 1 ;
+            }
+            return 0 ;
+        }
+    } ;
+}
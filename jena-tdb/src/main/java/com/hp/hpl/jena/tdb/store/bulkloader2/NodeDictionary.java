@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.store.bulkloader2;
+
+import java.util.concurrent.ConcurrentHashMap ;
+import java.util.concurrent.ConcurrentMap ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+
+/** Node to NodeId allocation shared by several loader threads.
+ * <p>
+ * Allocation in the node table is one at a time (the node table is append-only). Most lookups during a load
+ * are for nodes already seen (predicates, classes, common objects) so these are
+ * answered from a concurrent map without taking the node table lock.
+ * When the map reaches its size limit it is emptied and starts again.
+ */
+public class NodeDictionary
+{
+    private final NodeTable nodeTable ;
+    private final int maxSize ;
+    private final ConcurrentMap<Node, NodeId> cache ;
+
+    public NodeDictionary(NodeTable nodeTable, int maxSize)
+    {
+        this.nodeTable = nodeTable ;
+        this.maxSize = maxSize ;
+        this.cache = new ConcurrentHashMap<>(Math.min(maxSize, 1024*1024), 0.75f, 16) ;
+    }
+
+    /** Get the NodeId for a node, allocating one if it is a new node. */
+    public NodeId getAllocateNodeId(Node node)
+    {
+        NodeId nodeId = cache.get(node) ;
+        if ( nodeId != null )
+            return nodeId ;
+        synchronized (nodeTable)
+        {
+            // Two threads may both miss; the second finds the node already allocated.
+            nodeId = nodeTable.getAllocateNodeId(node) ;
+        }
+        if ( cache.size() >= maxSize )
+            cache.clear() ;
+        cache.put(node, nodeId) ;
+        return nodeId ;
+    }
+
+    public NodeTable getNodeTable()     { return nodeTable ; }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.store.bulkloader2;
+
+import java.io.* ;
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.data.SerializationFactory ;
+import org.apache.jena.atlas.lib.Sink ;
+
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** Binary serialization of rows of longs (NodeIds), fixed width, for spill files. */
+public class RowSerializationFactory implements SerializationFactory<long[]>
+{
+    private final int itemsPerRow ;
+
+    public RowSerializationFactory(int itemsPerRow)
+    {
+        this.itemsPerRow = itemsPerRow ;
+    }
+
+    @Override
+    public Sink<long[]> createSerializer(OutputStream out)
+    {
+        final DataOutputStream output = new DataOutputStream(out) ;
+        return new Sink<long[]>() {
+            @Override
+            public void send(long[] row)
+            {
+                try {
+                    for ( int i = 0 ; i < itemsPerRow ; i++ )
+                        output.writeLong(row[i]) ;
+                } catch (IOException ex) { throw new AtlasException(ex) ; }
+            }
+
+            @Override
+            public void flush()
+            {
+                try { output.flush() ; } catch (IOException ex) { throw new AtlasException(ex) ; }
+            }
+
+            @Override
+            public void close()
+            {
+                try { output.close() ; } catch (IOException ex) { throw new AtlasException(ex) ; }
+            }
+        } ;
+    }
+
+    @Override
+    public Iterator<long[]> createDeserializer(InputStream in)
+    {
+        final DataInputStream input = new DataInputStream(in) ;
+        return new Iterator<long[]>() {
+            private long[] slot = null ;
+            private boolean finished = false ;
+
+            @Override
+            public boolean hasNext()
+            {
+                if ( finished )
+                    return false ;
+                if ( slot != null )
+                    return true ;
+                long[] row = new long[itemsPerRow] ;
+                try {
+                    row[0] = input.readLong() ;
+                } catch (EOFException ex) {
+                    finished = true ;
+                    return false ;
+                } catch (IOException ex) { throw new AtlasException(ex) ; }
+                try {
+                    for ( int i = 1 ; i < itemsPerRow ; i++ )
+                        row[i] = input.readLong() ;
+                } catch (IOException ex) { throw new AtlasException("Truncated row in spill file", ex) ; }
+                slot = row ;
+                return true ;
+            }
+
+            @Override
+            public long[] next()
+            {
+                if ( ! hasNext() )
+                    throw new NoSuchElementException("RowSerializationFactory") ;
+                long[] row = slot ;
+                slot = null ;
+                return row ;
+            }
+
+            @Override
+            public void remove()
+            { throw new UnsupportedOperationException("remove") ; }
+        } ;
+    }
+
+    @Override
+    public long getEstimatedMemorySize(long[] row)
+    {
+        // Array header and the longs.
+        return 16+itemsPerRow*SystemTDB.SizeOfLong ;
+    }
+}
@@ -25,12 +25,14 @@ import org.apache.jena.atlas.lib.Cache ;
 import org.apache.jena.atlas.lib.CacheFactory ;
 import org.apache.jena.atlas.lib.CacheSet ;
 import org.apache.jena.atlas.lib.Pair ;
+import org.apache.jena.atlas.lib.cache.CacheLRU ;
 import org.apache.jena.atlas.logging.Log ;
 
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.setup.StoreParams ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.sys.CacheBudget ;
 
 /** Cache wrapper around a NodeTable.  
  * Assumes all access goes through this wrapper.
@@ -48,29 +50,48 @@ public class NodeTableCache implements NodeTable
     private CacheSet<Node> notPresent = null ;
     private NodeTable baseTable ;
     private Object lock = new Object() ;
+    // Accounting, and resizing when there is a shared budget.
+    private CacheBudget.Registration node2id_Registration = null ;
+    private CacheBudget.Registration id2node_Registration = null ;
 
     public static NodeTable create(NodeTable nodeTable, StoreParams params) {
         int nodeToIdCacheSize = params.getNode2NodeIdCacheSize() ;
         int idToNodeCacheSize = params.getNodeId2NodeCacheSize() ;
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable ;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize()) ;
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize(), null) ;
     }
 
     public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize)
+    {
+        return create(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, null) ;
+    }
+
+    /** Create a caching node table; the caches are accounted for, under {@code group}, in the {@link CacheBudget}. */
+    public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize, String group)
     {
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable ;
-        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize) ;
+        return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, nodeMissesCacheSize, group) ;
     }
 
-    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize)
+    private NodeTableCache(NodeTable baseTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize, String group)
     {
         this.baseTable = baseTable ;
-        if ( nodeToIdCacheSize > 0) 
-            node2id_Cache = CacheFactory.createCache(nodeToIdCacheSize) ;
+        // The two caches are sized independently under a budget. 
+        // Each remains correct on its own; they need not hold the same nodes.
+        if ( nodeToIdCacheSize > 0)
+        {
+            CacheLRU<Node, NodeId> cache = CacheFactory.createResizableCache(nodeToIdCacheSize) ;
+            node2id_Registration = CacheBudget.register(group, baseTable+"/node2id", CacheBudget.NodeCacheEntryBytes, cache) ;
+            node2id_Cache = cache ;
+        }
         if ( idToNodeCacheSize > 0)
-            id2node_Cache = CacheFactory.createCache(idToNodeCacheSize) ;
+        {
+            CacheLRU<NodeId, Node> cache = CacheFactory.createResizableCache(idToNodeCacheSize) ;
+            id2node_Registration = CacheBudget.register(group, baseTable+"/id2node", CacheBudget.NodeCacheEntryBytes, cache) ;
+            id2node_Cache = cache ;
+        }
         if ( nodeMissesCacheSize > 0 )
             notPresent = CacheFactory.createCacheSet(nodeMissesCacheSize) ;
     }
@@ -235,6 +256,10 @@ public class NodeTableCache implements NodeTable
             return ;
 
         baseTable.close() ;
+        CacheBudget.unregister(node2id_Registration) ;
+        CacheBudget.unregister(id2node_Registration) ;
+        node2id_Registration = null ;
+        id2node_Registration = null ;
         node2id_Cache = null ;
         id2node_Cache = null ;
         notPresent = null ;
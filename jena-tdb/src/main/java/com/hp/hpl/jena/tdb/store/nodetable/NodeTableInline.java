@@ -20,6 +20,7 @@ package com.hp.hpl.jena.tdb.store.nodetable;
 
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 
@@ -33,20 +34,31 @@ public class NodeTableInline extends NodeTableWrapper
 {
     // Stack order: Inline > Cache > Actual
     
+    private final int format ;
+    
     public static NodeTable create(NodeTable nodeTable)
     {
-        return new NodeTableInline(nodeTable) ;
+        return create(nodeTable, NodeId.FORMAT_1) ;
+    }
+    
+    /** Create an inline wrapper that makes inline node ids in the given format (see {@link NodeId#FORMAT_2}) */ 
+    public static NodeTable create(NodeTable nodeTable, int format)
+    {
+        if ( format != NodeId.FORMAT_1 && format != NodeId.FORMAT_2 )
+            throw new TDBException("Unsupported node id format: "+format) ;
+        return new NodeTableInline(nodeTable, format) ;
     }
     
-    private NodeTableInline(NodeTable nodeTable)
+    private NodeTableInline(NodeTable nodeTable, int format)
     {
         super(nodeTable) ;
+        this.format = format ;
     }
     
     @Override
     public final NodeId getAllocateNodeId(Node node)
     {
-        NodeId nid = NodeId.inline(node) ;
+        NodeId nid = NodeId.inline(node, format) ;
         if ( nid != null ) return nid ;
         return super.getAllocateNodeId(node) ;
     }
@@ -54,7 +66,7 @@ public class NodeTableInline extends NodeTableWrapper
     @Override
     public final NodeId getNodeIdForNode(Node node)
     {
-        NodeId nid = NodeId.inline(node) ;
+        NodeId nid = NodeId.inline(node, format) ;
         if ( nid != null ) return nid ;
         return super.getNodeIdForNode(node) ;
     }
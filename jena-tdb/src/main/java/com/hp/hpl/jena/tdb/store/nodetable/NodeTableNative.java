@@ -31,6 +31,7 @@ import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.base.objectfile.ObjectFile ;
 import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.index.Index ;
 import com.hp.hpl.jena.tdb.lib.NodeLib ;
 import com.hp.hpl.jena.tdb.store.Hash ;
@@ -249,15 +250,38 @@ public class NodeTableNative implements NodeTable
         return Iter.map(objs, transform) ;
     }
 
+    /** Rebuild the index from the objects file, for an index that may have been damaged
+     *  by a crash while it was being changed.  If a node was written more than once, the
+     *  last NodeId is the one used.
+     */
+    public synchronized void rebuildIndex()
+    {
+        nodeHashToId.clear() ;
+        RecordFactory factory = nodeHashToId.getRecordFactory() ;
+        Iterator<Pair<Long, ByteBuffer>> iter = getObjects().all() ;
+        for ( ; iter.hasNext() ; )
+        {
+            Pair<Long, ByteBuffer> item = iter.next() ;
+            Node node = NodeLib.decode(item.cdr()) ;
+            Hash hash = new Hash(factory.keyLength()) ;
+            setHash(hash, node) ;
+            Record r = factory.create(hash.getBytes()) ;
+            NodeId.create(item.car().longValue()).toBytes(r.getValue(), 0) ;
+            nodeHashToId.add(r) ;
+        }
+        nodeHashToId.sync() ;
+    }
+
     @Override
     public void sync() 
     { 
         if ( syncNeeded )
         {
-            if ( nodeHashToId != null )
-                nodeHashToId.sync() ;
+            // Nodes before the index entries that refer to them.
             if ( getObjects() != null )
                 getObjects().sync() ;
+            if ( nodeHashToId != null )
+                nodeHashToId.sync() ;
             syncNeeded = false ;
         }
     }
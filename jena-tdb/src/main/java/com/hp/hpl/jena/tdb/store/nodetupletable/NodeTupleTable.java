@@ -20,6 +20,7 @@ package com.hp.hpl.jena.tdb.store.nodetupletable ;
 
 import java.util.Iterator ;
 
+import org.apache.jena.atlas.iterator.Filter ;
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Sync ;
 import org.apache.jena.atlas.lib.Tuple ;
@@ -48,6 +49,13 @@ public interface NodeTupleTable extends Sync, Closeable
     /** Find by NodeId. */
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> ids) ;
 
+    /** Find by NodeId in the union of graphs - slot 0 is the graph and is ignored.
+     *  Each match is returned once, with the graph slot set to {@link NodeId#NodeIdAny}.
+     *  Any filter is applied to the tuples before the graph slot is removed.
+     *  @see TupleTable#findUnion
+     */
+    public Iterator<Tuple<NodeId>> findUnion(Tuple<NodeId> ids, Filter<Tuple<NodeId>> filter) ;
+
     /** Find all tuples */ 
     public Iterator<Tuple<NodeId>> findAll() ;
 
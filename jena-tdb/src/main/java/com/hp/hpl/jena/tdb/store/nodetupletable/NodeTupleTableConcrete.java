@@ -22,6 +22,7 @@ import static java.lang.String.format ;
 
 import java.util.Iterator ;
 
+import org.apache.jena.atlas.iterator.Filter ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.NullIterator ;
 import org.apache.jena.atlas.lib.Tuple ;
@@ -29,6 +30,8 @@ import org.apache.jena.atlas.lib.Tuple ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.lib.TupleLib ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
+import com.hp.hpl.jena.tdb.store.ChangeLog ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
@@ -41,6 +44,9 @@ public class NodeTupleTableConcrete implements NodeTupleTable
     protected final NodeTable  nodeTable ;
     protected final TupleTable tupleTable ;
     private final DatasetControl dsPolicy ;
+    private StatsIncremental stats = null ;
+    private ChangeLog changes = null ;
+    private ChangeLog.Table changeTable = null ;
 
     /*
      * Concurrency checking: Everything goes through one of 
@@ -74,6 +80,17 @@ public class NodeTupleTableConcrete implements NodeTupleTable
     public DatasetControl getPolicy()
     { return dsPolicy ; }
     
+    /** Record changes in these statistics (may be null). */
+    public void setStats(StatsIncremental stats)
+    { this.stats = stats ; }
+    
+    /** Record changes in this log, as rows of the given table (log may be null). */
+    public void setChangeLog(ChangeLog changes, ChangeLog.Table table)
+    {
+        this.changes = changes ;
+        this.changeTable = table ;
+    }
+    
     @Override
     public boolean addRow(Node... nodes)
     {
@@ -85,7 +102,13 @@ public class NodeTupleTableConcrete implements NodeTupleTable
                 n[i] = nodeTable.getAllocateNodeId(nodes[i]) ;
 
             Tuple<NodeId> t = Tuple.create(n) ;
-            return tupleTable.add(t) ;
+            if ( ! tupleTable.add(t) )
+                return false ;
+            if ( stats != null )
+                stats.record(t, true) ;
+            if ( changes != null )
+                changes.add(changeTable, nodes) ;
+            return true ;
         } finally
         {
             finishWrite() ;
@@ -107,7 +130,13 @@ public class NodeTupleTableConcrete implements NodeTupleTable
             }
 
             Tuple<NodeId> t = Tuple.create(n) ;
-            return tupleTable.delete(t) ;
+            if ( ! tupleTable.delete(t) )
+                return false ;
+            if ( stats != null )
+                stats.record(t, false) ;
+            if ( changes != null )
+                changes.delete(changeTable, nodes) ;
+            return true ;
         } finally
         {
             finishWrite() ;
@@ -169,6 +198,16 @@ public class NodeTupleTableConcrete implements NodeTupleTable
         } finally { finishRead() ; }
     }
 
+    @Override
+    public Iterator<Tuple<NodeId>> findUnion(Tuple<NodeId> tuple, Filter<Tuple<NodeId>> filter)
+    {
+        try {
+            startRead() ;
+            Iterator<Tuple<NodeId>> iter = tupleTable.findUnion(tuple, filter) ;
+            return iteratorControl(iter) ;
+        } finally { finishRead() ; }
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> findAll()
     {
@@ -219,6 +258,10 @@ public class NodeTupleTableConcrete implements NodeTupleTable
         try {
             startWrite() ;
             tupleTable.clear() ;
+            if ( stats != null )
+                stats.invalidate() ;
+            if ( changes != null )
+                changes.clear(changeTable) ;
         } finally {
             finishWrite() ;
         }
@@ -20,6 +20,7 @@ package com.hp.hpl.jena.tdb.store.nodetupletable;
 
 import java.util.Iterator ;
 
+import org.apache.jena.atlas.iterator.Filter ;
 import org.apache.jena.atlas.lib.Tuple ;
 
 import com.hp.hpl.jena.graph.Node ;
@@ -64,6 +65,10 @@ public class NodeTupleTableWrapper implements NodeTupleTable
     public Iterator<Tuple<NodeId>> find(Tuple<NodeId> tuple)
     { return nodeTupleTable.find(tuple) ; }
     
+    @Override
+    public Iterator<Tuple<NodeId>> findUnion(Tuple<NodeId> tuple, Filter<Tuple<NodeId>> filter)
+    { return nodeTupleTable.findUnion(tuple, filter) ; }
+    
     @Override
     public Iterator<Tuple<NodeId>> findAsNodeIds(Node... nodes)
     { return nodeTupleTable.findAsNodeIds(nodes) ; }
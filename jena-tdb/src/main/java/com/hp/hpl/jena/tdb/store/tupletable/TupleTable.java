@@ -22,6 +22,9 @@ import static java.lang.String.format ;
 
 import java.util.Iterator ;
 
+import org.apache.jena.atlas.iterator.Action ;
+import org.apache.jena.atlas.iterator.Filter ;
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.Sync ;
 import org.apache.jena.atlas.lib.Tuple ;
@@ -57,8 +60,8 @@ public class TupleTable implements Sync, Closeable
         scanAllIndex = chooseScanAllIndex(tupleLen, indexes) ;
     }
     
-    /** Choose an index to scan in case we are asked for everything
-     * This needs to be ???G for the distinctAdjacent filter in union query to work.
+    /** Choose an index to scan in case we are asked for everything.
+     * This is ???G if possible (see also {@link #findUnion}).
      */
     private static TupleIndex chooseScanAllIndex(int tupleLen, TupleIndex[] indexes)
     {
@@ -179,7 +182,13 @@ public class TupleTable implements Sync, Closeable
 
         if ( numSlots == 0 )
             return scanAllIndex.all() ;
-        
+        return chooseIndex(pattern).find(pattern) ;
+    }
+    
+    /** The index that {@link #find} uses for a pattern with at least one slot set:
+     *  the one with the most leading columns fixed by the pattern. */
+    public TupleIndex chooseIndex(Tuple<NodeId> pattern)
+    {
         int indexNumSlots = 0 ;
         TupleIndex index = null ;
         for ( TupleIndex idx : indexes )
@@ -198,9 +207,113 @@ public class TupleTable implements Sync, Closeable
         if ( index == null )
             // No index at all.  Scan.
             index = indexes[0] ;
-        return index.find(pattern) ;
+        return index ;
     }
     
+    /** Find the matches in the union of graphs.  Slot 0 is the graph and is ignored in the pattern.
+     *  Each match is returned once, with its graph slot set to {@link NodeId#NodeIdAny}.
+     *  The filter, if not null, is applied before the graph slot is dropped.
+     *  <p>
+     *  An index with the graph as the last column is used, if there is one that covers
+     *  the pattern, so that matches differing only in the graph are adjacent and 
+     *  duplicates are removed while streaming. Otherwise, duplicates are removed
+     *  with a hash set of all the results.
+     */
+    public Iterator<Tuple<NodeId>> findUnion(Tuple<NodeId> pattern, Filter<Tuple<NodeId>> filter)
+    {
+        if ( tupleLen != pattern.size() )
+            throw new TDBException(format("Mismatch: finding tuple of length %d in a table of tuples of length %d", pattern.size(), tupleLen)) ;
+        if ( tupleLen != 4 )
+            throw new TDBException("TupleTable.findUnion: tuples are of length "+tupleLen) ;
+        
+        pattern = unionPattern(pattern) ;
+        int numSlots = numSlots(pattern) ;
+        TupleIndex index = graphLastIndex(pattern, numSlots) ;
+        boolean adjacent = ( index != null ) ;
+        
+        Iterator<Tuple<NodeId>> iter ;
+        if ( ! adjacent )
+            iter = find(pattern) ;
+        else if ( numSlots == 0 )
+            iter = index.all() ;
+        else
+            iter = index.find(pattern) ;
+        
+        if ( filter != null )
+            iter = Iter.filter(iter, filter) ;
+        // Tuples from the index are not shared.
+        iter = Iter.operate(iter, graphToAny) ;
+        if ( adjacent )
+            return Iter.distinctAdjacent(iter) ;
+        return Iter.distinct(iter) ;
+    }
+    
+    /** The index that {@link #findUnion} uses for a pattern with at least one of 
+     *  slots 1 to 3 set. */
+    public TupleIndex chooseIndexUnion(Tuple<NodeId> pattern)
+    {
+        pattern = unionPattern(pattern) ;
+        TupleIndex index = graphLastIndex(pattern, numSlots(pattern)) ;
+        return ( index != null ) ? index : chooseIndex(pattern) ;
+    }
+    
+    // The pattern with the graph slot set to any.
+    private static Tuple<NodeId> unionPattern(Tuple<NodeId> pattern)
+    {
+        NodeId[] ids = new NodeId[pattern.size()] ;
+        ids[0] = NodeId.NodeIdAny ;
+        for ( int i = 1 ; i < ids.length ; i++ )
+            ids[i] = pattern.get(i) ;
+        return Tuple.create(ids) ;
+    }
+    
+    private static int numSlots(Tuple<NodeId> pattern)
+    {
+        int numSlots = 0 ;
+        for ( int i = 0 ; i < pattern.size() ; i++ )
+        {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                numSlots++ ;
+        }
+        return numSlots ;
+    }
+    
+    /** The best index with the graph last, or null if there is none or it would
+     *  mean a full scan when the pattern does not need one. */
+    private TupleIndex graphLastIndex(Tuple<NodeId> pattern, int numSlots)
+    {
+        TupleIndex index = null ;
+        int indexNumSlots = 0 ;
+        for ( TupleIndex idx : indexes )
+        {
+            if ( idx == null || ! isGraphLast(idx) )
+                continue ;
+            int w = idx.weight(pattern) ;
+            if ( index == null || w > indexNumSlots )
+            {
+                indexNumSlots = w ;
+                index = idx ;
+            }
+        }
+        // Only use an index that avoids a full scan, unless a full scan is needed anyway. 
+        if ( index != null && ( numSlots == 0 || indexNumSlots > 0 ) )
+            return index ;
+        return null ;
+    }
+    
+    /** Does the index have the graph (slot 0) as its last column? */
+    private static boolean isGraphLast(TupleIndex index)
+    {
+        return index.getColumnMap().fetchSlotIdx(index.getTupleLength()-1) == 0 ;
+    }
+
+    // Mutating "transform in place"
+    private static Action<Tuple<NodeId>> graphToAny = new Action<Tuple<NodeId>>() {
+        @Override
+        public void apply(Tuple<NodeId> item)
+        { item.tuple()[0] = NodeId.NodeIdAny ; }
+    } ;
+    
     @Override
     final public void close()
     {
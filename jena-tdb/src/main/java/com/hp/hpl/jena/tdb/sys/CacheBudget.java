@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.sys;
+
+import java.lang.ref.WeakReference ;
+import java.util.* ;
+
+import org.apache.jena.atlas.lib.cache.CacheLRU ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+import com.hp.hpl.jena.tdb.base.file.BlockAccessMapped ;
+import com.hp.hpl.jena.tdb.mgt.TDBMgt ;
+
+/**
+ * JVM-wide accounting of the memory used by TDB caches, and an optional single budget
+ * ({@link SystemTDB#CacheBudgetMB}) shared by the caches of all datasets.
+ * <p>
+ * Block read caches and node table caches register themselves when created. With a
+ * budget set, the budget is periodically redistributed: every cache keeps a small floor
+ * and the rest is shared out in proportion to each cache's recent misses (smoothed), so
+ * busy datasets grow their caches at the expense of idle ones. Without a budget, caches
+ * keep their configured sizes and are only reported on.
+ * <p>
+ * Caches are held weakly so a dataset that is dropped without being closed does not
+ * stay in the accounting.
+ */
+public class CacheBudget
+{
+    private static Logger log = LoggerFactory.getLogger(CacheBudget.class) ;
+
+    /** Estimated in-memory size of a node table cache entry (Node, NodeId and map entry). */
+    public static final int NodeCacheEntryBytes     = 160 ;
+    /** Estimated overhead of a cached block beyond its bytes. */
+    public static final int BlockCacheEntryOverhead = 128 ;
+
+    /** Fraction of the budget kept as a floor, shared equally across all caches. */
+    private static final int FloorFraction = 4 ;
+
+    private static final List<Registration> caches = new ArrayList<>() ;
+    private static Timer timer = null ;
+    private static long rebalances = 0 ;
+
+    /** Handle returned by {@link #register}; used to unregister. */
+    public static final class Registration
+    {
+        private final String group ;
+        private final String label ;
+        private final long entryBytes ;
+        private final WeakReference<CacheLRU<?,?>> cacheRef ;
+        private long lastMisses = 0 ;
+        private double weight = 0 ;
+
+        private Registration(String group, String label, long entryBytes, CacheLRU<?,?> cache) {
+            this.group = group ;
+            this.label = label ;
+            this.entryBytes = entryBytes ;
+            this.cacheRef = new WeakReference<CacheLRU<?,?>>(cache) ;
+        }
+
+        public String getGroup()        { return group ; }
+        public String getLabel()        { return label ; }
+        public long getEntryBytes()     { return entryBytes ; }
+    }
+
+    /** Is a shared budget in force? */
+    public static boolean isEnabled()
+    {
+        return SystemTDB.CacheBudgetMB > 0 ;
+    }
+
+    /** The shared budget in bytes, or -1. */
+    public static long budgetBytes()
+    {
+        return isEnabled() ? SystemTDB.CacheBudgetMB * 1024L * 1024L : -1 ;
+    }
+
+    /**
+     * Register a cache. {@code group} identifies the dataset (usually the location directory),
+     * {@code entryBytes} is the estimated memory used by one entry.
+     */
+    public static synchronized Registration register(String group, String label, long entryBytes, CacheLRU<?,?> cache)
+    {
+        if ( group == null )
+            group = "" ;
+        Registration reg = new Registration(group, label, entryBytes, cache) ;
+        reg.lastMisses = cache.getMisses() ;
+        caches.add(reg) ;
+        if ( isEnabled() )
+        {
+            startTimer() ;
+            rebalance() ;
+        }
+        return reg ;
+    }
+
+    /** Unregister a cache (when its dataset is closed). Safe to call more than once. */
+    public static synchronized void unregister(Registration reg)
+    {
+        if ( reg == null )
+            return ;
+        if ( caches.remove(reg) && isEnabled() )
+            rebalance() ;
+    }
+
+    /**
+     * Redistribute the budget across the registered caches.
+     * Called periodically when a budget is set; does nothing otherwise.
+     */
+    public static synchronized void rebalance()
+    {
+        List<CacheLRU<?,?>> live = live() ;
+        if ( ! isEnabled() || caches.isEmpty() )
+            return ;
+        rebalances++ ;
+        long budget = budgetBytes() ;
+        int N = caches.size() ;
+        long floor = budget / ( (long)N * FloorFraction ) ;
+        long shared = budget - floor * N ;
+
+        double totalWeight = 0 ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Registration reg = caches.get(i) ;
+            long misses = live.get(i).getMisses() ;
+            // Exponential smoothing of misses per interval.
+            reg.weight = reg.weight / 2 + ( misses - reg.lastMisses ) ;
+            reg.lastMisses = misses ;
+            totalWeight += reg.weight + 1 ;
+        }
+
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Registration reg = caches.get(i) ;
+            long bytes = floor + (long)( shared * ( ( reg.weight + 1 ) / totalWeight ) ) ;
+            long entries = Math.max(1, bytes / reg.entryBytes) ;
+            live.get(i).setMaxSize((int)Math.min(entries, Integer.MAX_VALUE)) ;
+        }
+        if ( log.isDebugEnabled() )
+            log.debug(String.format("Rebalance: %d caches, allocated=%d used=%d", N, allocatedBytes(), usedBytes())) ;
+    }
+
+    /** Number of registered caches. */
+    public static synchronized int numCaches()
+    {
+        live() ;
+        return caches.size() ;
+    }
+
+    /** Number of times the budget has been redistributed. */
+    public static synchronized long numRebalances()
+    {
+        return rebalances ;
+    }
+
+    /** Estimated bytes the registered caches may grow to. */
+    public static synchronized long allocatedBytes()
+    {
+        long x = 0 ;
+        List<CacheLRU<?,?>> live = live() ;
+        for ( int i = 0 ; i < live.size() ; i++ )
+            x += live.get(i).getMaxSize() * caches.get(i).entryBytes ;
+        return x ;
+    }
+
+    /** Estimated bytes currently held by the registered caches. */
+    public static synchronized long usedBytes()
+    {
+        long x = 0 ;
+        List<CacheLRU<?,?>> live = live() ;
+        for ( int i = 0 ; i < live.size() ; i++ )
+            x += live.get(i).size() * caches.get(i).entryBytes ;
+        return x ;
+    }
+
+    /** Estimated bytes currently held by the caches of each group (dataset). */
+    public static synchronized Map<String, Long> usedBytesByGroup()
+    {
+        Map<String, Long> x = new TreeMap<>() ;
+        List<CacheLRU<?,?>> live = live() ;
+        for ( int i = 0 ; i < live.size() ; i++ )
+        {
+            Registration reg = caches.get(i) ;
+            Long v = x.get(reg.group) ;
+            long bytes = live.get(i).size() * reg.entryBytes ;
+            x.put(reg.group, v == null ? bytes : v + bytes) ;
+        }
+        return x ;
+    }
+
+    /** One line per registered cache : group, label, entries, capacity, hits and misses. */
+    public static synchronized List<String> summary()
+    {
+        List<String> x = new ArrayList<>() ;
+        List<CacheLRU<?,?>> live = live() ;
+        for ( int i = 0 ; i < live.size() ; i++ )
+        {
+            Registration reg = caches.get(i) ;
+            CacheLRU<?,?> c = live.get(i) ;
+            x.add(String.format("%s %s size=%d capacity=%d hits=%d misses=%d",
+                                reg.group, reg.label, c.size(), c.getMaxSize(), c.getHits(), c.getMisses())) ;
+        }
+        return x ;
+    }
+
+    /** Bytes of file currently memory mapped by TDB (outside the Java heap). */
+    public static long mappedBytes()
+    {
+        return BlockAccessMapped.mappedBytes() ;
+    }
+
+    /** Drop registrations whose cache has been garbage collected; return the live caches, in order. */
+    private static List<CacheLRU<?,?>> live()
+    {
+        List<CacheLRU<?,?>> x = new ArrayList<>(caches.size()) ;
+        Iterator<Registration> iter = caches.iterator() ;
+        while ( iter.hasNext() )
+        {
+            CacheLRU<?,?> c = iter.next().cacheRef.get() ;
+            if ( c == null )
+                iter.remove() ;
+            else
+                x.add(c) ;
+        }
+        return x ;
+    }
+
+    private static void startTimer()
+    {
+        if ( timer != null )
+            return ;
+        TDBMgt.registerMemory() ;
+        long interval = Math.max(100, SystemTDB.CacheBudgetInterval) ;
+        timer = new Timer("TDB cache budget", true) ;
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run()
+            {
+                try { rebalance() ; }
+                catch (Throwable th) { log.warn("Cache budget rebalance failed", th) ; }
+            }
+        }, interval, interval) ;
+    }
+}
@@ -64,6 +64,7 @@ public class Names
     public static final String optStats                 = "stats.opt" ;
     public static final String optFixed                 = "fixed.opt" ;
     public static final String optNone                  = "none.opt" ; 
+    public static final String optStatsIncremental      = "stats.inc" ;
     public static final String optDefault               = optFixed ;
     
     public static final String extMeta                  = "info" ;
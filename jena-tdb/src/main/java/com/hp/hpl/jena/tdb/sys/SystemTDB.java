@@ -118,6 +118,18 @@ public class SystemTDB
     /** Experimental : triple and quad filtering at scan level */
     public static final Symbol symTupleFilter       = allocSymbol("tupleFilter") ;
 
+    /** Experimental : number of input bindings to gather, sort and look up together
+     *  in each step of a basic graph pattern. Unset, or less than 2, means one lookup per binding.
+     *  @see com.hp.hpl.jena.tdb.solver.StageMatchTupleBatched  
+     */
+    public static final Symbol symMatchBatchSize    = allocSymbol("matchBatchSize") ;
+
+    /** Durability of committed write transactions : one of "sync", "group", "async".
+     *  Read when a database is first opened.
+     *  @see com.hp.hpl.jena.tdb.transaction.DurabilityMode
+     */
+    public static final Symbol symDurability        = allocSymbol("durability") ;
+
     private static final String propertyFileKey1    = tdbPropertyRoot+".settings" ;
     private static final String propertyFileKey2    = tdbSymbolPrefix+":settings" ;
 
@@ -153,6 +165,11 @@ public class SystemTDB
     /** Size, in bytes, of a segment (used for memory mapped files) */
     public static final int SegmentSize             = 8*1024*1024 ; // intValue("SegmentSize", 8*1024*1024) ;
     
+    /** Maximum number of blocks read ahead of a sequential scan of a file (0 disables read-ahead).
+     *  Applies to block files opened after it is set.
+     */
+    public static int ReadAheadBlocks               = intValue("ReadAheadBlocks", 32) ;
+    
     // ---- Cache sizes (within the JVM)
     
     public static final int ObjectFileWriteCacheSize = 8*1024 ;
@@ -177,6 +194,17 @@ public class SystemTDB
 
     /** Size of read block cache (32 bit systems only).  Increase JVM size as necessary. Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 10*1000) ;
+
+    /** JVM-wide memory budget, in megabytes, shared between the block read caches and
+     *  node table caches of all datasets. The budget is divided between caches according
+     *  to how often each one misses. -1 means no shared budget: each cache keeps the size
+     *  given by its StoreParams. Applies to caches created after it is set.
+     *  @see CacheBudget
+     */
+    public static int CacheBudgetMB                 = intValue("CacheBudgetMB", -1) ;
+
+    /** Milliseconds between redistributions of the shared cache budget. */
+    public static int CacheBudgetInterval           = intValue("CacheBudgetInterval", 10*1000) ;
     
     // ---- Misc
     
@@ -185,6 +213,12 @@ public class SystemTDB
 
     /** Default BGP optimizer */
     public static ReorderTransformation defaultReorderTransform = ReorderLib.fixed() ;
+    
+    /** Keep statistics for the BGP optimizer up to date as the data changes, for databases opened
+     *  while this is set. Once a database has these statistics, they are always maintained.
+     *  @see com.hp.hpl.jena.tdb.solver.stats.StatsIncremental
+     */
+    public static boolean incrementalStats = false ;
 
     public static final ByteOrder NetworkOrder      = ByteOrder.BIG_ENDIAN ;
     
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.concurrent.locks.Lock ;
+
+import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrReadonly ;
+import com.hp.hpl.jena.tdb.sys.FileRef ;
+
+/** Read-only access to the blocks of a read transaction, as of the epoch of the transaction,
+ *  while write-back of later commits to the base database carries on.
+ *  @see BlockVersions 
+ */
+public class BlockMgrSnapshot extends BlockMgrReadonly
+{
+    private final FileRef fileRef ;
+    private final BlockVersions versions ;
+    private final long epoch ;
+
+    public BlockMgrSnapshot(BlockMgr blockMgr, FileRef fileRef, BlockVersions versions, long epoch)
+    {
+        super(blockMgr) ;
+        this.fileRef = fileRef ;
+        this.versions = versions ;
+        this.epoch = epoch ;
+    }
+    
+    public long getEpoch() { return epoch ; }
+
+    @Override
+    public Block getRead(long id)
+    {
+        return get(id, false) ;
+    }
+
+    @Override
+    public Block getReadIterator(long id)
+    {
+        return get(id, true) ;
+    }
+    
+    private Block get(long id, boolean iterator)
+    {
+        Lock lock = versions.readLock() ;
+        lock.lock() ;
+        try {
+            Block block = versions.find(fileRef, id, epoch) ;
+            if ( block != null )
+                return block ;
+            block = iterator ? blockMgr.getReadIterator(id) : blockMgr.getRead(id) ;
+            // The block may be overwritten by write-back once the lock is released.
+            Block copy = BlockVersions.copy(block) ;
+            blockMgr.release(block) ;
+            return copy ;
+        } finally { lock.unlock() ; }
+    }
+    
+    // Blocks are copies.
+    @Override public void release(Block block)  {}
+    
+    @Override public String toString()          { return "Snapshot["+epoch+"]:"+super.toString() ; } 
+}
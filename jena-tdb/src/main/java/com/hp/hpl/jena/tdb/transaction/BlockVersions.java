@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.nio.ByteBuffer ;
+import java.util.* ;
+import java.util.concurrent.locks.Lock ;
+import java.util.concurrent.locks.ReentrantReadWriteLock ;
+
+import com.hp.hpl.jena.tdb.base.block.Block ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.sys.FileRef ;
+
+/** Earlier states of the blocks of the base database.
+ * <p>
+ * Committed transactions are numbered (the epoch) in commit order; a read
+ * transaction sees the database as of the epoch of the last commit when it started.
+ * When write-back overwrites a block that an active reader may still need, the
+ * current state is kept here, marked with the epoch of the commit that replaced it.
+ * A reader at epoch {@code e} uses the earliest version replaced after {@code e},
+ * if any, else the block as stored.
+ * <p>
+ * Write-back holds the write lock; readers hold the read lock while fetching
+ * a block or looking in a node table.
+ * Versions are reclaimed when no reader old enough to need them is active.
+ */
+public class BlockVersions
+{
+    private static class Version
+    {
+        final long replacedAt ;
+        final Block block ;
+        Version(long replacedAt, Block block) { this.replacedAt = replacedAt ; this.block = block ; }
+    }
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock() ;
+    // Only changed under the write lock.  Versions of a block are in epoch order. 
+    private final Map<FileRef, Map<Long, List<Version>>> versions = new HashMap<>() ;
+    private long count = 0 ;
+    private long maxCount = 0 ;
+    private long totalSaved = 0 ;
+    
+    /** Lock held by readers while accessing the base database */ 
+    public Lock readLock()      { return lock.readLock() ; }
+    
+    /** Lock held by write-back */
+    public Lock writeLock()     { return lock.writeLock() ; }
+    
+    /** The block as seen by a reader at the given epoch or null if the current block applies.
+     *  Called with the read lock held.
+     */
+    public Block find(FileRef ref, long id, long epoch)
+    {
+        if ( count == 0 )
+            return null ;
+        Map<Long, List<Version>> x = versions.get(ref) ;
+        if ( x == null )
+            return null ;
+        List<Version> list = x.get(id) ;
+        if ( list == null )
+            return null ;
+        for ( Version v : list )
+        {
+            if ( v.replacedAt > epoch )
+                return v.block ;
+        }
+        return null ;
+    }
+    
+    /** Start recording versions for the journal being written back.
+     * @param firstEpoch    Epoch of the first commit in the journal
+     * @param readers       Epochs of the active readers
+     */
+    public Capture capture(long firstEpoch, NavigableSet<Long> readers)
+    {
+        return new Capture(firstEpoch, readers) ;
+    }
+    
+    /** Records the state of blocks as the entries of a journal are written back. */ 
+    public class Capture
+    {
+        private long epoch ;
+        private final NavigableSet<Long> readers ;
+        
+        private Capture(long firstEpoch, NavigableSet<Long> readers)
+        {
+            this.epoch = firstEpoch ;
+            this.readers = readers ;
+        }
+        
+        /** About to overwrite a block */ 
+        public void beforeOverwrite(FileRef ref, BlockMgr blockMgr, long id)
+        {
+            if ( readers.isEmpty() || readers.first() >= epoch )
+                return ;
+            // Readers from the last recorded version up to this commit need the current block.
+            Map<Long, List<Version>> x = versions.get(ref) ;
+            List<Version> list = ( x == null ) ? null : x.get(id) ;
+            long last = ( list == null ) ? Long.MIN_VALUE : list.get(list.size()-1).replacedAt ;
+            if ( readers.subSet(last, true, epoch, false).isEmpty() )
+                return ;
+            if ( ! blockMgr.valid((int)id) )
+                // New block.
+                return ;
+            Block block = blockMgr.getRead(id) ;
+            save(ref, id, copy(block)) ;
+            blockMgr.release(block) ;
+        }
+        
+        private void save(FileRef ref, long id, Block block)
+        {
+            Map<Long, List<Version>> x = versions.get(ref) ;
+            if ( x == null )
+            {
+                x = new HashMap<>() ;
+                versions.put(ref, x) ;
+            }
+            List<Version> list = x.get(id) ;
+            if ( list == null )
+            {
+                list = new ArrayList<>(2) ;
+                x.put(id, list) ;
+            }
+            list.add(new Version(epoch, block)) ;
+            count++ ;
+            totalSaved++ ;
+            maxCount = Math.max(maxCount, count) ;
+        }
+        
+        /** The end of the entries of one commit */
+        public void commit()
+        {
+            epoch++ ;
+        }
+        
+        /** Epoch of the next commit in the journal */
+        public long nextEpoch()
+        {
+            return epoch ;
+        }
+    }
+    
+    /** Drop versions only needed by readers before the given epoch. */ 
+    public void reclaim(long oldestReader)
+    {
+        Lock w = writeLock() ;
+        w.lock() ;
+        try {
+            if ( count == 0 )
+                return ;
+            for ( Iterator<Map<Long, List<Version>>> iter1 = versions.values().iterator() ; iter1.hasNext() ; )
+            {
+                Map<Long, List<Version>> x = iter1.next() ;
+                for ( Iterator<List<Version>> iter2 = x.values().iterator() ; iter2.hasNext() ; )
+                {
+                    List<Version> list = iter2.next() ;
+                    for ( Iterator<Version> iter3 = list.iterator() ; iter3.hasNext() ; )
+                    {
+                        if ( iter3.next().replacedAt <= oldestReader )
+                        {
+                            iter3.remove() ;
+                            count-- ;
+                        }
+                    }
+                    if ( list.isEmpty() )
+                        iter2.remove() ;
+                }
+                if ( x.isEmpty() )
+                    iter1.remove() ;
+            }
+        } finally { w.unlock() ; }
+    }
+    
+    /** Number of block versions currently kept */ 
+    public long getCount()      { return count ; }
+    
+    /** Largest number of block versions kept at any one time */
+    public long getMaxCount()   { return maxCount ; }
+    
+    /** Number of block versions kept since the database was opened */
+    public long getTotalSaved() { return totalSaved ; }
+    
+    /** Copy a block: blocks from the base database may be shared or change underneath the caller. */ 
+    public static Block copy(Block block)
+    {
+        // Work on a duplicate: other threads may be reading the same block.
+        ByteBuffer src = block.getByteBuffer().duplicate() ;
+        src.clear() ;
+        ByteBuffer dst = ByteBuffer.allocate(src.capacity()) ;
+        dst.put(src) ;
+        dst.clear() ;
+        return new Block(block.getId(), dst) ;
+    }
+}
@@ -36,6 +36,8 @@ import com.hp.hpl.jena.tdb.setup.BlockMgrBuilder ;
 import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
 import com.hp.hpl.jena.tdb.setup.NodeTableBuilder ;
 import com.hp.hpl.jena.tdb.setup.StoreParams ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
+import com.hp.hpl.jena.tdb.store.ChangeLog ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableInline ;
@@ -93,6 +95,13 @@ public class DatasetBuilderTxn
         DatasetBuilderStd x = new DatasetBuilderStd(blockMgrBuilder, nodeTableBuilder) ;
         DatasetGraphTDB dsg2 = x._build(dsg.getLocation(), dsg.getConfig().params, true, dsg.getReorderTransform()) ;
         dsg2.getContext().putAll(dsg.getContext()) ;
+        // Changes are merged into the statistics of the base dataset on commit. 
+        if ( dsg.getStatsIncremental() != null )
+            dsg2.setStatsIncremental(new StatsIncremental(dsg2.getTripleTable().getNodeTupleTable().getNodeTable())) ;
+        // Changes are added to the log of the transaction manager on commit.
+        ChangeLog changes = txnMgr.newChangeLog() ;
+        if ( changes != null )
+            dsg2.setChangeLog(changes) ;
         return dsg2 ;
     }
 
@@ -139,7 +148,7 @@ public class DatasetBuilderTxn
             txn.addComponent(ntt) ;
 
             // Add inline wrapper.
-            NodeTable nt = NodeTableInline.create(ntt) ;
+            NodeTable nt = NodeTableInline.create(ntt, params.getNodeIdFormat()) ;
             return nt ;
         }
     }
@@ -169,6 +178,9 @@ public class DatasetBuilderTxn
             BlockMgr blockMgr = blockMgrs.get(ref) ;
             if ( blockMgr == null )
                 throw new TDBException("No BlockMgr for " + ref) ;
+            if ( txnMgr.isMultiVersion() )
+                // Write-back may happen while the transaction is active.
+                return new BlockMgrSnapshot(blockMgr, ref, txnMgr.getBlockVersions(), txn.getEpoch()) ;
             blockMgr = new BlockMgrReadonly(blockMgr) ;
             return blockMgr ;
         }
@@ -180,6 +192,8 @@ public class DatasetBuilderTxn
         public NodeTable buildNodeTable(FileSet fsIndex, FileSet fsObjectFile, StoreParams params) {
             FileRef ref = FileRef.create(fsObjectFile.filename(Names.extNodeData)) ;
             NodeTable nt = nodeTables.get(ref) ;
+            if ( txnMgr.isMultiVersion() )
+                return new NodeTableSnapshot(nt, txnMgr.getBlockVersions()) ;
             nt = new NodeTableReadonly(nt) ;
             return nt ;
         }
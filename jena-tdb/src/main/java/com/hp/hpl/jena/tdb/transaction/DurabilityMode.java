@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction;
+
+/** When a committed write transaction is safely on disk.
+ *  <p>
+ *  In every mode, a commit is visible to transactions that begin after it reaches
+ *  its commit point, before the journal sync.  In {@link #GROUP} and {@link #ASYNC}
+ *  modes, a crash can therefore lose a commit that another transaction has already
+ *  read.  The base database is never ahead of the journal: the journal is synced
+ *  before any commit is written back.
+ */
+public enum DurabilityMode
+{
+    /** Each commit syncs the journal before it returns. */
+    SYNC,
+    /** Commits that happen close together share one sync of the journal.
+     *  A commit returns when its commit record is on disk; the next writer
+     *  can start while the sync is happening, and can see the commit. */
+    GROUP,
+    /** Commits return without waiting; the journal is synced in the background
+     *  at a fixed interval, which bounds the work that can be lost in a crash.
+     *  Work that is lost may have been seen by other transactions. */
+    ASYNC ;
+
+    /** Parse a mode name, ignoring case. */
+    public static DurabilityMode create(String name)
+    {
+        for ( DurabilityMode m : values() )
+        {
+            if ( m.name().equalsIgnoreCase(name) )
+                return m ;
+        }
+        throw new TDBTransactionException("Unknown durability mode: "+name) ;
+    }
+}
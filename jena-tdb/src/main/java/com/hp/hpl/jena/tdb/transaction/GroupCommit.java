@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.concurrent.atomic.AtomicLong ;
+
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** Syncing the journal after commit records are written, according to a {@link DurabilityMode}.
+ * <p>
+ * Commit records are numbered as they are written (writers are serialized by the
+ * transaction manager). A sync of the journal makes all commit records written before
+ * it started durable, so one sync can serve several commits: the first committer to
+ * find no sync in progress waits the group window, then syncs for everyone; the others
+ * wait for it.
+ */
+class GroupCommit
+{
+    private final Journal journal ;
+    private final DurabilityMode mode ;
+    private final long windowMillis ;
+    private final long intervalMillis ;
+
+    // Commit records written, and the number known to be on disk.
+    private long written = 0 ;
+    private long synced = 0 ;
+    private boolean syncing = false ;
+    private final AtomicLong syncCount = new AtomicLong(0) ;
+
+    private Thread flusher = null ;
+    private volatile boolean running = false ;
+
+    GroupCommit(Journal journal, DurabilityMode mode, long windowMillis, long intervalMillis)
+    {
+        this.journal = journal ;
+        this.mode = mode ;
+        this.windowMillis = windowMillis ;
+        this.intervalMillis = intervalMillis ;
+        if ( mode == DurabilityMode.ASYNC )
+            startFlusher() ;
+    }
+
+    DurabilityMode getMode()    { return mode ; }
+
+    /** Number of times the journal has been synced for commits */
+    long getSyncCount()         { return syncCount.get() ; }
+
+    /** A commit record has been written to the journal: return its number. */
+    synchronized long committed()
+    {
+        return ++written ;
+    }
+
+    /** The commit point, called while the writer still has exclusive access. */
+    void commitPoint(long commitNum)
+    {
+        if ( mode == DurabilityMode.SYNC )
+            sync() ;
+    }
+
+    /** Called after the writer has released exclusive access: return when the commit is durable,
+     *  or as durable as the mode requires. */
+    void awaitDurable(long commitNum)
+    {
+        if ( mode != DurabilityMode.GROUP )
+            return ;
+        synchronized (this)
+        {
+            for ( ;; )
+            {
+                if ( synced >= commitNum )
+                    return ;
+                if ( ! syncing )
+                {
+                    syncing = true ;
+                    break ;
+                }
+                try { wait() ; }
+                catch (InterruptedException ex) { throw new TDBTransactionException("Interrupted waiting for the journal sync", ex) ; }
+            }
+        }
+        // This thread does the sync for the group.
+        try {
+            if ( windowMillis > 0 )
+            {
+                try { Thread.sleep(windowMillis) ; }
+                catch (InterruptedException ex) { Thread.currentThread().interrupt() ; }
+            }
+            sync() ;
+        } finally {
+            synchronized (this)
+            {
+                syncing = false ;
+                notifyAll() ;
+            }
+        }
+    }
+
+    /** Sync the journal, making all commit records written so far durable. */
+    private void sync()
+    {
+        long target ;
+        synchronized (this) { target = written ; }
+        journal.sync() ;
+        syncCount.incrementAndGet() ;
+        synchronized (this)
+        {
+            if ( target > synced )
+                synced = target ;
+            notifyAll() ;
+        }
+    }
+
+    /** Make sure every commit record written so far is on disk (used before changes
+     *  are written back to the base data). */
+    void syncPending()
+    {
+        if ( pending() )
+            sync() ;
+    }
+
+    private synchronized boolean pending()
+    {
+        return written > synced ;
+    }
+
+    private void startFlusher()
+    {
+        running = true ;
+        flusher = new Thread("TDB journal flusher") {
+            @Override
+            public void run()
+            {
+                while ( running )
+                {
+                    try { Thread.sleep(intervalMillis) ; }
+                    catch (InterruptedException ex) {}
+                    try {
+                        if ( pending() )
+                            sync() ;
+                    } catch (RuntimeException ex) {
+                        SystemTDB.errlog.warn("Exception during background journal sync", ex) ;
+                    }
+                }
+            }
+        } ;
+        flusher.setDaemon(true) ;
+        flusher.start() ;
+    }
+
+    /** Stop any background syncing and sync anything outstanding. */
+    void shutdown()
+    {
+        if ( flusher != null )
+        {
+            running = false ;
+            flusher.interrupt() ;
+            try { flusher.join() ; }
+            catch (InterruptedException ex) { Thread.currentThread().interrupt() ; }
+            flusher = null ;
+        }
+        syncPending() ;
+    }
+}
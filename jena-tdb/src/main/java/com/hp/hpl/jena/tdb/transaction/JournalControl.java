@@ -183,7 +183,7 @@ public class JournalControl
                         log.warn(format("Inconsistent: end at %d; expected %d", e.getEndPosition(), endPosn)) ;
                     return ;
                 }
-                replay(e, sConf) ;
+                replay(e, sConf, null) ;
             }
         } finally { Iter.close(iter) ; }
     }
@@ -232,8 +232,21 @@ public class JournalControl
         replay(journal, dsg.getConfig()) ;
     }
     
+    /** Replay a journal onto a dataset, keeping the earlier state of blocks
+     *  still needed by active read transactions.
+     */
+    public static void replay(Journal journal, DatasetGraphTDB dsg, BlockVersions.Capture capture)
+    {
+        replay(journal, dsg.getConfig(), capture) ;
+    }
+    
     /** Replay a journal onto a store configuration (the file resources) */
     private static void replay(Journal journal, StorageConfig sConf)
+    {
+        replay(journal, sConf, null) ;
+    }
+    
+    private static void replay(Journal journal, StorageConfig sConf, BlockVersions.Capture capture)
     {
         if ( journal.size() == 0 )
             return ;
@@ -245,7 +258,7 @@ public class JournalControl
             for (  ; iter.hasNext() ; )
             {
                 JournalEntry e = iter.next() ;
-                replay(e, sConf) ;
+                replay(e, sConf, capture) ;
 
                 // There is no point sync here.  
                 // No writes via the DSG have been done. 
@@ -268,7 +281,7 @@ public class JournalControl
     }
 
     /** return true for "go on" */
-    private static boolean replay(JournalEntry e, StorageConfig sConf)
+    private static boolean replay(JournalEntry e, StorageConfig sConf, BlockVersions.Capture capture)
     {
         switch (e.getType())
         {
@@ -278,6 +291,8 @@ public class JournalControl
                 Block blk = e.getBlock() ;
                 log.debug("Replay: {} {}",e.getFileRef(), blk) ;
                 blk.setModified(true) ;
+                if ( capture != null )
+                    capture.beforeOverwrite(e.getFileRef(), blkMgr, blk.getId()) ;
                 blkMgr.overwrite(blk) ; 
                 return true ;
             }   
@@ -291,6 +306,8 @@ public class JournalControl
             }
                 
             case Commit:
+                if ( capture != null )
+                    capture.commit() ;
                 return false ;
             case Abort:
             case Object:
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicLong ;
+import java.util.concurrent.atomic.AtomicLongArray ;
+
+/** Counts of durations, in buckets of powers of two microseconds.
+ *  Bucket 0 is under 1 microsecond; bucket i is from 2^(i-1) up to 2^i microseconds;
+ *  the last bucket also has everything longer.
+ */
+public class LatencyHistogram
+{
+    public static final int NumBuckets = 32 ;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NumBuckets) ;
+    private final AtomicLong count = new AtomicLong(0) ;
+    private final AtomicLong totalMicros = new AtomicLong(0) ;
+    private final AtomicLong maxMicros = new AtomicLong(0) ;
+
+    /** Record a duration, in nanoseconds. */
+    public void record(long nanos)
+    {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos)) ;
+        buckets.incrementAndGet(bucket(micros)) ;
+        count.incrementAndGet() ;
+        totalMicros.addAndGet(micros) ;
+        for ( ;; )
+        {
+            long m = maxMicros.get() ;
+            if ( micros <= m || maxMicros.compareAndSet(m, micros) )
+                break ;
+        }
+    }
+
+    static int bucket(long micros)
+    {
+        int b = 64-Long.numberOfLeadingZeros(micros) ;
+        return Math.min(b, NumBuckets-1) ;
+    }
+
+    /** Upper bound, in microseconds, of a bucket. */
+    public static long bucketLimit(int bucket)
+    {
+        return 1L << bucket ;
+    }
+
+    public long getCount()          { return count.get() ; }
+
+    public long getMaxMicros()      { return maxMicros.get() ; }
+
+    public long getMeanMicros()
+    {
+        long n = count.get() ;
+        return n == 0 ? 0 : totalMicros.get()/n ;
+    }
+
+    /** The counts of each bucket */
+    public long[] getBuckets()
+    {
+        long[] x = new long[NumBuckets] ;
+        for ( int i = 0 ; i < NumBuckets ; i++ )
+            x[i] = buckets.get(i) ;
+        return x ;
+    }
+
+    /** Upper bound, in microseconds, of the bucket holding the given fraction (0 to 1) of durations. */
+    public long getPercentileMicros(double fraction)
+    {
+        long[] x = getBuckets() ;
+        long n = 0 ;
+        for ( long c : x )
+            n += c ;
+        if ( n == 0 )
+            return 0 ;
+        long target = (long)Math.ceil(fraction*n) ;
+        long seen = 0 ;
+        for ( int i = 0 ; i < NumBuckets ; i++ )
+        {
+            seen += x[i] ;
+            if ( seen >= target )
+                return Math.min(bucketLimit(i), getMaxMicros()) ;
+        }
+        return getMaxMicros() ;
+    }
+
+    public void reset()
+    {
+        for ( int i = 0 ; i < NumBuckets ; i++ )
+            buckets.set(i, 0) ;
+        count.set(0) ;
+        totalMicros.set(0) ;
+        maxMicros.set(0) ;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("count=%d mean=%dus p50=%dus p99=%dus max=%dus",
+                             getCount(), getMeanMicros(), getPercentileMicros(0.5), getPercentileMicros(0.99), getMaxMicros()) ;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.util.concurrent.locks.Lock ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableReadonly ;
+
+/** Node table of a read transaction.  The mapping of existing nodes does not change
+ *  but write-back appends to the base node table so lookups exclude write-back.
+ *  @see BlockVersions
+ */
+public class NodeTableSnapshot extends NodeTableReadonly
+{
+    private final Lock lock ;
+
+    public NodeTableSnapshot(NodeTable nodeTable, BlockVersions versions)
+    {
+        super(nodeTable) ;
+        this.lock = versions.readLock() ;
+    }
+
+    @Override
+    public NodeId getNodeIdForNode(Node node)
+    {
+        lock.lock() ;
+        try { return super.getNodeIdForNode(node) ; }
+        finally { lock.unlock() ; }
+    }
+
+    @Override
+    public Node getNodeForNodeId(NodeId id)
+    {
+        lock.lock() ;
+        try { return super.getNodeForNodeId(id) ; }
+        finally { lock.unlock() ; }
+    }
+
+    @Override
+    public boolean containsNode(Node node)
+    {
+        lock.lock() ;
+        try { return super.containsNode(node) ; }
+        finally { lock.unlock() ; }
+    }
+
+    @Override
+    public boolean containsNodeId(NodeId nodeId)
+    {
+        lock.lock() ;
+        try { return super.containsNodeId(nodeId) ; }
+        finally { lock.unlock() ; }
+    }
+}
@@ -26,6 +26,7 @@ public class SysTxnState
     final public long committedWriters ;
     final public long abortedWriters ;
     final public long queuedCommits ;
+    final public long blockVersions ;
     
     SysTxnState(TransactionManager tm)
     {
@@ -35,18 +36,20 @@ public class SysTxnState
         committedWriters = tm.committedWriters.get() ;
         abortedWriters = tm.abortedWriters.get() ;
         queuedCommits = tm.commitedAwaitingFlush.size() ;
+        blockVersions = tm.getBlockVersions().getCount() ;
     }
     
     @Override
     public String toString()
     {
-        return String.format("Active (R=%d W=%d) : Finished (R=%d, WC=%d, WA=%d) Queue %d",
+        return String.format("Active (R=%d W=%d) : Finished (R=%d, WC=%d, WA=%d) Queue %d : Versions %d",
                              activeReaders,
                              activeWriters,
                              finishedReaders,
                              committedWriters,
                              abortedWriters,
-                             queuedCommits
+                             queuedCommits,
+                             blockVersions
         		) ;
     }
 }
@@ -25,6 +25,7 @@ import java.util.List ;
 import org.apache.jena.atlas.logging.Log ;
 
 import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.sys.FileRef ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
@@ -36,6 +37,7 @@ public class Transaction
     private final String label ;
     private final TransactionManager txnMgr ;
     private final Journal journal ;
+    private final GroupCommit groupCommit ;
     private final ReadWrite mode ;
     
     private final List<NodeTableTrans> nodeTableTrans = new ArrayList<>() ;
@@ -53,6 +55,10 @@ public class Transaction
     
     private boolean changesPending ;
     
+    // The number of commits this transaction sees (readers) 
+    // or the number of this commit (writers). 
+    private long epoch = -1 ;
+    
     public Transaction(DatasetGraphTDB dsg, ReadWrite mode, long id, String label, TransactionManager txnMgr) {
         this.id = id ;
         if (label == null )
@@ -68,6 +74,7 @@ public class Transaction
         this.basedsg = dsg ;
         this.mode = mode ;
         this.journal = ( txnMgr == null ) ? null : txnMgr.getJournal() ;
+        this.groupCommit = ( txnMgr == null ) ? null : txnMgr.getGroupCommit() ;
         activedsg = null ;      // Don't know yet.
         this.iterators = null ; //new ArrayList<>() ;   // Debugging aid.
         state = TxnState.ACTIVE ;
@@ -94,6 +101,8 @@ public class Transaction
      */
     
     public void commit() {
+        long startCommit = System.nanoTime() ;
+        long commitNum = -1 ;
         synchronized (this) {
             // Do prepare, write the COMMIT record.
             // Enacting is left to the TransactionManager.
@@ -105,10 +114,12 @@ public class Transaction
                     if ( state != TxnState.ACTIVE )
                         throw new TDBTransactionException("Transaction has already committed or aborted") ;
                     // ---- Prepare
+                    txnMgr.enterPrepare() ;
                     try {
                         prepare() ;
                     } catch (RuntimeException ex)
                     {
+                        txnMgr.exitPrepare() ;
                         if ( isIOException(ex) )
                             SystemTDB.errlog.warn("IOException during 'prepare' : attempting transaction abort: "+ex.getMessage()) ;
                         else
@@ -126,8 +137,12 @@ public class Transaction
                     // ---- end prepare
                     
                     try {
-                        journal.write(JournalEntryType.Commit, FileRef.Journal, null) ;
-                        journal.sync() ;        // Commit point.
+                        // A snapshot, holding commits, waits until the commit record is complete.
+                        try {
+                            journal.write(JournalEntryType.Commit, FileRef.Journal, null) ;
+                        } finally { txnMgr.exitPrepare() ; }
+                        commitNum = groupCommit.committed() ;
+                        groupCommit.commitPoint(commitNum) ;        // Commit point (sync, unless delayed by the durability mode).
                     } catch (RuntimeException ex) {
                         // It either did all commit or didn't but we don't know which.
                         // Some low level system error - probably a sign of something
@@ -138,6 +153,7 @@ public class Transaction
                             SystemTDB.errlog.warn("Exception during 'commit' : transaction status not known (but not a partial commit): ",ex) ;
                         throw new TDBTransactionException("Exception at commit point", ex) ;
                     }
+                    mergeStats() ;
                     outcome = TxnOutcome.W_COMMITED ;
                     break ;
             }
@@ -154,6 +170,30 @@ public class Transaction
                 SystemTDB.errlog.warn("Exception after commit point : transaction commited but internal status not recorded properly", ex) ;
             throw new TDBTransactionException("Exception after commit point - transaction did commit", ex) ;
         }
+        
+        if ( commitNum < 0 )
+            return ;
+        // The writer lock has been released; wait for the journal sync, which may be shared with other commits.  
+        try { groupCommit.awaitDurable(commitNum) ; }
+        catch (RuntimeException ex) {
+            SystemTDB.errlog.warn("Exception during journal sync : transaction status not known (but not a partial commit): ", ex) ;
+            throw new TDBTransactionException("Exception at commit point", ex) ;
+        }
+        txnMgr.getCommitLatency().record(System.nanoTime()-startCommit) ;
+    }
+    
+    // Add the changes to the statistics, while still the only writer.
+    private void mergeStats() {
+        StatsIncremental stats = basedsg.getStatsIncremental() ;
+        if ( stats == null || activedsg == null )
+            return ;
+        StatsIncremental delta = activedsg.getView().getStatsIncremental() ;
+        if ( delta == null )
+            return ;
+        try { stats.merge(delta) ; }
+        catch (RuntimeException ex) {
+            SystemTDB.errlog.warn("Exception updating statistics (transaction did commit)", ex) ;
+        }
     }
     
     private boolean isIOException(Throwable ex) {
@@ -268,6 +308,10 @@ public class Transaction
     public long getTxnId()                          { return id ; }
     public TransactionManager getTxnMgr()           { return txnMgr ; }
     
+    /** The commit level seen by a read transaction, or the commit number of a committed write transaction */
+    public long getEpoch()                          { return epoch ; }
+    /*package*/ void setEpoch(long epoch)           { this.epoch = epoch ; }
+    
     public DatasetGraphTxn getActiveDataset()       { return activedsg ; }
 
     public void setActiveDataset(DatasetGraphTxn activedsg) { 
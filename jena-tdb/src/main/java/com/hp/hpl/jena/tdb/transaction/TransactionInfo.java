@@ -66,4 +66,54 @@ public class TransactionInfo implements TransactionInfoMBean {
 		return transactionManager.activeReaders.get() ;
 	}
 
+	@Override
+	public String getDurabilityMode() {
+		return transactionManager.getDurabilityMode().name() ;
+	}
+
+	@Override
+	public long getJournalSyncCount() {
+		return transactionManager.getJournalSyncCount() ;
+	}
+
+	@Override
+	public long getCommitLatencyCount() {
+		return transactionManager.getCommitLatency().getCount() ;
+	}
+
+	@Override
+	public long getCommitLatencyMean() {
+		return transactionManager.getCommitLatency().getMeanMicros() ;
+	}
+
+	@Override
+	public long getCommitLatencyP50() {
+		return transactionManager.getCommitLatency().getPercentileMicros(0.5) ;
+	}
+
+	@Override
+	public long getCommitLatencyP99() {
+		return transactionManager.getCommitLatency().getPercentileMicros(0.99) ;
+	}
+
+	@Override
+	public long getCommitLatencyMax() {
+		return transactionManager.getCommitLatency().getMaxMicros() ;
+	}
+
+	@Override
+	public long[] getCommitLatencyHistogram() {
+		return transactionManager.getCommitLatency().getBuckets() ;
+	}
+
+	@Override
+	public long getBlockVersionCount() {
+		return transactionManager.getBlockVersions().getCount() ;
+	}
+
+	@Override
+	public long getBlockVersionMaxCount() {
+		return transactionManager.getBlockVersions().getMaxCount() ;
+	}
+
 }
@@ -44,4 +44,34 @@ public interface TransactionInfoMBean
 
     /** Number of read transactions executing */
     long getCurrentReadTransactionCount() ; 
+
+    /** Durability mode of write transactions : SYNC, GROUP or ASYNC */
+    String getDurabilityMode() ;
+
+    /** Number of journal syncs done for commits */
+    long getJournalSyncCount() ;
+
+    /** Number of write commits timed */
+    long getCommitLatencyCount() ;
+
+    /** Mean time of a write commit, in microseconds */
+    long getCommitLatencyMean() ;
+
+    /** Median time of a write commit, in microseconds (upper bound of histogram bucket) */
+    long getCommitLatencyP50() ;
+
+    /** 99th percentile time of a write commit, in microseconds (upper bound of histogram bucket) */
+    long getCommitLatencyP99() ;
+
+    /** Longest write commit, in microseconds */
+    long getCommitLatencyMax() ;
+
+    /** Write commit times : counts for buckets of powers of two microseconds */
+    long[] getCommitLatencyHistogram() ;
+
+    /** Number of earlier versions of blocks kept for active read transactions */
+    long getBlockVersionCount() ;
+
+    /** Largest number of earlier versions of blocks kept at one time */
+    long getBlockVersionMaxCount() ;
 }
@@ -27,10 +27,17 @@ import java.io.File ;
 import java.util.ArrayList ;
 import java.util.HashSet ;
 import java.util.List ;
+import java.util.NavigableSet ;
 import java.util.Set ;
+import java.util.TreeSet ;
 import java.util.concurrent.BlockingQueue ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
 import java.util.concurrent.LinkedBlockingDeque ;
 import java.util.concurrent.Semaphore ;
+import java.util.concurrent.ThreadFactory ;
 import java.util.concurrent.atomic.AtomicLong ;
 import java.util.concurrent.atomic.AtomicReference ;
 
@@ -41,6 +48,9 @@ import org.slf4j.LoggerFactory ;
 
 import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.shared.Lock ;
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
+import com.hp.hpl.jena.tdb.store.ChangeLog ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
@@ -76,6 +86,44 @@ public class TransactionManager
         return 0 ;
     }
     
+    /** Default durability of write transactions, used unless the TDB context sets
+     *  {@link SystemTDB#symDurability}. Read when a database is first opened.
+     *  Other than in SYNC mode, commits are visible before they are durable.
+     */
+    public static DurabilityMode Durability = DurabilityMode.SYNC ;
+    
+    /** In {@link DurabilityMode#GROUP} mode, how long (milliseconds) the committer that is going
+     *  to sync the journal waits for other commits to join in. 0 means sync immediately;
+     *  commits arriving during a sync still share the next one. 
+     */
+    public static long GroupCommitWindow = 0 ;
+    
+    /** In {@link DurabilityMode#ASYNC} mode, the interval (milliseconds) between background syncs of the journal. */ 
+    public static long AsyncFlushInterval = 100 ;
+    
+    /** Whether committed transactions are written back to the base database while
+     *  read transactions are active.  Readers see the blocks as of when they started,
+     *  kept by {@link BlockVersions} while needed.  If false, write-back waits until
+     *  there are no active readers.  Read when a database is first opened.
+     *  <p>
+     *  Off by default: each block a reader fetches is copied, under a lock shared with
+     *  write-back, because write-back may overwrite the block while the reader holds it.
+     *  Worth it when long-running readers would otherwise hold up write-back. 
+     */
+    public static boolean MultiVersionReaders = false ;
+    
+    /** Whether committed transactions are written back to the base database by a
+     *  background thread.  If false, write-back is done by the transaction that finds
+     *  {@link #QueueBatchSize} commits waiting, before it returns.  Either way, write-back
+     *  excludes transactions beginning or finishing while it runs.  Read when a database
+     *  is first opened.
+     *  <p>
+     *  Off by default, so a commit that triggers write-back returns when the base database
+     *  has been updated.  Worth turning on with {@link DurabilityMode#GROUP} or
+     *  {@link DurabilityMode#ASYNC}, where the latency of commits matters most.
+     */
+    public static boolean BackgroundWriteBack = false ;
+    
     enum TxnPoint { BEGIN, COMMIT, ABORT, CLOSE, QUEUE, UNQUEUE }
     private List<Pair<Transaction, TxnPoint>> transactionStateTransition ;
     
@@ -121,6 +169,26 @@ public class TransactionManager
 
     private DatasetGraphTDB baseDataset ;
     private Journal journal ;
+    private final GroupCommit groupCommit ;
+    
+    private final boolean multiVersion ;
+    private final boolean backgroundWriteBack ;
+    // Write-back requested and not yet started. 
+    private Future<?> writeBackTask = null ;
+    private boolean closed = false ;
+    private final BlockVersions blockVersions = new BlockVersions() ;
+    // The number of commits written back to the base database.
+    private long writtenBackEpoch = 0 ;
+    // Write-back is held off while this is not zero. 
+    private int writeBackHolds = 0 ;
+    
+    // Commit prepare, which writes to the base node tables, waits while commits are held.
+    private final Object commitGate = new Object() ;
+    private boolean commitsHeld = false ;
+    private int preparing = 0 ;
+    // Changes committed while recording, or null.
+    private ChangeLog changeLog = null ;
+    private final LatencyHistogram commitLatency = new LatencyHistogram() ;
     
     /*
      * The order of calls is: 
@@ -186,7 +254,7 @@ public class TransactionManager
         @Override public void readerStarts(Transaction txn)         { inc(activeReaders) ; }
         @Override public void readerFinishes(Transaction txn)       { dec(activeReaders) ; inc(finishedReaders); }
         @Override public void writerStarts(Transaction txn)         { inc(activeWriters) ; }
-        @Override public void writerCommits(Transaction txn)        { dec(activeWriters) ; inc(committedWriters) ; }
+        @Override public void writerCommits(Transaction txn)        { dec(activeWriters) ; inc(committedWriters) ; txn.setEpoch(committedWriters.get()) ; }
         @Override public void writerAborts(Transaction txn)         { dec(activeWriters) ; inc(abortedWriters) ; }
     }
     
@@ -269,6 +337,9 @@ public class TransactionManager
     {
         this.baseDataset = dsg ; 
         this.journal = Journal.create(dsg.getLocation()) ;
+        this.groupCommit = new GroupCommit(journal, durabilityMode(), GroupCommitWindow, AsyncFlushInterval) ;
+        this.multiVersion = MultiVersionReaders ;
+        this.backgroundWriteBack = BackgroundWriteBack ;
         // LATER
 //        Committer c = new Committer() ;
 //        this.committerThread = new Thread(c) ;
@@ -278,9 +349,23 @@ public class TransactionManager
 
     public void closedown()
     {
-        processDelayedReplayQueue(null) ;
+        awaitWriteBack() ;
+        synchronized (this)
+        {
+            processDelayedReplayQueue(null) ;
+            closed = true ;
+        }
+        groupCommit.shutdown() ;
         journal.close() ;
     }
+    
+    private static DurabilityMode durabilityMode()
+    {
+        String x = TDB.getContext().getAsString(SystemTDB.symDurability) ;
+        if ( x == null )
+            return Durability ;
+        return DurabilityMode.create(x) ;
+    }
 
     public DatasetGraphTxn begin(ReadWrite mode)
     {
@@ -343,6 +428,9 @@ public class TransactionManager
             if ( DEBUG ) System.out.print('_') ;
         }
         Transaction txn = createTransaction(dsg, mode, label) ;
+        if ( mode == ReadWrite.READ )
+            // All commits so far are in the view.
+            txn.setEpoch(committedWriters.get()) ;
         
         log("begin$", txn) ;
         
@@ -402,7 +490,8 @@ public class TransactionManager
     }
 
     /* Signal a transaction has commited.  The journal has a commit record
-     * and a sync to disk. The code here manages the inter-transaction stage
+     * and, in SYNC durability mode, a sync to disk (otherwise the sync is done
+     * before any changes are written back to the base data). The code here manages the inter-transaction stage
      *  of deciding how to play the changes back to the base data
      *  together with general recording of transaction details and status. 
      */ 
@@ -419,6 +508,8 @@ public class TransactionManager
             case READ: break ;
             case WRITE:
                 currentReaderView.set(null) ;       // Clear the READ transaction cache.
+                if ( changeLog != null )
+                    mergeChanges(transaction) ;
                 writersWaiting.release() ;          // Single writer: let another (waiting?) writer have a turn.
         }
     }
@@ -442,6 +533,8 @@ public class TransactionManager
     /** The stage in a commit after committing - make the changes permanent in the base data */ 
     private void enactTransaction(Transaction transaction)
     {
+        // Changes must not reach the base data before the commit record is on disk. 
+        groupCommit.syncPending() ;
         // Really, really do it!
         for ( TransactionLifecycle x : transaction.lifecycleComponents() )
         {
@@ -458,6 +551,119 @@ public class TransactionManager
         processDelayedReplayQueue(null) ;
     }
     
+    /** Stop writing committed transactions back to the base database, and sync it, so that
+     *  the database files do not change until {@link #releaseWriteBack}.
+     *  Transactions carry on; commits are kept in the journal.
+     */
+    synchronized
+    public void holdWriteBack()
+    {
+        // Write back what can be written back now.
+        if ( writeBackHolds == 0 )
+            processDelayedReplayQueue(null) ;
+        writeBackHolds++ ;
+        blockVersions.writeLock().lock() ;
+        try {
+            baseDataset.sync() ;
+        } finally { blockVersions.writeLock().unlock() ; }
+    }
+    
+    /** Undo a {@link #holdWriteBack} and write back any committed transactions. */ 
+    synchronized
+    public void releaseWriteBack()
+    {
+        if ( writeBackHolds == 0 )
+            throw new TDBTransactionException("Write-back is not held") ;
+        writeBackHolds-- ;
+        if ( writeBackHolds == 0 && queue.size() > 0 )
+            processDelayedReplayQueue(null) ;
+    }
+    
+    /** Make write transactions wait before committing, and wait for any commit in progress.
+     *  The base node tables then do not change until {@link #releaseCommits}.
+     *  Not synchronized : a commit in progress may call into the transaction manager.
+     */
+    public void holdCommits()
+    {
+        synchronized (commitGate)
+        {
+            try {
+                while ( commitsHeld )
+                    commitGate.wait() ;
+                commitsHeld = true ;
+                while ( preparing > 0 )
+                    commitGate.wait() ;
+            } catch (InterruptedException ex)
+            {
+                commitsHeld = false ;
+                commitGate.notifyAll() ;
+                throw new TDBTransactionException("Interrupted waiting to hold commits", ex) ;
+            }
+        }
+        // Prepare syncs the node tables.
+    }
+    
+    /** Let write transactions commit again */
+    public void releaseCommits()
+    {
+        synchronized (commitGate)
+        {
+            commitsHeld = false ;
+            commitGate.notifyAll() ;
+        }
+    }
+    
+    // Called by a transaction around the prepare step of commit and the writing of the commit record.
+    /*package*/ void enterPrepare()
+    {
+        synchronized (commitGate)
+        {
+            try {
+                while ( commitsHeld )
+                    commitGate.wait() ;
+            } catch (InterruptedException ex)
+            { throw new TDBTransactionException("Interrupted waiting to commit", ex) ; }
+            preparing++ ;
+        }
+    }
+    
+    /*package*/ void exitPrepare()
+    {
+        synchronized (commitGate)
+        {
+            preparing-- ;
+            commitGate.notifyAll() ;
+        }
+    }
+    
+    /** Record the changes made by write transactions that commit from now on in the log;
+     *  null stops recording. Write transactions already active are not recorded so the
+     *  caller should hold the writer lock.
+     */
+    synchronized
+    public void recordChanges(ChangeLog changes)
+    {
+        changeLog = changes ;
+    }
+    
+    // A log for a new write transaction, or null if changes are not being recorded. 
+    /*package*/ synchronized ChangeLog newChangeLog()
+    {
+        return changeLog == null ? null : changeLog.newLog() ;
+    }
+    
+    // Add the changes of a committed write transaction to the log, while it is still the only writer.
+    private void mergeChanges(Transaction transaction)
+    {
+        DatasetGraphTxn dsg = transaction.getActiveDataset() ;
+        ChangeLog changes = ( dsg == null ) ? null : dsg.getView().getChangeLog() ;
+        if ( changes == null )
+            // Started before recording.
+            changeLog.invalidate() ;
+        else
+            changeLog.append(changes) ;
+    }
+    
     // -- The main operations to undertake when a transaction finishes.
     // Called from TSM_WriteBackEndTxn but the worker code is shere so all
     // related code, including queue flushing is close together.
@@ -465,18 +671,31 @@ public class TransactionManager
     private void readerFinishesWorker(Transaction txn)
     {
         if ( queue.size() >= QueueBatchSize )
-            processDelayedReplayQueue(txn) ;
+            requestWriteBack(txn) ;
+        if ( blockVersions.getCount() > 0 )
+            blockVersions.reclaim(oldestReaderEpoch(txn)) ;
     }
     
     private void writerAbortsWorker(Transaction txn)
     {
         if ( queue.size() >= QueueBatchSize )
-            processDelayedReplayQueue(txn) ;
+            requestWriteBack(txn) ;
     }
     
     private void writerCommitsWorker(Transaction txn)
     {
-        if ( activeReaders.get() == 0 && queue.size() >= QueueBatchSize )
+        if ( backgroundWriteBack )
+        {
+            commitedAwaitingFlush.add(txn) ;
+            maxQueue = Math.max(commitedAwaitingFlush.size(), maxQueue) ;
+            if ( log() ) log("Add to pending queue", txn) ; 
+            queue.add(txn) ;
+            if ( queue.size() >= QueueBatchSize )
+                requestWriteBack(txn) ;
+            return ;
+        }
+        
+        if ( writeBackHolds == 0 && ( multiVersion || activeReaders.get() == 0 ) && queue.size() >= QueueBatchSize )
         {
             // Can commit immediately.
             // Ensure the queue is empty though.
@@ -490,8 +709,11 @@ public class TransactionManager
             // we do this sequence.
             
             processDelayedReplayQueue(txn) ;
-            enactTransaction(txn) ;
-            JournalControl.replay(txn) ;
+            blockVersions.writeLock().lock() ;
+            try {
+                enactTransaction(txn) ;
+                writeBack(txn) ;
+            } finally { blockVersions.writeLock().unlock() ; }
         }
         else
         {
@@ -504,10 +726,72 @@ public class TransactionManager
 
     }
     
+    /** Write back the queue of committed transactions, or arrange for the background
+     *  thread to do it.  Called with the transaction manager locked.
+     */
+    private void requestWriteBack(Transaction txn)
+    {
+        if ( ! backgroundWriteBack )
+        {
+            processDelayedReplayQueue(txn) ;
+            return ;
+        }
+        if ( writeBackTask != null || closed || writeBackHolds > 0 )
+            return ;
+        writeBackTask = writeBackExecutor.submit(new Runnable() {
+            @Override
+            public void run() { backgroundWriteBack() ; }
+        }) ;
+    }
+    
+    private void backgroundWriteBack()
+    {
+        try {
+            // Sync the journal without holding up transactions, rather than in enactTransaction. 
+            groupCommit.syncPending() ;
+        } catch (RuntimeException ex) {
+            SystemTDB.errlog.warn("Exception syncing the journal before write-back", ex) ;
+        }
+        synchronized (this)
+        {
+            writeBackTask = null ;
+            if ( closed || queue.size() == 0 )
+                return ;
+            try {
+                processDelayedReplayQueue(null) ;
+            } catch (RuntimeException ex) {
+                SystemTDB.errlog.warn("Exception during background write-back", ex) ;
+            }
+        }
+    }
+    
+    /** Wait for any write-back requested of the background thread to finish. */ 
+    public void awaitWriteBack()
+    {
+        Future<?> task ;
+        synchronized (this) { task = writeBackTask ; }
+        if ( task == null )
+            return ;
+        try { task.get() ; }
+        catch (InterruptedException ex) { throw new TDBTransactionException("Interrupted waiting for write-back", ex) ; }
+        catch (ExecutionException ex) { throw new TDBTransactionException("Write-back", ex.getCause()) ; }
+    }
+    
+    // Daemon threads : write-back requests still waiting at exit are in the journal.
+    private static final ExecutorService writeBackExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "TDB write-back") ;
+            thread.setDaemon(true) ;
+            return thread ;
+        }
+    }) ;
+    
     private void processDelayedReplayQueue(Transaction txn)
     {
         // Can we do work?
-        if ( activeReaders.get() != 0 || activeWriters.get() != 0 )
+        if ( writeBackHolds > 0 || activeWriters.get() != 0 || ( ! multiVersion && activeReaders.get() != 0 ) )
         {
             if ( queue.size() > 0 && log() )
                 log(format("Pending transactions: R=%s / W=%s", activeReaders, activeWriters), txn) ;
@@ -533,6 +817,21 @@ public class TransactionManager
         // against the updated database.
         currentReaderView.set(null) ;
         
+        // Active readers do not see write-back part way through.
+        blockVersions.writeLock().lock() ;
+        try {
+            writeBackQueue(txn) ;
+        } finally { blockVersions.writeLock().unlock() ; }
+        
+        if ( DEBUG ) checkNodesDatJrnl("4", txn) ;
+        
+        checkReplaySafe() ;
+        if ( log() )
+            log("End flush delayed commits", txn) ;
+    }
+    
+    private void writeBackQueue(Transaction txn)
+    {
         while ( queue.size() > 0 )
         {
             // Currently, replay is replay everything
@@ -557,16 +856,40 @@ public class TransactionManager
         if ( DEBUG ) checkNodesDatJrnl("3", txn) ;
 
         // Whole journal to base database
-        JournalControl.replay(journal, baseDataset) ;
-
-        if ( DEBUG ) checkNodesDatJrnl("4", txn) ;
-        
-        checkReplaySafe() ;
-        if ( log() )
-            log("End flush delayed commits", txn) ;
-        
-        
-        
+        writeBack(txn) ;
+        StatsIncremental stats = baseDataset.getStatsIncremental() ;
+        if ( stats != null )
+            stats.sync() ;
+    }
+    
+    /** Play the whole journal into the base database.
+     *  Called with the write lock of the block versions held. 
+     */
+    private void writeBack(Transaction txn)
+    {
+        BlockVersions.Capture capture = null ;
+        if ( multiVersion )
+            capture = blockVersions.capture(writtenBackEpoch+1, readerEpochs(txn)) ;
+        JournalControl.replay(journal, baseDataset, capture) ;
+        writtenBackEpoch = committedWriters.get() ;
+    }
+    
+    /** Epochs of the active readers, excluding the given (finishing) transaction */ 
+    private NavigableSet<Long> readerEpochs(Transaction excluded)
+    {
+        NavigableSet<Long> epochs = new TreeSet<>() ;
+        for ( Transaction t : activeTransactions )
+        {
+            if ( t != excluded && t.isRead() )
+                epochs.add(t.getEpoch()) ;
+        }
+        return epochs ;
+    }
+    
+    private long oldestReaderEpoch(Transaction excluded)
+    {
+        NavigableSet<Long> epochs = readerEpochs(excluded) ;
+        return epochs.isEmpty() ? Long.MAX_VALUE : epochs.first() ;
     }
 
     private void checkNodesDatJrnl(String label, Transaction txn)
@@ -583,7 +906,7 @@ public class TransactionManager
     private void checkReplaySafe()
     {
         if ( ! checking ) return ;
-        if ( activeReaders.get() != 0 || activeWriters.get() != 0 )
+        if ( activeWriters.get() != 0 || ( ! multiVersion && activeReaders.get() != 0 ) )
             log.error("There are now active transactions") ;
     }
     
@@ -666,6 +989,41 @@ public class TransactionManager
         return journal ;
     }
 
+    /*package*/ GroupCommit getGroupCommit()
+    {
+        return groupCommit ;
+    }
+    
+    /** Whether write-back happens while there are active read transactions */
+    public boolean isMultiVersion()
+    {
+        return multiVersion ;
+    }
+    
+    /** Earlier versions of blocks kept for active read transactions */
+    public BlockVersions getBlockVersions()
+    {
+        return blockVersions ;
+    }
+    
+    /** The durability mode for write transactions of this database */
+    public DurabilityMode getDurabilityMode()
+    {
+        return groupCommit.getMode() ;
+    }
+    
+    /** Time taken by write transaction commits, including waiting for the journal sync. */
+    public LatencyHistogram getCommitLatency()
+    {
+        return commitLatency ;
+    }
+    
+    /** Number of journal syncs done for commits */
+    public long getJournalSyncCount()
+    {
+        return groupCommit.getSyncCount() ;
+    }
+
     // ---- Logging
     // Choose log output once when this object is created.
     
@@ -19,32 +19,54 @@
 package tdb;
 
 import tdb.cmdline.CmdTDB ;
+import arq.cmd.CmdException ;
+import arq.cmdline.ArgDecl ;
 
 import com.hp.hpl.jena.tdb.TDBBackup ;
 
 public class tdbbackup extends CmdTDB
 {
+    private static final ArgDecl argSnapshot        = new ArgDecl(ArgDecl.HasValue, "snapshot") ;
+    private static final ArgDecl argIncremental     = new ArgDecl(ArgDecl.HasValue, "incremental", "incr") ;
+    private String snapshotDir = null ;
+    private String previousDir = null ;
+
     static public void main(String... argv)
     { 
         CmdTDB.init() ;
-        new tdbdump(argv).mainRun() ;
+        new tdbbackup(argv).mainRun() ;
     }
 
     protected tdbbackup(String[] argv)
     {
         super(argv) ;
+        super.add(argSnapshot, "--snapshot=DIR", "Copy the database files into a directory") ;
+        super.add(argIncremental, "--incremental=DIR", "With --snapshot, only keep changes since an earlier snapshot") ;
+    }
+    
+    @Override
+    protected void processModulesAndArgs()
+    {
+        super.processModulesAndArgs() ;
+        snapshotDir = getValue(argSnapshot) ;
+        previousDir = getValue(argIncremental) ;
+        if ( previousDir != null && snapshotDir == null )
+            throw new CmdException("--incremental requires --snapshot") ;
     }
     
     @Override
     protected String getSummary()
     {
-        return getCommandName()+" : Write N-Quads to stdout" ;
+        return getCommandName()+" : Write N-Quads to stdout, or --snapshot=DIR [--incremental=DIR] to copy the database files" ;
     }
 
     @Override
     protected void exec()
     {
-        TDBBackup.backup(getLocation(), System.out) ;
+        if ( snapshotDir != null )
+            TDBBackup.snapshot(getLocation(), snapshotDir, previousDir) ;
+        else
+            TDBBackup.backup(getLocation(), System.out) ;
     }
 }
 
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tdb;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import tdb.cmdline.CmdTDB ;
+import tdb.cmdline.CmdTDBGraph ;
+import arq.cmd.CmdException ;
+import arq.cmdline.ArgDecl ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.query.Dataset ;
+import com.hp.hpl.jena.reasoner.rulesys.Rule ;
+import com.hp.hpl.jena.reasoner.rulesys.RuleMaterializer ;
+import com.hp.hpl.jena.tdb.TDB ;
+
+/** Materialize the deductions of a set of forward rules into a graph of the dataset */
+public class tdbinfer extends CmdTDBGraph
+{
+    private static final ArgDecl argRules           = new ArgDecl(ArgDecl.HasValue, "rules") ;
+    private static final ArgDecl argTarget          = new ArgDecl(ArgDecl.HasValue, "target") ;
+    private static final ArgDecl argBatch           = new ArgDecl(ArgDecl.HasValue, "batch") ;
+    private List<Rule> rules = new ArrayList<>() ;
+    private String targetName = null ;
+    private int batchSize = RuleMaterializer.DEFAULT_BATCH_SIZE ;
+
+    static public void main(String... argv)
+    { 
+        CmdTDB.init() ;
+        new tdbinfer(argv).mainRun() ;
+    }
+
+    protected tdbinfer(String[] argv)
+    {
+        super(argv) ;
+        super.add(argRules, "--rules=FILE", "Rules file (may be repeated)") ;
+        super.add(argTarget, "--target=IRI", "Named graph for the deductions (default: the graph read)") ;
+        super.add(argBatch, "--batch=N", "Number of triples added at a time") ;
+    }
+    
+    @Override
+    protected void processModulesAndArgs()
+    {
+        super.processModulesAndArgs() ;
+        if ( ! contains(argRules) )
+            throw new CmdException("No rules file: use --rules=FILE") ;
+        for ( String fn : getValues(argRules) )
+            rules.addAll(Rule.rulesFromURL(fn)) ;
+        targetName = getValue(argTarget) ;
+        if ( contains(argBatch) )
+        {
+            try { batchSize = Integer.parseInt(getValue(argBatch)) ; }
+            catch (NumberFormatException ex) { throw new CmdException("Not a number: "+getValue(argBatch)) ; }
+            if ( batchSize < 1 )
+                throw new CmdException("Batch size must be positive: "+batchSize) ;
+        }
+    }
+    
+    @Override
+    protected String getSummary()
+    {
+        return getCommandName()+" --loc=DIR --rules=FILE [--graph=IRI] [--target=IRI] [--batch=N]" ;
+    }
+
+    @Override
+    protected void exec()
+    {
+        Dataset ds = getDataset() ;
+        Graph source = getModel().getGraph() ;
+        Graph target = targetName == null ? source : ds.getNamedModel(targetName).getGraph() ;
+        RuleMaterializer materializer = new RuleMaterializer(rules) ;
+        materializer.setBatchSize(batchSize) ;
+        long added = materializer.materialize(source, target) ;
+        TDB.sync(ds) ;
+        if ( isVerbose() )
+            System.err.printf("Added %d triples in %d rounds\n", added, materializer.getNRounds()) ;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tdb;
+
+import tdb.cmdline.CmdTDB ;
+import arq.cmd.CmdException ;
+import arq.cmdline.ArgDecl ;
+
+import com.hp.hpl.jena.tdb.TDBBackup ;
+
+public class tdbrestore extends CmdTDB
+{
+    private static final ArgDecl argSnapshot        = new ArgDecl(ArgDecl.HasValue, "snapshot") ;
+    private String snapshotDir = null ;
+
+    static public void main(String... argv)
+    { 
+        CmdTDB.init() ;
+        new tdbrestore(argv).mainRun() ;
+    }
+
+    protected tdbrestore(String[] argv)
+    {
+        super(argv) ;
+        super.add(argSnapshot, "--snapshot=DIR", "Snapshot made by tdbbackup --snapshot") ;
+    }
+    
+    @Override
+    protected void processModulesAndArgs()
+    {
+        super.processModulesAndArgs() ;
+        snapshotDir = getValue(argSnapshot) ;
+        if ( snapshotDir == null )
+            throw new CmdException("No snapshot given") ;
+    }
+    
+    @Override
+    protected String getSummary()
+    {
+        return getCommandName()+" --loc=DIR --snapshot=DIR : Rebuild the database files from a snapshot" ;
+    }
+
+    @Override
+    protected void exec()
+    {
+        TDBBackup.restore(snapshotDir, getLocation()) ;
+    }
+}
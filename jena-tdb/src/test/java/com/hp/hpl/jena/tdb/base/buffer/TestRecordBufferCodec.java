@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.base.buffer;
+
+import java.nio.ByteBuffer ;
+import java.util.Iterator ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordException ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+import com.hp.hpl.jena.tdb.base.record.RecordLib ;
+
+public class TestRecordBufferCodec extends BaseTest
+{
+    static RecordFactory factory3 = new RecordFactory(3*8, 0) ;
+    static RecordFactory factory4 = new RecordFactory(RecordLib.TestRecordLength, 0) ;
+
+    @Test public void codec_01()
+    {
+        RecordBuffer rb = make(factory3, new long[][]{}) ;
+        roundTrip(factory3, rb) ;
+    }
+
+    @Test public void codec_02()
+    {
+        RecordBuffer rb = make(factory3, new long[][]{ {1,2,3} }) ;
+        roundTrip(factory3, rb) ;
+    }
+
+    @Test public void codec_03()
+    {
+        RecordBuffer rb = make(factory3, new long[][]{ {1,2,3}, {1,2,4}, {1,3,0}, {5,0,0}, {5,0,1} }) ;
+        roundTrip(factory3, rb) ;
+    }
+
+    @Test public void codec_04()
+    {
+        // Large values, including ones with the top bit set.
+        RecordBuffer rb = make(factory3, new long[][]{ {0x100000000L, 2, Long.MAX_VALUE}, {0x100000001L, -1L, 7}, {Long.MIN_VALUE, 0, 0} }) ;
+        roundTrip(factory3, rb) ;
+    }
+
+    @Test public void codec_05()
+    {
+        // Records with a short column.
+        RecordBuffer rb = make(factory4, new long[][]{ {1}, {2}, {300}, {0x7FFFFFFFL}, {0xFFFFFFFFL} }) ;
+        roundTrip(factory4, rb) ;
+        assertEquals(300, RecordLib.recordToInt(rb.get(2))) ;
+    }
+
+    @Test public void codec_06()
+    {
+        // Sorted, close together, records compress.
+        RecordFactory factory = factory3 ;
+        RecordBuffer rb = new RecordBuffer(factory, 100) ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            rb.add(record(factory, new long[]{1000, 2000+i/10, 3000+i})) ;
+        RecordBufferCodec codec = new RecordBufferCodec(factory) ;
+        int len = codec.encodedLength(rb) ;
+        assertTrue(len < 100*factory.recordLength()/4) ;
+        roundTrip(factory, rb) ;
+    }
+
+    @Test public void codec_07()
+    {
+        RecordBuffer rb = make(factory3, new long[][]{ {1,2,3}, {1,2,4}, {1,3,0} }) ;
+        RecordBufferCodec codec = new RecordBufferCodec(factory3) ;
+        ByteBuffer bb = ByteBuffer.allocate(100) ;
+        int len = codec.encode(rb, bb, 10, 100) ;
+        assertEquals(10+codec.encodedLength(rb), len) ;
+        Iterator<Record> iter = codec.iterator(bb, 10, rb.size()) ;
+        for ( int i = 0 ; i < rb.size() ; i++ )
+        {
+            assertTrue(iter.hasNext()) ;
+            assertEquals(rb.get(i), iter.next()) ;
+        }
+        assertFalse(iter.hasNext()) ;
+    }
+
+    @Test(expected=RecordException.class)
+    public void codec_08()
+    {
+        RecordBuffer rb = make(factory3, new long[][]{ {1,2,3}, {1,2,4}, {1,3,0} }) ;
+        RecordBufferCodec codec = new RecordBufferCodec(factory3) ;
+        ByteBuffer bb = ByteBuffer.allocate(100) ;
+        codec.encode(rb, bb, 0, 5) ;
+    }
+
+    @Test public void codec_09()
+    {
+        // Search without decoding, including keys with the top bit set.
+        long[][] values = { {1,2,3}, {1,2,4}, {1,3,0}, {5,0,0}, {Long.MIN_VALUE, 0, 1}, {-1L, -1L, -1L} } ;
+        RecordBuffer rb = make(factory3, values) ;
+        RecordBufferCodec codec = new RecordBufferCodec(factory3) ;
+        ByteBuffer bb = ByteBuffer.allocate(codec.encodedLength(rb)) ;
+        codec.encode(rb, bb, 0, bb.capacity()) ;
+        for ( long[] v : values )
+            assertEquals(record(factory3, v), codec.find(bb, 0, rb.size(), record(factory3, v))) ;
+        assertNull(codec.find(bb, 0, rb.size(), record(factory3, new long[]{0,0,0}))) ;
+        assertNull(codec.find(bb, 0, rb.size(), record(factory3, new long[]{1,2,5}))) ;
+        assertNull(codec.find(bb, 0, rb.size(), record(factory3, new long[]{6,0,0}))) ;
+        assertNull(codec.find(bb, 0, 0, record(factory3, new long[]{1,2,3}))) ;
+    }
+
+    @Test public void codec_10()
+    {
+        // Key and value, sharing a column: found by key, and the value is returned.
+        RecordFactory factory = new RecordFactory(12, 8) ;
+        RecordBuffer rb = new RecordBuffer(factory, 10) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+        {
+            ByteBuffer key = ByteBuffer.allocate(12) ;
+            key.putLong(0, 7) ;
+            key.putInt(8, i == 9 ? -1 : 10*i) ;
+            ByteBuffer value = ByteBuffer.allocate(8) ;
+            value.putLong(0, 1000-i) ;
+            rb.add(factory.create(key.array(), value.array())) ;
+        }
+        RecordBufferCodec codec = new RecordBufferCodec(factory) ;
+        ByteBuffer bb = ByteBuffer.allocate(codec.encodedLength(rb)) ;
+        codec.encode(rb, bb, 0, bb.capacity()) ;
+        for ( int i = 0 ; i < rb.size() ; i++ )
+        {
+            Record r = codec.find(bb, 0, rb.size(), factory.create(rb.get(i).getKey())) ;
+            assertNotNull(r) ;
+            assertTrue(Record.equals(rb.get(i), r)) ;
+        }
+        ByteBuffer key = ByteBuffer.allocate(12) ;
+        key.putLong(0, 7) ;
+        key.putInt(8, 15) ;
+        assertNull(codec.find(bb, 0, rb.size(), factory.create(key.array()))) ;
+    }
+
+    private static void roundTrip(RecordFactory factory, RecordBuffer rb)
+    {
+        RecordBufferCodec codec = new RecordBufferCodec(factory) ;
+        int len = codec.encodedLength(rb) ;
+        ByteBuffer bb = ByteBuffer.allocate(len) ;
+        assertEquals(len, codec.encode(rb, bb, 0, len)) ;
+
+        RecordBuffer rb2 = new RecordBuffer(factory, rb.maxSize()) ;
+        codec.decode(bb, 0, rb.size(), rb2) ;
+        assertEquals(rb.size(), rb2.size()) ;
+        for ( int i = 0 ; i < rb.size() ; i++ )
+            assertEquals(rb.get(i), rb2.get(i)) ;
+
+        Iterator<Record> iter = codec.iterator(bb, 0, rb.size()) ;
+        for ( int i = 0 ; i < rb.size() ; i++ )
+            assertEquals(rb.get(i), iter.next()) ;
+        assertFalse(iter.hasNext()) ;
+    }
+
+    private static RecordBuffer make(RecordFactory factory, long[][] values)
+    {
+        RecordBuffer rb = new RecordBuffer(factory, values.length+1) ;
+        for ( long[] v : values )
+            rb.add(record(factory, v)) ;
+        return rb ;
+    }
+
+    private static Record record(RecordFactory factory, long[] v)
+    {
+        byte[] key = new byte[factory.keyLength()] ;
+        ByteBuffer bb = ByteBuffer.wrap(key) ;
+        if ( key.length == 4 )
+            bb.putInt(0, (int)v[0]) ;
+        else
+        {
+            for ( int i = 0 ; i < v.length ; i++ )
+                bb.putLong(i*8, v[i]) ;
+        }
+        return factory.create(key) ;
+    }
+}
@@ -98,4 +98,29 @@ public abstract class AbstractTestBlockAccessFixedSize extends BaseTest
         // Should not work. b2 not written.   
         Block b2a = file.read(b2.getId()) ;
     }    
+
+    // Sequential reads (read-ahead) see blocks overwritten during the scan.
+    @Test public void fileaccess_06()
+    {
+        int N = 30 ;
+        long[] ids = new long[N] ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Block b = file.allocate(blkSize) ;
+            b.getByteBuffer().put(0, (byte)i) ;
+            file.write(b) ;
+            ids[i] = b.getId() ;
+        }
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Block b = file.read(ids[i]) ;
+            assertEquals(( i == 20 ) ? 99 : i, b.getByteBuffer().get(0)) ;
+            if ( i == 10 )
+            {
+                Block b2 = file.read(ids[20]) ;
+                b2.getByteBuffer().put(0, (byte)99) ;
+                file.overwrite(b2) ;
+            }
+        }
+    }
 }
@@ -20,12 +20,15 @@ package com.hp.hpl.jena.tdb.base.file;
 
 import org.apache.jena.atlas.lib.FileOps ;
 import org.junit.AfterClass ;
+import org.junit.Test ;
 
 import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.base.block.Block ;
 
 public class TestBlockAccessDirect extends AbstractTestBlockAccessFixedSize
 {
     static String filename = ConfigTest.getTestingDir()+"/test-file-access-direct" ;
+    static String filename2 = ConfigTest.getTestingDir()+"/test-file-access-direct-2" ;
     
     static final int BlockSize = 50 ;
     public TestBlockAccessDirect()
@@ -33,7 +36,7 @@ public class TestBlockAccessDirect extends AbstractTestBlockAccessFixedSize
         super(BlockSize) ;
     }
 
-    @AfterClass public static void cleanup() { FileOps.deleteSilent(filename) ; } 
+    @AfterClass public static void cleanup() { FileOps.deleteSilent(filename) ; FileOps.deleteSilent(filename2) ; } 
     
     @Override
     protected BlockAccess make()
@@ -41,4 +44,18 @@ public class TestBlockAccessDirect extends AbstractTestBlockAccessFixedSize
         FileOps.deleteSilent(filename) ;
         return new BlockAccessDirect(filename, BlockSize) ;
     }
+
+    @Test public void fileaccess_direct_01()
+    {
+        // A block allocated but not yet written (e.g. during journal write-back) reads as empty.
+        FileOps.deleteSilent(filename2) ;
+        BlockAccess file = new BlockAccessDirect(filename2, BlockSize) ;
+        try {
+            file.write(data(file, BlockSize)) ;
+            Block b1 = file.allocate(BlockSize) ;
+            Block b2 = file.read(b1.getId()) ;
+            assertEquals(BlockSize, b2.getByteBuffer().capacity()) ;
+            assertEquals(0, b2.getByteBuffer().get(BlockSize-1)) ;
+        } finally { file.close() ; }
+    }
 }
@@ -20,6 +20,7 @@ package com.hp.hpl.jena.tdb.base.record;
 
 import com.hp.hpl.jena.tdb.base.buffer.TestPtrBuffer;
 import com.hp.hpl.jena.tdb.base.buffer.TestRecordBuffer;
+import com.hp.hpl.jena.tdb.base.buffer.TestRecordBufferCodec ;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -28,7 +29,8 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses( {
     TestRecord.class ,
     TestPtrBuffer.class ,
-    TestRecordBuffer.class 
+    TestRecordBuffer.class ,
+    TestRecordBufferCodec.class
 })
 
 
@@ -23,6 +23,7 @@ import org.junit.runners.Suite;
 
 import com.hp.hpl.jena.tdb.index.bplustree.TestBPTreeRecords;
 import com.hp.hpl.jena.tdb.index.bplustree.TestBPlusTree;
+import com.hp.hpl.jena.tdb.index.bplustree.TestBPlusTreeCompressed ;
 import com.hp.hpl.jena.tdb.index.bplustree.TestBPlusTreeRewriter ;
 import com.hp.hpl.jena.tdb.index.ext.TestExtHash;
 
@@ -30,6 +31,7 @@ import com.hp.hpl.jena.tdb.index.ext.TestExtHash;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestBPlusTree.class,
+    TestBPlusTreeCompressed.class,
     TestBPTreeRecords.class,
     TestBPlusTreeRewriter.class,
     
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.index.bplustree;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
+import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory ;
+import com.hp.hpl.jena.tdb.base.buffer.RecordBufferCodec ;
+import com.hp.hpl.jena.tdb.base.record.Record ;
+import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
+import com.hp.hpl.jena.tdb.base.record.RecordLib ;
+import com.hp.hpl.jena.tdb.base.recordbuffer.RecordBufferPage ;
+import com.hp.hpl.jena.tdb.index.AbstractTestRangeIndex ;
+import com.hp.hpl.jena.tdb.index.RangeIndex ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/** B+Trees with compressed leaf blocks */
+public class TestBPlusTreeCompressed extends AbstractTestRangeIndex
+{
+    static boolean originalNullOut ; 
+    @BeforeClass static public void beforeClass()
+    {
+        BPlusTreeParams.CheckingNode = true ;
+        originalNullOut = SystemTDB.NullOut ;
+        SystemTDB.NullOut = true ;    
+    }
+    
+    @AfterClass static public void afterClass()
+    {
+        SystemTDB.NullOut = originalNullOut ;    
+    }
+
+    @Override
+    protected RangeIndex makeRangeIndex(int order, int minRecords)
+    {
+        RecordFactory factory = new RecordFactory(RecordLib.TestRecordLength, 0) ;
+        return make(order, minRecords, factory) ;
+    }
+    
+    private static BPlusTree make(int order, int minRecords, RecordFactory factory)
+    {
+        BPlusTreeParams params = new BPlusTreeParams(order, factory, true) ;
+        BlockMgr mgr1 = BlockMgrFactory.createMem("B+Tree(nodes)", params.getCalcBlockSize()) ;
+        BlockMgr mgr2 = BlockMgrFactory.createMem("B+Tree(records)", leafBlockSize(factory, minRecords)) ;
+        return BPlusTree.create(params, mgr1, mgr2) ;
+    }
+    
+    // Blocks are at least big enough for a few records. 
+    private static int leafBlockSize(RecordFactory factory, int minRecords)
+    {
+        RecordBufferCodec codec = new RecordBufferCodec(factory) ;
+        int blkSize = RecordBufferPage.calcBlockSize(factory, 2*minRecords) ;
+        return Math.max(blkSize, RecordBufferPage.calcBlockSize(factory, 0)+codec.minSpace()) ;
+    }
+    
+    @Test public void compressed_tree_01()
+    {
+        // Triples, as for an index: close together values compress.
+        RecordFactory factory = new RecordFactory(3*SystemTDB.SizeOfNodeId, 0) ;
+        BPlusTree bpt = make(4, 50, factory) ;
+        List<Record> records = new ArrayList<>() ;
+        for ( int i = 0 ; i < 2000 ; i++ )
+            records.add(record(factory, i/100, (i/10)%10, i)) ;
+        for ( Record r : records )
+            bpt.add(r) ;
+        assertEquals(records.size(), bpt.size()) ;
+        assertEquals(records, Iter.toList(bpt.iterator())) ;
+        
+        // More records per leaf block than the fixed layout.
+        int blocks = leafBlocks(bpt) ;
+        int fixed = (records.size()+99)/100 ;
+        assertTrue("Blocks: "+blocks+" Fixed layout: "+fixed, blocks < fixed) ;
+
+        // Range
+        Iterator<Record> iter = bpt.iterator(records.get(150), records.get(1650)) ;
+        assertEquals(records.subList(150, 1650), Iter.toList(iter)) ;
+        
+        // Delete half.
+        for ( int i = 0 ; i < records.size() ; i += 2 )
+            assertTrue(bpt.delete(records.get(i))) ;
+        for ( int i = 0 ; i < records.size() ; i++ )
+            assertEquals(i%2 == 1, bpt.contains(records.get(i))) ;
+        assertEquals(records.size()/2, bpt.size()) ;
+    }
+    
+    @Test public void compressed_tree_02()
+    {
+        // Packed by the rewriter.
+        RecordFactory factory = new RecordFactory(3*SystemTDB.SizeOfNodeId, 0) ;
+        BPlusTreeParams params = new BPlusTreeParams(4, factory, true) ;
+        BlockMgr mgr1 = BlockMgrFactory.createMem("B+Tree(nodes)", params.getCalcBlockSize()) ;
+        BlockMgr mgr2 = BlockMgrFactory.createMem("B+Tree(records)", leafBlockSize(factory, 50)) ;
+        List<Record> records = new ArrayList<>() ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            records.add(record(factory, 7, i/3, i)) ;
+        BPlusTree bpt = BPlusTreeRewriter.packIntoBPlusTree(records.iterator(), params, factory, mgr1, mgr2) ;
+        assertEquals(records, Iter.toList(bpt.iterator())) ;
+        for ( Record r : records )
+            assertTrue(bpt.contains(r)) ;
+    }
+
+    private static int leafBlocks(BPlusTree bpt)
+    {
+        int count = 0 ;
+        for ( int id = 0 ; bpt.getRecordsMgr().valid(id) ; id++ )
+            count++ ;
+        return count ;
+    }
+    
+    private static Record record(RecordFactory factory, long... v)
+    {
+        byte[] key = new byte[factory.keyLength()] ;
+        for ( int i = 0 ; i < v.length ; i++ )
+            Bytes.setLong(v[i], key, i*8) ;
+        return factory.create(key) ;
+    }
+}
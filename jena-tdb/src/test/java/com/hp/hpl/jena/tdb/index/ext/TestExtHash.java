@@ -19,11 +19,16 @@
 package com.hp.hpl.jena.tdb.index.ext;
 
 //import static ext.ExtHashTestBase.* ; 
+import static com.hp.hpl.jena.tdb.base.record.RecordLib.intToRecord;
+
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
 
+import com.hp.hpl.jena.tdb.ConfigTest;
 import com.hp.hpl.jena.tdb.base.block.BlockMgr;
 import com.hp.hpl.jena.tdb.base.block.BlockMgrFactory;
+import com.hp.hpl.jena.tdb.base.file.FileFactory;
 import com.hp.hpl.jena.tdb.base.file.PlainFileMem;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory;
 import com.hp.hpl.jena.tdb.index.Index;
@@ -61,4 +66,63 @@ public class TestExtHash extends AbstractTestIndex
         ExtHash eHash = new ExtHash(new PlainFileMem(), factory, mgr) ;
         return eHash ;
     }
+    
+    private static ExtHash makeFile(String dir, RecordFactory factory)
+    {
+        BlockMgr mgr = BlockMgrFactory.createMMapFile(dir+"/exthash.dat", 64) ;
+        return new ExtHash(FileFactory.createPlainFileDisk(dir+"/exthash.exh"), factory, mgr) ;
+    }
+    
+    // Reopen from disk.
+    @Test public void exthash_file_01()
+    {
+        String dir = ConfigTest.getCleanDir() ;
+        RecordFactory factory = new RecordFactory(4, 0) ;
+        ExtHash eHash = makeFile(dir, factory) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            eHash.add(intToRecord(i, factory)) ;
+        eHash.close() ;
+        
+        eHash = makeFile(dir, factory) ;
+        assertFalse(eHash.isRecoveryNeeded()) ;
+        assertEquals(1000, eHash.size()) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            assertNotNull(eHash.find(intToRecord(i, factory))) ;
+        assertNull(eHash.find(intToRecord(1000, factory))) ;
+        eHash.check() ;
+        eHash.close() ;
+    }
+
+    // Changes not synced : the index may be damaged.
+    @Test public void exthash_file_02()
+    {
+        String dir = ConfigTest.getCleanDir() ;
+        RecordFactory factory = new RecordFactory(4, 0) ;
+        ExtHash eHash = makeFile(dir, factory) ;
+        eHash.add(intToRecord(1, factory)) ;
+        eHash.sync() ;
+        ExtHash eHash2 = makeFile(dir, factory) ;
+        assertFalse(eHash2.isRecoveryNeeded()) ;
+        eHash2.close() ;
+        
+        eHash.add(intToRecord(2, factory)) ;
+        eHash2 = makeFile(dir, factory) ;
+        assertTrue(eHash2.isRecoveryNeeded()) ;
+        eHash2.close() ;
+        eHash.close() ;
+    }
+    
+    @Test public void exthash_clear_01()
+    {
+        RecordFactory factory = new RecordFactory(4, 0) ;
+        Index eHash = makeIndex(4, 0) ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            eHash.add(intToRecord(i, factory)) ;
+        eHash.clear() ;
+        assertTrue(eHash.isEmpty()) ;
+        assertEquals(0, eHash.size()) ;
+        eHash.add(intToRecord(5, factory)) ;
+        assertEquals(1, eHash.size()) ;
+        eHash.close() ;
+    }
 }
@@ -18,13 +18,28 @@
 
 package com.hp.hpl.jena.tdb.setup;
 
+import java.io.IOException ;
+import java.io.RandomAccessFile ;
+
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.json.JSON ;
 import org.apache.jena.atlas.json.JsonObject ;
 import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
 import org.junit.Test ;
 
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.util.NodeFactoryExtra ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
 import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.base.block.FileMode ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.sys.Names ;
 
 public class TestStoreParams extends BaseTest {
 
@@ -92,6 +107,103 @@ public class TestStoreParams extends BaseTest {
         assertArrayEquals(expected, params.getTripleIndexes()) ;
     }
 
+    @Test public void store_params_15() {
+        StoreParams params = StoreParams.builder().indexLeafFormat(StoreParamsConst.leafFormatCompressed).build() ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertEquals(StoreParamsConst.leafFormatCompressed, params2.getIndexLeafFormat()) ;
+    }
+
+    @Test public void store_params_16() {
+        // Compressed index leaf blocks.
+        StoreParams params = StoreParams.builder().indexLeafFormat(StoreParamsConst.leafFormatCompressed).build() ;
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(Location.mem(), params) ;
+        Node s = NodeFactory.createURI("http://example/s") ;
+        Node p = NodeFactory.createURI("http://example/p") ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            dsg.getDefaultGraph().add(Triple.create(s, p, NodeFactoryExtra.intToNode(i))) ;
+        assertEquals(1000, dsg.getDefaultGraph().size()) ;
+        assertTrue(dsg.getDefaultGraph().contains(s, p, NodeFactoryExtra.intToNode(500))) ;
+        assertEquals(1000, Iter.count(dsg.getDefaultGraph().find(Node.ANY, p, Node.ANY))) ;
+        dsg.close() ;
+    }
+
+    @Test public void store_params_17() {
+        StoreParams params = StoreParams.builder().nodeIdFormat(NodeId.FORMAT_2).build() ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertEquals(NodeId.FORMAT_2, params2.getNodeIdFormat().intValue()) ;
+        assertEquals(NodeId.FORMAT_1, StoreParams.getDftStoreParams().getNodeIdFormat().intValue()) ;
+    }
+
+    @Test public void store_params_18() {
+        // Node id format 2 : strings and doubles inline. 
+        StoreParams params = StoreParams.builder().nodeIdFormat(NodeId.FORMAT_2).build() ;
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(Location.mem(), params) ;
+        Node s = NodeFactory.createURI("http://example/s") ;
+        Node p = NodeFactory.createURI("http://example/p") ;
+        Node o1 = NodeFactoryExtra.parseNode("'abc'") ;
+        Node o2 = NodeFactoryExtra.parseNode("'chat'@fr") ;
+        Node o3 = NodeFactoryExtra.parseNode("'23.7'^^xsd:double") ;
+        Node o4 = NodeFactoryExtra.parseNode("'a long string'") ;
+        dsg.getDefaultGraph().add(Triple.create(s, p, o1)) ;
+        dsg.getDefaultGraph().add(Triple.create(s, p, o2)) ;
+        dsg.getDefaultGraph().add(Triple.create(s, p, o3)) ;
+        dsg.getDefaultGraph().add(Triple.create(s, p, o4)) ;
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        assertTrue(NodeId.isInline(nodeTable.getNodeIdForNode(o1))) ;
+        assertTrue(NodeId.isInline(nodeTable.getNodeIdForNode(o2))) ;
+        assertTrue(NodeId.isInline(nodeTable.getNodeIdForNode(o3))) ;
+        assertFalse(NodeId.isInline(nodeTable.getNodeIdForNode(o4))) ;
+        assertTrue(dsg.getDefaultGraph().contains(s, p, o1)) ;
+        assertTrue(dsg.getDefaultGraph().contains(s, p, o2)) ;
+        assertTrue(dsg.getDefaultGraph().contains(s, p, NodeFactoryExtra.parseNode("'23.70'^^xsd:double"))) ;
+        assertEquals(4, Iter.count(dsg.getDefaultGraph().find(s, p, Node.ANY))) ;
+        dsg.close() ;
+    }
+
+    @Test public void store_params_19() {
+        StoreParams params = StoreParams.builder().indexNode2IdType(StoreParamsConst.indexTypeExtHash).build() ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertEquals(StoreParamsConst.indexTypeExtHash, params2.getIndexNode2IdType()) ;
+        assertEquals(StoreParamsConst.indexTypeBPlusTree, StoreParams.getDftStoreParams().getIndexNode2IdType()) ;
+    }
+
+    // Hash index for the node table, on disk, reopened.
+    @Test public void store_params_19a() throws IOException {
+        String dir = ConfigTest.getCleanDir() ;
+        Location location = Location.create(dir) ;
+        StoreParams params = StoreParams.builder().indexNode2IdType(StoreParamsConst.indexTypeExtHash).build() ;
+        DatasetGraphTDB dsg = DatasetBuilderStd.create(location, params) ;
+        Node p = NodeFactory.createURI("http://example/p") ;
+        for ( int i = 0 ; i < 2000 ; i++ )
+            dsg.getDefaultGraph().add(Triple.create(NodeFactory.createURI("http://example/s"+i), p, NodeFactoryExtra.intToNode(i))) ;
+        dsg.sync() ;
+        dsg.close() ;
+        assertTrue(FileOps.exists(location.getPath(Names.indexNode2Id, Names.extHashExt))) ;
+        assertFalse(FileOps.exists(location.getPath(Names.indexNode2Id, Names.bptExtTree))) ;
+
+        // Parameters come from the location.
+        dsg = DatasetBuilderStd.create(location, null) ;
+        assertEquals(StoreParamsConst.indexTypeExtHash, dsg.getConfig().params.getIndexNode2IdType()) ;
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        NodeId id = nodeTable.getNodeIdForNode(NodeFactory.createURI("http://example/s1999")) ;
+        assertFalse(NodeId.isDoesNotExist(id)) ;
+        dsg.close() ;
+
+        // As if a crash happened while the index was being changed : rebuilt when opened.
+        try(RandomAccessFile f = new RandomAccessFile(location.getPath(Names.indexNode2Id, Names.extHashExt), "rw")) {
+            f.writeInt(1) ;
+        }
+        dsg = DatasetBuilderStd.create(location, null) ;
+        nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        assertEquals(id, nodeTable.getNodeIdForNode(NodeFactory.createURI("http://example/s1999"))) ;
+        assertEquals(2000, Iter.count(dsg.getDefaultGraph().find(Node.ANY, p, Node.ANY))) ;
+        assertTrue(dsg.getDefaultGraph().contains(NodeFactory.createURI("http://example/s7"), p, NodeFactoryExtra.intToNode(7))) ;
+        dsg.close() ;
+    }
+
     // Check that setting gets recorded and propagated.
 
     @Test public void store_params_20() {
@@ -24,7 +24,9 @@ import org.junit.runners.Suite ;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestSolverTDB.class     // Tests the TDB connectivity
+    , TestQueryBudget.class
     , TestStats.class
+    , TestStatsIncremental.class
 })
 
 public class TS_SolverTDB
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.engine.QueryBudget ;
+import com.hp.hpl.jena.tdb.TDBFactory ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+public class TestQueryBudget extends BaseTest
+{
+    static Node p = NodeFactory.createURI("http://example/p") ;
+    static final int N = 2000 ;
+    private DatasetGraph dsg ;
+    
+    @Before public void before()
+    {
+        dsg = TDBFactory.createDatasetGraph() ;
+        for ( int i = 0 ; i < N ; i++ )
+            dsg.getDefaultGraph().add(triple(i)) ;
+    }
+    
+    private static Triple triple(int i)
+    {
+        return new Triple(NodeFactory.createURI("http://example/s"+i), p, NodeFactory.createLiteral("value "+i)) ;
+    }
+    
+    private QueryExecution exec(String queryString)
+    {
+        Dataset ds = DatasetFactory.create(dsg) ;
+        return QueryExecutionFactory.create(QueryFactory.create(queryString), ds) ;
+    }
+    
+    private static long count(QueryExecution qExec)
+    {
+        return ResultSetFormatter.consume(qExec.execSelect()) ;
+    }
+    
+    // Counting without limits.
+    @Test public void budget_01()
+    {
+        try ( QueryExecution qExec = exec("SELECT * { ?s <http://example/p> ?o }") ) {
+            assertEquals(N, count(qExec)) ;
+            QueryBudget budget = QueryBudget.get(qExec.getContext()) ;
+            assertNotNull(budget) ;
+            assertEquals(N, budget.getTuplesScanned()) ;
+            assertTrue(budget.getBlocksRead() > 1) ;
+            assertEquals(0, budget.getPeakBytesBuffered()) ;
+        }
+    }
+
+    // Per-query tuple budget.
+    @Test public void budget_02()
+    {
+        try ( QueryExecution qExec = exec("SELECT * { ?s <http://example/p> ?o }") ) {
+            qExec.getContext().set(ARQ.queryMaxTuples, 100) ;
+            try {
+                count(qExec) ;
+                fail("Expected QueryBudgetExceededException") ;
+            } catch (QueryBudgetExceededException ex) {}
+            assertEquals(101, QueryBudget.get(qExec.getContext()).getTuplesScanned()) ;
+        }
+    }
+
+    // Per-dataset block budget, as a string.
+    @Test public void budget_03()
+    {
+        dsg.getContext().set(ARQ.queryMaxBlocks, "2") ;
+        try ( QueryExecution qExec = exec("SELECT * { ?s <http://example/p> ?o }") ) {
+            count(qExec) ;
+            fail("Expected QueryBudgetExceededException") ;
+        } catch (QueryCancelledException ex) {}
+        
+        // Within budget.
+        try ( QueryExecution qExec = exec("SELECT * { <http://example/s1> <http://example/p> ?o }") ) {
+            assertEquals(1, count(qExec)) ;
+        }
+    }
+
+    // Memory held by sorting.
+    @Test public void budget_04()
+    {
+        QueryBudget budget ;
+        try ( QueryExecution qExec = exec("SELECT * { ?s <http://example/p> ?o } ORDER BY ?o") ) {
+            assertEquals(N, count(qExec)) ;
+            budget = QueryBudget.get(qExec.getContext()) ;
+            assertTrue(budget.getPeakBytesBuffered() > 0) ;
+        }
+        // Released on close.
+        assertEquals(0, budget.getBytesBuffered()) ;
+        try ( QueryExecution qExec = exec("SELECT * { ?s <http://example/p> ?o } ORDER BY ?o") ) {
+            qExec.getContext().set(ARQ.queryMaxBufferedBytes, 10000L) ;
+            count(qExec) ;
+            fail("Expected QueryBudgetExceededException") ;
+        } catch (QueryBudgetExceededException ex) {}
+    }
+    
+    // Tuple scans of the batched solver are counted.
+    @Test public void budget_05()
+    {
+        String qs = "SELECT * { ?s <http://example/p> ?o . ?s <http://example/p> ?o2 }" ;
+        try ( QueryExecution qExec = exec(qs) ) {
+            qExec.getContext().set(SystemTDB.symMatchBatchSize, 100) ;
+            assertEquals(N, count(qExec)) ;
+            assertEquals(2*N, QueryBudget.get(qExec.getContext()).getTuplesScanned()) ;
+        }
+    }
+}
@@ -48,8 +48,11 @@ import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.resultset.ResultSetCompare ;
 import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.Context ;
 import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.TDBFactory ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 import com.hp.hpl.jena.util.FileManager ;
 
 public class TestSolverTDB extends BaseTest
@@ -125,6 +128,28 @@ public class TestSolverTDB extends BaseTest
         equals(rs1, rs2) ;
     }
 
+    @Test public void solve_batched_01()
+    {
+        ResultSet rs1 = execBatched("(project (?s ?y) (bgp (?s :p ?z) (?z :q ?y)))", graph, 2) ;
+        ResultSet rs2 = results("(row (?s :s) (?y :y))") ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_batched_02()
+    {
+        ResultSet rs1 = exec("(bgp (?s ?p ?o) (?o ?p2 ?o2))", graph) ;
+        ResultSet rs2 = execBatched("(bgp (?s ?p ?o) (?o ?p2 ?o2))", graph, 3) ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_batched_03()
+    {
+        // Second pattern has S and O bound : looked up on OSP.
+        ResultSet rs1 = exec("(bgp (?s ?p ?o) (?s ?p2 ?o))", graph) ;
+        ResultSet rs2 = execBatched("(bgp (?s ?p ?o) (?s ?p2 ?o))", graph, 4) ;
+        equals(rs1, rs2) ;
+    }
+
     // ------
     
     private static void equals(ResultSet rs1, ResultSet rs2)
@@ -164,6 +189,16 @@ public class TestSolverTDB extends BaseTest
         return ResultSetFactory.create(qIter, Var.varNames(vars)) ;
     }
     
+    private static ResultSet execBatched(String pattern, Graph graph, int batchSize)
+    {
+        Context cxt = TDB.getContext() ;
+        cxt.set(SystemTDB.symMatchBatchSize, batchSize) ;
+        try {
+            // Materialize while the setting is in force.
+            return ResultSetFactory.makeRewindable(exec(pattern, graph)) ;
+        } finally { cxt.unset(SystemTDB.symMatchBatchSize) ; }
+    }
+    
     private static List<Binding> toList(QueryIterator qIter)
     {
         List<Binding> x = new ArrayList<>() ;
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.solver;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.engine.optimizer.StatsMatcher ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDBFactory ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.solver.stats.CountMinSketch ;
+import com.hp.hpl.jena.tdb.solver.stats.HyperLogLog ;
+import com.hp.hpl.jena.tdb.solver.stats.ReorderIncremental ;
+import com.hp.hpl.jena.tdb.solver.stats.StatsIncremental ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+import com.hp.hpl.jena.tdb.sys.TDBInternal ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
+
+public class TestStatsIncremental extends BaseTest
+{
+    static Node p = SSE.parseNode("<p>") ;
+    static Node q = SSE.parseNode("<q>") ;
+    static Node rdfType = SSE.parseNode("rdf:type") ;
+    
+    private boolean flag ;
+    private long refresh ;
+    private String path = null ;
+    private Location location = null ;
+
+    @Before public void before()
+    {
+        flag = SystemTDB.incrementalStats ;
+        refresh = StatsIncremental.RefreshInterval ;
+        SystemTDB.incrementalStats = true ;
+        StatsIncremental.RefreshInterval = 0 ;
+        path = ConfigTest.getCleanDir() ;
+        location = Location.create(path) ;
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(path) ;
+    }
+    
+    @After public void after()
+    {
+        SystemTDB.incrementalStats = flag ;
+        StatsIncremental.RefreshInterval = refresh ;
+        StoreConnection.release(location) ;
+        if ( FileOps.exists(path) )
+        {
+            FileOps.clearDirectory(path) ;
+            FileOps.deleteSilent(path) ;
+        }
+    }
+    
+    private static Triple triple(String s, Node pred, String o)
+    {
+        return SSE.parseTriple("(<"+s+"> "+SSE.format(pred)+" "+o+")") ;
+    }
+    
+    private static StatsIncremental stats(DatasetGraph dsg)
+    {
+        return TDBInternal.getBaseDatasetGraphTDB(dsg).getStatsIncremental() ;
+    }
+    
+    @Test public void hll_01()
+    {
+        HyperLogLog hll = new HyperLogLog(10) ;
+        assertEquals(0, hll.estimate()) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+            hll.add(i) ;
+        assertEquals(10, hll.estimate()) ;
+    }
+    
+    @Test public void hll_02()
+    {
+        HyperLogLog hll1 = new HyperLogLog(10) ;
+        HyperLogLog hll2 = new HyperLogLog(10) ;
+        for ( int i = 0 ; i < 50000 ; i++ )
+        {
+            hll1.add(i) ;
+            hll2.add(i+50000) ;
+        }
+        // Repeats do not count.
+        for ( int i = 0 ; i < 50000 ; i++ )
+            hll1.add(i) ;
+        assertEquals(50000, hll1.estimate(), 50000*0.1) ;
+        hll1.merge(hll2) ;
+        assertEquals(100000, hll1.estimate(), 100000*0.1) ;
+    }
+    
+    @Test public void cms_01()
+    {
+        CountMinSketch cms = new CountMinSketch(4, 64) ;
+        for ( long i = 0 ; i < 1000 ; i++ )
+            cms.add(i, 1) ;
+        cms.add(7, 100) ;
+        for ( long i = 0 ; i < 1000 ; i++ )
+            assertTrue(cms.estimate(i) >= ( i == 7 ? 101 : 1 )) ;
+        cms.add(7, -100) ;
+        assertTrue(cms.estimate(7) < 100) ;
+    }
+
+    @Test public void stats_mem_01()
+    {
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        StatsIncremental stats = stats(dsg) ;
+        assertNotNull(stats) ;
+        for ( int i = 0 ; i < 100 ; i++ )
+        {
+            dsg.getDefaultGraph().add(triple("s"+i, p, "<o"+(i%10)+">")) ;
+            dsg.getDefaultGraph().add(triple("s"+i, rdfType, "<T"+(i%2)+">")) ;
+        }
+        dsg.add(SSE.parseQuad("(<g> <s> <q> 1)")) ;
+        assertEquals(201, stats.getCount()) ;
+        assertEquals(100, stats.getPredicateCount(p)) ;
+        assertEquals(100, stats.getDistinctSubjects(p)) ;
+        assertEquals(10, stats.getDistinctObjects(p)) ;
+        assertEquals(1, stats.getPredicateCount(q)) ;
+        assertEquals(50, stats.getTypeCount(SSE.parseNode("<T1>"))) ;
+        // Duplicate
+        dsg.getDefaultGraph().add(triple("s0", p, "<o0>")) ;
+        assertEquals(100, stats.getPredicateCount(p)) ;
+        
+        dsg.getDefaultGraph().delete(triple("s0", p, "<o0>")) ;
+        dsg.getDefaultGraph().delete(triple("s1", rdfType, "<T1>")) ;
+        assertEquals(99, stats.getPredicateCount(p)) ;
+        assertEquals(49, stats.getTypeCount(SSE.parseNode("<T1>"))) ;
+        dsg.deleteAny(Node.ANY, Node.ANY, q, Node.ANY) ;
+        assertEquals(0, stats.getPredicateCount(q)) ;
+        assertEquals(198, stats.getCount()) ;
+    }
+    
+    @Test public void stats_mem_02()
+    {
+        // Weights for the optimizer
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+        {
+            // Each subject has one <p>; one object is used by half the triples. 
+            String obj = ( i%2 == 0 ) ? "<common>" : "<o"+i+">" ; 
+            dsg.getDefaultGraph().add(triple("s"+i, p, obj)) ;
+        }
+        DatasetGraphTDB dsgtdb = TDBInternal.getBaseDatasetGraphTDB(dsg) ;
+        assertTrue(dsgtdb.getReorderTransform() instanceof ReorderIncremental) ;
+        StatsMatcher matcher = stats(dsg).matcher() ;
+        double wCommon = matcher.match(SSE.parseTriple("(?s <p> <common>)")) ;
+        double wOther = matcher.match(SSE.parseTriple("(?s <p> <o1>)")) ;
+        double wSubj = matcher.match(SSE.parseTriple("(<s1> <p> ?o)")) ;
+        double wAll = matcher.match(SSE.parseTriple("(?s <p> ?o)")) ;
+        assertEquals(1000, wAll, 0.1) ;
+        assertEquals(500, wCommon, 0.1) ;
+        assertTrue(wOther < 10) ;
+        assertEquals(1, wSubj, 0.1) ;
+        // Not in the data.
+        assertEquals(0, matcher.match(SSE.parseTriple("(?s <q> ?o)")), 0.1) ;
+    }
+
+    @Test public void stats_mem_03()
+    {
+        SystemTDB.incrementalStats = false ;
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        assertNull(stats(dsg)) ;
+    }
+    
+    @Test public void stats_txn_01()
+    {
+        StoreConnection sConn = StoreConnection.make(location) ;
+        StatsIncremental stats = sConn.getBaseDataset().getStatsIncremental() ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+            dsg.getDefaultGraph().add(triple("s"+i, p, "<o>")) ;
+        // Not visible until commit.
+        assertEquals(0, stats.getCount()) ;
+        dsg.commit() ;
+        dsg.end() ;
+        assertEquals(10, stats.getCount()) ;
+        assertEquals(10, stats.getPredicateCount(p)) ;
+        
+        dsg = sConn.begin(ReadWrite.WRITE) ;
+        dsg.getDefaultGraph().add(triple("s", q, "<o>")) ;
+        dsg.abort() ;
+        dsg.end() ;
+        assertEquals(10, stats.getCount()) ;
+        assertEquals(0, stats.getPredicateCount(q)) ;
+    }
+
+    @Test public void stats_txn_02()
+    {
+        // Kept across restarts, and after that without needing the flag set.
+        StoreConnection sConn = StoreConnection.make(location) ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+        {
+            dsg.getDefaultGraph().add(triple("s"+i, p, "<o"+i+">")) ;
+            dsg.getDefaultGraph().add(triple("s"+i, rdfType, "<T>")) ;
+        }
+        dsg.commit() ;
+        dsg.end() ;
+        StoreConnection.release(location) ;
+        
+        SystemTDB.incrementalStats = false ;
+        sConn = StoreConnection.make(location) ;
+        StatsIncremental stats = sConn.getBaseDataset().getStatsIncremental() ;
+        assertNotNull(stats) ;
+        assertEquals(20, stats.getCount()) ;
+        assertEquals(10, stats.getDistinctObjects(p)) ;
+        assertEquals(10, stats.getTypeCount(SSE.parseNode("<T>"))) ;
+    }
+
+    @Test public void stats_txn_03()
+    {
+        // Rebuilt when reset.
+        StoreConnection sConn = StoreConnection.make(location) ;
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.WRITE) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+            dsg.getDefaultGraph().add(triple("s"+i, p, "<o>")) ;
+        dsg.commit() ;
+        dsg.end() ;
+        StoreConnection.release(location) ;
+        StatsIncremental.reset(location) ;
+        
+        SystemTDB.incrementalStats = false ;
+        sConn = StoreConnection.make(location) ;
+        StatsIncremental stats = sConn.getBaseDataset().getStatsIncremental() ;
+        assertEquals(10, stats.getCount()) ;
+        assertEquals(1, stats.getDistinctObjects(p)) ;
+    }
+}
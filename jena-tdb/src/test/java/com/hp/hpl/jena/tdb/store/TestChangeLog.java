@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.sys.TDBMaker ;
+
+public class TestChangeLog extends BaseTest
+{
+    private static Quad q1 = SSE.parseQuad("(<g> <s> <p> 1)") ;
+    private static Quad q2 = SSE.parseQuad("(<g> <s> <p> 2)") ;
+    private static Quad t1 = SSE.parseQuad("(_ <s> <p> 1)") ;
+
+    static DatasetGraphTDB fresh() {
+        return TDBMaker.createDatasetGraphTDB(Location.mem(), null) ;
+    }
+
+    @Test public void changelog_01() {
+        DatasetGraphTDB dsg = fresh() ;
+        ChangeLog changes = new ChangeLog(100) ;
+        dsg.setChangeLog(changes) ;
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        dsg.add(t1) ;
+        dsg.delete(q1) ;
+        dsg.getDefaultGraph().getPrefixMapping().setNsPrefix("ex", "http://example/") ;
+        assertTrue(changes.isComplete()) ;
+
+        DatasetGraphTDB dsg2 = fresh() ;
+        changes.apply(dsg2) ;
+        assertFalse(dsg2.contains(q1)) ;
+        assertTrue(dsg2.contains(q2)) ;
+        assertTrue(dsg2.getDefaultGraph().contains(t1.asTriple())) ;
+        assertEquals("http://example/", dsg2.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex")) ;
+    }
+
+    @Test public void changelog_02() {
+        // Delete by pattern.
+        DatasetGraphTDB dsg = fresh() ;
+        dsg.add(q1) ;
+        dsg.add(q2) ;
+        ChangeLog changes = new ChangeLog(100) ;
+        dsg.setChangeLog(changes) ;
+        dsg.deleteAny(q1.getGraph(), q1.getSubject(), null, null) ;
+        assertEquals(2, changes.size()) ;
+
+        DatasetGraphTDB dsg2 = fresh() ;
+        dsg2.add(q1) ;
+        dsg2.add(q2) ;
+        changes.apply(dsg2) ;
+        assertTrue(dsg2.isEmpty()) ;
+    }
+
+    @Test public void changelog_03() {
+        // Too many changes.
+        DatasetGraphTDB dsg = fresh() ;
+        ChangeLog changes = new ChangeLog(1) ;
+        dsg.setChangeLog(changes) ;
+        dsg.add(q1) ;
+        assertTrue(changes.isComplete()) ;
+        dsg.add(q2) ;
+        assertFalse(changes.isComplete()) ;
+        assertEquals(0, changes.size()) ;
+    }
+
+    @Test public void changelog_04() {
+        ChangeLog changes = new ChangeLog(2) ;
+        ChangeLog txn1 = changes.newLog() ;
+        txn1.add(ChangeLog.Table.QUADS, q1.getGraph(), q1.getSubject(), q1.getPredicate(), q1.getObject()) ;
+        changes.append(txn1) ;
+        assertEquals(1, changes.size()) ;
+        ChangeLog txn2 = changes.newLog() ;
+        txn2.add(ChangeLog.Table.QUADS, q1.getGraph(), q1.getSubject(), q1.getPredicate(), q1.getObject()) ;
+        txn2.add(ChangeLog.Table.QUADS, q2.getGraph(), q2.getSubject(), q2.getPredicate(), q2.getObject()) ;
+        assertTrue(txn2.isComplete()) ;
+        changes.append(txn2) ;
+        assertFalse(changes.isComplete()) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void changelog_05() {
+        ChangeLog changes = new ChangeLog(10) ;
+        changes.invalidate() ;
+        changes.apply(fresh()) ;
+    }
+}
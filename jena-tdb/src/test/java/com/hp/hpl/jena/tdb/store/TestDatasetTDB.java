@@ -239,7 +239,21 @@ public class TestDatasetTDB extends BaseTest
         Model m = ds.getNamedModel(unionGraph) ;
         assertEquals(2, m.size()) ;
     }
-    
+
+    @Test public void special6()
+    {
+        Dataset ds = create() ;
+        // Some triples in both graphs, some in one.
+        load1(ds.getNamedModel("http://example/graph1")) ;
+        load2(ds.getNamedModel("http://example/graph1")) ;
+        load1(ds.getNamedModel("http://example/graph2")) ;
+        load3(ds.getNamedModel("http://example/graph2")) ;
+
+        Model m = ds.getNamedModel(unionGraph) ;
+        assertEquals(6, m.size()) ;
+        assertEquals(6, m.listStatements().toList().size()) ;
+    }
+
     // Put a model into a general dataset and use it.
     @Test public void generalDataset1()
     {
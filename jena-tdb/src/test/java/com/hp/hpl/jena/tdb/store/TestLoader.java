@@ -18,12 +18,17 @@
 
 package com.hp.hpl.jena.tdb.store ;
 
+import java.io.ByteArrayInputStream ;
 import java.io.InputStream ;
+import java.util.Arrays ;
+import java.util.HashSet ;
 import java.util.List ;
+import java.util.Set ;
 
 import org.apache.jena.atlas.io.IO ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
 import org.apache.jena.atlas.logging.LogCtl ;
 import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
@@ -33,11 +38,15 @@ import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.NodeFactory ;
 import com.hp.hpl.jena.graph.Triple ;
 import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.sparql.core.Quad ;
 import com.hp.hpl.jena.tdb.ConfigTest ;
 import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.TDBFactory ;
 import com.hp.hpl.jena.tdb.TDBLoader ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.store.bulkloader.BulkLoader ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTransaction ;
 import com.hp.hpl.jena.tdb.sys.TDBMaker ;
 
 public class TestLoader extends BaseTest {
@@ -163,4 +172,96 @@ public class TestLoader extends BaseTest {
         String uri2 = dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("") ;
         assertNull(uri2) ;
     }
+
+    @Test
+    public void load_append_01() {
+        int batchSize = BulkLoader.AppendBatchSize ;
+        try {
+            BulkLoader.AppendBatchSize = 7 ;
+            DatasetGraphTDB dsg = fresh() ;
+            TDBLoader.load(dsg, DIR + "data-1.nq", false) ;
+            TDBLoader.load(dsg, appendData(), false) ;
+            // Again : all duplicates.
+            TDBLoader.load(dsg, appendData(), false) ;
+            checkAppend(dsg) ;
+        } finally { BulkLoader.AppendBatchSize = batchSize ; }
+    }
+
+    @Test
+    public void load_append_02() {
+        int batchSize = BulkLoader.AppendBatchSize ;
+        try {
+            BulkLoader.AppendBatchSize = 7 ;
+            DatasetGraphTDB dsg = fresh() ;
+            TDBLoader.load(dsg, DIR + "data-1.nq", false) ;
+            TDBLoader.load(dsg.getGraphTDB(g), DIR + "data-2.nt", false) ;
+            TDBLoader.load(dsg.getGraphTDB(g), DIR + "data-4.ttl", false) ;
+            assertEquals(2, dsg.getGraph(g).size()) ;
+            assertEquals(0, dsg.getDefaultGraph().size()) ;
+            assertEquals(1, Iter.count(dsg.find(null, null, p, null))) ;
+        } finally { BulkLoader.AppendBatchSize = batchSize ; }
+    }
+
+    @Test
+    public void load_append_03() {
+        DatasetGraphTransaction dsg = (DatasetGraphTransaction)TDBFactory.createDatasetGraph() ;
+        TDBLoader.load(dsg, Arrays.asList(DIR + "data-1.nq"), false) ;
+        TDBLoader.load(dsg, Arrays.asList(DIR + "data-2.nt", DIR + "data-3.trig"), false) ;
+        dsg.begin(ReadWrite.READ) ;
+        try {
+            assertEquals(1, dsg.getDefaultGraph().size()) ;
+            assertEquals(1, dsg.getGraph(g).size()) ;
+            assertEquals(1, dsg.getGraph(NodeFactory.createURI("http://example/g")).size()) ;
+        } finally { dsg.end() ; }
+    }
+
+    @Test
+    public void load_append_04() {
+        DatasetGraphTransaction dsg = (DatasetGraphTransaction)TDBFactory.createDatasetGraph() ;
+        TDBLoader.load(dsg, Arrays.asList(DIR + "data-1.nq"), false) ;
+        try {
+            TDBLoader.load(dsg, Arrays.asList(DIR + "data-2.nt", DIR + "no-such-file.nt"), false) ;
+            fail("Expected the load to fail") ;
+        } catch (RuntimeException ex) {}
+        // Nothing from the failed load.
+        dsg.begin(ReadWrite.READ) ;
+        try {
+            assertEquals(0, dsg.getDefaultGraph().size()) ;
+            assertEquals(1, dsg.getGraph(g).size()) ;
+        } finally { dsg.end() ; }
+    }
+
+    private static InputStream appendData() {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            sb.append("<http://example/s"+(i%13)+"> <http://example/p"+(i%3)+"> \""+(i%17)+"\"") ;
+            if ( i%2 == 0 )
+                sb.append(" <http://example/g"+(i%4)+">") ;
+            sb.append(" .\n") ;
+        }
+        return new ByteArrayInputStream(StrUtils.asUTF8bytes(sb.toString())) ;
+    }
+
+    private static void checkAppend(DatasetGraphTDB dsg) {
+        DatasetGraphTDB dsg2 = fresh() ;
+        for ( int i = 0 ; i < 100 ; i++ ) {
+            Node s1 = NodeFactory.createURI("http://example/s"+(i%13)) ;
+            Node p1 = NodeFactory.createURI("http://example/p"+(i%3)) ;
+            Node o1 = NodeFactory.createLiteral(""+(i%17)) ;
+            Node g1 = ( i%2 == 0 ) ? NodeFactory.createURI("http://example/g"+(i%4)) : Quad.defaultGraphIRI ;
+            dsg2.add(g1, s1, p1, o1) ;
+        }
+        dsg2.add(g, s, p, o) ;
+        Set<Quad> expected = new HashSet<>(Iter.toList(dsg2.find())) ;
+        List<Quad> actual = Iter.toList(dsg.find()) ;
+        assertEquals(expected.size(), actual.size()) ;
+        assertEquals(expected, new HashSet<>(actual)) ;
+        // Each index
+        for ( Quad q : expected ) {
+            assertTrue(Iter.toList(dsg.find(q.getGraph(), q.getSubject(), null, null)).contains(q)) ;
+            assertTrue(Iter.toList(dsg.find(null, null, q.getPredicate(), q.getObject())).contains(q)) ;
+            assertTrue(Iter.toList(dsg.find(null, null, null, q.getObject())).contains(q)) ;
+            assertTrue(Iter.toList(dsg.find(q.getGraph(), null, q.getPredicate(), null)).contains(q)) ;
+        }
+    }
 }
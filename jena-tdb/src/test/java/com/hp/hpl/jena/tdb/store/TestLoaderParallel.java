@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.store ;
+
+import java.io.PrintStream ;
+import java.util.Arrays ;
+import java.util.HashSet ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.logging.LogCtl ;
+import org.apache.jena.riot.RiotException ;
+import org.junit.After ;
+import org.junit.AfterClass ;
+import org.junit.Before ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.TDBLoader ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
+import com.hp.hpl.jena.tdb.store.bulkloader2.LoaderParallel ;
+import com.hp.hpl.jena.tdb.sys.TDBMaker ;
+
+public class TestLoaderParallel extends BaseTest {
+    private static String DIR = null ;
+    private static final Node   g   = NodeFactory.createURI("g") ;
+    private static final Node   s   = NodeFactory.createURI("s") ;
+
+    private Location location ;
+    private DatasetGraphTDB dsg = null ;
+    private long spillThreshold ;
+
+    @BeforeClass
+    static public void beforeClass() {
+        DIR = ConfigTest.getTestingDataRoot()+"/Loader/" ;
+        LogCtl.disable(TDB.logLoaderName) ;
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        LogCtl.enable(TDB.logLoaderName) ;
+    }
+
+    @Before
+    public void before() {
+        location = Location.create(ConfigTest.getCleanDir()) ;
+        // The loader requires sole use of the location.
+        StoreConnection.release(location) ;
+        spillThreshold = LoaderParallel.SpillThreshold ;
+    }
+
+    @After
+    public void after() {
+        LoaderParallel.SpillThreshold = spillThreshold ;
+        if ( dsg != null )
+            dsg.close() ;
+        dsg = null ;
+    }
+
+    private DatasetGraphTDB open() {
+        dsg = DatasetBuilderStd.create(location) ;
+        return dsg ;
+    }
+
+    @Test
+    public void load_parallel_01() {
+        LoaderParallel.load(location, Arrays.asList(DIR + "data-1.nq", DIR + "data-2.nt"), false) ;
+        DatasetGraphTDB dsg = open() ;
+        assertEquals(1, dsg.getDefaultGraph().size()) ;
+        assertEquals(1, dsg.getGraph(g).size()) ;
+        assertEquals(1, Iter.count(dsg.getDefaultGraph().find(s, null, null))) ;
+        assertEquals(1, Iter.count(dsg.find(g, s, null, null))) ;
+        assertEquals(2, Iter.count(dsg.find(null, s, null, null))) ;
+    }
+
+    @Test
+    public void load_parallel_02() {
+        LoaderParallel.load(location, Arrays.asList(DIR + "data-3.trig"), false) ;
+        DatasetGraphTDB dsg = open() ;
+        String uri = dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("") ;
+        assertEquals("http://example/", uri) ;
+    }
+
+    // Spill files and duplicates: compare with the standard loader.
+    @Test
+    public void load_parallel_03() {
+        String filename = ConfigTest.getTestingDir()+"/loader-parallel.nq" ;
+        PrintStream out = new PrintStream(IO.openOutputFile(filename)) ;
+        for ( int i = 0 ; i < 2000 ; i++ ) {
+            String x = "<http://example/s"+(i%97)+"> <http://example/p"+(i%7)+"> \""+(i%500)+"\"" ;
+            if ( i%3 == 0 )
+                out.println(x+" .") ;
+            else
+                out.println(x+" <http://example/g"+(i%5)+"> .") ;
+        }
+        out.close() ;
+
+        DatasetGraphTDB dsg1 = TDBMaker.createDatasetGraphTDB(Location.mem(), null) ;
+        try {
+            LoaderParallel.SpillThreshold = 100 ;
+            LoaderParallel.load(location, Arrays.asList(filename), false) ;
+            TDBLoader.load(dsg1, filename, false) ;
+        } finally { FileOps.delete(filename) ; }
+        Set<Quad> expected = new HashSet<>(Iter.toList(dsg1.find())) ;
+
+        DatasetGraphTDB dsg2 = open() ;
+        List<Quad> quads = Iter.toList(dsg2.find()) ;
+        assertEquals(expected.size(), quads.size()) ;
+        assertEquals(expected, new HashSet<>(quads)) ;
+        // Every index
+        for ( Quad q : expected ) {
+            assertTrue(dsg2.contains(q)) ;
+            assertEquals(1, Iter.count(dsg2.find(q.getGraph(), q.getSubject(), q.getPredicate(), q.getObject()))) ;
+        }
+        Node p = NodeFactory.createURI("http://example/p3") ;
+        assertEquals(Iter.count(dsg1.find(null, null, p, null)), Iter.count(dsg2.find(null, null, p, null))) ;
+        assertEquals(Iter.count(dsg1.getDefaultGraph().find(null, p, null)), Iter.count(dsg2.getDefaultGraph().find(null, p, null))) ;
+        Node o = NodeFactory.createLiteral("42") ;
+        assertEquals(Iter.count(dsg1.find(null, null, null, o)), Iter.count(dsg2.find(null, null, null, o))) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void load_parallel_04() {
+        LoaderParallel.load(location, Arrays.asList(DIR + "data-2.nt"), false) ;
+        // Not empty
+        LoaderParallel.load(location, Arrays.asList(DIR + "data-2.nt"), false) ;
+    }
+
+    // A failed load closes the database files, which can then be opened again.
+    @Test
+    public void load_parallel_05() {
+        String filename = ConfigTest.getTestingDir()+"/loader-parallel-bad.nt" ;
+        PrintStream out = new PrintStream(IO.openOutputFile(filename)) ;
+        out.println("<http://example/s> <http://example/p> \"1\" .") ;
+        out.println("<http://example/s> <http://example/p> .") ;
+        out.close() ;
+        try {
+            LoaderParallel.load(location, Arrays.asList(filename), false) ;
+            fail("Bad data loaded") ;
+        } catch (RiotException ex) {
+        } finally { FileOps.delete(filename) ; }
+        DatasetGraphTDB dsg = open() ;
+        assertTrue(dsg.isEmpty()) ;
+    }
+}
@@ -21,6 +21,7 @@ package com.hp.hpl.jena.tdb.store;
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.junit.Test ;
 
+import com.hp.hpl.jena.JenaRuntime ;
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.NodeFactory ;
@@ -225,6 +226,111 @@ public class TestNodeId extends BaseTest
     @Test public void nodeId_boolean_4()
     { test("'0'^^xsd:boolean", NodeFactoryExtra.parseNode("'false'^^xsd:boolean")) ; }
 
+    // Format 2 inlines.
+    
+    @Test public void nodeId_format_1()
+    { test("'abc'", (Node)null) ; }
+
+    @Test public void nodeId_format_2()
+    { test("'3.5'^^xsd:double", (Node)null) ; }
+
+    @Test public void nodeId_string_1()
+    { test2("'abc'") ; }
+
+    @Test public void nodeId_string_2()
+    { test2("''") ; }
+
+    @Test public void nodeId_string_3()
+    { test2("'abcdefg'") ; }
+
+    @Test public void nodeId_string_4()
+    { test2("'abcdefgh'", null) ; }
+
+    @Test public void nodeId_string_5()
+    // 2 bytes each in UTF-8
+    { test2("'\u00E9t\u00E9'") ; }
+
+    @Test public void nodeId_string_6()
+    { test2("'\u00E9\u00E9\u00E9\u00E9'", null) ; }
+
+    @Test public void nodeId_string_7()
+    { test2("'abc'^^xsd:string", JenaRuntime.isRDF11 ? "'abc'" : null) ; }
+
+    @Test public void nodeId_string_8()
+    { test2("'\u0000'", null) ; }
+
+    @Test public void nodeId_lang_1()
+    { test2("'chat'@fr") ; }
+
+    @Test public void nodeId_lang_2()
+    { test2("'abcdef'@en-GB") ; }
+
+    @Test public void nodeId_lang_3()
+    { test2("'abcdefg'@en", null) ; }
+
+    @Test public void nodeId_lang_4()
+    // Not a common language tag.
+    { test2("'abc'@x-foo", null) ; }
+
+    @Test public void nodeId_lang_5()
+    { test2("'abc'@EN", null) ; }
+
+    @Test public void nodeId_double_1()
+    { test2("'23.7'^^xsd:double") ; }
+
+    @Test public void nodeId_double_2()
+    { test2("'1.0e10'^^xsd:double", "'1.0E10'^^xsd:double") ; }
+
+    @Test public void nodeId_double_3()
+    { test2("'-0.001'^^xsd:double") ; }
+
+    @Test public void nodeId_double_4()
+    { test2("'0.0'^^xsd:double") ; }
+
+    @Test public void nodeId_double_5()
+    { test2("'INF'^^xsd:double", null) ; }
+
+    @Test public void nodeId_double_6()
+    { test2("'-0.0'^^xsd:double", null) ; }
+
+    @Test public void nodeId_double_7()
+    // Too many digits.
+    { test2("'0.1234567890123456789'^^xsd:double", null) ; }
+
+    @Test public void nodeId_double_8()
+    { test2("'1e300'^^xsd:double", null) ; }
+
+    @Test public void nodeId_float_1()
+    { test2("'1.5'^^xsd:float") ; }
+
+    @Test public void nodeId_float_2()
+    { test2("'INF'^^xsd:float") ; }
+
+    @Test public void nodeId_float_3()
+    { test2("'-1.50'^^xsd:float", "'-1.5'^^xsd:float") ; }
+
+    @Test public void nodeId_format_3()
+    // Format 2 still does format 1 types.
+    { test2("'2008-04-28Z'^^xsd:date") ; }
+
+    @Test public void nodeId_format_4()
+    {
+        // Unsigned order of packed strings is string order.
+        long v1 = StringNode.packString("abc") ;
+        long v2 = StringNode.packString("abd") ;
+        long v3 = StringNode.packString("abcd") ;
+        assertTrue(Long.compare(v1, v2) < 0) ;
+        assertTrue(Long.compare(v1, v3) < 0) ;
+        assertTrue(Long.compare(v3, v2) < 0) ;
+    }
+
+    private void test2(String x) { test2(x, x) ; }
+    
+    private void test2(String x, String expected)
+    {
+        test(x, expected == null ? null : NodeFactoryExtra.parseNode(expected), NodeId.FORMAT_2) ;
+    }
+    
     private void test(String x) { test(x, x) ; }
     
     private void test(String x, String expected)
@@ -233,12 +339,17 @@ public class TestNodeId extends BaseTest
     }
 
     private void test(String x, Node correct)
+    {
+        test(x, correct, NodeId.FORMAT_1) ;
+    }
+    
+    private void test(String x, Node correct, int format)
     {
         Node n = NodeFactoryExtra.parseNode(x) ;
-        NodeId nodeId = NodeId.inline(n) ;
+        NodeId nodeId = NodeId.inline(n, format) ;
         boolean b = NodeId.hasInlineDatatype(n) ;
 
-        if ( nodeId != null )
+        if ( nodeId != null && format == NodeId.FORMAT_1 )
             assertTrue("Converted NodeId but datatype test was false", b) ;
         
         if ( correct == null )
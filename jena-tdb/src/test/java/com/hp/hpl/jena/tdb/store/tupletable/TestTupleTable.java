@@ -21,14 +21,20 @@ package com.hp.hpl.jena.tdb.store.tupletable;
 import java.util.Iterator;
 import java.util.List;
 
+import com.hp.hpl.jena.tdb.base.file.FileSet ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory;
+import com.hp.hpl.jena.tdb.index.IndexFactory ;
+import com.hp.hpl.jena.tdb.index.RangeIndex ;
+import com.hp.hpl.jena.tdb.setup.StoreParams ;
 import com.hp.hpl.jena.tdb.store.NodeId;
 import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
 import com.hp.hpl.jena.tdb.store.tupletable.TupleTable ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB;
 
+import org.apache.jena.atlas.iterator.Filter ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.ColumnMap ;
 import org.apache.jena.atlas.lib.Tuple ;
 import static org.apache.jena.atlas.lib.Tuple.* ;
 import org.junit.Test;
@@ -62,6 +68,26 @@ public class TestTupleTable extends BaseTest
         return table ;
     }
     
+    static RecordFactory factory4 = new RecordFactory(4*SystemTDB.SizeOfNodeId, 0) ;
+    
+    static private TupleTable createQuads(String... descriptions)
+    {
+        TupleIndex x[] = new TupleIndex[descriptions.length] ;
+        for ( int i = 0 ; i < descriptions.length ; i++ )
+        {
+            RangeIndex rIdx = IndexFactory.buildRangeIndex(FileSet.mem(), factory4, StoreParams.getDftStoreParams()) ;
+            ColumnMap cmap = new ColumnMap("GSPO", descriptions[i]) ;
+            x[i] = new TupleIndexRecord(4, cmap, descriptions[i], factory4, rIdx) ;
+        }
+        TupleTable table = new TupleTable(4, x) ;
+        table.add(createTuple(n1, n4, n5, n6)) ;
+        table.add(createTuple(n2, n4, n5, n6)) ;
+        table.add(createTuple(n3, n4, n5, n6)) ;
+        table.add(createTuple(n1, n4, n5, n3)) ;
+        table.add(createTuple(n2, n5, n5, n6)) ;
+        return table ;
+    }
+    
     static void add(TupleTable table, NodeId x1, NodeId x2, NodeId x3)
     {
         Tuple<NodeId> tuple = createTuple(x1, x2, x3) ;
@@ -157,4 +183,67 @@ public class TestTupleTable extends BaseTest
         assertEquals(createTuple(n1, n2, n3) , e1) ;
     }
 
+    private static final NodeId any = NodeId.NodeIdAny ;
+    
+    private static void union(TupleTable table)
+    {
+        // Graph slot ignored.
+        List<Tuple<NodeId>> x = Iter.toList(table.findUnion(createTuple(n1, n4, any, any), null)) ;
+        assertEquals(2, x.size()) ;
+        assertTrue(x.contains(createTuple(any, n4, n5, n6))) ;
+        assertTrue(x.contains(createTuple(any, n4, n5, n3))) ;
+        
+        x = Iter.toList(table.findUnion(createTuple(any, any, any, n6), null)) ;
+        assertEquals(2, x.size()) ;
+        assertTrue(x.contains(createTuple(any, n4, n5, n6))) ;
+        assertTrue(x.contains(createTuple(any, n5, n5, n6))) ;
+        
+        x = Iter.toList(table.findUnion(createTuple(any, any, any, any), null)) ;
+        assertEquals(3, x.size()) ;
+        
+        // Filter sees the graph.
+        Filter<Tuple<NodeId>> filter = new Filter<Tuple<NodeId>>() {
+            @Override
+            public boolean accept(Tuple<NodeId> item)
+            { return ! item.get(0).equals(n1) ; }
+        } ;
+        x = Iter.toList(table.findUnion(createTuple(any, n4, any, any), filter)) ;
+        assertEquals(1, x.size()) ;
+        assertEquals(createTuple(any, n4, n5, n6), x.get(0)) ;
+    }
+    
+    // Index with the graph last - duplicates adjacent.
+    @Test public void findUnion1()
+    {
+        union(createQuads("GSPO", "GPOS", "GOSP", "SPOG", "POSG", "OSPG")) ;
+    }
+
+    // Some patterns need an index without the graph last.
+    @Test public void findUnion2()
+    {
+        union(createQuads("GSPO", "SPOG")) ;
+    }
+
+    // No index with the graph last.
+    @Test public void findUnion3()
+    {
+        union(createQuads("GSPO", "GPOS", "GOSP")) ;
+    }
+
+    @Test public void chooseIndex1()
+    {
+        TupleTable table = create() ;
+        assertEquals("SPO", table.chooseIndex(createTuple(n1, any, any)).getName()) ;
+        assertEquals("POS", table.chooseIndex(createTuple(any, n2, n3)).getName()) ;
+        assertEquals("OSP", table.chooseIndex(createTuple(n1, any, n3)).getName()) ;
+    }
+    
+    @Test public void chooseIndexUnion1()
+    {
+        TupleTable table = createQuads("GSPO", "GPOS", "SPOG", "OSPG") ;
+        assertEquals("SPOG", table.chooseIndexUnion(createTuple(n1, n4, any, any)).getName()) ;
+        assertEquals("OSPG", table.chooseIndexUnion(createTuple(any, n4, any, n6)).getName()) ;
+        // No index with the graph last starts with P : scan the primary index.
+        assertEquals("GSPO", table.chooseIndexUnion(createTuple(any, any, n5, any)).getName()) ;
+    }
 }
@@ -27,6 +27,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
     TestSys.class
+    , TestCacheBudget.class
 })
 
 public class TS_Sys
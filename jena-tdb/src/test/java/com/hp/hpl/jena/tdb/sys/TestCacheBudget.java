@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.sys;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.cache.CacheLRU ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+public class TestCacheBudget extends BaseTest
+{
+    private int budgetMB ;
+
+    @Before public void before()    { budgetMB = SystemTDB.CacheBudgetMB ; }
+    @After  public void after()     { SystemTDB.CacheBudgetMB = budgetMB ; }
+
+    private static CacheLRU<Integer, String> fill(int capacity, int n)
+    {
+        CacheLRU<Integer, String> cache = CacheFactory.createResizableCache(capacity) ;
+        for ( int i = 0 ; i < n ; i++ )
+            cache.put(i, "x"+i) ;
+        return cache ;
+    }
+
+    private static void miss(CacheLRU<Integer, String> cache, int n)
+    {
+        for ( int i = 0 ; i < n ; i++ )
+            cache.getIfPresent(-1-i) ;
+    }
+
+    // No budget - accounting only.
+    @Test public void cache_budget_01()
+    {
+        SystemTDB.CacheBudgetMB = -1 ;
+        int N = CacheBudget.numCaches() ;
+        long used = CacheBudget.usedBytes() ;
+        CacheLRU<Integer, String> cache = fill(100, 10) ;
+        CacheBudget.Registration reg = CacheBudget.register("DB1", "test", 1000, cache) ;
+        assertEquals(N+1, CacheBudget.numCaches()) ;
+        assertEquals(used+10*1000, CacheBudget.usedBytes()) ;
+        assertEquals(10*1000L, CacheBudget.usedBytesByGroup().get("DB1").longValue()) ;
+        CacheBudget.rebalance() ;
+        assertEquals(100, cache.getMaxSize()) ;
+        CacheBudget.unregister(reg) ;
+        CacheBudget.unregister(reg) ;
+        assertEquals(N, CacheBudget.numCaches()) ;
+    }
+
+    // Budget - the cache that misses gets the space.
+    @Test public void cache_budget_02()
+    {
+        SystemTDB.CacheBudgetMB = 1 ;
+        long budget = 1024*1024 ;
+        CacheLRU<Integer, String> cache1 = fill(10, 10) ;
+        CacheLRU<Integer, String> cache2 = fill(10, 10) ;
+        CacheBudget.Registration reg1 = CacheBudget.register("DB1", "busy", 1024, cache1) ;
+        CacheBudget.Registration reg2 = CacheBudget.register("DB2", "idle", 1024, cache2) ;
+        try {
+            miss(cache1, 1000) ;
+            CacheBudget.rebalance() ;
+            assertTrue(cache1.getMaxSize() > cache2.getMaxSize()) ;
+            assertTrue(cache2.getMaxSize() >= 1) ;
+            long total = (cache1.getMaxSize() + cache2.getMaxSize()) * 1024L ;
+            assertTrue(total <= budget) ;
+            assertTrue(CacheBudget.allocatedBytes() <= budget) ;
+        } finally {
+            CacheBudget.unregister(reg1) ;
+            CacheBudget.unregister(reg2) ;
+        }
+    }
+
+    // Shrinking evicts.
+    @Test public void cache_budget_03()
+    {
+        SystemTDB.CacheBudgetMB = 1 ;
+        // Entries are so large only a few fit. 
+        CacheLRU<Integer, String> cache = fill(1000, 1000) ;
+        CacheBudget.Registration reg = CacheBudget.register("DB1", "big", 256*1024, cache) ;
+        try {
+            assertTrue(cache.getMaxSize() <= 4) ;
+            assertTrue(cache.size() <= 4) ;
+            assertTrue(cache.containsKey(999)) ;
+        } finally {
+            CacheBudget.unregister(reg) ;
+        }
+    }
+}
@@ -39,6 +39,10 @@ import org.junit.runners.Suite ;
     , TestTransRestart.class
     , TestTransactionTDB.class
     , TestTransactionUnionGraph.class
+    , TestGroupCommit.class
+    , TestCompact.class
+    , TestTransMultiVersion.class
+    , TestSnapshot.class
 })
 public class TS_TransactionTDB
 {
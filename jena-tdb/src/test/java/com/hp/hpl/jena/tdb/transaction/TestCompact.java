@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction ;
+
+import java.io.ByteArrayInputStream ;
+import java.io.File ;
+import java.io.FileOutputStream ;
+import java.io.IOException ;
+import java.nio.charset.StandardCharsets ;
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+import java.util.concurrent.atomic.AtomicBoolean ;
+import java.util.concurrent.atomic.AtomicInteger ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.Dataset ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.FmtUtils ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDBCompact ;
+import com.hp.hpl.jena.tdb.TDBFactory ;
+import com.hp.hpl.jena.tdb.TDBLoader ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+
+/** Compaction of a database while it is in use */
+public class TestCompact extends BaseTest
+{
+    private String path = null ;
+    private Location location = null ;
+
+    @Before public void setup()
+    {
+        path = ConfigTest.getCleanDir() ;
+        location = Location.create(path) ;
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(path) ;
+    }
+
+    @After public void teardown()
+    {
+        StoreConnection.release(location) ;
+        if ( FileOps.exists(path) )
+        {
+            FileOps.clearDirectory(path) ;
+            FileOps.deleteSilent(path) ;
+        }
+    }
+
+    private static Quad quad(int i)
+    {
+        return SSE.parseQuad("(<g> <s> <p> \"A string long enough not to be inlined : "+i+"\")") ;
+    }
+
+    private static void add(StoreConnection sc, int start, int finish)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+        for ( int i = start ; i < finish ; i++ )
+            dsg.add(quad(i)) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+
+    private static void delete(StoreConnection sc, int start, int finish)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+        for ( int i = start ; i < finish ; i++ )
+            dsg.delete(quad(i)) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+
+    private static long count(StoreConnection sc)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try {
+            long n = 0 ;
+            for ( java.util.Iterator<Quad> iter = dsg.find() ; iter.hasNext() ; iter.next() )
+                n++ ;
+            return n ;
+        } finally { dsg.end() ; }
+    }
+
+    /** The files swapped by compaction */
+    private List<File> dataFiles()
+    {
+        List<File> x = new ArrayList<>() ;
+        for ( File f : new File(path).listFiles() )
+        {
+            String fn = f.getName() ;
+            if ( f.isFile() && ! fn.equals("tdb.lock") && ! fn.equals(Names.journalFile) && ! fn.equals(Names.optStatsIncremental) )
+                x.add(f) ;
+        }
+        return x ;
+    }
+    
+    /** Leave the database as if compaction stopped part way through swapping the files:
+     *  the first {@code moved} files moved out, and the first {@code replaced} of those
+     *  replaced by new files. */
+    private File interruptedSwap(int moved, int replaced) throws IOException
+    {
+        File oldDir = new File(new File(path).getAbsolutePath()+"-compact-old") ;
+        FileOps.ensureDir(oldDir.getPath()) ;
+        List<File> files = dataFiles() ;
+        StringBuilder sb = new StringBuilder() ;
+        for ( File f : files )
+            sb.append("old ").append(f.getName()).append("\n") ;
+        for ( File f : files )
+            sb.append("new ").append(f.getName()).append("\n") ;
+        sb.append("new extra.dat\n") ;
+        try(FileOutputStream out = new FileOutputStream(new File(oldDir, "compact.swap"))) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8)) ;
+        }
+        for ( int i = 0 ; i < moved ; i++ )
+            assertTrue(files.get(i).renameTo(new File(oldDir, files.get(i).getName()))) ;
+        for ( int i = 0 ; i < replaced ; i++ )
+            assertTrue(files.get(i).createNewFile()) ;
+        if ( replaced > 0 )
+            assertTrue(new File(path, "extra.dat").createNewFile()) ;
+        return oldDir ;
+    }
+
+    private long nodesSize()
+    {
+        return new File(location.getPath(Names.indexId2Node, Names.extNodeData)).length() ;
+    }
+
+    @Test public void compact_01()
+    {
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 1000) ;
+        delete(sc, 100, 1000) ;
+        sc.flush() ;
+        long size = nodesSize() ;
+        TDBCompact.compact(location) ;
+        assertTrue(nodesSize() < size) ;
+        assertEquals(100, count(StoreConnection.make(location))) ;
+        // The original connection follows the compacted database.
+        assertEquals(100, count(sc)) ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        assertTrue(dsg.contains(quad(99))) ;
+        assertFalse(dsg.contains(quad(100))) ;
+        dsg.end() ;
+    }
+
+    @Test public void compact_02()
+    {
+        // Datasets stay usable, and updates persist. 
+        Dataset ds = TDBFactory.createDataset(location) ;
+        ds.begin(ReadWrite.WRITE) ;
+        ds.asDatasetGraph().add(quad(1)) ;
+        ds.asDatasetGraph().getDefaultGraph().getPrefixMapping().setNsPrefix("ex", "http://example/") ;
+        ds.commit() ;
+        ds.end() ;
+        TDBCompact.compact(location) ;
+        ds.begin(ReadWrite.WRITE) ;
+        assertTrue(ds.asDatasetGraph().contains(quad(1))) ;
+        ds.asDatasetGraph().add(quad(2)) ;
+        ds.commit() ;
+        ds.end() ;
+        StoreConnection.release(location) ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        assertEquals(2, count(sc)) ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex")) ;
+        dsg.end() ;
+    }
+
+    @Test public void compact_03()
+    {
+        // Empty database 
+        StoreConnection sc = StoreConnection.make(location) ;
+        TDBCompact.compact(location) ;
+        assertEquals(0, count(sc)) ;
+        add(sc, 0, 10) ;
+        assertEquals(10, count(sc)) ;
+    }
+
+    @Test public void compact_04() throws InterruptedException
+    {
+        // A writer carries on during compaction; its changes are in the compacted database.
+        final StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 1000) ;
+        final AtomicBoolean finished = new AtomicBoolean(false) ;
+        final AtomicInteger next = new AtomicInteger(1000) ;
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>()) ;
+        Thread writer = new Thread() {
+            @Override public void run()
+            {
+                try {
+                    while ( ! finished.get() )
+                    {
+                        int i = next.get() ;
+                        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+                        dsg.add(quad(i)) ;
+                        dsg.delete(quad(i-1000)) ;
+                        dsg.commit() ;
+                        dsg.end() ;
+                        next.incrementAndGet() ;
+                    }
+                } catch (Throwable th) { errors.add(th) ; }
+            }
+        } ;
+        writer.start() ;
+        try {
+            TDBCompact.compact(location) ;
+        } finally {
+            finished.set(true) ;
+            writer.join() ;
+        }
+        assertTrue(errors.toString(), errors.isEmpty()) ;
+        check(sc, next.get()) ;
+        StoreConnection.release(location) ;
+        check(StoreConnection.make(location), next.get()) ;
+    }
+    
+    @Test public void compact_07() throws InterruptedException
+    {
+        // A bulk load, in a write transaction, commits during the build.
+        final StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 5000) ;
+        final File nodes = new File(new File(path).getAbsolutePath()+"-compact", Names.indexId2Node+"."+Names.extNodeData) ;
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>()) ;
+        Thread loader = new Thread() {
+            @Override public void run()
+            {
+                try {
+                    // Wait for the build to start.
+                    while ( ! nodes.exists() )
+                        Thread.sleep(1) ;
+                    StringBuilder sb = new StringBuilder() ;
+                    for ( int i = 5000 ; i < 5100 ; i++ )
+                    {
+                        Quad q = quad(i) ;
+                        sb.append(FmtUtils.stringForTriple(q.asTriple())).append(" ").append(FmtUtils.stringForNode(q.getGraph())).append(" .\n") ;
+                    }
+                    DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+                    TDBLoader.load(dsg.getView(), new ByteArrayInputStream(StrUtils.asUTF8bytes(sb.toString())), false) ;
+                    dsg.commit() ;
+                    dsg.end() ;
+                } catch (Throwable th) { errors.add(th) ; }
+            }
+        } ;
+        long x = TDBCompact.RetryDelay ;
+        loader.start() ;
+        try {
+            TDBCompact.RetryDelay = 0 ;
+            TDBCompact.compact(location) ;
+        } finally {
+            TDBCompact.RetryDelay = x ;
+            loader.join() ;
+        }
+        assertTrue(errors.toString(), errors.isEmpty()) ;
+        assertEquals(5100, count(sc)) ;
+        StoreConnection.release(location) ;
+        assertEquals(5100, count(StoreConnection.make(location))) ;
+    }
+    
+    // The database holds the 1000 quads before quad(n).
+    private static void check(StoreConnection sc, int n)
+    {
+        assertEquals(1000, count(sc)) ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try {
+            for ( int i = n-1000 ; i < n ; i++ )
+                assertTrue(dsg.contains(quad(i))) ;
+        } finally { dsg.end() ; }
+    }
+
+    @Test public void compact_05() throws IOException
+    {
+        // Stopped while moving the new files in.
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 100) ;
+        StoreConnection.release(location) ;
+        int n = dataFiles().size() ;
+        File oldDir = interruptedSwap(n, n/2) ;
+        TDBCompact.compact(location) ;
+        assertFalse(oldDir.exists()) ;
+        assertFalse(new File(path, "extra.dat").exists()) ;
+        assertEquals(100, count(StoreConnection.make(location))) ;
+    }
+
+    @Test public void compact_06() throws IOException
+    {
+        // Stopped while moving the old files out.
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 100) ;
+        StoreConnection.release(location) ;
+        File oldDir = interruptedSwap(dataFiles().size()/2, 0) ;
+        TDBCompact.compact(location) ;
+        assertFalse(oldDir.exists()) ;
+        assertEquals(100, count(StoreConnection.make(location))) ;
+    }
+}
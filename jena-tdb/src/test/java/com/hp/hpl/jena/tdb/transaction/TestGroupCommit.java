@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+
+/** Durability modes of commit and commit timing */
+public class TestGroupCommit extends BaseTest
+{
+    private String path = null ;
+    private Location location = null ;
+    private DurabilityMode durability ;
+    private long window ;
+    private int queueBatchSize ;
+    private boolean backgroundWriteBack ;
+
+    @Before public void setup()
+    {
+        durability = TransactionManager.Durability ;
+        window = TransactionManager.GroupCommitWindow ;
+        queueBatchSize = TransactionManager.QueueBatchSize ;
+        backgroundWriteBack = TransactionManager.BackgroundWriteBack ;
+        path = ConfigTest.getCleanDir() ;
+        location = Location.create(path) ;
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(path) ;
+    }
+
+    @After public void teardown()
+    {
+        StoreConnection.release(location) ;
+        TransactionManager.Durability = durability ;
+        TransactionManager.GroupCommitWindow = window ;
+        TransactionManager.QueueBatchSize = queueBatchSize ;
+        TransactionManager.BackgroundWriteBack = backgroundWriteBack ;
+        if ( FileOps.exists(path) )
+        {
+            FileOps.clearDirectory(path) ;
+            FileOps.deleteSilent(path) ;
+        }
+    }
+
+    private static Quad quad(int i)
+    {
+        return SSE.parseQuad("(<g> <s> <p> "+i+")") ;
+    }
+
+    private static TransactionManager txnMgr(StoreConnection sc)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try { return dsg.getTransaction().getTxnMgr() ; }
+        finally { dsg.end() ; }
+    }
+
+    private static void add(StoreConnection sc, Quad quad)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+        try {
+            dsg.add(quad) ;
+            dsg.commit() ;
+        } finally { dsg.end() ; }
+    }
+
+    private void checkContains(int n)
+    {
+        StoreConnection.release(location) ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try {
+            for ( int i = 0 ; i < n ; i++ )
+                assertTrue("Missing "+i, dsg.contains(quad(i))) ;
+        } finally { dsg.end() ; }
+    }
+
+    @Test public void histogram_01()
+    {
+        LatencyHistogram h = new LatencyHistogram() ;
+        assertEquals(0, h.getCount()) ;
+        assertEquals(0, h.getPercentileMicros(0.5)) ;
+        h.record(500) ;             // 0 us
+        h.record(3000) ;            // 3 us
+        h.record(3000) ;
+        h.record(1000*1000) ;       // 1000 us
+        assertEquals(4, h.getCount()) ;
+        assertEquals(1000, h.getMaxMicros()) ;
+        assertEquals(251, h.getMeanMicros()) ;
+        long[] b = h.getBuckets() ;
+        assertEquals(1, b[0]) ;
+        assertEquals(2, b[2]) ;
+        assertEquals(1, b[10]) ;
+        assertEquals(4, h.getPercentileMicros(0.5)) ;
+        assertEquals(1000, h.getPercentileMicros(0.99)) ;
+        h.reset() ;
+        assertEquals(0, h.getCount()) ;
+        assertEquals(0, h.getMaxMicros()) ;
+    }
+
+    @Test public void histogram_02()
+    {
+        assertEquals(0, LatencyHistogram.bucket(0)) ;
+        assertEquals(1, LatencyHistogram.bucket(1)) ;
+        assertEquals(2, LatencyHistogram.bucket(2)) ;
+        assertEquals(2, LatencyHistogram.bucket(3)) ;
+        assertEquals(3, LatencyHistogram.bucket(4)) ;
+        assertEquals(LatencyHistogram.NumBuckets-1, LatencyHistogram.bucket(Long.MAX_VALUE)) ;
+    }
+
+    @Test public void durability_01()
+    {
+        assertEquals(DurabilityMode.GROUP, DurabilityMode.create("group")) ;
+        assertEquals(DurabilityMode.ASYNC, DurabilityMode.create("Async")) ;
+        try {
+            DurabilityMode.create("never") ;
+            fail("Expected exception") ;
+        } catch (TDBTransactionException ex) {}
+    }
+
+    @Test public void commit_sync_01()
+    {
+        TransactionManager.Durability = DurabilityMode.SYNC ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        assertEquals(DurabilityMode.SYNC, tm.getDurabilityMode()) ;
+        for ( int i = 0 ; i < 5 ; i++ )
+            add(sc, quad(i)) ;
+        assertEquals(5, tm.getJournalSyncCount()) ;
+        assertEquals(5, tm.getCommitLatency().getCount()) ;
+        TransactionInfo info = new TransactionInfo(tm) ;
+        assertEquals("SYNC", info.getDurabilityMode()) ;
+        assertEquals(5, info.getCommitLatencyCount()) ;
+        checkContains(5) ;
+    }
+
+    @Test public void commit_group_01()
+    {
+        TransactionManager.Durability = DurabilityMode.GROUP ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        assertEquals(DurabilityMode.GROUP, tm.getDurabilityMode()) ;
+        for ( int i = 0 ; i < 5 ; i++ )
+            add(sc, quad(i)) ;
+        assertEquals(5, tm.getCommitLatency().getCount()) ;
+        checkContains(5) ;
+    }
+
+    @Test public void commit_group_02() throws Exception
+    {
+        TransactionManager.Durability = DurabilityMode.GROUP ;
+        TransactionManager.GroupCommitWindow = 5 ;
+        final StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        final int N = 4 ;
+        final int M = 10 ;
+        List<Thread> threads = new ArrayList<>() ;
+        final List<Throwable> errors = new ArrayList<>() ;
+        for ( int t = 0 ; t < N ; t++ )
+        {
+            final int base = t*M ;
+            Thread thread = new Thread() {
+                @Override
+                public void run()
+                {
+                    try {
+                        for ( int i = 0 ; i < M ; i++ )
+                            add(sc, quad(base+i)) ;
+                    } catch (Throwable ex) {
+                        synchronized (errors) { errors.add(ex) ; }
+                    }
+                }
+            } ;
+            threads.add(thread) ;
+            thread.start() ;
+        }
+        for ( Thread thread : threads )
+            thread.join() ;
+        assertTrue(errors.toString(), errors.isEmpty()) ;
+        assertEquals(N*M, tm.getCommitLatency().getCount()) ;
+        assertTrue(tm.getJournalSyncCount() <= N*M) ;
+        checkContains(N*M) ;
+    }
+
+    @Test public void commit_async_01()
+    {
+        TransactionManager.Durability = DurabilityMode.ASYNC ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        assertEquals(DurabilityMode.ASYNC, tm.getDurabilityMode()) ;
+        for ( int i = 0 ; i < 5 ; i++ )
+            add(sc, quad(i)) ;
+        assertEquals(5, tm.getCommitLatency().getCount()) ;
+        // Closing the database syncs anything outstanding.
+        checkContains(5) ;
+    }
+
+    @Test public void writeback_background_01()
+    {
+        TransactionManager.Durability = DurabilityMode.GROUP ;
+        TransactionManager.QueueBatchSize = 2 ;
+        TransactionManager.BackgroundWriteBack = true ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        for ( int i = 0 ; i < 6 ; i++ )
+            add(sc, quad(i)) ;
+        tm.awaitWriteBack() ;
+        // Fewer than a batch left.
+        assertTrue(tm.state().queuedCommits < 2) ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try {
+            for ( int i = 0 ; i < 6 ; i++ )
+                assertTrue("Missing "+i, dsg.contains(quad(i))) ;
+        } finally { dsg.end() ; }
+        checkContains(6) ;
+    }
+
+    @Test public void writeback_background_02()
+    {
+        // Write-back waits for the writer; commits stay in the journal until then.
+        TransactionManager.QueueBatchSize = 0 ;
+        TransactionManager.BackgroundWriteBack = true ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        add(sc, quad(0)) ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+        try {
+            dsg.add(quad(1)) ;
+            tm.awaitWriteBack() ;
+            dsg.commit() ;
+        } finally { dsg.end() ; }
+        tm.awaitWriteBack() ;
+        assertEquals(0, tm.state().queuedCommits) ;
+        assertTrue(tm.getJournal().isEmpty()) ;
+        checkContains(2) ;
+    }
+
+    @Test public void writeback_inline_01()
+    {
+        TransactionManager.QueueBatchSize = 0 ;
+        TransactionManager.BackgroundWriteBack = false ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        add(sc, quad(0)) ;
+        assertEquals(0, tm.state().queuedCommits) ;
+        assertTrue(tm.getJournal().isEmpty()) ;
+        checkContains(1) ;
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction ;
+
+import java.io.File ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDBBackup ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+
+/** Block-level backup of a database while it is in use */
+public class TestSnapshot extends BaseTest
+{
+    private String path = null ;
+    private Location location = null ;
+    private String backup1 ;
+    private String backup2 ;
+    private String moved ;
+    private String restorePath ;
+    private Location restoreLocation ;
+
+    @Before public void setup()
+    {
+        path = ConfigTest.getCleanDir() ;
+        location = Location.create(path) ;
+        String dir = new File(path).getAbsolutePath() ;
+        backup1 = dir+"-backup1" ;
+        backup2 = dir+"-backup2" ;
+        moved = dir+"-moved" ;
+        restorePath = dir+"-restore" ;
+        restoreLocation = Location.create(restorePath) ;
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(path) ;
+        clear(backup1) ;
+        clear(backup2) ;
+        clear(moved) ;
+        clear(restorePath) ;
+    }
+
+    @After public void teardown()
+    {
+        StoreConnection.release(location) ;
+        StoreConnection.release(restoreLocation) ;
+        clear(backup1) ;
+        clear(backup2) ;
+        clear(moved) ;
+        clear(restorePath) ;
+        if ( FileOps.exists(path) )
+        {
+            FileOps.clearDirectory(path) ;
+            FileOps.deleteSilent(path) ;
+        }
+    }
+    
+    private static void clear(String dirname)
+    {
+        File dir = new File(dirname) ;
+        if ( ! dir.exists() )
+            return ;
+        FileOps.clearAll(dir) ;
+        dir.delete() ;
+    }
+
+    private static Quad quad(int i)
+    {
+        return SSE.parseQuad("(<g> <s> <p> \"A string long enough not to be inlined : "+i+"\")") ;
+    }
+
+    private static void add(StoreConnection sc, int start, int finish)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+        for ( int i = start ; i < finish ; i++ )
+            dsg.add(quad(i)) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+
+    private static void check(StoreConnection sc, int start, int finish)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try {
+            long n = 0 ;
+            for ( java.util.Iterator<Quad> iter = dsg.find() ; iter.hasNext() ; iter.next() )
+                n++ ;
+            assertEquals(finish-start, n) ;
+            for ( int i = start ; i < finish ; i++ )
+                assertTrue("Missing "+i, dsg.contains(quad(i))) ;
+        } finally { dsg.end() ; }
+    }
+    
+    private static long size(String dirname)
+    {
+        long size = 0 ;
+        for ( File f : new File(dirname).listFiles() )
+            size += f.length() ;
+        return size ;
+    }
+
+    @Test public void snapshot_01()
+    {
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 1000) ;
+        TDBBackup.snapshot(location, backup1) ;
+        add(sc, 1000, 1100) ;
+        TDBBackup.restore(backup1, restoreLocation) ;
+        check(StoreConnection.make(restoreLocation), 0, 1000) ;
+    }
+
+    @Test public void snapshot_02()
+    {
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 5000) ;
+        TDBBackup.snapshot(location, backup1) ;
+        add(sc, 5000, 5010) ;
+        TDBBackup.snapshot(location, backup2, backup1) ;
+        // Only changes kept.
+        assertTrue(size(backup2) < size(backup1)/2) ;
+        add(sc, 5010, 5020) ;
+        TDBBackup.restore(backup2, restoreLocation) ;
+        check(StoreConnection.make(restoreLocation), 0, 5010) ;
+    }
+
+    @Test public void snapshot_03()
+    {
+        // A snapshot while a reader and a writer are active.
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 100) ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        DatasetGraphTxn writer = sc.begin(ReadWrite.WRITE) ;
+        writer.add(quad(100)) ;
+        TDBBackup.snapshot(location, backup1) ;
+        writer.commit() ;
+        writer.end() ;
+        reader.end() ;
+        check(sc, 0, 101) ;
+        TDBBackup.restore(backup1, restoreLocation) ;
+        check(StoreConnection.make(restoreLocation), 0, 100) ;
+    }
+
+    @Test public void hold_01()
+    {
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        tm = dsg.getTransaction().getTxnMgr() ;
+        dsg.end() ;
+        sc.holdWriteBack() ;
+        try {
+            add(sc, 0, 10) ;
+            assertFalse(tm.getJournal().isEmpty()) ;
+            check(sc, 0, 10) ;
+        } finally { sc.releaseWriteBack() ; }
+        assertTrue(tm.getJournal().isEmpty()) ;
+        check(sc, 0, 10) ;
+    }
+
+    @Test public void hold_02() throws Exception
+    {
+        final StoreConnection sc = StoreConnection.make(location) ;
+        sc.holdCommits() ;
+        Thread thread ;
+        try {
+            thread = new Thread() {
+                @Override public void run() { add(sc, 0, 10) ; }
+            } ;
+            thread.start() ;
+            thread.join(200) ;
+            // Waiting to commit.
+            assertTrue(thread.isAlive()) ;
+        } finally { sc.releaseCommits() ; }
+        thread.join() ;
+        check(sc, 0, 10) ;
+    }
+
+    @Test public void snapshot_04() throws Exception
+    {
+        // A snapshot while a writer is committing.
+        final StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 1000) ;
+        final int N = 200 ;
+        Thread thread = new Thread() {
+            @Override public void run()
+            {
+                for ( int i = 1000 ; i < 1000+N ; i++ )
+                    add(sc, i, i+1) ;
+            }
+        } ;
+        thread.start() ;
+        TDBBackup.snapshot(location, backup1) ;
+        thread.join() ;
+        check(sc, 0, 1000+N) ;
+        TDBBackup.restore(backup1, restoreLocation) ;
+        // Some prefix of the commits.
+        StoreConnection sc2 = StoreConnection.make(restoreLocation) ;
+        DatasetGraphTxn dsg = sc2.begin(ReadWrite.READ) ;
+        long n = 0 ;
+        try {
+            for ( java.util.Iterator<Quad> iter = dsg.find() ; iter.hasNext() ; iter.next() )
+                n++ ;
+        } finally { dsg.end() ; }
+        assertTrue(n >= 1000 && n <= 1000+N) ;
+        check(sc2, 0, (int)n) ;
+    }
+
+    @Test public void snapshot_05()
+    {
+        // Snapshots moved together still restore.
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 1000) ;
+        TDBBackup.snapshot(location, backup1) ;
+        add(sc, 1000, 1010) ;
+        TDBBackup.snapshot(location, backup2, backup1) ;
+        FileOps.ensureDir(moved) ;
+        File b1 = new File(moved, new File(backup1).getName()) ;
+        File b2 = new File(moved, new File(backup2).getName()) ;
+        assertTrue(new File(backup1).renameTo(b1)) ;
+        assertTrue(new File(backup2).renameTo(b2)) ;
+        TDBBackup.restore(b2.getPath(), restoreLocation) ;
+        check(StoreConnection.make(restoreLocation), 0, 1010) ;
+    }
+
+    @Test public void snapshot_06() throws Exception
+    {
+        // A snapshot while a writer is writing its commit record.
+        final StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 100) ;
+        sc.flush() ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        Journal journal = dsg.getTransaction().getTxnMgr().getJournal() ;
+        dsg.end() ;
+        Thread writer = new Thread() {
+            @Override public void run()
+            {
+                DatasetGraphTxn w = sc.begin(ReadWrite.WRITE) ;
+                w.commit() ;
+                w.end() ;
+            }
+        } ;
+        Thread snapshot = new Thread() {
+            @Override public void run() { TDBBackup.snapshot(location, backup1) ; }
+        } ;
+        synchronized (journal)
+        {
+            writer.start() ;
+            // Nothing to prepare : the writer waits to write the commit record. 
+            while ( writer.getState() != Thread.State.BLOCKED )
+                Thread.sleep(1) ;
+            snapshot.start() ;
+            while ( snapshot.isAlive() && snapshot.getState() != Thread.State.WAITING )
+                Thread.sleep(1) ;
+            // Waiting for the commit record.
+            assertTrue(snapshot.isAlive()) ;
+        }
+        writer.join() ;
+        snapshot.join() ;
+        TDBBackup.restore(backup1, restoreLocation) ;
+        check(StoreConnection.make(restoreLocation), 0, 100) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void restore_01()
+    {
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 10) ;
+        TDBBackup.snapshot(location, backup1) ;
+        // Database in use.
+        TDBBackup.restore(backup1, location) ;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.tdb.transaction ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+
+/** Write-back to the base database while read transactions are active */
+public class TestTransMultiVersion extends BaseTest
+{
+    private String path = null ;
+    private Location location = null ;
+    private boolean multiVersion ;
+    private int queueBatchSize ;
+
+    @Before public void setup()
+    {
+        multiVersion = TransactionManager.MultiVersionReaders ;
+        queueBatchSize = TransactionManager.QueueBatchSize ;
+        TransactionManager.QueueBatchSize = 0 ;
+        path = ConfigTest.getCleanDir() ;
+        location = Location.create(path) ;
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(path) ;
+    }
+
+    @After public void teardown()
+    {
+        StoreConnection.release(location) ;
+        TransactionManager.MultiVersionReaders = multiVersion ;
+        TransactionManager.QueueBatchSize = queueBatchSize ;
+        if ( FileOps.exists(path) )
+        {
+            FileOps.clearDirectory(path) ;
+            FileOps.deleteSilent(path) ;
+        }
+    }
+
+    private static Quad quad(int i)
+    {
+        return SSE.parseQuad("(<g> <s"+(i%7)+"> <p> "+i+")") ;
+    }
+
+    private static TransactionManager txnMgr(StoreConnection sc)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try { return dsg.getTransaction().getTxnMgr() ; }
+        finally { dsg.end() ; }
+    }
+
+    // Enough quads to split index blocks.
+    private static void add(StoreConnection sc, int start, int n)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+        try {
+            for ( int i = start ; i < start+n ; i++ )
+                dsg.add(quad(i)) ;
+            dsg.commit() ;
+        } finally { dsg.end() ; }
+    }
+
+    private static void delete(StoreConnection sc, int start, int n)
+    {
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.WRITE) ;
+        try {
+            for ( int i = start ; i < start+n ; i++ )
+                dsg.delete(quad(i)) ;
+            dsg.commit() ;
+        } finally { dsg.end() ; }
+    }
+
+    private static long count(DatasetGraphTxn dsg)
+    {
+        return Iter.count(dsg.find()) ;
+    }
+
+    private static void check(DatasetGraphTxn dsg, int start, int n)
+    {
+        assertEquals(n, count(dsg)) ;
+        for ( int i = start ; i < start+n ; i++ )
+            assertTrue("Missing "+i, dsg.contains(quad(i))) ;
+    }
+
+    @Test public void multiversion_01()
+    {
+        TransactionManager.MultiVersionReaders = true ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        assertTrue(tm.isMultiVersion()) ;
+        add(sc, 0, 100) ;
+
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        try {
+            for ( int i = 1 ; i <= 10 ; i++ )
+            {
+                add(sc, i*1000, 200) ;
+                // Written back even though there is an active reader.
+                assertTrue(tm.getJournal().isEmpty()) ;
+                assertEquals(0, tm.state().queuedCommits) ;
+                check(reader, 0, 100) ;
+            }
+            assertTrue(tm.getBlockVersions().getCount() > 0) ;
+            assertFalse(reader.contains(quad(1000))) ;
+        } finally { reader.end() ; }
+        
+        assertEquals(0, tm.getBlockVersions().getCount()) ;
+        DatasetGraphTxn dsg = sc.begin(ReadWrite.READ) ;
+        try {
+            assertEquals(100+10*200, count(dsg)) ;
+        } finally { dsg.end() ; }
+    }
+
+    @Test public void multiversion_02()
+    {
+        // Readers at different points.
+        TransactionManager.MultiVersionReaders = true ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        add(sc, 0, 500) ;
+        DatasetGraphTxn reader1 = sc.begin(ReadWrite.READ) ;
+        delete(sc, 0, 250) ;
+        DatasetGraphTxn reader2 = sc.begin(ReadWrite.READ) ;
+        add(sc, 1000, 500) ;
+        DatasetGraphTxn reader3 = sc.begin(ReadWrite.READ) ;
+        delete(sc, 1000, 500) ;
+        assertTrue(tm.getJournal().isEmpty()) ;
+
+        check(reader1, 0, 500) ;
+        check(reader2, 250, 250) ;
+        assertEquals(750, count(reader3)) ;
+        reader1.end() ;
+        check(reader2, 250, 250) ;
+        assertEquals(750, count(reader3)) ;
+        reader2.end() ;
+        assertEquals(750, count(reader3)) ;
+        reader3.end() ;
+        assertEquals(0, tm.getBlockVersions().getCount()) ;
+    }
+
+    @Test public void multiversion_03()
+    {
+        // Node lookup of a node added after the reader started.
+        TransactionManager.MultiVersionReaders = true ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        add(sc, 0, 10) ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        try {
+            add(sc, 10, 500) ;
+            Node s = SSE.parseNode("<s3>") ;
+            assertEquals(1, Iter.count(reader.find(Node.ANY, s, Node.ANY, Node.ANY))) ;
+            assertFalse(reader.contains(quad(17))) ;
+        } finally { reader.end() ; }
+    }
+
+    @Test public void multiversion_04()
+    {
+        // Write-back waits for readers.
+        TransactionManager.MultiVersionReaders = false ;
+        StoreConnection sc = StoreConnection.make(location) ;
+        TransactionManager tm = txnMgr(sc) ;
+        assertFalse(tm.isMultiVersion()) ;
+        add(sc, 0, 10) ;
+        DatasetGraphTxn reader = sc.begin(ReadWrite.READ) ;
+        try {
+            add(sc, 10, 10) ;
+            assertFalse(tm.getJournal().isEmpty()) ;
+            assertEquals(1, tm.state().queuedCommits) ;
+            check(reader, 0, 10) ;
+        } finally { reader.end() ; }
+        assertTrue(tm.getJournal().isEmpty()) ;
+        assertEquals(0, tm.getBlockVersions().getCount()) ;
+    }
+}